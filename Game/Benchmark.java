@@ -0,0 +1,351 @@
+package Game;
+
+import java.awt.image.BufferedImage;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Micro benchmarks for the simulation hot path: level painting, mini map creation, mask
+ * operations, Lemming animation per skill and complete simulation frames.
+ *
+ * <p>Each benchmark is run on every selected level: first some warm up rounds to let the JIT
+ * compile the code, then the measured rounds. Time and allocated bytes (if supported by the VM)
+ * are summed over all levels and printed per operation.
+ */
+public class Benchmark {
+  /** number of warm up rounds per level and benchmark */
+  private static final int WARMUP_ROUNDS = 3;
+
+  /** number of measured rounds per level and benchmark */
+  private static final int MEASURE_ROUNDS = 5;
+
+  /** number of Lemmings used for the animation benchmarks */
+  private static final int NUM_LEMMINGS = 100;
+
+  /** number of frames simulated before assigning skills (let the Lemmings land) */
+  private static final int SETTLE_FRAMES = 250;
+
+  /** number of frames measured per round in animation benchmarks */
+  private static final int FRAMES = 200;
+
+  /** number of mask operations per round */
+  private static final int MASK_OPS = 1000;
+
+  /** skills measured in the animation benchmarks */
+  private static final Lemming.Type SKILLS[] = {
+    Lemming.Type.WALKER,
+    Lemming.Type.CLIMBER,
+    Lemming.Type.FLOATER,
+    Lemming.Type.BOMBER,
+    Lemming.Type.STOPPER,
+    Lemming.Type.BUILDER,
+    Lemming.Type.BASHER,
+    Lemming.Type.MINER,
+    Lemming.Type.DIGGER
+  };
+
+  /** operation to measure */
+  private interface Op {
+    /**
+     * Run one operation.
+     *
+     * @param i index of operation in this round
+     */
+    void run(int i);
+  }
+
+  /** accumulated results of one benchmark */
+  private static class Stat {
+    /** number of operations measured */
+    long ops;
+
+    /** time used in nanoseconds */
+    long nanos;
+
+    /** allocated bytes (negative if not supported) */
+    long bytes;
+  }
+
+  /** thread bean used to measure allocations (null if not supported) */
+  private final com.sun.management.ThreadMXBean threadBean;
+
+  /** results by benchmark name in the order of execution */
+  private final LinkedHashMap<String, Stat> stats;
+
+  /** engine used for all benchmarks */
+  private final SimulationEngine engine;
+
+  /** sum of probe results (keeps the JIT from removing the probes) */
+  private long sink;
+
+  /** number of levels run */
+  private int numLevels;
+
+  /** sum of terrain tiles changed per level (see {@link TerrainTiles}) */
+  private long changedTiles;
+
+  /** sum of terrain tile copies per level */
+  private long tileCopies;
+
+  /** Constructor. */
+  Benchmark() {
+    java.lang.management.ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+    if (tb instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) tb).isThreadAllocatedMemorySupported()) {
+      threadBean = (com.sun.management.ThreadMXBean) tb;
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+    } else threadBean = null;
+    stats = new LinkedHashMap<String, Stat>();
+    engine = new SimulationEngine(new Level());
+  }
+
+  /**
+   * Get number of bytes allocated by the current thread.
+   *
+   * @return number of allocated bytes or -1 if not supported
+   */
+  private long allocatedBytes() {
+    if (threadBean == null) return -1;
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Run a benchmark on the currently loaded level.
+   *
+   * @param name name of benchmark
+   * @param ops number of operations per round
+   * @param setup code to run (unmeasured) before each round, may be null
+   * @param op operation to measure
+   */
+  private void measure(final String name, final int ops, final Runnable setup, final Op op) {
+    Stat st = stats.computeIfAbsent(name, k -> new Stat());
+    for (int r = 0; r < WARMUP_ROUNDS + MEASURE_ROUNDS; r++) {
+      if (setup != null) setup.run();
+      long b0 = allocatedBytes();
+      long t0 = System.nanoTime();
+      for (int i = 0; i < ops; i++) op.run(i);
+      long t1 = System.nanoTime();
+      long b1 = allocatedBytes();
+      if (r >= WARMUP_ROUNDS) {
+        st.ops += ops;
+        st.nanos += t1 - t0;
+        st.bytes = (b0 < 0) ? -1 : st.bytes + b1 - b0;
+      }
+    }
+  }
+
+  /**
+   * Initialize the level and simulate the release of the Lemmings until they landed. Exactly the
+   * given number of Lemmings is released, whatever the level's own number is.
+   *
+   * @param num number of Lemmings to release (one per frame, distributed over all entries)
+   */
+  private void spawnLemmings(final int num) {
+    engine.initLevel();
+    engine.setNumLemmingsMax(num);
+    for (int f = 0; f < SETTLE_FRAMES; f++) {
+      if (f < num) engine.releaseLemming();
+      engine.step();
+    }
+  }
+
+  /** Animate all active Lemmings once. */
+  private void animateLemmings() {
+    for (int i = 0; i < engine.getNumLemmings(); i++) {
+      Lemming l = engine.getLemmingAt(i);
+      if (!l.hasDied() && !l.hasLeft()) l.animate();
+    }
+  }
+
+  /** Run all benchmarks on the currently loaded level. */
+  private void runLevel() {
+    final Level level = engine.getLevel();
+    engine.initLevel();
+
+    // paint into separate buffers: the snapshot taken by initLevel() isn't part of painting
+    final BufferedImage bg =
+        new BufferedImage(Level.WIDTH, Level.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    final Stencil paintStencil[] = new Stencil[1];
+    measure(
+        "SimulationEngine.paintLevel",
+        1,
+        null,
+        i -> paintStencil[0] = SimulationEngine.paintLevel(level, bg, paintStencil[0]));
+    // painting recreated the level's objects
+    engine.initLevel();
+
+    final BufferedImage miniMap[] = new BufferedImage[1];
+    measure(
+        "Level.createMiniMap",
+        1,
+        null,
+        i -> miniMap[0] = level.createMiniMap(miniMap[0], engine.getBgImage(), 16, 8, true));
+    engine.setMiniMap(miniMap[0]);
+
+    final Mask erase = Lemming.getResource(Lemming.Type.BASHER).getMask(Lemming.Direction.RIGHT);
+    measure(
+        "Mask.eraseMask",
+        MASK_OPS,
+        engine::initLevel,
+        i -> erase.eraseMask(engine, maskX(i, erase), maskY(i, erase), 0, Stencil.MSK_STEEL));
+
+    final Mask step = Lemming.getResource(Lemming.Type.BUILDER).getMask(Lemming.Direction.RIGHT);
+    measure(
+        "Mask.paintStep",
+        MASK_OPS,
+        engine::initLevel,
+        i -> step.paintStep(engine, maskX(i, step), maskY(i, step), 0, level.getDebrisColor()));
+
+    final Stencil stencil = engine.getStencil();
+    measure(
+        "Stencil.freeBelow",
+        MASK_OPS,
+        null,
+        i -> sink += stencil.freeBelow(maskX(i, erase), maskY(i, erase), Level.HEIGHT));
+
+    for (final Lemming.Type skill : SKILLS) {
+      measure(
+          "Lemming.animate " + skill.name().toLowerCase() + " (" + NUM_LEMMINGS + " Lemmings)",
+          FRAMES,
+          () -> {
+            spawnLemmings(NUM_LEMMINGS);
+            if (skill != Lemming.Type.WALKER)
+              for (int n = 0; n < engine.getNumLemmings(); n++)
+                engine.getLemmingAt(n).setSkill(skill);
+          },
+          i -> animateLemmings());
+    }
+
+    measure(
+        "SimulationEngine.step (" + NUM_LEMMINGS + " Lemmings)",
+        FRAMES,
+        () -> spawnLemmings(NUM_LEMMINGS),
+        i -> engine.step());
+
+    // a terrain snapshot per frame, like a solver branching in every frame would take
+    final TerrainTiles tiles = engine.getTerrainTiles();
+    measure(
+        "SimulationEngine.step + snapshot (" + NUM_LEMMINGS + " miners)",
+        FRAMES,
+        () -> {
+          spawnLemmings(NUM_LEMMINGS);
+          for (int n = 0; n < engine.getNumLemmings(); n++)
+            engine.getLemmingAt(n).setSkill(Lemming.Type.MINER);
+        },
+        i -> {
+          engine.step();
+          tiles.snapshot().release();
+        });
+    numLevels++;
+    changedTiles += tiles.getChangedTiles();
+    tileCopies += tiles.getCopies();
+  }
+
+  /**
+   * Get a pseudo random x position for a mask operation.
+   *
+   * @param i index of operation
+   * @param m mask
+   * @return x position in pixels
+   */
+  private static int maskX(final int i, final Mask m) {
+    return (i * 397) % (Level.WIDTH - m.getWidth());
+  }
+
+  /**
+   * Get a pseudo random y position for a mask operation.
+   *
+   * @param i index of operation
+   * @param m mask
+   * @return y position in pixels
+   */
+  private static int maskY(final int i, final Mask m) {
+    return (i * 53) % (Level.HEIGHT - m.getHeight());
+  }
+
+  /**
+   * Print the results.
+   *
+   * @param out stream to print to
+   */
+  private void print(final PrintStream out) {
+    out.printf("%-45s %14s %14s%n", "Benchmark", "ns/op", "B/op");
+    for (String name : stats.keySet()) {
+      Stat st = stats.get(name);
+      String bytes = (st.bytes < 0) ? "n/a" : Long.toString(st.bytes / st.ops);
+      out.printf("%-45s %14d %14s%n", name, st.nanos / st.ops, bytes);
+    }
+  }
+
+  /**
+   * Command line entry: run all benchmarks on the first levels of a level pack.
+   *
+   * @param packName name of level pack (null: first level pack)
+   * @param numLevels maximum number of levels to use
+   * @param out stream to print the results to
+   * @throws LemmException
+   * @throws ResourceException
+   */
+  public static void run(final String packName, final int numLevels, final PrintStream out)
+      throws LemmException, ResourceException {
+    System.setProperty("java.awt.headless", "true");
+    Core.initHeadless();
+    Explosion.init();
+    Lemming.loadLemmings();
+
+    LevelPack lp = null;
+    for (LevelPack p : LevelPack.readLevelPacks())
+      if (packName == null || p.getName().equalsIgnoreCase(packName)) {
+        lp = p;
+        break;
+      }
+    if (lp == null) throw new LemmException("Level pack " + packName + " not found");
+
+    List<String> levels = new ArrayList<String>();
+    for (int d = 0; d < lp.getDiffLevels().size(); d++)
+      for (int n = 0; n < lp.getLevelCount(d) && levels.size() < numLevels; n++)
+        levels.add(lp.getInfo(d, n).getFileName());
+
+    Benchmark b = new Benchmark();
+    for (String lvl : levels) {
+      out.println("Level " + lvl);
+      b.engine.getLevel().loadLevel(lvl, lp.getMaxFallDistance());
+      b.runLevel();
+    }
+    b.print(out);
+    Stencil stencil = b.engine.getStencil();
+    if (stencil != null)
+      out.printf(
+          "Stencil memory: %d bytes (%d bytes with one int per pixel)%n",
+          stencil.getMemorySize(),
+          4L * stencil.getWidth() * stencil.getHeight());
+    if (b.numLevels > 0)
+      out.printf(
+          "Terrain tiles: %d of %d changed per level, %d copies per level (%d bytes per tile)%n",
+          b.changedTiles / b.numLevels,
+          TerrainTiles.NUM_TILES,
+          b.tileCopies / b.numLevels,
+          TerrainTiles.TILE_BYTES);
+    out.printf(
+        "Style cache: %d hits, %d misses%n", StyleCache.getHits(), StyleCache.getMisses());
+  }
+}
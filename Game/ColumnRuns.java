@@ -0,0 +1,211 @@
+package Game;
+
+import java.util.Arrays;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Run length index of the solid (MSK_WALK_ON) and empty spans of each stencil column.
+ *
+ * <p>For each column the y positions where the state changes are stored in ascending order (the
+ * pixel above the top line counts as empty). The number of changes at or above a pixel is found by
+ * a binary search: if it's odd, the pixel is solid, and the neighbouring changes are the ends of
+ * the span containing the pixel.
+ *
+ * <p>Changes of the stencil only invalidate the affected column. The column is rebuilt from the
+ * walk-on bitplane of the {@link Stencil} when it is queried the next time.
+ */
+class ColumnRuns {
+  /** initial number of changes which can be stored per column */
+  private static final int INITIAL_RUNS = 8;
+
+  /** walk-on bitplane of the stencil, column major */
+  private final long bits[];
+
+  /** number of longs used per column in the bitplane */
+  private final int colWords;
+
+  /** height of the stencil in pixels */
+  private final int height;
+
+  /** y positions of the state changes of each column */
+  private final int runs[][];
+
+  /** number of state changes of each column */
+  private final int numRuns[];
+
+  /** columns which have to be rebuilt before use */
+  private final boolean dirty[];
+
+  /**
+   * Constructor.
+   *
+   * @param walkOn walk-on bitplane (column major, shared with the stencil)
+   * @param width width of the stencil in pixels
+   * @param h height of the stencil in pixels
+   * @param words number of longs used per column in the bitplane
+   */
+  ColumnRuns(final long walkOn[], final int width, final int h, final int words) {
+    bits = walkOn;
+    colWords = words;
+    height = h;
+    runs = new int[width][];
+    numRuns = new int[width];
+    dirty = new boolean[width];
+    Arrays.fill(dirty, true);
+  }
+
+  /**
+   * Invalidate a column after the walk-on state of one of its pixels changed.
+   *
+   * @param x x position in pixels
+   */
+  void invalidate(final int x) {
+    dirty[x] = true;
+  }
+
+  /** Invalidate all columns. */
+  void invalidateAll() {
+    Arrays.fill(dirty, true);
+  }
+
+  /**
+   * Rebuild the state changes of a column from the bitplane.
+   *
+   * @param x x position in pixels
+   */
+  private void rebuild(final int x) {
+    int r[] = runs[x];
+    if (r == null) r = new int[INITIAL_RUNS];
+    int n = 0;
+    long carry = 0; // state of the last pixel of the previous word
+    int idx = x * colWords;
+    for (int word = 0; word < colWords; word++) {
+      long w = bits[idx + word];
+      long changes = w ^ ((w << 1) | carry);
+      carry = w >>> 63;
+      while (changes != 0) {
+        int y = (word << 6) + Long.numberOfTrailingZeros(changes);
+        changes &= changes - 1;
+        if (y >= height) break;
+        if (n == r.length) r = Arrays.copyOf(r, r.length * 2);
+        r[n++] = y;
+      }
+    }
+    runs[x] = r;
+    numRuns[x] = n;
+    dirty[x] = false;
+  }
+
+  /**
+   * Get the number of state changes at or above the given pixel.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @return number of state changes (odd: pixel is solid)
+   */
+  private int find(final int x, final int y) {
+    if (dirty[x]) rebuild(x);
+    int r[] = runs[x];
+    int lo = 0;
+    int hi = numRuns[x];
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (r[mid] <= y) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /**
+   * Get the first line below the span containing the given pixel.
+   *
+   * @param x x position in pixels
+   * @param k number of state changes at or above the pixel
+   * @return y position in pixels
+   */
+  private int spanEnd(final int x, final int k) {
+    return (k < numRuns[x]) ? runs[x][k] : height;
+  }
+
+  /**
+   * Get the first line of the span containing the given pixel.
+   *
+   * @param x x position in pixels
+   * @param k number of state changes at or above the pixel
+   * @return y position in pixels
+   */
+  private int spanStart(final int x, final int k) {
+    return (k > 0) ? runs[x][k - 1] : 0;
+  }
+
+  /**
+   * Count the consecutive empty pixels from the given position downwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (must not exceed the bottom of the stencil)
+   * @return number of consecutive empty pixels
+   */
+  int freeBelow(final int x, final int y, final int max) {
+    if (max <= 0) return 0;
+    int k = find(x, y);
+    if ((k & 1) != 0) return 0;
+    return Math.min(spanEnd(x, k) - y, max);
+  }
+
+  /**
+   * Count the consecutive empty pixels from the given position upwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (must not exceed the top of the stencil)
+   * @return number of consecutive empty pixels
+   */
+  int freeAbove(final int x, final int y, final int max) {
+    if (max <= 0) return 0;
+    int k = find(x, y);
+    if ((k & 1) != 0) return 0;
+    return Math.min(y - spanStart(x, k) + 1, max);
+  }
+
+  /**
+   * Count the consecutive solid pixels from the given position upwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (must not exceed the top of the stencil)
+   * @return number of consecutive solid pixels
+   */
+  int solidAbove(final int x, final int y, final int max) {
+    if (max <= 0) return 0;
+    int k = find(x, y);
+    if ((k & 1) == 0) return 0;
+    return Math.min(y - spanStart(x, k) + 1, max);
+  }
+
+  /**
+   * Get the approximate memory used by the index.
+   *
+   * @return size in bytes
+   */
+  long getMemorySize() {
+    long size = 5L * numRuns.length;
+    for (int r[] : runs) if (r != null) size += 4L * r.length;
+    return size;
+  }
+}
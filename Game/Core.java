@@ -153,6 +153,21 @@ public class Core {
     player = new Player(defaultPlayer);
   }
 
+  /**
+   * Initialize the core elements needed to simulate levels without a display. The resources must
+   * have been extracted before by running the game once.
+   *
+   * @throws LemmException
+   */
+  public static synchronized void initHeadless() throws LemmException {
+    resourcePath = new File(getAppDataDir(), "Lemmini");
+
+    programProps = new Props();
+    if (!programProps.load(new File(resourcePath, INI_NAME)) || getFolder("sourcePath") == null)
+      throw new LemmException(
+          "Resources not found in " + resourcePath + ", run Lemmini once first");
+  }
+
   /**
    * Get the apps data dir
    *
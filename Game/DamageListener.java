@@ -0,0 +1,30 @@
+package Game;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/** Listener interface to inform the renderer about changed parts of the level. */
+public interface DamageListener {
+  /**
+   * Part of the level was changed and has to be redrawn.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param width width in pixels
+   * @param height height in pixels
+   */
+  public void damaged(int x, int y, int width, int height);
+}
@@ -0,0 +1,44 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for level Entries.
+ *
+ * @author Volker Oth
+ */
+class Entry {
+  /** identifier */
+  int id;
+
+  /** x position in pixels */
+  int xPos;
+
+  /** y position in pixels */
+  int yPos;
+
+  /**
+   * Constructor.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   */
+  Entry(final int x, final int y) {
+    xPos = x;
+    yPos = y;
+  }
+}
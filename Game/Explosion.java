@@ -3,6 +3,7 @@ package Game;
 import Tools.ToolBox;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 
@@ -90,10 +91,11 @@ public class Explosion {
   /**
    * Constructor.
    *
+   * @param level level the explosion happens in (used for the particle colors)
    * @param x x position in pixels.
    * @param y y position in pixels.
    */
-  public Explosion(final int x, final int y) {
+  public Explosion(final Level level, final int x, final int y) {
     xExp = x - expImg.getWidth() / 2;
     yExp = y - expImg.getHeight() / 2;
     maxCounter = 0;
@@ -102,8 +104,7 @@ public class Explosion {
       double dx = (Math.random() * (MAX_DX - MIN_DX) + MIN_DX);
       double dy = (Math.random() * (MAX_DY - MIN_DY) + MIN_DY);
       int color =
-          GameController.getLevel()
-              .getParticleCol()[(int) (Math.random() * Level.DEFAULT_PARTICLE_COLORS.length)];
+          level.getParticleCol()[(int) (Math.random() * Level.DEFAULT_PARTICLE_COLORS.length)];
       int lifeCtr = LIFE_COUNTER + (int) (Math.random() * 2 * LIFE_VARIANCE) - LIFE_VARIANCE;
       if (lifeCtr > maxCounter) maxCounter = lifeCtr;
       particles[i] = new Particle(x, y, dx, dy, color, lifeCtr);
@@ -112,6 +113,22 @@ public class Explosion {
     finished = false;
   }
 
+  /**
+   * Copy constructor.
+   *
+   * @param src explosion to copy
+   */
+  Explosion(final Explosion src) {
+    xExp = src.xExp;
+    yExp = src.yExp;
+    maxCounter = src.maxCounter;
+    particles = new Particle[PARTICLE_NUM];
+    for (int i = 0; i < PARTICLE_NUM; i++)
+      if (src.particles[i] != null) particles[i] = new Particle(src.particles[i]);
+    counter = src.counter;
+    finished = src.finished;
+  }
+
   /** Update explosion (move particles etc.). */
   public void update() {
     for (int i = 0; i < PARTICLE_NUM; i++) {
@@ -128,37 +145,86 @@ public class Explosion {
     if (++counter > maxCounter) finished = true;
   }
 
+  /**
+   * Store the current state of the explosion for drawing.
+   *
+   * @param v explosion entry of a render frame
+   */
+  void capture(final RenderFrame.ExplosionView v) {
+    v.bounds.setBounds(getBounds());
+    v.num = 0;
+    if (finished) {
+      v.showImage = false;
+      return;
+    }
+    v.showImage = counter < REMOVE_IMAGE_CTR;
+    v.imgX = xExp;
+    v.imgY = yExp;
+    if (v.px == null) {
+      v.px = new int[PARTICLE_NUM];
+      v.py = new int[PARTICLE_NUM];
+      v.color = new Color[PARTICLE_NUM];
+    }
+    for (Particle p : particles) {
+      if (p != null) {
+        v.px[v.num] = (int) p.x;
+        v.py[v.num] = (int) p.y;
+        v.color[v.num] = p.color;
+        v.num++;
+      }
+    }
+  }
+
   /**
    * Draw explosion on graphics object.
    *
-   * @param g
-   * @param width
-   * @param height
-   * @param xOfs
+   * @param g graphics object
+   * @param v explosion state stored via {@link #capture(RenderFrame.ExplosionView)}
+   * @param width width of screen in pixels
+   * @param height height of screen in pixels
+   * @param xOfs horizontal level offset in pixels
    */
-  public void draw(final Graphics2D g, final int width, final int height, final int xOfs) {
-    if (!finished) {
-      int maxY = height - 1;
-      int maxX = width - 1;
-      // draw explosion bitmap
-      if (counter < REMOVE_IMAGE_CTR) {
-        int x = xExp - xOfs;
-        if (x > 0 && x < maxX) g.drawImage(expImg, xExp - xOfs, yExp, null);
+  static void draw(
+      final Graphics2D g,
+      final RenderFrame.ExplosionView v,
+      final int width,
+      final int height,
+      final int xOfs) {
+    int maxY = height - 1;
+    int maxX = width - 1;
+    // draw explosion bitmap
+    if (v.showImage) {
+      int x = v.imgX - xOfs;
+      if (x > 0 && x < maxX) g.drawImage(expImg, v.imgX - xOfs, v.imgY, null);
+    }
+    // draw particles
+    for (int i = 0; i < v.num; i++) {
+      int x = v.px[i] - xOfs;
+      int y = v.py[i];
+      if (x > 0 && x < maxX - 1 && y > 0 && y < maxY - 1) {
+        g.setColor(v.color[i]);
+        g.fillRect(x, y, 2, 2);
       }
-      // draw particles
-      for (int i = 0; i < PARTICLE_NUM; i++) {
-        Particle p = particles[i];
-        if (p != null) {
-          // draw
-          int x = (int) p.x - xOfs;
-          int y = (int) p.y;
-          if (x > 0 && x < maxX - 1 && y > 0 && y < maxY - 1) {
-            g.setColor(p.color);
-            g.fillRect(x, y, 2, 2);
-          }
-        }
+    }
+  }
+
+  /**
+   * Get the area covered by the explosion.
+   *
+   * @return bounding rectangle in pixels (level coordinates)
+   */
+  public Rectangle getBounds() {
+    Rectangle r = new Rectangle();
+    if (finished) return r;
+    if (counter < REMOVE_IMAGE_CTR)
+      r.setBounds(xExp, yExp, expImg.getWidth(), expImg.getHeight());
+    for (Particle p : particles) {
+      if (p != null) {
+        if (r.isEmpty()) r.setBounds((int) p.x, (int) p.y, 2, 2);
+        else r.add(new Rectangle((int) p.x, (int) p.y, 2, 2));
       }
     }
+    return r;
   }
 
   /**
@@ -212,5 +278,19 @@ public class Explosion {
       color = new Color(col);
       lifeCtr = lCtr;
     }
+
+    /**
+     * Copy constructor
+     *
+     * @param src particle to copy
+     */
+    Particle(final Particle src) {
+      x = src.x;
+      y = src.y;
+      dx = src.dx;
+      dy = src.dy;
+      color = src.color;
+      lifeCtr = src.lifeCtr;
+    }
   }
 }
@@ -0,0 +1,121 @@
+package Game;
+
+import Tools.ToolBox;
+import Tools.TripleBuffer;
+import java.awt.image.BufferedImage;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Hands over {@link RenderFrame}s from the simulation thread to the render thread.
+ *
+ * <p>The frames are passed via a {@link TripleBuffer}, so the simulation never waits for the render
+ * thread and vice versa. Each frame has its own copy of the background image. To keep the copies
+ * cheap, the level is divided into tiles and every change of the background image stamps the
+ * touched tiles with the current sequence number. When a frame is published, only the tiles
+ * stamped after the frame was published the last time are copied into it.
+ */
+final class FrameExchange implements DamageListener {
+  /** triple buffer of frames */
+  private final TripleBuffer<RenderFrame> frames =
+      new TripleBuffer<RenderFrame>(RenderFrame::new);
+
+  /** sequence number of the last change of each tile */
+  private final int tileSeq[] = new int[LevelRenderer.TILES_X * LevelRenderer.TILES_Y];
+
+  /** sequence number of the frame currently filled */
+  private int seq = 1;
+
+  /* (non-Javadoc)
+   * @see Game.DamageListener#damaged(int, int, int, int)
+   */
+  @Override
+  public synchronized void damaged(final int x, final int y, final int width, final int height) {
+    LevelRenderer.mark(tileSeq, seq, x, y, width, height);
+  }
+
+  /**
+   * Get the frame to fill. Simulation thread only.
+   *
+   * @return frame owned by the simulation thread
+   */
+  RenderFrame getBack() {
+    return frames.getBack();
+  }
+
+  /**
+   * Publish the filled frame. Simulation thread only.
+   *
+   * @param bg background image to copy the changed tiles from (null: frame contains no level)
+   */
+  synchronized void publish(final BufferedImage bg) {
+    RenderFrame f = frames.getBack();
+    if (bg != null) {
+      copyTerrain(f, bg);
+      f.seq = seq;
+      System.arraycopy(tileSeq, 0, f.tileSeq, 0, tileSeq.length);
+      seq++;
+    }
+    frames.publish();
+  }
+
+  /**
+   * Take the latest published frame. Render thread only.
+   *
+   * @return latest frame (may be the same as last time)
+   */
+  RenderFrame take() {
+    return frames.take();
+  }
+
+  /**
+   * Copy all tiles which changed since the frame was published the last time.
+   *
+   * @param f frame
+   * @param bg background image
+   */
+  private void copyTerrain(final RenderFrame f, final BufferedImage bg) {
+    if (f.terrain == null) {
+      f.terrain = new BufferedImage(Level.WIDTH, Level.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+      f.tileSeq = new int[tileSeq.length];
+    }
+    int src[] = ToolBox.getPixels(bg);
+    int dst[] = ToolBox.getPixels(f.terrain);
+    int width = Math.min(bg.getWidth(), Level.WIDTH);
+    int height = Math.min(bg.getHeight(), Level.HEIGHT);
+    for (int ty = 0; ty < LevelRenderer.TILES_Y; ty++) {
+      int row = ty * LevelRenderer.TILES_X;
+      for (int tx = 0; tx < LevelRenderer.TILES_X; tx++) {
+        if (tileSeq[row + tx] <= f.seq) continue;
+        // combine all changed tiles in this row
+        int tx1 = tx;
+        while (tx1 + 1 < LevelRenderer.TILES_X && tileSeq[row + tx1 + 1] > f.seq) tx1++;
+        int x0 = tx << LevelRenderer.TILE_SHIFT;
+        int y0 = ty << LevelRenderer.TILE_SHIFT;
+        int w = Math.min((tx1 + 1) << LevelRenderer.TILE_SHIFT, width) - x0;
+        int h = Math.min(y0 + LevelRenderer.TILE_SIZE, height) - y0;
+        if (w > 0 && h > 0) {
+          if (src != null) {
+            for (int y = y0; y < y0 + h; y++)
+              System.arraycopy(src, y * bg.getWidth() + x0, dst, y * Level.WIDTH + x0, w);
+          } else f.terrain.setRGB(x0, y0, w, h, bg.getRGB(x0, y0, w, h, null, 0, w), 0, w);
+        }
+        tx = tx1;
+      }
+    }
+  }
+}
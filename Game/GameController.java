@@ -3,20 +3,17 @@ package Game;
 import GameUtil.Fader;
 import GameUtil.KeyRepeat;
 import GameUtil.Sound;
-import GameUtil.Sprite;
 import Tools.MicrosecondTimer;
 import Tools.ToolBox;
 import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.swing.JOptionPane;
 
 /*
@@ -162,9 +159,12 @@ public class GameController {
   /** yipee sound */
   public static final int SND_YIPEE = 23;
 
-  /** updates 5 frames instead of 1 in fast forward mode */
+  /** updates 5 frames instead of 1 in fast forward mode (default) */
   public static final int FAST_FWD_MULTI = 5;
 
+  /** maximum number of frames updated instead of 1 in fast forward mode */
+  public static final int MAX_FAST_FWD_MULTI = 50;
+
   /** updates 3 frames instead of 1 in Superlemming mode */
   public static final int SUPERLEMM_MULTI = 3;
 
@@ -174,17 +174,11 @@ public class GameController {
   /** resync if time difference greater than that (in microseconds) */
   public static final int MICROSEC_RESYNC = 5 * 30 * 1000;
 
-  /** redraw animated level obejcts every 3rd frame (about 100ms) */
-  private static final int MAX_ANIM_CTR = 100 * 1000 / MICROSEC_PER_FRAME;
-
-  /** open Entry after about 1.5 seconds */
-  private static final int MAX_ENTRY_OPEN_CTR = 1500 * 1000 / MICROSEC_PER_FRAME;
-
-  /** one second is 33.33 ticks (integer would cause error) */
-  private static final double MAX_SECOND_CTR = 1000.0 * 1000 / MICROSEC_PER_FRAME;
+  /** rewind by this number of seconds (see {@link #rewind()}) */
+  public static final int REWIND_SECONDS = 5;
 
-  /** maximum release rate */
-  private static final int MAX_RELEASE_RATE = 99;
+  /** a state hash is stored in the replay every STATE_HASH_INTERVAL frames (about 3 seconds) */
+  private static final int STATE_HASH_INTERVAL = 100;
 
   /**
    * nuke icon: maximum time between two mouse clicks for double click detection (in microseconds)
@@ -211,20 +205,20 @@ public class GameController {
   /** distance from center of cursor to be used to detect Lemmings under the cursor */
   private static final int HIT_DISTANCE = 12;
 
-  // image for information string display
+  // image for information string display (render thread)
   private static BufferedImage outStrImg;
 
-  // graphics object for information string display
+  // graphics object for information string display (render thread)
   private static Graphics2D outStrGfx;
 
+  /** hands over the render frames from the simulation thread to the render thread */
+  private static FrameExchange frames;
+
   /** sound object */
   public static Sound sound;
 
-  /** the background stencil */
-  private static Stencil stencil;
-
-  /** the background image */
-  private static BufferedImage bgImage;
+  /** simulation of the current level */
+  private static SimulationEngine engine;
 
   /** flag: play music */
   private static boolean musicOn;
@@ -233,25 +227,22 @@ public class GameController {
   private static boolean soundOn;
 
   /** flag: use advanced mouse selection methods */
-  private static boolean advancedSelect;
-
-  /** graphics object for the background image */
-  private static Graphics2D bgGfx;
-
-  /** color used to erase the background (black) */
-  private static Color blankColor = new Color(0xff, 0, 0, 0);
+  private static volatile boolean advancedSelect;
 
   /** flag: fast forward mode is active */
   private static boolean fastForward;
 
+  /** number of frames updated instead of 1 in fast forward mode */
+  private static int fastForwardMulti = FAST_FWD_MULTI;
+
   // flag: Shift key is pressed
-  private static boolean shiftPressed = false;
+  private static volatile boolean shiftPressed = false;
 
   /** flag: Superlemming mode is active */
   private static boolean superLemming;
 
   /** game state */
-  private static State gameState;
+  private static volatile State gameState;
 
   /** transition (fading) state */
   private static TransitionState transitionState;
@@ -259,36 +250,18 @@ public class GameController {
   /** skill to assign to lemming (skill icon) */
   private static Lemming.Type lemmSkill;
 
-  /** flag: entry is openend */
-  private static boolean entryOpened;
-
-  /** flag: nuke was acticated */
-  private static boolean nuke;
-
   /** flag: game is paused */
   private static boolean paused;
 
+  /** flag: the last call of update() advanced the simulation */
+  private static boolean stepped;
+
   /** flag: cheat/debug mode is activated */
-  private static boolean cheat = false;
+  private static volatile boolean cheat = false;
 
   /** flag: cheat mode was activated during play */
   private static boolean wasCheated = false;
 
-  /** frame counter for handling opening of entries */
-  private static int entryOpenCtr;
-
-  /** frame counter for handling time */
-  private static double secondCtr;
-
-  /** frame counter used to handle release of new Lemmings */
-  private static int releaseCtr;
-
-  /** threshold to release a new Lemming */
-  private static int releaseBase;
-
-  /** frame counter used to update animated sprite objects */
-  private static int animCtr;
-
   /** level object */
   private static Level level;
 
@@ -310,14 +283,8 @@ public class GameController {
   /** index of next level */
   private static int nextLevelNumber;
 
-  /** list of all active Lemmings in the Level */
-  private static LinkedList<Lemming> lemmings;
-
-  /** list of all active explosions */
-  private static LinkedList<Explosion> explosions;
-
-  /** list of all Lemmings under the mouse cursor */
-  private static ArrayList<Lemming> lemmsUnderCursor;
+  /** list of all Lemmings under the mouse cursor (render thread) */
+  private static ArrayList<RenderFrame.LemmingView> lemmsUnderCursor;
 
   /** list of available level packs */
   private static ArrayList<LevelPack> levelPack;
@@ -337,15 +304,12 @@ public class GameController {
   /** Lemming for which skill change is requested */
   private static Lemming lemmSkillRequest;
 
-  /** horizontal scrolling offset for level */
-  private static int xPos;
+  /** horizontal scrolling offset for level (only changed by the game thread) */
+  private static volatile int xPos;
 
   /** replay stream used for handling replays */
   private static ReplayStream replay;
 
-  /** frame counter used for handling replays */
-  private static int replayFrame;
-
   /** old value of release rate */
   private static int releaseRateOld;
 
@@ -364,53 +328,21 @@ public class GameController {
   /** flag: replay mode should be stopped */
   private static boolean stopReplayMode;
 
-  /** listener to inform GUI of player's progress */
-  private static UpdateListener levelMenuUpdateListener;
-
-  /** number of Lemmings which left the level */
-  private static int numLeft;
-
-  /** release rate 0..99 */
-  private static int releaseRate;
-
-  /** number of Lemmings available */
-  private static int numLemmingsMax;
-
-  /** number of Lemmings who entered the level */
-  private static int numLemmingsOut;
-
-  /** number of Lemmings which have to be rescued to finish the level */
-  private static int numToRecue;
-
-  /** time left in seconds */
-  private static int time;
+  /** keyframes of the running level used to rewind and seek */
+  private static final Keyframes keyframes = new Keyframes();
 
-  /** number of climber skills left to be assigned */
-  private static int numClimbers;
+  /** highest frame simulated since the level was started */
+  private static int maxFrame;
 
-  /** number of floater skills left to be assigned */
-  private static int numFloaters;
+  /** input commands posted by the GUI, executed by the game thread at the start of update() */
+  private static final ConcurrentLinkedQueue<InputCommand> input =
+      new ConcurrentLinkedQueue<InputCommand>();
 
-  /** number of bomber skills left to be assigned */
-  private static int numBombers;
+  /** loads the next level in the background while the debriefing is shown */
+  private static final LevelPrefetch prefetch = new LevelPrefetch();
 
-  /** number of blocker skills left to be assigned */
-  private static int numBlockers;
-
-  /** number of builder skills left to be assigned */
-  private static int numBuilders;
-
-  /** number of basher skills left to be assigned */
-  private static int numBashers;
-
-  /** number of miner skills left to be assigned */
-  private static int numMiners;
-
-  /** number of digger skills left to be assigned */
-  private static int numDiggers;
-
-  /** free running update counter */
-  private static int updateCtr;
+  /** listener to inform GUI of player's progress */
+  private static UpdateListener levelMenuUpdateListener;
 
   /** gain for sound 0..1.0 */
   private static double soundGain = 1.0;
@@ -424,18 +356,13 @@ public class GameController {
    * @throws ResourceException
    */
   public static synchronized void init() throws ResourceException {
-    bgImage = ToolBox.createImage(Level.WIDTH, Level.HEIGHT, Transparency.BITMASK);
-    bgGfx = bgImage.createGraphics();
-
     gameState = State.INIT;
     sound = new Sound(24, SND_MOUSEPRE);
     sound.setGain(soundGain);
     Icons.init();
     Explosion.init();
     Lemming.loadLemmings();
-    lemmings = new LinkedList<Lemming>();
-    explosions = new LinkedList<Explosion>();
-    lemmsUnderCursor = new ArrayList<Lemming>(10);
+    lemmsUnderCursor = new ArrayList<RenderFrame.LemmingView>(10);
     lemmSkillRequest = null;
 
     LemmFont.init();
@@ -453,32 +380,24 @@ public class GameController {
     timerNuke = new MicrosecondTimer();
 
     level = new Level();
+    // ARGB int raster: terrain tiles and masks are painted into its pixel array directly
+    engine =
+        new SimulationEngine(
+            level, new BufferedImage(Level.WIDTH, Level.HEIGHT, BufferedImage.TYPE_INT_ARGB));
+    engine.setSound(sound);
+    engine.setCheat(cheat);
+    frames = new FrameExchange();
+    engine.setDamageListener(frames);
     // read level packs
 
-    File dir = Core.findResource("levels");
-    File files[] = dir.listFiles();
-    // now get the names of the directories
-    ArrayList<String> dirs = new ArrayList<String>();
-    for (File file : files) if (file.isDirectory()) dirs.add(file.getName());
-
-    Collections.sort(dirs);
-
-    // levelPack = new LevelPack[]; // dirs.size()+1];
     levelPack = new ArrayList<LevelPack>();
 
     levelPack.add(new LevelPack()); // dummy
-    for (String lvlName : dirs) { // read levels
-      LevelPack tlp = new LevelPack(Core.findResource("levels/" + lvlName + "/levelpack.ini"));
-
-      if (tlp != null) {
-        if (!tlp.getName().equals("empty")) levelPack.add(tlp);
-      }
-    }
+    levelPack.addAll(LevelPack.readLevelPacks());
     curDiffLevel = 0;
     curLevelPack = 1; // since 0 is dummy
     curLevelNumber = 0;
 
-    replayFrame = 0;
     replay = new ReplayStream();
     replayMode = false;
     stopReplayMode = false;
@@ -645,10 +564,19 @@ public class GameController {
       }
 
       determineNextLevel();
+      prefetchNextLevel();
     }
     gameState = State.DEBRIEFING;
   }
 
+  /** Start loading the level which {@link #nextLevel()} would continue with in the background. */
+  private static void prefetchNextLevel() {
+    LevelPack lp = levelPack.get(curLevelPack);
+    if (curLevelNumber < (lp.getLevelCount(curDiffLevel) - 1))
+      prefetch.start(
+          lp.getInfo(curDiffLevel, curLevelNumber + 1).getFileName(), lp.getMaxFallDistance());
+  }
+
   /**
    * Hook for GUI to get informed when a level was successfully finished.
    *
@@ -664,10 +592,11 @@ public class GameController {
    * @param doReplay true: replay, false: play
    */
   private static synchronized void restartLevel(final boolean doReplay) {
-    initLevel();
+    engine.restartLevel();
+    initLevel(mapPreview);
     if (doReplay) {
       replayMode = true;
-      replay.save(Core.findResource("replay.rpl"));
+      replay.saveInBackground(Core.findResource("replay.rpl"));
       replay.rewind();
     } else {
       replayMode = false;
@@ -675,64 +604,44 @@ public class GameController {
     }
   }
 
-  /** Initialize a level after it was loaded. */
-  private static synchronized void initLevel() {
+  /**
+   * Initialize a level after it was loaded and painted.
+   *
+   * @param preview small preview image of the level (null: create it from the background image)
+   */
+  private static synchronized void initLevel(final BufferedImage preview) {
     Music.stop();
 
     setFastForward(false);
     setPaused(false);
-    nuke = false;
 
     lemmSkillRequest = null;
+    input.clear(); // drop input meant for the previous level
 
-    bgGfx.setBackground(blankColor);
-    bgGfx.clearRect(0, 0, bgImage.getWidth(), bgImage.getHeight());
-
-    stencil = level.paintLevel(bgImage, stencil);
-
-    lemmings.clear();
-    explosions.clear();
     Icons.reset();
 
-    TrapDoor.reset(level.getEntryNum());
-    entryOpened = false;
-    entryOpenCtr = 0;
-    secondCtr = 0;
-    releaseCtr = 0;
     lemmSkill = Lemming.Type.UNDEFINED;
 
     plus.init();
     minus.init();
 
-    numLeft = 0;
-    releaseRate = level.getReleaseRate();
-    numLemmingsMax = level.getNumLemmings();
-    numLemmingsOut = 0;
-    numToRecue = level.getNumToRescue();
-    time = level.getTimeLimitSeconds();
-    numClimbers = level.getNumClimbers();
-    numFloaters = level.getNumFloaters();
-    numBombers = level.getNumBombers();
-    numBlockers = level.getNumBlockers();
-    numBuilders = level.getNumBuilders();
-    numBashers = level.getNumBashers();
-    numMiners = level.getNumMiners();
-    numDiggers = level.getMumDiggers();
     xPos = level.getXpos();
 
-    calcReleaseBase();
-
-    mapPreview = level.createMiniMap(mapPreview, bgImage, 4, 4, false);
+    if (preview != null) mapPreview = preview;
+    else mapPreview = level.createMiniMap(mapPreview, engine.getBgImage(), 4, 4, false);
 
     setSuperLemming(level.isSuperLemming());
 
-    replayFrame = 0;
     stopReplayMode = false;
-    releaseRateOld = releaseRate;
+    releaseRateOld = engine.getReleaseRate();
     lemmSkillOld = lemmSkill;
     nukeOld = false;
     xPosOld = level.getXpos();
 
+    keyframes.clear();
+    keyframes.add(engine.takeKeyframe());
+    maxFrame = 0;
+
     rememberThisDifficultyLevel();
 
     gameState = State.START_BRIEFING;
@@ -786,17 +695,26 @@ public class GameController {
 
     String lvlPath =
         levelPack.get(curLevelPack).getInfo(curDiffLevel, curLevelNumber).getFileName();
-    // lemmings need to be reloaded to contain pink color
-    Lemming.loadLemmings();
-    // loading the level will patch pink lemmings pixels to correct color
-    level.loadLevel(lvlPath);
+    LevelPrefetch.Result prefetched = prefetch.take(lvlPath);
+    if (prefetched != null) {
+      // use the level painted in the background, keep the old buffers for the next prefetch
+      prefetch.recycle(engine.getBgImage(), engine.getStencil());
+      level = prefetched.level;
+      engine.initLevel(level, prefetched.bgImage, prefetched.stencil);
+    } else {
+      level.loadLevel(lvlPath);
+      engine.initLevel();
+    }
+    // replace pink color with debris color
+    Lemming.setDebrisColor(level.getDebrisColor());
 
     // if with and height would be stored inside the level, the bgImage etc. would have to
     // be recreated here
     // bgImage = gc.createCompatibleImage(Level.width, Level.height, Transparency.BITMASK);
     // bgGfx = bgImage.createGraphics();
 
-    initLevel();
+    System.gc(); // free resources of the previous level
+    initLevel((prefetched != null) ? prefetched.preview : null);
 
     if (doReplay) {
       replayMode = true;
@@ -815,7 +733,7 @@ public class GameController {
    * @return true if level was lost, false otherwise
    */
   static synchronized boolean wasLost() {
-    if (gameState != State.LEVEL && numLeft >= numToRecue) return false;
+    if (gameState != State.LEVEL && engine.getNumLeft() >= engine.getNumToRescue()) return false;
     return true;
   }
 
@@ -826,32 +744,34 @@ public class GameController {
    */
   public static synchronized BufferedImage getReplayImage() {
     if (!replayMode) return null;
-    if ((replayFrame & 0x3f) > 0x20) return MiscGfx.getImage(MiscGfx.Index.REPLAY_1);
+    if ((engine.getFrame() & 0x3f) > 0x20) return MiscGfx.getImage(MiscGfx.Index.REPLAY_1);
     else return MiscGfx.getImage(MiscGfx.Index.REPLAY_2);
   }
 
   /**
-   * Get a Lemming under the selection cursor.
+   * Get a Lemming under the selection cursor. Render thread only.
    *
    * @param type cursor type
+   * @param skill selected skill
    * @return fitting Lemming or null if none found
    */
-  public static synchronized Lemming lemmUnderCursor(final LemmCursor.Type type) {
+  private static RenderFrame.LemmingView lemmUnderCursor(
+      final LemmCursor.Type type, final Lemming.Type skill) {
     // search for level without the skill
-    for (Lemming l : lemmsUnderCursor) {
+    for (RenderFrame.LemmingView l : lemmsUnderCursor) {
       // Walker only cursor: ignore non-walkers
-      if (type == LemmCursor.Type.WALKER && l.getSkill() != Lemming.Type.WALKER) continue;
-      if (type == LemmCursor.Type.LEFT && l.getDirection() != Lemming.Direction.LEFT) continue;
-      if (type == LemmCursor.Type.RIGHT && l.getDirection() != Lemming.Direction.RIGHT) continue;
-      switch (lemmSkill) {
+      if (type == LemmCursor.Type.WALKER && l.skill != Lemming.Type.WALKER) continue;
+      if (type == LemmCursor.Type.LEFT && l.dir != Lemming.Direction.LEFT) continue;
+      if (type == LemmCursor.Type.RIGHT && l.dir != Lemming.Direction.RIGHT) continue;
+      switch (skill) {
         case CLIMBER:
-          if (!l.canClimb()) return l;
+          if (!l.canClimb) return l;
           break;
         case FLOATER:
-          if (!l.canFloat()) return l;
+          if (!l.canFloat) return l;
           break;
         default:
-          if (l.canChangeSkill() && l.getSkill() != lemmSkill && l.getName().length() > 0) {
+          if (l.canChangeSkill && l.skill != skill && l.name.length() > 0) {
             // System.out.println(l.getName());
             return l;
           }
@@ -859,51 +779,35 @@ public class GameController {
       break;
     }
     if (type == LemmCursor.Type.NORMAL && lemmsUnderCursor.size() > 0) {
-      Lemming l = lemmsUnderCursor.get(0);
-      if (l.getName().length() == 0) return null;
+      RenderFrame.LemmingView l = lemmsUnderCursor.get(0);
+      if (l.name.length() == 0) return null;
       // System.out.println(((Lemming)lemmsUnderCursor.get(0)).getName());
       return l;
     }
     return null;
   }
 
-  /** Lemming has left the Level. */
-  static synchronized void increaseLeft() {
-    numLeft += 1;
-  }
-
   /** Stop replay. */
   private static synchronized void stopReplayMode() {
     if (replayMode) stopReplayMode = true;
   }
 
-  /**
-   * Return time as String "minutes-seconds"
-   *
-   * @return time as String "minutes-seconds"
-   */
-  public static synchronized String getTimeString() {
-    String t1 = Integer.toString(time / 60);
-    String t2 = Integer.toString(time % 60);
-    if (t2.length() < 2) t2 = "0" + t2;
-    return t1 + "-" + t2;
-  }
-
   /** Update the whole game state by one frame. */
   public static synchronized void update() {
+    processInput();
+    stepped = false;
     if (gameState != State.LEVEL) return;
 
-    updateCtr++;
-
     if (!replayMode) assignSkill(false); // first try to assign skill
 
     // check +/- buttons also if paused
+    int releaseRate = engine.getReleaseRate();
     KeyRepeat.Event fired = plus.fired();
     if (fired != KeyRepeat.Event.NONE) {
-      if (releaseRate < MAX_RELEASE_RATE) {
-        if (fired == KeyRepeat.Event.DOUBLE_CLICK) releaseRate = MAX_RELEASE_RATE;
+      if (releaseRate < SimulationEngine.MAX_RELEASE_RATE) {
+        if (fired == KeyRepeat.Event.DOUBLE_CLICK) releaseRate = SimulationEngine.MAX_RELEASE_RATE;
         else releaseRate += 1;
-        calcReleaseBase();
+        engine.setReleaseRate(releaseRate);
         sound.playPitched(releaseRate);
       } else sound.play(SND_TING);
     }
@@ -913,7 +817,7 @@ public class GameController {
       if (releaseRate > level.getReleaseRate()) {
         if (fired == KeyRepeat.Event.DOUBLE_CLICK) releaseRate = level.getReleaseRate();
         else releaseRate -= 1;
-        calcReleaseBase();
+        engine.setReleaseRate(releaseRate);
         sound.playPitched(releaseRate);
       } else sound.play(SND_TING);
     }
@@ -922,22 +826,24 @@ public class GameController {
 
     // test for end of replay mode
     if (replayMode && stopReplayMode) {
-      replay.clearFrom(replayFrame);
+      replay.clearFrom(engine.getFrame());
+      keyframes.dropAfter(engine.getFrame()); // later keyframes were based on the removed events
       replayMode = false;
       stopReplayMode = false;
     }
 
     if (!replayMode) {
       if (!wasCheated) {
+        int replayFrame = engine.getFrame();
         // replay: release rate changed?
         if (releaseRate != releaseRateOld) {
           replay.addReleaseRateEvent(replayFrame, releaseRate);
           releaseRateOld = releaseRate;
         }
         // replay: nuked?
-        if (nuke != nukeOld) {
+        if (engine.isNuked() != nukeOld) {
           replay.addNukeEvent(replayFrame);
-          nukeOld = nuke;
+          nukeOld = engine.isNuked();
         }
         // replay: xPos changed?
         if (xPos != xPosOld) {
@@ -949,56 +855,16 @@ public class GameController {
           replay.addSelectSkillEvent(replayFrame, lemmSkill);
           lemmSkillOld = lemmSkill;
         }
+        // state hash: after all other events of this frame, so playback checks the same state
+        if (replayFrame % STATE_HASH_INTERVAL == 0)
+          replay.addStateHashEvent(replayFrame, engine.stateHash());
       } else replay.clear();
     } else {
       // replay mode
       ReplayEvent r;
-      while ((r = replay.getNext(replayFrame)) != null) {
+      while ((r = replay.getNext(engine.getFrame())) != null) {
+        if (engine.applyReplayEvent(r)) continue;
         switch (r.type) {
-          case ReplayStream.ASSIGN_SKILL:
-            {
-              ReplayAssignSkillEvent rs = (ReplayAssignSkillEvent) r;
-              Lemming l = lemmings.get(rs.lemming);
-              l.setSkill(rs.skill);
-              l.setSelected();
-              switch (rs.skill) {
-                case FLOATER:
-                  numFloaters -= 1;
-                  break;
-                case CLIMBER:
-                  numClimbers -= 1;
-                  break;
-                case BOMBER:
-                  numBombers -= 1;
-                  break;
-                case DIGGER:
-                  numDiggers -= 1;
-                  break;
-                case BASHER:
-                  numBashers -= 1;
-                  break;
-                case BUILDER:
-                  numBuilders -= 1;
-                  break;
-                case MINER:
-                  numMiners -= 1;
-                  break;
-                case STOPPER:
-                  numBlockers -= 1;
-                  break;
-              }
-              sound.play(SND_CHANGE_OP);
-              break;
-            }
-          case ReplayStream.SET_RELEASE_RATE:
-            ReplayReleaseRateEvent rr = (ReplayReleaseRateEvent) r;
-            releaseRate = rr.releaseRate;
-            calcReleaseBase();
-            sound.playPitched(releaseRate);
-            break;
-          case ReplayStream.NUKE:
-            nuke = true;
-            break;
           case ReplayStream.MOVE_XPOS:
             {
               ReplayMoveXPosEvent rx = (ReplayMoveXPosEvent) r;
@@ -1009,129 +875,195 @@ public class GameController {
             {
               ReplaySelectSkillEvent rs = (ReplaySelectSkillEvent) r;
               lemmSkill = rs.skill;
-              switch (lemmSkill) {
-                case FLOATER:
-                  Icons.press(Icons.Type.FLOAT);
-                  break;
-                case CLIMBER:
-                  Icons.press(Icons.Type.CLIMB);
-                  break;
-                case BOMBER:
-                  Icons.press(Icons.Type.BOMB);
-                  break;
-                case DIGGER:
-                  Icons.press(Icons.Type.DIG);
-                  break;
-                case BASHER:
-                  Icons.press(Icons.Type.BASH);
-                  break;
-                case BUILDER:
-                  Icons.press(Icons.Type.BUILD);
-                  break;
-                case MINER:
-                  Icons.press(Icons.Type.MINE);
-                  break;
-                case STOPPER:
-                  Icons.press(Icons.Type.BLOCK);
-                  break;
-              }
+              pressSkillIcon(lemmSkill);
               break;
             }
         }
       }
     }
 
-    // replay: xpos changed
+    boolean entryOpened = engine.isEntryOpened();
 
-    // store locally to avoid it's overwritten amidst function
-    boolean nukeTemp = nuke;
+    engine.step();
+    stepped = true;
+    captureKeyframe();
 
-    // time
-    secondCtr += 1.0;
-    if (secondCtr > MAX_SECOND_CTR) {
-      // one second passed
-      secondCtr -= MAX_SECOND_CTR;
-      time--;
-      if (!isCheat() && time == 0) {
-        // level failed
-        endLevel();
-      }
-    }
-    // release
-    if (entryOpened
-        && !nukeTemp
-        && !isPaused()
-        && numLemmingsOut < numLemmingsMax
-        && ++releaseCtr >= releaseBase) {
-      releaseCtr = 0;
-      // LemmingResource ls = Lemming.getResource(Lemming.TYPE_FALLER);
-      try {
-        if (level.getEntryNum() != 0) {
-          Entry e = level.getEntry(TrapDoor.getNext());
-          Lemming l = new Lemming(e.xPos + 2, e.yPos + 20);
-          lemmings.add(l);
-          numLemmingsOut++;
-        }
-      } catch (ArrayIndexOutOfBoundsException ex) {
-      }
-    }
-    // nuking
-    if (nukeTemp && ((updateCtr & 1) == 1)) {
-      for (Lemming l : lemmings) {
-        if (!l.nuke() && !l.hasDied() && !l.hasLeft()) {
-          l.setSkill(Lemming.Type.NUKE);
-          // System.out.println("nuked!");
-          break;
-        }
-      }
-    }
-    // open trap doors ?
-    if (!entryOpened) {
-      if (++entryOpenCtr == MAX_ENTRY_OPEN_CTR) {
-        for (int i = 0; i < level.getEntryNum(); i++)
-          level.getSprObject(level.getEntry(i).id).setAnimMode(Sprite.Animation.ONCE);
-        sound.play(SND_DOOR);
-      } else if (entryOpenCtr == MAX_ENTRY_OPEN_CTR + 10 * MAX_ANIM_CTR) {
-        // System.out.println("opened");
-        entryOpened = true;
-        releaseCtr = releaseBase; // first lemming to enter at once
-        if (musicOn) Music.play();
-      }
-    }
+    if (!entryOpened && engine.isEntryOpened() && musicOn) Music.play();
     // end of game conditions
-    if ((nukeTemp || numLemmingsOut == numLemmingsMax)
-        && explosions.size() == 0
-        && lemmings.size() == 0) {
-      endLevel();
-    }
+    if (engine.isFinished()) endLevel();
 
-    for (Iterator<Lemming> it = lemmings.iterator(); it.hasNext(); ) {
-      Lemming l = it.next();
-      if (l.hasDied() || l.hasLeft()) {
-        it.remove();
-        continue;
-      }
-      l.animate();
+    if (!replayMode) assignSkill(true); // 2nd try to assign skill
+  }
+
+  /**
+   * Press the icon of a skill selected in a replay.
+   *
+   * @param skill selected skill
+   */
+  private static void pressSkillIcon(final Lemming.Type skill) {
+    switch (skill) {
+      case FLOATER:
+        Icons.press(Icons.Type.FLOAT);
+        break;
+      case CLIMBER:
+        Icons.press(Icons.Type.CLIMB);
+        break;
+      case BOMBER:
+        Icons.press(Icons.Type.BOMB);
+        break;
+      case DIGGER:
+        Icons.press(Icons.Type.DIG);
+        break;
+      case BASHER:
+        Icons.press(Icons.Type.BASH);
+        break;
+      case BUILDER:
+        Icons.press(Icons.Type.BUILD);
+        break;
+      case MINER:
+        Icons.press(Icons.Type.MINE);
+        break;
+      case STOPPER:
+        Icons.press(Icons.Type.BLOCK);
+        break;
     }
+  }
+
+  /** Take a keyframe of the current frame if one is due. */
+  private static void captureKeyframe() {
+    int frame = engine.getFrame();
+    if (frame > maxFrame) maxFrame = frame;
+    if (keyframes.isDue(frame)) keyframes.add(engine.takeKeyframe());
+  }
+
+  /**
+   * Get the number of frames covered by the scrub bar: the time limit of the level or the number
+   * of frames simulated so far if this is more (e.g. in cheat mode).
+   *
+   * @return number of frames
+   */
+  private static int getScrubLength() {
+    int limit = (int) (level.getTimeLimitSeconds() * SimulationEngine.MAX_SECOND_CTR);
+    return Math.max(Math.max(limit, maxFrame), 1);
+  }
 
-    for (Iterator<Explosion> it = explosions.iterator(); it.hasNext(); ) {
-      Explosion e = it.next();
-      if (e.isFinished()) it.remove();
-      else e.update();
+  /**
+   * Continue the level at another frame: restore the nearest keyframe before the target frame and
+   * simulate the replay events from there as fast as possible. In replay mode, the whole replay
+   * can be navigated. While playing, only earlier frames can be reached: all replay events from
+   * the target frame on are dropped, so the player continues from there.
+   *
+   * @param target target frame
+   */
+  private static void seek(int target) {
+    if (!replayMode) {
+      // without a complete replay the level can't be simulated again
+      if (wasCheated || target >= engine.getFrame()) return;
+      target = Math.max(target, 0);
+      replay.truncate(target);
+      keyframes.dropAfter(target);
     }
+    Keyframe k = keyframes.get(target);
+    if (k == null) return;
+    if (engine.getFrame() < k.frame || engine.getFrame() > target) engine.restoreKeyframe(k);
+    replay.seek(engine.getFrame());
 
-    // animate level objects
-    if (++animCtr > MAX_ANIM_CTR) {
-      animCtr -= MAX_ANIM_CTR;
-      for (int n = 0; n < level.getSprObjectNum(); n++) {
-        SpriteObject spr = level.getSprObject(n);
-        spr.getImageAnim(); // just to animate
-      }
+    boolean entryOpened = engine.isEntryOpened();
+    lemmSkillRequest = null;
+    engine.setSound(null);
+    while (engine.getFrame() < target && !engine.isFinished()) {
+      engine.step(replay);
+      captureKeyframe();
     }
+    engine.setSound(sound);
+    MiniMap.refresh();
+
+    releaseRateOld = engine.getReleaseRate();
+    nukeOld = engine.isNuked();
+    if (replayMode) {
+      // restore the screen position and the selected skill of the replay
+      ReplayEvent r = replay.getLast(ReplayStream.MOVE_XPOS, engine.getFrame());
+      xPos = (r != null) ? ((ReplayMoveXPosEvent) r).xPos : level.getXpos();
+      r = replay.getLast(ReplayStream.SELECT_SKILL, engine.getFrame());
+      lemmSkill = (r != null) ? ((ReplaySelectSkillEvent) r).skill : Lemming.Type.UNDEFINED;
+      pressSkillIcon(lemmSkill);
+    }
+    if (!entryOpened && engine.isEntryOpened() && musicOn) Music.play();
+    if (engine.isFinished()) endLevel();
+  }
 
-    if (!replayMode) assignSkill(true); // 2nd try to assign skill
+  /**
+   * Post an input command. Called by the GUI, doesn't wait for the game thread.
+   *
+   * @param c input command
+   */
+  private static void post(final InputCommand c) {
+    input.offer(c);
+  }
 
-    replayFrame++;
+  /** Execute all pending input commands in the order they were posted. */
+  private static synchronized void processInput() {
+    // input is only handled while the level is played
+    if (gameState != State.LEVEL) {
+      input.clear();
+      return;
+    }
+    InputCommand c;
+    while ((c = input.poll()) != null) {
+      switch (c.type) {
+        case ICON_BUTTON:
+          iconButton(c.icon);
+          break;
+        case PRESS_ICON:
+          Icons.press(c.icon);
+          break;
+        case RELEASE_ICON:
+          Icons.release(c.icon);
+          break;
+        case PRESS_PLUS:
+          plus.pressed(c.value);
+          break;
+        case RELEASE_PLUS:
+          plus.released(c.value);
+          break;
+        case PRESS_MINUS:
+          minus.pressed(c.value);
+          break;
+        case RELEASE_MINUS:
+          minus.released(c.value);
+          break;
+        case REQUEST_SKILL:
+          skillRequest(c.lemming);
+          break;
+        case SET_XPOS:
+          xPos = c.value;
+          break;
+        case SCROLL:
+          xPos = Math.max(0, Math.min(xPos + c.value, c.max));
+          break;
+        case TOGGLE_PAUSE:
+          setPaused(!isPaused());
+          Icons.press(Icons.Type.PAUSE);
+          break;
+        case TOGGLE_FAST_FORWARD:
+          setFastForward(!isFastForward());
+          Icons.press(Icons.Type.FFWD);
+          break;
+        case ADD_LEMMING:
+          engine.addLemming(c.lemming);
+          break;
+        case SEEK:
+          if (replayMode && c.max > 0)
+            seek((int) ((long) getScrubLength() * Math.max(0, Math.min(c.value, c.max)) / c.max));
+          break;
+        case REWIND:
+          seek(engine.getFrame() - (int) (c.value * SimulationEngine.MAX_SECOND_CTR));
+          break;
+        case DEBUG_DRAW:
+          debugDrawRequest(c.value, c.max, c.flag);
+          break;
+      }
+    }
   }
 
   /**
@@ -1139,11 +1071,51 @@ public class GameController {
    *
    * @param lemm Lemming
    */
-  public static synchronized void requestSkill(final Lemming lemm) {
+  private static synchronized void skillRequest(final Lemming lemm) {
     if (lemmSkill != Lemming.Type.UNDEFINED) lemmSkillRequest = lemm;
     stopReplayMode();
   }
 
+  /**
+   * Draw or erase 2x2 terrain pixels in the background image and stencil (cheat mode only).
+   *
+   * @param x x position in pixels (level coordinates)
+   * @param y y position in pixels
+   * @param doDraw true: draw, false: erase
+   */
+  private static void debugDrawRequest(final int x, final int y, final boolean doDraw) {
+    if (!isCheat() || x <= 0 || x >= Level.WIDTH - 1 || y <= 0 || y >= Level.HEIGHT - 1) return;
+    int rgbVal = (doDraw) ? 0xffffffff : 0x0;
+    int maskVal = (doDraw) ? Stencil.MSK_BRICK : Stencil.MSK_EMPTY;
+    for (int dy = 0; dy < 2; dy++)
+      for (int dx = 0; dx < 2; dx++) {
+        engine.getBgImage().setRGB(x + dx, y + dy, rgbVal);
+        engine.getStencil().set(x + dx, y + dy, maskVal);
+      }
+    engine.damage(x, y, 2, 2);
+  }
+
+  /**
+   * Draw or erase terrain pixels (cheat mode only). The change is applied by the game thread.
+   *
+   * @param x x position in pixels (level coordinates)
+   * @param y y position in pixels
+   * @param doDraw true: draw, false: erase
+   */
+  public static void debugDraw(final int x, final int y, final boolean doDraw) {
+    post(InputCommand.of(InputCommand.Type.DEBUG_DRAW, x, y, doDraw));
+  }
+
+  /**
+   * Request a skill change for a Lemming (currently selected skill). The request is executed by
+   * the game thread.
+   *
+   * @param lemm Lemming under the cursor as returned by {@link #drawLevel}
+   */
+  public static void requestSkill(final Lemming lemm) {
+    post(InputCommand.of(InputCommand.Type.REQUEST_SKILL, lemm));
+  }
+
   /**
    * Assign the selected skill to the selected Lemming.
    *
@@ -1155,63 +1127,9 @@ public class GameController {
     Lemming lemm = lemmSkillRequest;
     if (delete) lemmSkillRequest = null;
 
-    boolean canSet = false;
     stopReplayMode();
 
-    if (isCheat()) {
-      canSet = lemm.setSkill(lemmSkill);
-    } else {
-      switch (lemmSkill) {
-        case BASHER:
-          if (numBashers > 0 && lemm.setSkill(lemmSkill)) {
-            numBashers -= 1;
-            canSet = true;
-          }
-          break;
-        case BOMBER:
-          if (numBombers > 0 && lemm.setSkill(lemmSkill)) {
-            numBombers -= 1;
-            canSet = true;
-          }
-          break;
-        case BUILDER:
-          if (numBuilders > 0 && lemm.setSkill(lemmSkill)) {
-            numBuilders -= 1;
-            canSet = true;
-          }
-          break;
-        case CLIMBER:
-          if (numClimbers > 0 && lemm.setSkill(lemmSkill)) {
-            numClimbers -= 1;
-            canSet = true;
-          }
-          break;
-        case DIGGER:
-          if (numDiggers > 0 && lemm.setSkill(lemmSkill)) {
-            numDiggers -= 1;
-            canSet = true;
-          }
-          break;
-        case FLOATER:
-          if (numFloaters > 0 && lemm.setSkill(lemmSkill)) {
-            numFloaters -= 1;
-            canSet = true;
-          }
-          break;
-        case MINER:
-          if (numMiners > 0 && lemm.setSkill(lemmSkill)) {
-            numMiners -= 1;
-            canSet = true;
-          }
-          break;
-        case STOPPER:
-          if (numBlockers > 0 && lemm.setSkill(lemmSkill)) {
-            numBlockers -= 1;
-            canSet = true;
-          }
-          break;
-      }
-    }
+    boolean canSet = engine.assignSkill(lemm, lemmSkill);
     if (canSet) {
       lemmSkillRequest = null; // erase request
       sound.play(SND_MOUSEPRE);
@@ -1220,61 +1138,69 @@ public class GameController {
         Icons.press(Icons.Type.PAUSE);
       }
       // add to replay stream
-      if (!wasCheated)
-        for (int i = 0; i < lemmings.size(); i++)
-          if (lemmings.get(i) == lemm) // if 2nd try (delete==true) assign to next frame
-          replay.addAssignSkillEvent(replayFrame + ((delete) ? 1 : 0), lemmSkill, i);
+      // 2nd try (delete==true) happens after the frame was simulated, so it's already assigned
+      // to the next frame
+      if (!wasCheated && engine.getLemming(lemm.getId()) == lemm)
+        replay.addAssignSkillEvent(engine.getFrame(), lemmSkill, lemm.getId());
     } else if (delete) sound.play(SND_TING);
   }
 
-  /** Calculate the counter threshold for releasing a new Lemmings. */
-  private static synchronized void calcReleaseBase() {
-    // the original formula is: release lemming every 4+(99-speed)/2 time steps
-    // where one step is 60ms (3s/50) or 66ms (4s/60).
-    // Lemmini runs at 30ms/33ms, so the term has to be multiplied by 2
-    // 8+(99-releaseRate) should be correct
-    releaseBase = 8 + (99 - releaseRate);
+  /**
+   * Handle pressing of an icon button.
+   *
+   * @param type icon type
+   */
+  public static void handleIconButton(final Icons.Type type) {
+    post(InputCommand.of(InputCommand.Type.ICON_BUTTON, type));
   }
 
   /**
-   * Handle pressing of an icon button.
+   * Execute pressing of an icon button.
    *
    * @param type icon type
    */
-  public static synchronized void handleIconButton(final Icons.Type type) {
+  private static synchronized void iconButton(final Icons.Type type) {
     Lemming.Type lemmSkillOld = lemmSkill;
     boolean ok = false;
     switch (type) {
       case FLOAT:
-        if (isCheat() || numFloaters > 0) lemmSkill = Lemming.Type.FLOATER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.FLOATER) > 0)
+          lemmSkill = Lemming.Type.FLOATER;
         stopReplayMode();
         break;
       case CLIMB:
-        if (isCheat() || numClimbers > 0) lemmSkill = Lemming.Type.CLIMBER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.CLIMBER) > 0)
+          lemmSkill = Lemming.Type.CLIMBER;
         stopReplayMode();
         break;
       case BOMB:
-        if (isCheat() || numBombers > 0) lemmSkill = Lemming.Type.BOMBER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.BOMBER) > 0)
+          lemmSkill = Lemming.Type.BOMBER;
         stopReplayMode();
         break;
       case DIG:
-        if (isCheat() || numDiggers > 0) lemmSkill = Lemming.Type.DIGGER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.DIGGER) > 0)
+          lemmSkill = Lemming.Type.DIGGER;
         stopReplayMode();
         break;
       case BASH:
-        if (isCheat() || numBashers > 0) lemmSkill = Lemming.Type.BASHER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.BASHER) > 0)
+          lemmSkill = Lemming.Type.BASHER;
         stopReplayMode();
         break;
       case BUILD:
-        if (isCheat() || numBuilders > 0) lemmSkill = Lemming.Type.BUILDER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.BUILDER) > 0)
+          lemmSkill = Lemming.Type.BUILDER;
         stopReplayMode();
         break;
       case MINE:
-        if (isCheat() || numMiners > 0) lemmSkill = Lemming.Type.MINER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.MINER) > 0)
+          lemmSkill = Lemming.Type.MINER;
         stopReplayMode();
         break;
       case BLOCK:
-        if (isCheat() || numBlockers > 0) lemmSkill = Lemming.Type.STOPPER;
+        if (isCheat() || engine.getNumSkills(Lemming.Type.STOPPER) > 0)
+          lemmSkill = Lemming.Type.STOPPER;
         stopReplayMode();
         break;
       case NUKE:
@@ -1282,8 +1208,8 @@ public class GameController {
           ok = true;
           stopReplayMode();
           if (timerNuke.delta() < MICROSEC_NUKE_DOUBLE_CLICK) {
-            if (!nuke) {
-              nuke = true;
+            if (!engine.isNuked()) {
+              engine.nuke();
               sound.play(SND_OHNO);
             }
           } else timerNuke.deltaUpdate();
@@ -1320,12 +1246,8 @@ public class GameController {
     } else sound.play(SND_TING);
   }
 
-  /**
-   * Fade in/out.
-   *
-   * @param g graphics object
-   */
-  public static synchronized void fade(final Graphics g, final int width, final int height) {
+  /** Fade in/out by one frame and perform the pending transition when fading is finished. */
+  public static synchronized void fade() {
     if (Fader.getState() == Fader.State.OFF && transitionState != TransitionState.NONE) {
       switch (transitionState) {
         case END_LEVEL:
@@ -1382,44 +1304,7 @@ public class GameController {
       Fader.setState(Fader.State.IN);
       transitionState = TransitionState.NONE;
     }
-    Fader.fade(g, width, height);
-  }
-
-  /**
-   * Draw the explosions
-   *
-   * @param g graphics object
-   * @param width width of screen in pixels
-   * @param height height of screen in pixels
-   * @param xOfs horizontal level offset in pixels
-   */
-  public static synchronized void drawExplosions(
-      final Graphics2D g, final int width, final int height, final int xOfs) {
-    for (Explosion e : explosions) {
-      e.draw(g, width, height, xOfs);
-    }
-  }
-
-  /**
-   * Add a new explosion.
-   *
-   * @param x x coordinate in pixels.
-   * @param y y coordinate in pixels.
-   */
-  public static synchronized void addExplosion(final int x, final int y) {
-    // create particle explosion
-    explosions.add(new Explosion(x, y));
-  }
-
-  /**
-   * Draw icon bar.
-   *
-   * @param g graphics object
-   * @param x x coordinate in pixels
-   * @param y y coordinate in pixels
-   */
-  public static synchronized void drawIcons(final Graphics2D g, final int x, final int y) {
-    g.drawImage(Icons.getImg(), x, y, null);
+    Fader.step();
   }
 
   /**
@@ -1427,25 +1312,11 @@ public class GameController {
    *
    * @param g graphics object
    * @param y y offset in pixels
+   * @param f frame to draw
    */
-  public static synchronized void drawCounters(final Graphics2D g, final int y) {
-    // draw counters
-    int[] val =
-        new int[] {
-          level.getReleaseRate(),
-          releaseRate,
-          numClimbers,
-          numFloaters,
-          numBombers,
-          numBlockers,
-          numBuilders,
-          numBashers,
-          numMiners,
-          numDiggers
-        };
-
+  private static void drawCounters(final Graphics2D g, final int y, final RenderFrame f) {
     for (int i = 0; i < 10; i++) {
-      g.drawImage(NumFont.numImage(val[i]), Icons.WIDTH * i + 8, y, null);
+      g.drawImage(NumFont.numImage(f.counters[i]), Icons.WIDTH * i + 8, y, null);
     }
   }
 
@@ -1509,8 +1380,18 @@ public class GameController {
    *
    * @param x horizontal scrolling offset in pixels
    */
-  public static synchronized void setxPos(final int x) {
-    xPos = x;
+  public static void setxPos(final int x) {
+    post(InputCommand.of(InputCommand.Type.SET_XPOS, x));
+  }
+
+  /**
+   * Scroll horizontally.
+   *
+   * @param dx offset delta in pixels
+   * @param max maximum horizontal scrolling offset in pixels
+   */
+  public static void scrollBy(final int dx, final int max) {
+    post(InputCommand.of(InputCommand.Type.SCROLL, dx, max));
   }
 
   /**
@@ -1518,7 +1399,7 @@ public class GameController {
    *
    * @return horizontal scrolling offset in pixels
    */
-  public static synchronized int getxPos() {
+  public static int getxPos() {
     return xPos;
   }
 
@@ -1536,7 +1417,7 @@ public class GameController {
    *
    * @return game state
    */
-  public static synchronized State getGameState() {
+  public static State getGameState() {
     return gameState;
   }
 
@@ -1547,6 +1428,7 @@ public class GameController {
    */
   public static synchronized void setCheat(final boolean c) {
     cheat = c;
+    if (engine != null) engine.setCheat(c);
   }
 
   /**
@@ -1554,7 +1436,7 @@ public class GameController {
    *
    * @return true if cheat mode enabled, false otherwise
    */
-  public static synchronized boolean isCheat() {
+  public static boolean isCheat() {
     return cheat;
   }
 
@@ -1614,6 +1496,40 @@ public class GameController {
     wasCheated = c;
   }
 
+  /** Toggle pause mode and press/release the pause icon accordingly. */
+  public static void togglePause() {
+    post(InputCommand.of(InputCommand.Type.TOGGLE_PAUSE));
+  }
+
+  /** Toggle fast forward mode and press/release the fast forward icon accordingly. */
+  public static void toggleFastForward() {
+    post(InputCommand.of(InputCommand.Type.TOGGLE_FAST_FORWARD));
+  }
+
+  /** Go back {@link #REWIND_SECONDS} seconds in the level (or replay). */
+  public static void rewind() {
+    post(InputCommand.of(InputCommand.Type.REWIND, REWIND_SECONDS));
+  }
+
+  /**
+   * Jump to a position of the replay shown by the scrub bar (replay mode only).
+   *
+   * @param x position on the scrub bar in pixels
+   * @param width width of the scrub bar in pixels
+   */
+  public static void seekReplay(final int x, final int width) {
+    post(InputCommand.of(InputCommand.Type.SEEK, x, width));
+  }
+
+  /**
+   * Get replay mode.
+   *
+   * @return true if a replay is shown, false otherwise
+   */
+  public static synchronized boolean isReplayMode() {
+    return replayMode;
+  }
+
   /**
    * Enable pause mode.
    *
@@ -1650,13 +1566,43 @@ public class GameController {
     return fastForward;
   }
 
+  /**
+   * Set number of frames updated instead of 1 in fast forward mode.
+   *
+   * @param multi speed multiplier (2..MAX_FAST_FWD_MULTI)
+   */
+  public static synchronized void setFastForwardMulti(final int multi) {
+    fastForwardMulti = Math.max(2, Math.min(multi, MAX_FAST_FWD_MULTI));
+  }
+
+  /**
+   * Get number of frames updated instead of 1 in fast forward mode.
+   *
+   * @return speed multiplier
+   */
+  public static synchronized int getFastForwardMulti() {
+    return fastForwardMulti;
+  }
+
+  /**
+   * Get the number of game frames to update per displayed frame.
+   *
+   * @return speed multiplier (1 if the game runs at normal speed)
+   */
+  public static synchronized int getSpeedMulti() {
+    if (gameState != State.LEVEL) return 1;
+    if (fastForward) return fastForwardMulti;
+    if (superLemming) return SUPERLEMM_MULTI;
+    return 1;
+  }
+
   /**
    * get number of lemmings left in the game
    *
    * @return number of lemmings left in the game
    */
   public static synchronized int getNumLeft() {
-    return numLeft;
+    return engine.getNumLeft();
   }
 
   /**
@@ -1665,7 +1611,7 @@ public class GameController {
    * @param n number of Lemmings left in the game
    */
   public static synchronized void setNumLeft(final int n) {
-    numLeft = n;
+    engine.setNumLeft(n);
   }
 
   /**
@@ -1677,13 +1623,22 @@ public class GameController {
     return level;
   }
 
+  /**
+   * Get simulation engine of the current level.
+   *
+   * @return simulation engine
+   */
+  public static synchronized SimulationEngine getEngine() {
+    return engine;
+  }
+
   /**
    * Get maximum number of Lemmings for this level.
    *
    * @return maximum number of Lemmings for this level
    */
   public static synchronized int getNumLemmingsMax() {
-    return numLemmingsMax;
+    return engine.getNumLemmingsMax();
   }
 
   /**
@@ -1701,8 +1656,8 @@ public class GameController {
    *
    * @param t icon type
    */
-  public static synchronized void pressIcon(final Icons.Type t) {
-    Icons.press(t);
+  public static void pressIcon(final Icons.Type t) {
+    post(InputCommand.of(InputCommand.Type.PRESS_ICON, t));
   }
 
   /**
@@ -1710,8 +1665,8 @@ public class GameController {
    *
    * @param t icon type
    */
-  public static synchronized void releaseIcon(final Icons.Type t) {
-    Icons.release(t);
+  public static void releaseIcon(final Icons.Type t) {
+    post(InputCommand.of(InputCommand.Type.RELEASE_ICON, t));
   }
 
   /**
@@ -1719,8 +1674,8 @@ public class GameController {
    *
    * @param d bitmask: key or icon
    */
-  public static synchronized void pressPlus(final int d) {
-    plus.pressed(d);
+  public static void pressPlus(final int d) {
+    post(InputCommand.of(InputCommand.Type.PRESS_PLUS, d));
   }
 
   /**
@@ -1728,8 +1683,8 @@ public class GameController {
    *
    * @param d bitmask: key or icon
    */
-  public static synchronized void releasePlus(final int d) {
-    plus.released(d);
+  public static void releasePlus(final int d) {
+    post(InputCommand.of(InputCommand.Type.RELEASE_PLUS, d));
   }
 
   /**
@@ -1737,8 +1692,8 @@ public class GameController {
    *
    * @param d bitmask: key or icon
    */
-  public static synchronized void pressMinus(final int d) {
-    minus.pressed(d);
+  public static void pressMinus(final int d) {
+    post(InputCommand.of(InputCommand.Type.PRESS_MINUS, d));
   }
 
   /**
@@ -1746,8 +1701,8 @@ public class GameController {
    *
    * @param d bitmask: key or icon
    */
-  public static synchronized void releaseMinus(final int d) {
-    minus.released(d);
+  public static void releaseMinus(final int d) {
+    post(InputCommand.of(InputCommand.Type.RELEASE_MINUS, d));
   }
 
   /**
@@ -1755,8 +1710,8 @@ public class GameController {
    *
    * @param the lemming to add
    */
-  public static synchronized void addLemming(Lemming l) {
-    lemmings.add(l);
+  public static void addLemming(Lemming l) {
+    post(InputCommand.of(InputCommand.Type.ADD_LEMMING, l));
   }
 
   /**
@@ -1784,7 +1739,7 @@ public class GameController {
    *
    * @param sel true: advanced selection mode active, false otherwise
    */
-  public static synchronized void setAdvancedSelect(final boolean sel) {
+  public static void setAdvancedSelect(final boolean sel) {
     advancedSelect = sel;
   }
 
@@ -1793,7 +1748,7 @@ public class GameController {
    *
    * @return true if advanced selection mode activated, false otherwise
    */
-  public static synchronized boolean isAdvancedSelect() {
+  public static boolean isAdvancedSelect() {
     return advancedSelect;
   }
 
@@ -1803,7 +1758,7 @@ public class GameController {
    * @return background image of level
    */
   public static synchronized BufferedImage getBgImage() {
-    return bgImage;
+    return engine.getBgImage();
   }
 
   /**
@@ -1812,7 +1767,7 @@ public class GameController {
    * @return background stencil of level
    */
   public static synchronized Stencil getStencil() {
-    return stencil;
+    return engine.getStencil();
   }
 
   /**
@@ -1866,7 +1821,7 @@ public class GameController {
    * @return number of Lemmings to rescue
    */
   public static synchronized int getNumToRecue() {
-    return numToRecue;
+    return engine.getNumToRescue();
   }
 
   /**
@@ -1875,7 +1830,7 @@ public class GameController {
    * @return time left in seconds
    */
   public static synchronized int getTime() {
-    return time;
+    return engine.getTime();
   }
 
   /**
@@ -1887,20 +1842,16 @@ public class GameController {
     levelPack.add(new LevelPack(new File(folder, "levelpack.ini")));
   }
 
-  /** draw the level */
-  public static synchronized void drawLevel(
-      Graphics2D offGfx,
-      int internalWidth,
-      int xMouseScreen,
-      int yMouseScreen,
-      int xMouse,
-      int yMouse,
-      LemmCursor.Type cursorType) {
-    BufferedImage bgImage = getBgImage();
-    if (bgImage == null) return;
-
-    update();
-    // mouse movement
+  /**
+   * Scroll the level by one frame if the mouse is near the left or right border.
+   *
+   * @param internalWidth width of the level area on screen
+   * @param xMouseScreen x position of the mouse on screen
+   * @param yMouseScreen y position of the mouse on screen
+   */
+  public static synchronized void scroll(
+      final int internalWidth, final int xMouseScreen, final int yMouseScreen) {
+    if (getBgImage() == null) return;
     if (yMouseScreen < Level.HEIGHT) { // avoid scrolling if menu is selected
       int xOfsTemp;
       if (xMouseScreen > internalWidth - GraphicsPane.AUTOSCROLL_RANGE) {
@@ -1913,125 +1864,254 @@ public class GameController {
         else xPos = 0;
       }
     }
+  }
 
-    if (level != null) {
-
-      // clear screen
-      offGfx.setBackground(level.getBgColor());
-      offGfx.clearRect(0, 0, GraphicsPane.MAXDRAWWIDTH, Level.HEIGHT);
-
-      // draw "behind" objects
-      level.drawBehindObjects(offGfx, internalWidth, xPos);
-
-      // draw background
-      offGfx.drawImage(
-          bgImage,
-          0,
-          0,
-          internalWidth,
-          Level.HEIGHT,
-          xPos,
-          0,
-          xPos + internalWidth,
-          Level.HEIGHT,
-          null);
-
-      // draw "in front" objects
-      level.drawInFrontObjects(offGfx, internalWidth, xPos);
+  /**
+   * Fill a render frame with the current state of the game and hand it over to the render thread.
+   * Called by the simulation thread after each round of frames and updates.
+   *
+   * @param updateTime time of the last update (System.nanoTime())
+   * @param updateNanos duration of one update in nanoseconds
+   * @param xMouse x position of the cursor in the level
+   * @param yMouse y position of the cursor in the level
+   */
+  public static synchronized void publishFrame(
+      final long updateTime, final long updateNanos, final int xMouse, final int yMouse) {
+    RenderFrame f = frames.getBack();
+    f.gameState = gameState;
+    f.updateTime = updateTime;
+    f.updateNanos = updateNanos;
+    f.stepped = stepped;
+    f.xPos = xPos;
+    f.hasLevel =
+        (gameState == State.LEVEL || gameState == State.LEVEL_END)
+            && level != null
+            && getBgImage() != null;
+    if (!f.hasLevel) {
+      frames.publish(null);
+      return;
     }
 
+    // level objects
+    f.bgColor = level.getBgColor();
+    f.objects = level.getSprObjectsInDrawOrder();
+    f.numBehind = level.getSprObjectBehindNum();
+    if (f.objFrames.length != f.objects.length) f.objFrames = new int[f.objects.length];
+    for (int n = 0; n < f.objects.length; n++) f.objFrames[n] = f.objects[n].getFrameIdx();
+
+    BufferedImage miniMap = engine.getMiniMap();
+    f.miniMap = (miniMap != null) ? ToolBox.copyImage(miniMap, f.miniMap) : null;
+
+    // lemmings and explosions
+    f.numLemmings = engine.getNumLemmings();
+    for (int n = 0; n < f.numLemmings; n++) f.lemming(n).set(engine.getLemmingAt(n));
+    ArrayList<Explosion> explosions = engine.getExplosions();
+    f.numExplosions = explosions.size();
+    for (int n = 0; n < f.numExplosions; n++) explosions.get(n).capture(f.explosion(n));
+
+    // icon bar and counters
+    f.selectedSkill = lemmSkill;
+    f.iconsPressed = Icons.getPressed();
+    f.counters[0] = level.getReleaseRate();
+    f.counters[1] = engine.getReleaseRate();
+    f.counters[2] = engine.getNumSkills(Lemming.Type.CLIMBER);
+    f.counters[3] = engine.getNumSkills(Lemming.Type.FLOATER);
+    f.counters[4] = engine.getNumSkills(Lemming.Type.BOMBER);
+    f.counters[5] = engine.getNumSkills(Lemming.Type.STOPPER);
+    f.counters[6] = engine.getNumSkills(Lemming.Type.BUILDER);
+    f.counters[7] = engine.getNumSkills(Lemming.Type.BASHER);
+    f.counters[8] = engine.getNumSkills(Lemming.Type.MINER);
+    f.counters[9] = engine.getNumSkills(Lemming.Type.DIGGER);
+
+    // info string
+    f.numOut = engine.getNumLemmings();
+    f.numLeft = engine.getNumLeft();
+    f.numLemmingsMax = engine.getNumLemmingsMax();
+    f.time = engine.getTime();
+    f.cheat = isCheat();
+    f.stencilX = xMouse;
+    f.stencilY = yMouse;
+    Stencil stencil = getStencil();
+    if (f.cheat && stencil != null) f.stencilVal = stencil.get(xMouse + yMouse * Level.WIDTH);
+    f.replayImage = getReplayImage();
+    f.scrubFrame = engine.getFrame();
+    f.scrubLength = getScrubLength();
+    f.divergentFrame = engine.getDivergentFrame();
+
+    frames.publish(engine.getBgImage());
+  }
+
+  /**
+   * Get the latest frame published by the simulation thread. Render thread only.
+   *
+   * @return latest frame (may be the same as last time)
+   */
+  static RenderFrame takeFrame() {
+    return frames.take();
+  }
+
+  /**
+   * Draw the level. Called by the render thread: only the data of the frame is used, so drawing
+   * doesn't block the simulation.
+   *
+   * @param renderer renderer used to draw the level background
+   * @param buffer index of the offscreen buffer to draw into
+   * @param offGfx graphics object of the offscreen buffer
+   * @param f frame to draw
+   * @param internalWidth width of the level area on screen
+   * @param xMouse x position of the cursor in the level
+   * @param yMouse y position of the cursor in the level
+   * @param cursorType type of the selection cursor
+   * @param alpha position between the previous (0) and the current (1) game frame used to
+   *     interpolate the Lemming positions
+   * @return Lemming under the selection cursor or null if none
+   */
+  static Lemming drawLevel(
+      LevelRenderer renderer,
+      int buffer,
+      Graphics2D offGfx,
+      RenderFrame f,
+      int internalWidth,
+      int xMouse,
+      int yMouse,
+      LemmCursor.Type cursorType,
+      double alpha) {
+    lemmsUnderCursor.clear();
+    if (!f.hasLevel) return null;
+    // Lemmings which didn't move in the last update must not be interpolated
+    if (!f.stepped) alpha = 1.0;
+    final int xPos = f.xPos;
+
+    // draw level objects and background (only the parts that changed)
+    renderer.draw(offGfx, buffer, f, internalWidth);
+
     // clear parts of the screen for menu etc.
     offGfx.setBackground(Color.BLACK);
     offGfx.clearRect(
         0, Level.HEIGHT, GraphicsPane.MAXDRAWWIDTH, GraphicsPane.DRAWHEIGHT - Level.HEIGHT);
 
     // draw icons, small level pic
-    drawIcons(offGfx, 0, GraphicsPane.iconsY);
+    Icons.draw(offGfx, 0, GraphicsPane.iconsY, f.iconsPressed);
     int smallX = internalWidth - 208 - 4;
     offGfx.drawImage(
         MiscGfx.getImage(MiscGfx.Index.BORDER), smallX - 4, GraphicsPane.smallY - 4, null);
-    MiniMap.draw(offGfx, smallX, GraphicsPane.smallY, xPos, internalWidth);
+    if (f.miniMap != null)
+      MiniMap.draw(offGfx, f.miniMap, smallX, GraphicsPane.smallY, xPos, internalWidth);
 
     // draw counters
-    drawCounters(offGfx, GraphicsPane.counterY);
+    drawCounters(offGfx, GraphicsPane.counterY, f);
 
     // draw lemmings
-    lemmsUnderCursor.clear();
-    for (Lemming l : lemmings) {
-      final int lx = l.screenX();
-      final int ly = l.screenY();
-      final int mx = l.midX() - 16;
-      if (lx + l.width() > xPos && lx < xPos + internalWidth) {
-        offGfx.drawImage(l.getImage(), lx - xPos, ly, null);
+    for (int i = 0; i < f.numLemmings; i++) {
+      RenderFrame.LemmingView l = f.lemmings.get(i);
+      final int lx = l.x - Lemming.interpolationOffset(l.moveX, alpha);
+      final int ly = l.y - Lemming.interpolationOffset(l.moveY, alpha);
+      final int mx = l.midX - 16 + lx - l.x;
+      if (lx + l.width > xPos && lx < xPos + internalWidth) {
+        BufferedImage img = l.image;
+        offGfx.drawImage(img, lx - xPos, ly, null);
+        renderer.addSprite(buffer, lx, ly, img.getWidth(), img.getHeight());
 
         // is lemming under cursor
-        if (Math.abs(l.midX() - xMouse) <= HIT_DISTANCE
-            && Math.abs(l.midY() - yMouse) <= HIT_DISTANCE) {
+        if (Math.abs(l.midX - xMouse) <= HIT_DISTANCE
+            && Math.abs(l.midY - yMouse) <= HIT_DISTANCE) {
           lemmsUnderCursor.add(l);
         }
 
-        BufferedImage cd = l.getCountdown();
-        if (cd != null) offGfx.drawImage(cd, mx - xPos, ly - cd.getHeight(), null);
+        BufferedImage cd = l.countdown;
+        if (cd != null) {
+          offGfx.drawImage(cd, mx - xPos, ly - cd.getHeight(), null);
+          renderer.addSprite(buffer, mx, ly - cd.getHeight(), cd.getWidth(), cd.getHeight());
+        }
 
-        BufferedImage sel = l.getSelectImg();
-        if (sel != null) offGfx.drawImage(sel, mx - xPos, ly - sel.getHeight(), null);
+        BufferedImage sel = l.select;
+        if (sel != null) {
+          offGfx.drawImage(sel, mx - xPos, ly - sel.getHeight(), null);
+          renderer.addSprite(buffer, mx, ly - sel.getHeight(), sel.getWidth(), sel.getHeight());
+        }
       }
 
       // draw lemmings on mini map
       MiniMap.drawLemming(offGfx, lx, ly, internalWidth - 212);
     }
-    Lemming lemmUnderCursor = lemmUnderCursor(cursorType);
+    RenderFrame.LemmingView lemmUnderCursor = lemmUnderCursor(cursorType, f.selectedSkill);
 
     // draw explosions
-    drawExplosions(offGfx, internalWidth, Level.HEIGHT, xPos);
+    for (int i = 0; i < f.numExplosions; i++) {
+      RenderFrame.ExplosionView e = f.explosions.get(i);
+      Explosion.draw(offGfx, e, internalWidth, Level.HEIGHT, xPos);
+      Rectangle r = e.bounds;
+      renderer.addSprite(buffer, r.x, r.y, r.width, r.height);
+    }
 
     // draw info string
     outStrGfx.clearRect(0, 0, GraphicsPane.MAXDRAWWIDTH, GraphicsPane.DRAWHEIGHT);
-    if (isCheat()) {
-      Stencil stencil = getStencil();
-      if (stencil != null) {
-        int pos = xMouse + yMouse * Level.WIDTH;
-        int stencilVal = stencil.get(pos);
-        String test =
-            "x: "
-                + xMouse
-                + ", y: "
-                + yMouse
-                + ", mask: "
-                + (stencilVal & 0xffff)
-                + " "
-                + Stencil.getObjectID(stencilVal);
-        LemmFont.strImage(outStrGfx, test);
-        offGfx.drawImage(outStrImg, 4, Level.HEIGHT + 8, null);
-      }
+    if (f.cheat) {
+      String test =
+          "x: "
+              + f.stencilX
+              + ", y: "
+              + f.stencilY
+              + ", mask: "
+              + (f.stencilVal & 0xffff)
+              + " "
+              + Stencil.getObjectID(f.stencilVal);
+      LemmFont.strImage(outStrGfx, test);
+      offGfx.drawImage(outStrImg, 4, Level.HEIGHT + 8, null);
     } else {
       StringBuffer sb = new StringBuffer();
       sb.append("OUT ");
-      String s = Integer.toString(lemmings.size());
+      String s = Integer.toString(f.numOut);
       sb.append(s);
       if (s.length() == 1) sb.append(" ");
       sb.append("  IN ");
-      s = Integer.toString(numLeft * 100 / numLemmingsMax);
+      s = Integer.toString(f.numLeft * 100 / f.numLemmingsMax);
       if (s.length() == 1) sb.append(" ");
       sb.append(s);
-      sb.append("%  TIME ").append(getTimeString());
+      sb.append("%  TIME ").append(f.getTimeString());
       LemmFont.strImageRight(outStrGfx, sb.toString(), internalWidth - 4);
 
       if (lemmUnderCursor != null) {
-        String n = lemmUnderCursor.getName();
+        String n = lemmUnderCursor.name;
         // display also the total number of lemmings under the cursor
         int num = lemmsUnderCursor.size();
         if (num > 1) n = n + " " + Integer.toString(num);
         LemmFont.strImageLeft(outStrGfx, n, 4);
+      } else if (f.divergentFrame >= 0) {
+        // the replay doesn't play back as recorded
+        LemmFont.strImageLeft(outStrGfx, "OUT OF SYNC", 4);
       }
 
       offGfx.drawImage(outStrImg, 0, Level.HEIGHT + 8, null);
     }
-    // replay icon
-    BufferedImage replayImage = getReplayImage();
-    if (replayImage != null)
-      offGfx.drawImage(
-          replayImage, internalWidth - 2 * replayImage.getWidth(), replayImage.getHeight(), null);
+    // replay icon and scrub bar
+    BufferedImage replayImage = f.replayImage;
+    if (replayImage != null) {
+      int pos =
+          (int) ((long) internalWidth * Math.min(f.scrubFrame, f.scrubLength) / f.scrubLength);
+      offGfx.setColor(Color.DARK_GRAY);
+      offGfx.fillRect(0, GraphicsPane.scrubY, internalWidth, GraphicsPane.SCRUB_HEIGHT);
+      offGfx.setColor(Color.GREEN);
+      offGfx.fillRect(0, GraphicsPane.scrubY, pos, GraphicsPane.SCRUB_HEIGHT);
+      if (f.divergentFrame >= 0) {
+        // mark the first frame which differs from the recorded replay
+        int dx =
+            (int)
+                ((long) internalWidth * Math.min(f.divergentFrame, f.scrubLength) / f.scrubLength);
+        offGfx.setColor(Color.RED);
+        offGfx.fillRect(
+            Math.min(dx, internalWidth - 2), GraphicsPane.scrubY, 2, GraphicsPane.SCRUB_HEIGHT);
+      }
+      int rx = internalWidth - 2 * replayImage.getWidth();
+      offGfx.drawImage(replayImage, rx, replayImage.getHeight(), null);
+      renderer.addSprite(
+          buffer,
+          xPos + rx,
+          replayImage.getHeight(),
+          replayImage.getWidth(),
+          replayImage.getHeight());
+    }
+    return (lemmUnderCursor != null) ? lemmUnderCursor.lemming : null;
   }
 
   /**
@@ -2039,7 +2119,7 @@ public class GameController {
    *
    * @return true if Shift key is pressed, false otherwise
    */
-  public static synchronized boolean isShiftPressed() {
+  public static boolean isShiftPressed() {
     return shiftPressed;
   }
 
@@ -2048,52 +2128,7 @@ public class GameController {
    *
    * @param p true: Shift key is pressed, false otherwise
    */
-  public static synchronized void setShiftPressed(final boolean p) {
+  public static void setShiftPressed(final boolean p) {
     shiftPressed = p;
   }
 }
-
-/**
- * Trapdoor/Entry class Trapdoor logic: for numbers >1, just take the next door for each lemming and
- * wrap around to 1 when the last one is reached. Special rule for 3 trapdoors: the order is 1, 2,
- * 3, 2 (loop), not 1, 2, 3 (loop)
- *
- * @author Volker Oth
- */
-class TrapDoor {
-  /** pattern for three entries */
-  private static final int[] PATTERN3 = {0, 1, 2, 1};
-
-  /** number of entries */
-  private static int entries;
-
-  /** entry counter */
-  private static int counter;
-
-  /**
-   * Reset to new number of entries.
-   *
-   * @param e number of entries
-   */
-  static void reset(final int e) {
-    entries = e;
-    counter = 0;
-  }
-
-  /**
-   * Get index of next entry.
-   *
-   * @return index of next entry
-   */
-  static int getNext() {
-    int retVal = counter;
-    counter++;
-    if (entries != 3) {
-      if (counter >= entries) counter = 0;
-      return retVal;
-    }
-    // special case: 3
-    if (counter >= 4) counter = 0;
-    return PATTERN3[retVal];
-  }
-}
@@ -1,19 +1,24 @@
 package Game;
 
 import GameUtil.Fader;
-import Tools.MicrosecondTimer;
+import Tools.FrameTimer;
 import Tools.ToolBox;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Toolkit;
 import java.awt.Transparency;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.io.File;
+import java.util.concurrent.locks.LockSupport;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
@@ -43,13 +48,8 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   // size of auto scrolling range in pixels (from the left and right border)
   static final int AUTOSCROLL_RANGE = 20;
 
-  // minimum sleep duration in milliseconds - values too small may cause system clock shift under
-  // WinXP etc.
-  static final int MIN_SLEEP = 10;
-
-  // threshold for sleep - don't sleep if time to wait is shorter than this as sleep might return
-  // too late
-  static final int THR_SLEEP = 16;
+  // maximum number of late frames which are caught up at once
+  static final int MAX_CATCH_UP = 5;
 
   // y coordinate of counter displays in pixels
   static final int counterY = Level.HEIGHT + 40;
@@ -60,22 +60,37 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   // y coordinate of minimap in pixels
   static final int smallY = iconsY;
 
+  // y coordinate of the replay scrub bar in pixels
+  static final int scrubY = Level.HEIGHT + 2;
+
+  // height of the replay scrub bar in pixels
+  static final int SCRUB_HEIGHT = 4;
+
+  // height of the area reacting to clicks on the scrub bar in pixels
+  private static final int SCRUB_CLICK_HEIGHT = 8;
+
+  // number of frames averaged by the frame time counter
+  private static final int FRAME_TIMER_SAMPLES = 30;
+
   private static final long serialVersionUID = 0x01;
 
   // start position of mouse drag (for mouse scrolling)
   private int mouseDragStartX;
 
   // x position of cursor in level
-  private int xMouse;
+  private volatile int xMouse;
 
   // x position of cursor on screen
-  private int xMouseScreen;
+  private volatile int xMouseScreen;
 
   // y position of cursor in level
-  private int yMouse;
+  private volatile int yMouse;
 
   // y position of cursor on screen
-  private int yMouseScreen;
+  private volatile int yMouseScreen;
+
+  // Lemming under the cursor in the last drawn frame (null: none)
+  private volatile Lemming lemmUnderCursor;
 
   // mouse drag length in x direction (pixels)
   private int mouseDx;
@@ -89,6 +104,9 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   // flag: left mouse button is currently pressed
   private boolean leftMousePressed;
 
+  // flag: the scrub bar is dragged
+  private boolean scrubbing;
+
   // flag: debug draw is active
   private boolean draw;
 
@@ -101,11 +119,35 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   // index of the active buffer in the image buffer
   private int activeBuffer;
 
+  // renderer for the level area of the offscreen images
+  private LevelRenderer levelRenderer;
+
+  // flag: draw into accelerated offscreen images and present them from the game thread
+  private boolean accelerated;
+
+  // accelerated offscreen images (used instead of offImage if accelerated is set)
+  private VolatileImage volatileImage[];
+
+  // flag: the accelerated path was requested but accelerated images are not available
+  private boolean accelerationUnavailable;
+
+  // flag: show the frame time counter
+  private boolean showFrameTime;
+
+  // frames drawn per second (0: once per game frame)
+  private volatile int renderRate;
+
+  // time needed to draw a frame into the offscreen image
+  private final FrameTimer drawTimer = new FrameTimer(FRAME_TIMER_SAMPLES);
+
+  // time needed to present a frame on screen (including scaling)
+  private final FrameTimer presentTimer = new FrameTimer(FRAME_TIMER_SAMPLES);
+
   /** Zoom scale */
   private double scale = 1.0;
 
   /** internal draw width */
-  private int internalWidth = 800;
+  private volatile int internalWidth = 800;
 
   /** screen changed */
   private boolean forceRedraw = true;
@@ -138,6 +180,8 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     offImage[1] = ToolBox.createImage(MAXDRAWWIDTH, DRAWHEIGHT, Transparency.OPAQUE);
     offGraphics[0] = offImage[0].createGraphics();
     offGraphics[1] = offImage[1].createGraphics();
+    volatileImage = new VolatileImage[2];
+    levelRenderer = new LevelRenderer(2);
 
     TextScreen.init(MAXDRAWWIDTH, DRAWHEIGHT);
 
@@ -202,20 +246,98 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     if (offImage != null) {
       int scaledWidth = (int) (internalWidth * scale);
       int scaledHeight = (int) (DRAWHEIGHT * scale);
-      g.drawImage(
-          offImage[activeBuffer],
-          0,
-          0,
-          scaledWidth,
-          scaledHeight,
-          0,
-          0,
-          internalWidth,
-          DRAWHEIGHT,
-          null);
+      Image img;
+      if (accelerated) {
+        // frames are presented by the game thread, this is only needed to repair the screen
+        VolatileImage v = volatileImage[activeBuffer];
+        if (v == null || v.contentsLost()) return;
+        img = v;
+      } else {
+        img = offImage[activeBuffer];
+        presentTimer.start();
+      }
+      g.drawImage(img, 0, 0, scaledWidth, scaledHeight, 0, 0, internalWidth, DRAWHEIGHT, null);
+      drawFrameTime(g);
+      if (!accelerated) presentTimer.stop();
     }
   }
 
+  /**
+   * Draw the frame time counter (in screen coordinates) if enabled.
+   *
+   * @param g graphics object of the screen
+   */
+  private void drawFrameTime(final Graphics g) {
+    if (!showFrameTime) return;
+    String mode = accelerated ? "accelerated" : "default";
+    if (accelerationUnavailable) mode += " (acceleration not available)";
+    String s =
+        mode
+            + "  draw "
+            + drawTimer
+            + "  present "
+            + presentTimer;
+    g.setColor(Color.BLACK);
+    g.fillRect(0, 0, g.getFontMetrics().stringWidth(s) + 8, g.getFontMetrics().getHeight() + 4);
+    g.setColor(Color.WHITE);
+    g.drawString(s, 4, g.getFontMetrics().getAscent() + 2);
+  }
+
+  /**
+   * Get the accelerated offscreen image for a buffer. The image is (re)created if necessary. If
+   * the contents of the image were lost, the buffer is invalidated in the level renderer.
+   *
+   * @param buf index of offscreen buffer
+   * @return accelerated image or null if not available
+   */
+  private VolatileImage getVolatileImage(final int buf) {
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+    if (gc == null) return null; // not displayable (yet)
+    VolatileImage img = volatileImage[buf];
+    int state = (img == null) ? VolatileImage.IMAGE_INCOMPATIBLE : img.validate(gc);
+    if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+      if (img != null) img.flush();
+      try {
+        img = gc.createCompatibleVolatileImage(MAXDRAWWIDTH, DRAWHEIGHT, Transparency.OPAQUE);
+      } catch (RuntimeException ex) {
+        img = null;
+      }
+      volatileImage[buf] = img;
+      if (img == null) {
+        // fall back to the default path (shown by the frame time counter)
+        setAccelerated(false);
+        accelerationUnavailable = true;
+        return null;
+      }
+      img.validate(gc);
+      levelRenderer.invalidate(buf);
+    } else if (state == VolatileImage.IMAGE_RESTORED) levelRenderer.invalidate(buf);
+    return img;
+  }
+
+  /**
+   * Scale an offscreen image onto the screen directly from the game thread (without repaint).
+   *
+   * @param img offscreen image
+   * @param width internal draw width
+   * @param scaledWidth width on screen
+   * @param scaledHeight height on screen
+   */
+  private void present(
+      final VolatileImage img, final int width, final int scaledWidth, final int scaledHeight) {
+    Graphics g = getGraphics();
+    if (g == null) return;
+    presentTimer.start();
+    try {
+      g.drawImage(img, 0, 0, scaledWidth, scaledHeight, 0, 0, width, DRAWHEIGHT, null);
+      drawFrameTime(g);
+    } finally {
+      g.dispose();
+    }
+    Toolkit.getDefaultToolkit().sync();
+    presentTimer.stop();
+  }
+
   /* (non-Javadoc)
    * @see javax.swing.JComponent#update(java.awt.Graphics)
    */
@@ -233,74 +355,138 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     if (getCursor() != nc) setCursor(nc);
   }
 
-  /** redraw the offscreen image, then flip buffers and force repaint. */
-  private void redraw() {
-    LemmCursor.Type cursor = LemmCursor.Type.NORMAL;
-    synchronized (this) {
-      int drawBuffer = (activeBuffer == 0) ? 1 : 0;
-      Graphics2D offGfx = offGraphics[drawBuffer];
-
-      switch (GameController.getGameState()) {
-        case INTRO:
-          TextScreen.drawIntro(internalWidth, forceRedraw);
-          forceRedraw = false;
-          offGfx.drawImage(TextScreen.getScreen(), 0, 0, null);
-          break;
+  /** Advance the text screen animations by one frame. Render thread only. */
+  private synchronized void textFrame() {
+    switch (GameController.getGameState()) {
+      case INTRO:
+        TextScreen.drawIntro(internalWidth, forceRedraw);
+        forceRedraw = false;
+        break;
 
-        case START_BRIEFING:
-          forceRedraw = true;
-          GameController.setGameState(GameController.State.BRIEFING);
-          // fall through
+      case START_BRIEFING:
+        forceRedraw = true;
+        GameController.setGameState(GameController.State.BRIEFING);
+        // fall through
 
-        case BRIEFING:
-          TextScreen.drawBriefing(internalWidth, forceRedraw);
-          forceRedraw = false;
-          offGfx.drawImage(TextScreen.getScreen(), 0, 0, null);
-          break;
+      case BRIEFING:
+        TextScreen.drawBriefing(internalWidth, forceRedraw);
+        forceRedraw = false;
+        break;
 
-        case DEBRIEFING:
-          TextScreen.drawDebriefing(internalWidth, forceRedraw);
-          forceRedraw = false;
+      case DEBRIEFING:
+        TextScreen.drawDebriefing(internalWidth, forceRedraw);
+        forceRedraw = false;
+        TextScreen.getDialog().handleMouseMove(xMouseScreen, yMouseScreen);
+        break;
+    }
+  }
 
-          TextScreen.getDialog().handleMouseMove(xMouseScreen, yMouseScreen);
-          offGfx.drawImage(TextScreen.getScreen(), 0, 0, null);
-          break;
+  /** Advance scrolling and fading by one frame. Simulation thread only. */
+  private void simFrame() {
+    switch (GameController.getGameState()) {
+      case LEVEL:
+      case LEVEL_END:
+        GameController.scroll(internalWidth, xMouseScreen, yMouseScreen);
+        break;
+    }
+    GameController.fade();
+  }
 
-        case LEVEL:
-        case LEVEL_END:
-          GameController.drawLevel(
-              offGfx,
-              internalWidth,
-              xMouseScreen,
-              yMouseScreen,
-              xMouse,
-              yMouse,
-              lemmCursor.getType());
-
-          // draw cursor
-          if (xMouseScreen > 0
-              && xMouseScreen < internalWidth
-              && yMouseScreen > 0
-              && yMouseScreen < DRAWHEIGHT) {
-            Lemming lemmUnderCursor = GameController.lemmUnderCursor(lemmCursor.getType());
-            BufferedImage cursorImg =
-                lemmUnderCursor != null ? lemmCursor.getBoxImage() : lemmCursor.getImage();
-
-            int lx = xMouseScreen - cursorImg.getWidth() / 2;
-            int ly = yMouseScreen - cursorImg.getHeight() / 2;
-            offGfx.drawImage(cursorImg, lx, ly, null);
-            cursor = LemmCursor.Type.HIDDEN;
-          }
+  /**
+   * Redraw the offscreen image from a frame of the simulation, then flip buffers and force
+   * repaint. The pane is only locked to pick the buffer and to flip it, so painting and mouse
+   * events don't wait for the drawing.
+   *
+   * @param f frame to draw
+   * @param alpha position between the previous (0) and the current (1) game frame used to
+   *     interpolate the Lemming positions
+   */
+  private void redraw(final RenderFrame f, final double alpha) {
+    LemmCursor.Type cursor = LemmCursor.Type.NORMAL;
+    VolatileImage vImg;
+    Graphics2D offGfx;
+    LemmCursor.Type cursorType;
+    BufferedImage cursorImg, boxImg;
+    int drawBuffer, width;
+    synchronized (this) {
+      drawBuffer = (activeBuffer == 0) ? 1 : 0;
+      vImg = accelerated ? getVolatileImage(drawBuffer) : null;
+      offGfx = (vImg != null) ? vImg.createGraphics() : offGraphics[drawBuffer];
+      width = internalWidth;
+      cursorType = lemmCursor.getType();
+      cursorImg = lemmCursor.getImage();
+      boxImg = lemmCursor.getBoxImage();
+    }
+    int xm = xMouseScreen;
+    int ym = yMouseScreen;
+    drawTimer.start();
+
+    switch (GameController.getGameState()) {
+      case INTRO:
+      case START_BRIEFING:
+      case BRIEFING:
+      case DEBRIEFING:
+        offGfx.drawImage(TextScreen.getScreen(), 0, 0, null);
+        levelRenderer.invalidate(drawBuffer);
+        lemmUnderCursor = null;
+        break;
+
+      case LEVEL:
+      case LEVEL_END:
+        if (!f.hasLevel) {
+          // the simulation didn't publish a frame of the level yet
+          lemmUnderCursor = null;
           break;
-      }
+        }
+        Lemming lemm =
+            GameController.drawLevel(
+                levelRenderer,
+                drawBuffer,
+                offGfx,
+                f,
+                width,
+                xMouse,
+                yMouse,
+                cursorType,
+                alpha);
+        lemmUnderCursor = lemm;
+
+        // draw cursor
+        if (xm > 0 && xm < width && ym > 0 && ym < DRAWHEIGHT) {
+          BufferedImage img = lemm != null ? boxImg : cursorImg;
+          int lx = xm - img.getWidth() / 2;
+          int ly = ym - img.getHeight() / 2;
+          offGfx.drawImage(img, lx, ly, null);
+          levelRenderer.addSprite(drawBuffer, f.xPos + lx, ly, img.getWidth(), img.getHeight());
+          cursor = LemmCursor.Type.HIDDEN;
+        }
+        break;
+    }
 
-      // fader
-      GameController.fade(offGfx, internalWidth, DRAWHEIGHT);
+    // fader
+    if (Fader.isActive()) {
+      Fader.apply(offGfx, width, DRAWHEIGHT);
+      levelRenderer.invalidate(drawBuffer);
+    }
+    VolatileImage presentImg = null;
+    if (vImg != null) {
+      offGfx.dispose();
+      // if the contents got lost while drawing, skip this frame
+      if (vImg.contentsLost()) levelRenderer.invalidate(drawBuffer);
+      else presentImg = vImg;
+    }
+    drawTimer.stop();
+
+    int scaledWidth, scaledHeight;
+    synchronized (this) {
       // and all onto screen
       activeBuffer = drawBuffer;
-
-      repaint();
+      scaledWidth = (int) (width * scale);
+      scaledHeight = (int) (DRAWHEIGHT * scale);
+      if (!accelerated) repaint();
     }
+    // outside the lock as getGraphics() needs the AWT tree lock
+    if (presentImg != null) present(presentImg, width, scaledWidth, scaledHeight);
     showCursor(cursor);
   }
 
@@ -310,34 +496,97 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   @Override
   public void run() {
     Thread.currentThread().setPriority(Thread.NORM_PRIORITY + 1);
-    MicrosecondTimer timerRepaint = new MicrosecondTimer();
+    // The simulation runs in its own thread and hands over a frame after each round of updates.
+    // This thread only draws the latest frame, so drawing never slows down the simulation (e.g.
+    // in fast forward mode) and the simulation never waits for the screen.
+    Thread sim = new Thread(this::simulate, "Simulation");
+    sim.setPriority(Thread.NORM_PRIORITY + 1);
+    sim.start();
+
+    final long frameNanos = GameController.MICROSEC_PER_FRAME * 1000L;
+    long now = System.nanoTime();
+    long nextFrame = now;
+    long nextRedraw = now;
     try {
       while (true) {
-        GameController.State gameState = GameController.getGameState();
-        // Try to keep the Amiga timing. Note that no frames are skipped
-        // If one frame is too late, the next one will be a little earlier
-        // to compensate. No frames are skipped though!
-        // On a slow CPU this might slow down gameplay...
-        if (timerRepaint.timePassedAdd(GameController.MICROSEC_PER_FRAME)) {
-          // time passed -> redraw necessary
-          redraw();
-          // special handling for fast forward or super lemming mode only during real gameplay
-          if (gameState == GameController.State.LEVEL) {
-            // in fast forward or super lemming modes, update the game mechanics
-            // multiple times per (drawn) frame
-            if (GameController.isFastForward())
-              for (int f = 0; f < GameController.FAST_FWD_MULTI - 1; f++) GameController.update();
-            else if (GameController.isSuperLemming())
-              for (int f = 0; f < GameController.SUPERLEMM_MULTI - 1; f++) GameController.update();
-          }
-        } else {
-          // determine time until next frame
-          long diff = GameController.MICROSEC_PER_FRAME - timerRepaint.delta();
-          if (diff > GameController.MICROSEC_RESYNC) {
-            timerRepaint.update(); // resync to time base
-            System.out.println("Resynced, diff was " + (diff / 1000) + " millis");
-          } else if (diff > THR_SLEEP * 1000) Thread.sleep(MIN_SLEEP);
+        now = System.nanoTime();
+
+        // text screen animations
+        if (now >= nextFrame) {
+          textFrame();
+          nextFrame += frameNanos;
+          if (nextFrame <= now) nextFrame = now + frameNanos;
+        }
+
+        // drawing
+        long redrawNanos = (renderRate > 0) ? 1000000000L / renderRate : frameNanos;
+        if (now >= nextRedraw) {
+          RenderFrame f = GameController.takeFrame();
+          double alpha = 1.0;
+          if (redrawNanos < f.updateNanos)
+            alpha = Math.min(1.0, (double) (now - f.updateTime) / f.updateNanos);
+          redraw(f, alpha);
+          nextRedraw += redrawNanos;
+          if (nextRedraw <= now) nextRedraw = now + redrawNanos;
         }
+
+        // wait for the next deadline
+        long wait = Math.min(nextFrame, nextRedraw) - System.nanoTime();
+        if (wait > 0) LockSupport.parkNanos(wait);
+      }
+    } catch (Exception | Error ex) {
+      ToolBox.showException(ex);
+      System.exit(1);
+    }
+  }
+
+  /** Main loop of the simulation thread. */
+  private void simulate() {
+    // Keep the Amiga timing: frames (scrolling, fading etc.) and simulation updates are scheduled
+    // at fixed deadlines. If a deadline is missed, the next one is still the original one, so late
+    // frames are caught up (but at most MAX_CATCH_UP at once).
+    final long frameNanos = GameController.MICROSEC_PER_FRAME * 1000L;
+    final long resyncNanos = GameController.MICROSEC_RESYNC * 1000L;
+    long now = System.nanoTime();
+    long nextFrame = now;
+    long nextUpdate = now;
+    long lastUpdate = now;
+    try {
+      while (true) {
+        now = System.nanoTime();
+        if (now - nextFrame > resyncNanos) {
+          // way too late (e.g. system was suspended): resync to time base
+          System.out.println("Resynced, diff was " + ((now - nextFrame) / 1000000) + " millis");
+          nextFrame = now;
+          nextUpdate = now;
+        }
+
+        // fixed rate frames
+        boolean changed = false;
+        for (int n = 0; now >= nextFrame && n < MAX_CATCH_UP; n++) {
+          simFrame();
+          nextFrame += frameNanos;
+          changed = true;
+        }
+        if (now >= nextFrame) nextFrame = now + frameNanos; // skip the rest
+
+        // simulation updates (multiple per frame in fast forward or super lemming mode)
+        int speed = GameController.getSpeedMulti();
+        long updateNanos = frameNanos / speed;
+        for (int n = 0; now >= nextUpdate && n < MAX_CATCH_UP * speed; n++) {
+          GameController.update();
+          lastUpdate = nextUpdate;
+          nextUpdate += updateNanos;
+          changed = true;
+        }
+        if (now >= nextUpdate) nextUpdate = now + updateNanos; // skip the rest
+
+        // hand over the result to the render thread
+        if (changed) GameController.publishFrame(lastUpdate, updateNanos, xMouse, yMouse);
+
+        // wait for the next deadline
+        long wait = Math.min(nextFrame, nextUpdate) - System.nanoTime();
+        if (wait > 0) LockSupport.parkNanos(wait);
       }
     } catch (Exception | Error ex) {
       ToolBox.showException(ex);
@@ -345,6 +594,25 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     }
   }
 
+  /**
+   * Set the rate at which frames are drawn. If higher than the game frame rate, Lemming positions
+   * are interpolated between two game frames.
+   *
+   * @param hz frames per second (0: draw once per game frame)
+   */
+  public void setRenderRate(final int hz) {
+    renderRate = Math.max(hz, 0);
+  }
+
+  /**
+   * Get the rate at which frames are drawn.
+   *
+   * @return frames per second (0: once per game frame)
+   */
+  public int getRenderRate() {
+    return renderRate;
+  }
+
   /* (non-Javadoc)
    * @see java.awt.event.MouseListener#mouseReleased(java.awt.event.MouseEvent)
    */
@@ -354,7 +622,10 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     int y = (int) (mouseevent.getY() / scale);
     mouseDx = 0;
     mouseDy = 0;
-    if (mouseevent.getButton() == MouseEvent.BUTTON1) leftMousePressed = false;
+    if (mouseevent.getButton() == MouseEvent.BUTTON1) {
+      leftMousePressed = false;
+      scrubbing = false;
+    }
 
     switch (GameController.getGameState()) {
       case LEVEL:
@@ -443,14 +714,19 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
         // debug drawing
         debugDraw(x, y, leftMousePressed);
         if (leftMousePressed) {
-          if (y > iconsY && y < iconsY + Icons.HEIGHT) {
+          if (y >= Level.HEIGHT
+              && y < Level.HEIGHT + SCRUB_CLICK_HEIGHT
+              && GameController.isReplayMode()) {
+            scrubbing = true;
+            GameController.seekReplay(x, internalWidth);
+          } else if (y > iconsY && y < iconsY + Icons.HEIGHT) {
             Icons.Type type = GameController.getIconType(x);
             if (type != Icons.Type.INVALID) {
               GameController.handleIconButton(type);
             }
           } else {
-            Lemming l = GameController.lemmUnderCursor(lemmCursor.getType());
-            if (l != null) GameController.requestSkill(l);
+            Lemming lemm = lemmUnderCursor;
+            if (lemm != null) GameController.requestSkill(lemm);
           }
           // check minimap mouse move
           int ofs = MiniMap.move(x, y, internalWidth, getSmallX());
@@ -461,28 +737,16 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
   }
 
   /**
-   * Debug routine to draw terrain pixels in stencil and background image.
+   * Debug routine to draw terrain pixels in stencil and background image. The pixels are changed
+   * by the game thread.
    *
    * @param x x position in pixels
    * @param y y position in pixels
    * @param doDraw true: draw, false: erase
    */
   private synchronized void debugDraw(final int x, final int y, final boolean doDraw) {
-    if (draw && GameController.isCheat()) {
-      int rgbVal = (doDraw) ? 0xffffffff : 0x0;
-      int maskVal = (doDraw) ? Stencil.MSK_BRICK : Stencil.MSK_EMPTY;
-      int xOfs = GameController.getxPos();
-      if (x + xOfs > 0 && x + xOfs < Level.WIDTH - 1 && y > 0 && y < Level.HEIGHT - 1) {
-        GameController.getBgImage().setRGB(x + xOfs, y, rgbVal);
-        GameController.getStencil().set(x + xOfs, y, maskVal);
-        GameController.getBgImage().setRGB(x + xOfs + 1, y, rgbVal);
-        GameController.getStencil().set(x + xOfs + 1, y, maskVal);
-        GameController.getBgImage().setRGB(x + xOfs, y + 1, rgbVal);
-        GameController.getStencil().set(x + xOfs, y + 1, maskVal);
-        GameController.getBgImage().setRGB(x + xOfs + 1, y + 1, rgbVal);
-        GameController.getStencil().set(x + xOfs + 1, y + 1, maskVal);
-      }
-    }
+    if (draw && GameController.isCheat())
+      GameController.debugDraw(x + GameController.getxPos(), y, doDraw);
   }
 
   /* (non-Javadoc)
@@ -535,16 +799,13 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
         int x = (int) (mouseevent.getX() / scale);
         int y = (int) (mouseevent.getY() / scale);
 
-        if (leftMousePressed) {
+        if (scrubbing) GameController.seekReplay(x, internalWidth);
+        else if (leftMousePressed) {
           int ofs = MiniMap.move(x, y, internalWidth, getSmallX());
           if (ofs != -1) GameController.setxPos(ofs);
         } else {
-          int xOfsTemp = GameController.getxPos() + (x - mouseDragStartX);
-
-          if (xOfsTemp < 0) xOfsTemp = 0;
-          else if (xOfsTemp >= Level.WIDTH - internalWidth) xOfsTemp = Level.WIDTH - internalWidth;
-
-          GameController.setxPos(xOfsTemp);
+          // relative, so drag events arriving within one frame add up
+          GameController.scrollBy(x - mouseDragStartX, Level.WIDTH - internalWidth);
         }
         // debug drawing
         debugDraw(x, y, leftMousePressed);
@@ -594,7 +855,7 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
    * @return lemming
    */
   public synchronized Lemming createLemmingAtCursorPosition() {
-    return new Lemming(xMouse, yMouse);
+    return new Lemming(GameController.getEngine(), xMouse, yMouse);
   }
 
   /**
@@ -624,6 +885,44 @@ public class GraphicsPane extends JPanel implements Runnable, MouseListener, Mou
     fullScreen = b;
   }
 
+  /**
+   * Enable or disable the accelerated presentation path: frames are drawn into accelerated images
+   * and scaled onto the screen by the game thread. If accelerated images are not available, the
+   * default path (drawing into a buffered image and repainting in the event dispatch thread) is
+   * used.
+   *
+   * @param b true: use accelerated path, false: use default path
+   */
+  public synchronized void setAccelerated(final boolean b) {
+    accelerated = b;
+    accelerationUnavailable = false;
+    for (int i = 0; i < volatileImage.length; i++) {
+      if (!b && volatileImage[i] != null) {
+        volatileImage[i].flush();
+        volatileImage[i] = null;
+      }
+      levelRenderer.invalidate(i);
+    }
+  }
+
+  /**
+   * Get state of the accelerated presentation path.
+   *
+   * @return true if the accelerated path is used
+   */
+  public synchronized boolean isAccelerated() {
+    return accelerated;
+  }
+
+  /**
+   * Show or hide the frame time counter.
+   *
+   * @param b true: show, false: hide
+   */
+  public synchronized void setShowFrameTime(final boolean b) {
+    showFrameTime = b;
+  }
+
   private synchronized int getSmallX() {
     return internalWidth - 208 - 4;
   }
@@ -101,9 +101,12 @@ public class Icons {
   /** array of Sprites that contains the icons */
   private static Sprite icons[];
 
-  /** buffered image that contains the whole icon bar in its current state */
+  /** buffered image that contains the whole icon bar as it was drawn last (render thread) */
   private static BufferedImage iconImg;
 
+  /** pressed icons in iconImg as bitmask (render thread) */
+  private static int drawnMask;
+
   /** graphics object used to draw on iconImg */
   private static Graphics2D iconGfx;
 
@@ -116,6 +119,7 @@ public class Icons {
   public static void init() throws ResourceException {
     iconImg = ToolBox.createImage(WIDTH * (1 + LAST_DRAWN), HEIGHT, Transparency.OPAQUE);
     iconGfx = iconImg.createGraphics();
+    drawnMask = 0;
     icons = new Sprite[15];
     for (int i = 0; i < 14; i++) {
       Image sourceImg = Core.loadImage("misc/icon_" + i + ".gif");
@@ -136,12 +140,35 @@ public class Icons {
   }
 
   /**
-   * Get buffered image that contains the whole icon bar in its current state.
+   * Get the pressed icons. The icons are pressed and released by the game thread, the returned
+   * bitmask is passed to the render thread via the {@link RenderFrame}.
+   *
+   * @return bitmask with bit n set if the icon with ordinal n is pressed
+   */
+  static int getPressed() {
+    int mask = 0;
+    for (int i = 0; i <= LAST_DRAWN; i++) if (icons[i].getFrameIdx() == 1) mask |= 1 << i;
+    return mask;
+  }
+
+  /**
+   * Draw the icon bar. Only the icons which changed since the last call are drawn into the cached
+   * image of the icon bar.
    *
-   * @return image of icon bar
+   * @param g graphics object
+   * @param x x coordinate in pixels
+   * @param y y coordinate in pixels
+   * @param mask pressed icons (see {@link #getPressed()})
    */
-  public static BufferedImage getImg() {
-    return iconImg;
+  static void draw(final Graphics2D g, final int x, final int y, final int mask) {
+    int changed = mask ^ drawnMask;
+    for (int i = 0; changed != 0 && i <= LAST_DRAWN; i++) {
+      if ((changed & (1 << i)) == 0) continue;
+      iconGfx.drawImage(icons[i].getImage((mask >> i) & 1), WIDTH * i, 0, null);
+      changed &= ~(1 << i);
+    }
+    drawnMask = mask;
+    g.drawImage(iconImg, x, y, null);
   }
 
   /**
@@ -167,7 +194,6 @@ public class Icons {
       case PAUSE:
       case FFWD:
         icons[idx].setFrameIdx((icons[idx].getFrameIdx() == 0) ? 1 : 0); // toggle
-        if (idx <= LAST_DRAWN) iconGfx.drawImage(icons[idx].getImage(), WIDTH * idx, 0, null);
         break;
       case CLIMB:
       case FLOAT:
@@ -177,17 +203,12 @@ public class Icons {
       case BASH:
       case MINE:
       case DIG:
-        for (int i = FIRST_RADIO; i <= LAST_RADIO; i++)
-          if (i != idx) {
-            icons[i].setFrameIdx(0);
-            iconGfx.drawImage(icons[i].getImage(), WIDTH * i, 0, null);
-          }
+        for (int i = FIRST_RADIO; i <= LAST_RADIO; i++) if (i != idx) icons[i].setFrameIdx(0);
         // $FALL-THROUGH$
       case MINUS:
       case PLUS:
       case NUKE:
         icons[idx].setFrameIdx(1); // set "pressed" frame
-        if (idx <= LAST_DRAWN) iconGfx.drawImage(icons[idx].getImage(), WIDTH * idx, 0, null);
         break;
     }
   }
@@ -204,16 +225,12 @@ public class Icons {
       case PLUS:
       case NUKE:
         icons[idx].setFrameIdx(0); // set "released" frame
-        if (idx <= LAST_DRAWN) iconGfx.drawImage(icons[idx].getImage(), WIDTH * idx, 0, null);
         break;
     }
   }
 
   /** Reset Icon bar. */
   static void reset() {
-    for (int i = 0; i <= LAST_DRAWN; i++) {
-      icons[i].setFrameIdx(0);
-      iconGfx.drawImage(icons[i].getImage(), WIDTH * i, 0, null);
-    }
+    for (int i = 0; i <= LAST_DRAWN; i++) icons[i].setFrameIdx(0);
   }
 }
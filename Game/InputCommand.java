@@ -0,0 +1,173 @@
+package Game;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Immutable input command (mouse or keyboard action) passed from the GUI to the game thread.
+ *
+ * <p>The GUI posts the commands via {@link GameController} without taking the game lock. The game
+ * thread executes all pending commands in order at the start of the next update, so input is
+ * always applied on a frame boundary.
+ */
+final class InputCommand {
+  /** Command types. */
+  static enum Type {
+    /** icon button was pressed (icon) */
+    ICON_BUTTON,
+    /** show icon as pressed (icon) */
+    PRESS_ICON,
+    /** show icon as released (icon) */
+    RELEASE_ICON,
+    /** plus was pressed (value: key or icon bitmask) */
+    PRESS_PLUS,
+    /** plus was released (value: key or icon bitmask) */
+    RELEASE_PLUS,
+    /** minus was pressed (value: key or icon bitmask) */
+    PRESS_MINUS,
+    /** minus was released (value: key or icon bitmask) */
+    RELEASE_MINUS,
+    /** request the selected skill for the Lemming under the cursor (lemming) */
+    REQUEST_SKILL,
+    /** set horizontal scrolling offset (value) */
+    SET_XPOS,
+    /** scroll horizontally (value: offset delta, max: maximum offset) */
+    SCROLL,
+    /** toggle pause mode and its icon */
+    TOGGLE_PAUSE,
+    /** toggle fast forward mode and its icon */
+    TOGGLE_FAST_FORWARD,
+    /** add a Lemming (lemming) */
+    ADD_LEMMING,
+    /** jump to a frame of the replay (value: position on the scrub bar, max: its width) */
+    SEEK,
+    /** go back in time (value: seconds) */
+    REWIND,
+    /** cheat mode: draw or erase terrain pixels (value: x, max: y in level coordinates, flag) */
+    DEBUG_DRAW
+  }
+
+  /** command type */
+  final Type type;
+
+  /** icon (null if not used by this type) */
+  final Icons.Type icon;
+
+  /** Lemming (null if not used by this type) */
+  final Lemming lemming;
+
+  /** integer argument */
+  final int value;
+
+  /** maximum for the integer argument */
+  final int max;
+
+  /** boolean argument */
+  final boolean flag;
+
+  /**
+   * Constructor.
+   *
+   * @param t command type
+   * @param i icon
+   * @param l Lemming
+   * @param v integer argument
+   * @param m maximum for the integer argument
+   * @param f boolean argument
+   */
+  private InputCommand(
+      final Type t,
+      final Icons.Type i,
+      final Lemming l,
+      final int v,
+      final int m,
+      final boolean f) {
+    type = t;
+    icon = i;
+    lemming = l;
+    value = v;
+    max = m;
+    flag = f;
+  }
+
+  /**
+   * Create a command without arguments.
+   *
+   * @param t command type
+   * @return command
+   */
+  static InputCommand of(final Type t) {
+    return new InputCommand(t, null, null, 0, 0, false);
+  }
+
+  /**
+   * Create a command with an icon argument.
+   *
+   * @param t command type
+   * @param i icon
+   * @return command
+   */
+  static InputCommand of(final Type t, final Icons.Type i) {
+    return new InputCommand(t, i, null, 0, 0, false);
+  }
+
+  /**
+   * Create a command with a Lemming argument.
+   *
+   * @param t command type
+   * @param l Lemming
+   * @return command
+   */
+  static InputCommand of(final Type t, final Lemming l) {
+    return new InputCommand(t, null, l, 0, 0, false);
+  }
+
+  /**
+   * Create a command with an integer argument.
+   *
+   * @param t command type
+   * @param v integer argument
+   * @return command
+   */
+  static InputCommand of(final Type t, final int v) {
+    return new InputCommand(t, null, null, v, 0, false);
+  }
+
+  /**
+   * Create a command with an integer argument and its maximum.
+   *
+   * @param t command type
+   * @param v integer argument
+   * @param m maximum for the integer argument
+   * @return command
+   */
+  static InputCommand of(final Type t, final int v, final int m) {
+    return new InputCommand(t, null, null, v, m, false);
+  }
+
+  /**
+   * Create a command with two integer arguments and a boolean argument.
+   *
+   * @param t command type
+   * @param v integer argument
+   * @param m maximum for the integer argument (or second integer argument)
+   * @param f boolean argument
+   * @return command
+   */
+  static InputCommand of(final Type t, final int v, final int m, final boolean f) {
+    return new InputCommand(t, null, null, v, m, f);
+  }
+}
@@ -0,0 +1,175 @@
+package Game;
+
+import GameUtil.Sprite;
+import java.util.ArrayList;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Complete simulation state of a level at the start of one frame, taken by {@link
+ * SimulationEngine#takeKeyframe()} and restored by {@link
+ * SimulationEngine#restoreKeyframe(Keyframe)}.
+ *
+ * <p>The terrain is stored as a {@link TerrainTiles.Snapshot}, so only the tiles changed since the
+ * previous keyframe are copied.
+ */
+final class Keyframe {
+  /** level the keyframe was taken of */
+  final Level level;
+
+  /** frame number (number of frames simulated before the keyframe was taken) */
+  final int frame;
+
+  /** terrain (background image and stencil) */
+  TerrainTiles.Snapshot terrain;
+
+  /** animation frame index of each level object */
+  private int objFrameIdx[];
+
+  /** animation mode of each level object */
+  private Sprite.Animation objAnimMode[];
+
+  /** trigger state of each level object */
+  private boolean objTriggered[];
+
+  /** pixels of each animation frame of the "no dig" objects - [object][frame] (null: other type) */
+  private Object objPixels[][];
+
+  /** state of the active Lemmings (without views) */
+  LemmingStore lemmings;
+
+  /** ID of the Lemming in each slot */
+  int lemmingIds[];
+
+  /** ID of the next Lemming added to the level */
+  int nextLemmingId;
+
+  /** copies of the active explosions */
+  final ArrayList<Explosion> explosions = new ArrayList<Explosion>();
+
+  /** trap door state */
+  final TrapDoor trapDoor = new TrapDoor();
+
+  /** flag: level is finished */
+  boolean finished;
+
+  /** flag: entry is openend */
+  boolean entryOpened;
+
+  /** flag: nuke was acticated */
+  boolean nuke;
+
+  /** frame counter for handling opening of entries */
+  int entryOpenCtr;
+
+  /** frame counter for handling time */
+  double secondCtr;
+
+  /** frame counter used to handle release of new Lemmings */
+  int releaseCtr;
+
+  /** frame counter used to update animated sprite objects */
+  int animCtr;
+
+  /** free running update counter */
+  int updateCtr;
+
+  /** number of Lemmings which left the level */
+  int numLeft;
+
+  /** release rate 0..99 */
+  int releaseRate;
+
+  /** number of Lemmings available */
+  int numLemmingsMax;
+
+  /** number of Lemmings who entered the level */
+  int numLemmingsOut;
+
+  /** number of Lemmings which have to be rescued to finish the level */
+  int numToRescue;
+
+  /** time left in seconds */
+  int time;
+
+  /** number of skills left to be assigned (climbers, floaters, bombers, blockers, builders, ...) */
+  final int numSkills[] = new int[8];
+
+  /**
+   * Constructor.
+   *
+   * @param lvl level
+   * @param f frame number
+   */
+  Keyframe(final Level lvl, final int f) {
+    level = lvl;
+    frame = f;
+  }
+
+  /** Store the animation state of the level objects and the images of the "no dig" objects. */
+  void storeObjects() {
+    int num = level.getSprObjectNum();
+    objFrameIdx = new int[num];
+    objAnimMode = new Sprite.Animation[num];
+    objTriggered = new boolean[num];
+    objPixels = new Object[num][];
+    for (int n = 0; n < num; n++) {
+      SpriteObject spr = level.getSprObject(n);
+      objFrameIdx[n] = spr.getFrameIdx();
+      objAnimMode[n] = spr.getAnimMode();
+      objTriggered[n] = spr.isTriggered();
+      if (spr.getType() != SpriteObject.Type.NO_DIG_LEFT
+          && spr.getType() != SpriteObject.Type.NO_DIG_RIGHT) continue;
+      objPixels[n] = new Object[spr.getNumFrames()];
+      for (int f = 0; f < objPixels[n].length; f++)
+        objPixels[n][f] = LevelSnapshot.copyPixels(spr.getImage(f), null);
+    }
+  }
+
+  /** Restore the animation state of the level objects and the images of the "no dig" objects. */
+  void restoreObjects() {
+    for (int n = 0; n < objFrameIdx.length; n++) {
+      SpriteObject spr = level.getSprObject(n);
+      spr.resetAnimation(objFrameIdx[n], objAnimMode[n], objTriggered[n]);
+      if (objPixels[n] != null)
+        for (int f = 0; f < objPixels[n].length; f++)
+          LevelSnapshot.restorePixels(spr.getImage(f), objPixels[n][f]);
+    }
+  }
+
+  /** Release the terrain tiles of this keyframe. The keyframe can't be restored any more. */
+  void release() {
+    terrain.release();
+  }
+
+  /**
+   * Estimate the memory used by this keyframe without the terrain tiles, which may be shared with
+   * other keyframes (see {@link TerrainTiles#getMemorySize()}).
+   *
+   * @return size in bytes
+   */
+  long getSize() {
+    long size = 256 + 8L * TerrainTiles.NUM_TILES;
+    for (Object frames[] : objPixels) {
+      if (frames == null) continue;
+      for (Object f : frames) size += (f instanceof int[]) ? 4L * ((int[]) f).length : 4096;
+    }
+    size += 64L * lemmings.views.length + 4L * lemmingIds.length;
+    size += 1024L * explosions.size();
+    return size;
+  }
+}
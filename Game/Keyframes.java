@@ -0,0 +1,115 @@
+package Game;
+
+import java.util.ArrayList;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * {@link Keyframe}s of the running level, taken at regular frame intervals within a memory budget.
+ *
+ * <p>Keyframes are only taken at multiples of the current interval. When the budget is exceeded,
+ * the interval is doubled and every other keyframe is dropped, so the keyframes always cover the
+ * whole level evenly. The keyframe of the first frame is always kept. The terrain tiles shared by
+ * the keyframes are accounted for by their {@link TerrainTiles}.
+ */
+final class Keyframes {
+  /** memory budget in bytes */
+  static final long MAX_BYTES = 32L << 20;
+
+  /** initial interval in frames (about two seconds) */
+  private static final int START_INTERVAL = (int) (2 * SimulationEngine.MAX_SECOND_CTR);
+
+  /** keyframes ordered by frame */
+  private final ArrayList<Keyframe> keyframes = new ArrayList<Keyframe>();
+
+  /** interval in frames */
+  private int interval = START_INTERVAL;
+
+  /** estimated memory used by all keyframes without the terrain tiles */
+  private long bytes;
+
+  /** Remove all keyframes (e.g. when a level is started). */
+  void clear() {
+    for (Keyframe k : keyframes) k.release();
+    keyframes.clear();
+    interval = START_INTERVAL;
+    bytes = 0;
+  }
+
+  /**
+   * Check if a keyframe should be taken.
+   *
+   * @param frame current frame
+   * @return true if the frame is a multiple of the interval and newer than the last keyframe
+   */
+  boolean isDue(final int frame) {
+    if (frame % interval != 0) return false;
+    return keyframes.isEmpty() || frame > keyframes.get(keyframes.size() - 1).frame;
+  }
+
+  /**
+   * Add a keyframe which is newer than all others.
+   *
+   * @param k keyframe
+   */
+  void add(final Keyframe k) {
+    keyframes.add(k);
+    bytes += k.getSize();
+    TerrainTiles tiles = k.terrain.getOwner();
+    while (bytes + tiles.getMemorySize() > MAX_BYTES && keyframes.size() > 1) {
+      interval *= 2;
+      bytes = 0;
+      int n = 0;
+      for (int i = 0; i < keyframes.size(); i++) {
+        Keyframe kf = keyframes.get(i);
+        if (kf.frame % interval != 0) {
+          kf.release();
+          continue;
+        }
+        bytes += kf.getSize();
+        keyframes.set(n++, kf);
+      }
+      for (int i = keyframes.size() - 1; i >= n; i--) keyframes.remove(i);
+    }
+  }
+
+  /**
+   * Get the newest keyframe not newer than a frame.
+   *
+   * @param frame frame
+   * @return keyframe or null if there's none
+   */
+  Keyframe get(final int frame) {
+    for (int i = keyframes.size() - 1; i >= 0; i--)
+      if (keyframes.get(i).frame <= frame) return keyframes.get(i);
+    return null;
+  }
+
+  /**
+   * Remove all keyframes newer than a frame, e.g. because the replay events after this frame were
+   * changed.
+   *
+   * @param frame frame
+   */
+  void dropAfter(final int frame) {
+    for (int i = keyframes.size() - 1; i >= 0 && keyframes.get(i).frame > frame; i--) {
+      Keyframe k = keyframes.remove(i);
+      bytes -= k.getSize();
+      k.release();
+    }
+  }
+}
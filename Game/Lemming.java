@@ -7,6 +7,7 @@ import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
@@ -204,92 +205,144 @@ public class Lemming {
   /** explosion counter is decreased every second */
   private static final int MAX_EXPLODE_CTR = 1000000 / GameController.MICROSEC_PER_FRAME;
 
-  /** resource (animation etc.) for the current Lemming */
-  private LemmingResource lemRes;
+  /** maximum movement per frame in pixels which is interpolated when drawing */
+  private static final int MAX_INTERPOLATION_STEP = 8;
 
-  /** animation frame */
-  private int frameIdx;
+  /** Lemming skills/types by ordinal */
+  private static final Type TYPES[] = Type.values();
 
-  /** x coordinate of foot in pixels */
-  private int x;
+  /** Lemming headings by ordinal */
+  private static final Direction DIRECTIONS[] = Direction.values();
 
-  /** y coordinate of foot in pixels */
-  private int y;
+  /** store holding the state of this Lemming */
+  LemmingStore store;
 
-  /** x coordinate for mask in pixels */
-  private int maskX;
+  /** slot of this Lemming in the store */
+  int slot;
 
-  /** y coordinate for mask in pixels */
-  private int maskY;
+  /** simulation engine this Lemming lives in */
+  private final SimulationEngine engine;
 
-  /** Lemming's heading */
-  private Direction dir;
+  /** unique ID within the level, assigned by the engine (-1: not added yet) */
+  private int id = -1;
 
-  /** Lemming's skill/type */
-  private Type type;
-
-  /** counter used for internal state changes */
-  private int counter;
-
-  /** another counter used for internal state changes */
-  private int counter2;
-
-  /** explosion counter when nuked */
-  private int explodeNumCtr;
-
-  /** Lemming can float */
-  private boolean canFloat;
+  /** static array of resources for each Lemming skill/type */
+  private static LemmingResource lemmings[];
 
-  /** Lemming can climb */
-  private boolean canClimb;
+  /** font used for the explosion counter */
+  private static ExplodeFont explodeFont;
 
-  /** Lemming can change its skill */
-  private boolean canChangeSkill;
+  /**
+   * Constructor: Create Lemming. The Lemming gets a store of its own until it's added to the
+   * engine.
+   *
+   * @param e simulation engine
+   * @param sx x coordinate of foot
+   * @param sy y coordinate of foot
+   */
+  public Lemming(final SimulationEngine e, final int sx, final int sy) {
+    engine = e;
+    store = new LemmingStore(1);
+    slot = 0;
+    store.size = 1;
+    store.views[0] = this;
+    store.frameIdx[slot] = 0;
+    setType(Type.FALLER); // always start with a faller
+    store.counter[slot] = 0;
+    store.explodeNumCtr[slot] = 0;
+    store.selectCtr[slot] = 0;
+    setDir(Direction.RIGHT); // always start walking to the right
+    store.x[slot] = sx;
+    store.y[slot] = sy;
+    store.lastX[slot] = sx;
+    store.lastY[slot] = sy;
+    // insideStopper = false;
+    // new lemming can't float or climb, a faller can not change the skill to e.g. builder,
+    // hasn't died or left yet and is not nuked
+    store.flags[slot] = 0;
+  }
+  /**
+   * Constructor for a Lemming whose state is already stored in a slot (e.g. restored from a
+   * keyframe).
+   *
+   * @param e simulation engine
+   * @param s store holding the state
+   * @param sl slot
+   * @param i ID
+   */
+  Lemming(final SimulationEngine e, final LemmingStore s, final int sl, final int i) {
+    engine = e;
+    store = s;
+    slot = sl;
+    id = i;
+    s.views[sl] = this;
+  }
 
-  /** Lemming is to be nuked */
-  private boolean nuke;
 
-  /** Lemming has died */
-  private boolean hasDied;
+  /**
+   * Get current skill/type (same as {@link #getSkill()}, used internally).
+   *
+   * @return current skill/type
+   */
+  private Type type() {
+    return TYPES[store.type[slot]];
+  }
 
-  /** Lemming has left the level */
-  private boolean hasLeft;
+  /**
+   * Set the skill/type without any checks or other changes.
+   *
+   * @param t skill/type
+   */
+  private void setType(final Type t) {
+    store.type[slot] = (byte) t.ordinal();
+  }
 
-  /** counter used to manage the explosion */
-  private int explodeCtr;
+  /**
+   * Get heading (same as {@link #getDirection()}, used internally).
+   *
+   * @return heading
+   */
+  private Direction dir() {
+    return DIRECTIONS[store.dir[slot]];
+  }
 
-  /** counter used to display the select image in replay mode */
-  private int selectCtr;
+  /**
+   * Set heading.
+   *
+   * @param d heading
+   */
+  private void setDir(final Direction d) {
+    store.dir[slot] = (byte) d.ordinal();
+  }
 
-  /** static array of resources for each Lemming skill/type */
-  private static LemmingResource lemmings[];
+  /**
+   * Get resource (animation etc.) for the current skill/type.
+   *
+   * @return resource for the current skill/type
+   */
+  private LemmingResource res() {
+    return lemmings[getOrdinal(type())];
+  }
 
-  /** font used for the explosion counter */
-  private static ExplodeFont explodeFont;
+  /**
+   * Check a flag.
+   *
+   * @param f flag (see {@link LemmingStore#CAN_FLOAT} etc.)
+   * @return true if the flag is set
+   */
+  private boolean flag(final int f) {
+    return (store.flags[slot] & f) != 0;
+  }
 
   /**
-   * Constructor: Create Lemming
+   * Set or clear a flag.
    *
-   * @param sx x coordinate of foot
-   * @param sy y coordinate of foot
+   * @param f flag (see {@link LemmingStore#CAN_FLOAT} etc.)
+   * @param on true to set the flag, false to clear it
    */
-  public Lemming(final int sx, final int sy) {
-    frameIdx = 0;
-    type = Type.FALLER; // always start with a faller
-    lemRes = lemmings[getOrdinal(type)];
-    counter = 0;
-    explodeNumCtr = 0;
-    selectCtr = 0;
-    dir = Direction.RIGHT; // always start walking to the right
-    x = sx;
-    y = sy;
-    // insideStopper = false;
-    canFloat = false; // new lemming can't float
-    canClimb = false; // new lemming can't climb
-    canChangeSkill = false; // a faller can not change the skill to e.g. builder
-    hasDied = false; // not yet
-    hasLeft = false; // not yet
-    nuke = false;
+  private void setFlag(final int f, final boolean on) {
+    if (on) store.flags[slot] |= f;
+    else store.flags[slot] &= ~f;
   }
 
   /**
@@ -309,22 +362,24 @@ public class Lemming {
   /** Update animation, move Lemming, check state transitions. */
   public void animate() {
     int free;
-    Type oldType = type;
-    Type newType = type;
-    int oldX = x;
+    Type oldType = type();
+    Type newType = type();
+    int oldX = store.x[slot];
     boolean explode = false;
+    store.lastX[slot] = store.x[slot];
+    store.lastY[slot] = store.y[slot];
     // first check explode state
-    if (explodeNumCtr != 0) {
-      if (++explodeCtr >= MAX_EXPLODE_CTR) {
-        explodeCtr -= MAX_EXPLODE_CTR;
-        explodeNumCtr--;
-        if (explodeNumCtr == 0) explode = true;
+    if (store.explodeNumCtr[slot] != 0) {
+      if (++store.explodeCtr[slot] >= MAX_EXPLODE_CTR) {
+        store.explodeCtr[slot] -= MAX_EXPLODE_CTR;
+        store.explodeNumCtr[slot]--;
+        if (store.explodeNumCtr[slot] == 0) explode = true;
       }
     }
-    if (selectCtr > 0) selectCtr--;
+    if (store.selectCtr[slot] > 0) store.selectCtr[slot]--;
     flipDirBorder();
     // lemming state machine
-    switch (type) {
+    switch (type()) {
       case CLIMBER_TO_WALKER:
         if (explode) {
           explode();
@@ -338,20 +393,20 @@ public class Lemming {
           break;
         }
         free = freeBelow(FALLER_STEP);
-        if (free == FALL_DISTANCE_FORCE_FALL) y += FALLER_STEP;
-        else y += free; // max: FALLER_STEP
+        if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FALLER_STEP;
+        else store.y[slot] += free; // max: FALLER_STEP
         if (!crossedLowerBorder()) {
-          counter += free; // fall counter
+          store.counter[slot] += free; // fall counter
           // check conversion to floater
-          if (canFloat && counter >= FALL_DISTANCE_FLOAT) {
+          if (canFloat() && store.counter[slot] >= FALL_DISTANCE_FLOAT) {
             newType = Type.FLOATER_START;
-            counter2 = 0; // used for parachute opening "jump" up
+            store.counter2[slot] = 0; // used for parachute opening "jump" up
           } else if (free == 0) { // check ground hit
             // System.out.println(counter);
-            if (counter > GameController.getLevel().getMaxFallDistance()) newType = Type.SPLAT;
+            if (store.counter[slot] > engine.getLevel().getMaxFallDistance()) newType = Type.SPLAT;
             else {
               newType = Type.WALKER;
-              counter = 0;
+              store.counter[slot] = 0;
             }
           }
         }
@@ -361,16 +416,16 @@ public class Lemming {
         {
           if (explode) {
             newType = Type.BOMBER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check collision with stopper
           if (turnedByStopper()) break;
           int levitation = aboveGround();
-          if (levitation > JUMPER_STEP) y -= JUMPER_STEP;
+          if (levitation > JUMPER_STEP) store.y[slot] -= JUMPER_STEP;
           else {
             // conversion to walker
-            y -= levitation;
+            store.y[slot] -= levitation;
             newType = Type.WALKER;
           }
           break;
@@ -380,44 +435,45 @@ public class Lemming {
         {
           if (explode) {
             newType = Type.BOMBER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check collision with stopper
           if (turnedByStopper()) break;
-          if (dir == Direction.RIGHT) x += WALKER_STEP;
-          else if (dir == Direction.LEFT) x -= WALKER_STEP;
+          if (dir() == Direction.RIGHT) store.x[slot] += WALKER_STEP;
+          else if (dir() == Direction.LEFT) store.x[slot] -= WALKER_STEP;
           // check
           free = freeBelow(FALL_DISTANCE_FALL);
-          if (free >= FALL_DISTANCE_FALL) y += FALLER_STEP;
+          if (free >= FALL_DISTANCE_FALL) store.y[slot] += FALLER_STEP;
           else {
-            y += free;
-            counter = free;
+            store.y[slot] += free;
+            store.counter[slot] = free;
             //					if (free == 0)
             //						counter = 0; // reset fall counter
           }
           int levitation = aboveGround();
           // check for flip direction
-          if (levitation < WALKER_OBSTACLE_HEIGHT && (y + lemRes.height / 2) > 0) {
+          if (levitation < WALKER_OBSTACLE_HEIGHT && (store.y[slot] + res().height / 2) > 0) {
             // y -= levitation;
             if (levitation >= JUMPER_JUMP) {
-              y -= JUMPER_STEP;
+              store.y[slot] -= JUMPER_STEP;
               newType = Type.JUMPER;
               break;
-            } else y -= levitation;
+            } else store.y[slot] -= levitation;
           } else {
-            x = oldX;
+            store.x[slot] = oldX;
             // y = oldY;
-            if (canClimb) {
+            if (canClimb()) {
               newType = Type.CLIMBER;
               break;
             } else {
-              dir = (dir == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT;
+              setDir((dir() == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT);
             }
           }
           if (free > 0) {
             // check for conversion to faller
-            counter += FALLER_STEP; // @check: is this ok? increasing counter, but using free???
+            // @check: is this ok? increasing counter, but using free???
+            store.counter[slot] += FALLER_STEP;
             if (free >= FALL_DISTANCE_FALL) newType = Type.FALLER;
           }
           break;
@@ -428,23 +484,23 @@ public class Lemming {
           explode();
           break;
         }
-        switch (counter2++) {
+        switch (store.counter2[slot]++) {
           case 0:
           case 1: // keep falling with faller speed
           case 2:
-            y += FALLER_STEP - FLOATER_STEP;
+            store.y[slot] += FALLER_STEP - FLOATER_STEP;
             break;
           case 3:
-            y -= FLOATER_STEP - 1; // decelerate a little
+            store.y[slot] -= FLOATER_STEP - 1; // decelerate a little
             break;
           case 4:
           case 5:
           case 6:
           case 7:
-            y -= FLOATER_STEP; // decelerate some more
+            store.y[slot] -= FLOATER_STEP; // decelerate some more
             break;
           default:
-            type = Type.FLOATER;
+            setType(Type.FLOATER);
         }
         // $FALL-THROUGH$
       case FLOATER:
@@ -453,14 +509,14 @@ public class Lemming {
           break;
         }
         free = freeBelow(FLOATER_STEP);
-        if (free == FALL_DISTANCE_FORCE_FALL) y += FLOATER_STEP;
-        else y += free; // max: FLOATER_STEP
+        if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FLOATER_STEP;
+        else store.y[slot] += free; // max: FLOATER_STEP
         if (!crossedLowerBorder()) {
-          counter += free; // fall counter
+          store.counter[slot] += free; // fall counter
           // check ground hit
           if (free == 0) {
             newType = Type.WALKER;
-            counter = 0;
+            store.counter[slot] = 0;
           }
         }
         break;
@@ -470,14 +526,14 @@ public class Lemming {
           explode();
           break;
         }
-        if ((++counter & 1) == 1) // only every other step
-        y -= CLIMBER_STEP;
+        if ((++store.counter[slot] & 1) == 1) // only every other step
+        store.y[slot] -= CLIMBER_STEP;
         if (midY() < 0 || freeAbove(2) < 2) {
-          dir = (dir == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT;
+          setDir((dir() == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT);
           newType = Type.FALLER;
-          counter = 0;
+          store.counter[slot] = 0;
         } else if (reachedPlateau()) {
-          counter = 0;
+          store.counter[slot] = 0;
           newType = Type.CLIMBER_TO_WALKER;
         }
         break;
@@ -487,14 +543,14 @@ public class Lemming {
           explode();
           break;
         }
-        if (frameIdx == 0) // looped once
-        GameController.sound.play(GameController.SND_SPLAT);
+        if (store.frameIdx[slot] == 0) // looped once
+        engine.playSound(GameController.SND_SPLAT);
         break;
 
       case DIGGER:
         if (explode) {
           newType = Type.BOMBER;
-          if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+          if (!nuke()) engine.playSound(GameController.SND_OHNO);
           break;
         }
         break;
@@ -503,7 +559,7 @@ public class Lemming {
         {
           if (explode) {
             newType = Type.BOMBER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check for conversion to faller
@@ -513,16 +569,16 @@ public class Lemming {
             break;
           }
           free = freeBelow(FLOATER_STEP);
-          if (free == FALL_DISTANCE_FORCE_FALL) y += FALLER_STEP;
-          else y += free;
+          if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FALLER_STEP;
+          else store.y[slot] += free;
           if (free != 0) {
-            counter += free;
-            if (counter >= BASHER_FALL_DISTANCE) newType = Type.FALLER;
-          } else counter = 0;
+            store.counter[slot] += free;
+            if (store.counter[slot] >= BASHER_FALL_DISTANCE) newType = Type.FALLER;
+          } else store.counter[slot] = 0;
           Mask m;
           int checkMask;
-          int idx = frameIdx + 1;
-          if (idx >= lemRes.frames * TIME_SCALE) idx = 0;
+          int idx = store.frameIdx[slot] + 1;
+          if (idx >= res().frames * TIME_SCALE) idx = 0;
           switch (idx) {
             case 2 * TIME_SCALE:
             case 3 * TIME_SCALE:
@@ -530,18 +586,18 @@ public class Lemming {
             case 5 * TIME_SCALE:
               {
                 //	bash mask should have the same height as the lemming
-                m = lemRes.getMask(dir);
+                m = res().getMask(dir());
                 int sx = screenX();
                 int sy = screenY();
                 checkMask =
                     Stencil.MSK_STEEL
-                        | ((dir == Direction.LEFT)
+                        | ((dir() == Direction.LEFT)
                             ? Stencil.MSK_NO_DIG_LEFT
                             : Stencil.MSK_NO_DIG_RIGHT);
-                m.eraseMask(sx, sy, idx / TIME_SCALE - 2, checkMask);
+                m.eraseMask(engine, sx, sy, idx / TIME_SCALE - 2, checkMask);
                 // check for conversion to walker because there are indestructible pixels
-                if (lemRes.getImask(dir).checkType(sx, sy, 0, checkMask)) {
-                  GameController.sound.play(GameController.SND_CHINK);
+                if (res().getImask(dir()).checkType(engine, sx, sy, 0, checkMask)) {
+                  engine.playSound(GameController.SND_CHINK);
                   newType = Type.WALKER;
                 }
                 if (idx == 5 * TIME_SCALE)
@@ -558,19 +614,19 @@ public class Lemming {
             case 21 * TIME_SCALE:
               {
                 //	bash mask should have the same height as the lemming
-                m = lemRes.getMask(dir);
+                m = res().getMask(dir());
                 ;
                 int sx = screenX();
                 int sy = screenY();
                 checkMask =
                     Stencil.MSK_STEEL
-                        | ((dir == Direction.LEFT)
+                        | ((dir() == Direction.LEFT)
                             ? Stencil.MSK_NO_DIG_LEFT
                             : Stencil.MSK_NO_DIG_RIGHT);
-                m.eraseMask(sx, sy, idx / TIME_SCALE - 18, checkMask);
+                m.eraseMask(engine, sx, sy, idx / TIME_SCALE - 18, checkMask);
                 // check for conversion to walker because there are indestructible pixels
-                if (lemRes.getImask(dir).checkType(sx, sy, 0, checkMask)) {
-                  GameController.sound.play(GameController.SND_CHINK);
+                if (res().getImask(dir()).checkType(engine, sx, sy, 0, checkMask)) {
+                  engine.playSound(GameController.SND_CHINK);
                   newType = Type.WALKER;
                 }
                 break;
@@ -585,8 +641,8 @@ public class Lemming {
             case 28 * TIME_SCALE:
             case 29 * TIME_SCALE:
             case 30 * TIME_SCALE:
-              if (dir == Direction.RIGHT) x += 2;
-              else x -= 2;
+              if (dir() == Direction.RIGHT) store.x[slot] += 2;
+              else store.x[slot] -= 2;
               break;
           }
           break;
@@ -596,7 +652,7 @@ public class Lemming {
         {
           if (explode) {
             newType = Type.BOMBER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check collision with stopper
@@ -604,39 +660,39 @@ public class Lemming {
           Mask m;
           int sx;
           int sy;
-          int idx = frameIdx + 1;
-          if (idx >= lemRes.frames * TIME_SCALE) idx = 0;
+          int idx = store.frameIdx[slot] + 1;
+          if (idx >= res().frames * TIME_SCALE) idx = 0;
           switch (idx) {
             case 1 * TIME_SCALE:
             case 2 * TIME_SCALE:
               // check for steel in mask
-              m = lemRes.getMask(dir);
+              m = res().getMask(dir());
               sx = screenX();
               sy = screenY();
               int checkMask =
                   Stencil.MSK_STEEL
-                      | ((dir == Direction.LEFT)
+                      | ((dir() == Direction.LEFT)
                           ? Stencil.MSK_NO_DIG_LEFT
                           : Stencil.MSK_NO_DIG_RIGHT);
-              m.eraseMask(sx, sy, idx / TIME_SCALE - 1, checkMask);
-              if (lemRes.getImask(dir).checkType(sx, sy, 0, checkMask)) {
-                GameController.sound.play(GameController.SND_CHINK);
+              m.eraseMask(engine, sx, sy, idx / TIME_SCALE - 1, checkMask);
+              if (res().getImask(dir()).checkType(engine, sx, sy, 0, checkMask)) {
+                engine.playSound(GameController.SND_CHINK);
                 newType = Type.WALKER;
               }
               break;
             case 3 * TIME_SCALE:
             case 15 * TIME_SCALE:
-              if (dir == Direction.RIGHT) x += 4;
-              else x -= 4;
+              if (dir() == Direction.RIGHT) store.x[slot] += 4;
+              else store.x[slot] -= 4;
               // check for conversion to faller
               free = freeBelow(MINER_FALL_DISTANCE);
               if (free >= MINER_FALL_DISTANCE) {
-                if (free == FALL_DISTANCE_FORCE_FALL) y += FALLER_STEP;
-                else y += free;
+                if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FALLER_STEP;
+                else store.y[slot] += free;
                 newType = Type.FALLER;
                 break;
               }
-              if (idx == 15 * TIME_SCALE) y += 4;
+              if (idx == 15 * TIME_SCALE) store.y[slot] += 4;
               break;
               // case 23*TIME_SCALE:
               //	break;
@@ -647,26 +703,26 @@ public class Lemming {
       case BUILDER_END:
         if (explode) {
           newType = Type.BOMBER;
-          if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+          if (!nuke()) engine.playSound(GameController.SND_OHNO);
         }
         break;
       case BUILDER:
         {
           if (explode) {
             newType = Type.BOMBER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check collision with stopper
           if (turnedByStopper()) break;
-          int idx = frameIdx + 1;
-          if (idx >= lemRes.frames * TIME_SCALE) {
+          int idx = store.frameIdx[slot] + 1;
+          if (idx >= res().frames * TIME_SCALE) {
             // step created -> move up
             idx = 0;
-            counter++; // step counter;
-            if (dir == Direction.RIGHT) x += 4; // step forward
-            else x -= 4;
-            y -= 2; // step up
+            store.counter[slot]++; // step counter;
+            if (dir() == Direction.RIGHT) store.x[slot] += 4; // step forward
+            else store.x[slot] -= 4;
+            store.y[slot] -= 2; // step up
             int levitation = aboveGround(); // should be 0, if not, we built into a wall -> stop
             // check for conversion to walker
             int fa = freeAbove(8); // check if builder is too close to ceiling
@@ -675,26 +731,26 @@ public class Lemming {
               // a lemming can jump through the ceiling like in Mayhem2-Boiler Room
               if (levitation >= WALKER_OBSTACLE_HEIGHT) {
                 // avoid getting stuck
-                x = oldX;
-                y += 2;
+                store.x[slot] = oldX;
+                store.y[slot] += 2;
               }
-              dir = (dir == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT;
+              setDir((dir() == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT);
               break;
             }
             // check for last step used
-            if (counter >= STEPS_MAX) {
+            if (store.counter[slot] >= STEPS_MAX) {
               newType = Type.BUILDER_END;
               break;
             }
           } else if (idx == 9 * TIME_SCALE) {
             // stair mask is the same heigth as a lemming
             Mask m;
-            m = lemRes.getMask(dir);
+            m = res().getMask(dir());
             ;
             int sx = screenX();
             int sy = screenY();
-            m.paintStep(sx, sy, 0, GameController.getLevel().getDebrisColor());
-            if (counter >= STEPS_WARNING) GameController.sound.play(GameController.SND_TING);
+            m.paintStep(engine, sx, sy, 0, engine.getLevel().getDebrisColor());
+            if (store.counter[slot] >= STEPS_WARNING) engine.playSound(GameController.SND_TING);
           }
           break;
         }
@@ -704,21 +760,21 @@ public class Lemming {
           if (explode) {
             // don't erase stopper mask!
             newType = Type.BOMBER_STOPPER;
-            if (!nuke) GameController.sound.play(GameController.SND_OHNO);
+            if (!nuke()) engine.playSound(GameController.SND_OHNO);
             break;
           }
           // check for conversion to faller
           free = freeBelow(FLOATER_STEP);
           if (free > 0) {
-            if (free == FALL_DISTANCE_FORCE_FALL) y += FALLER_STEP;
-            else y += free;
-            counter += free;
-            if (counter >= FALL_DISTANCE_FALL) newType = Type.FALLER;
+            if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FALLER_STEP;
+            else store.y[slot] += free;
+            store.counter[slot] += free;
+            if (store.counter[slot] >= FALL_DISTANCE_FALL) newType = Type.FALLER;
             else newType = Type.WALKER;
             // conversion to faller or walker -> erase stopper mask
-            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir);
-            m.clearType(maskX, maskY, 0, Stencil.MSK_STOPPER);
-          } else counter = 0;
+            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir());
+            m.clearType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER);
+          } else store.counter[slot] = 0;
           break;
         }
 
@@ -727,16 +783,16 @@ public class Lemming {
         free = freeBelow(FLOATER_STEP);
         if (free > 0) {
           // stopper falls -> erase mask and convert to normal stopper.
-          Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir);
-          m.clearType(maskX, maskY, 0, Stencil.MSK_STOPPER);
-          type = Type.BOMBER;
+          Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir());
+          m.clearType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER);
+          setType(Type.BOMBER);
           // fall through
         } else break;
         // $FALL-THROUGH$
       case BOMBER:
         free = freeBelow(FLOATER_STEP);
-        if (free == FALL_DISTANCE_FORCE_FALL) y += FALLER_STEP;
-        else y += free;
+        if (free == FALL_DISTANCE_FORCE_FALL) store.y[slot] += FALLER_STEP;
+        else store.y[slot] += free;
         crossedLowerBorder();
         break;
 
@@ -752,61 +808,61 @@ public class Lemming {
     int s = stencilMid();
     switch (s & (Stencil.MSK_TRAP | Stencil.MSK_EXIT)) {
       case Stencil.MSK_TRAP_DROWN:
-        if (type != Type.DROWNING) {
+        if (type() != Type.DROWNING) {
           newType = Type.DROWNING;
-          SpriteObject spr = GameController.getLevel().getSprObject(Stencil.getObjectID(s));
-          GameController.sound.play(spr.getSound());
+          SpriteObject spr = engine.getLevel().getSprObject(Stencil.getObjectID(s));
+          engine.playSound(spr.getSound());
         }
         break;
       case Stencil.MSK_TRAP_DIE:
-        if (type != Type.TRAPPED) {
-          SpriteObject spr = GameController.getLevel().getSprObject(Stencil.getObjectID(s));
+        if (type() != Type.TRAPPED) {
+          SpriteObject spr = engine.getLevel().getSprObject(Stencil.getObjectID(s));
           if (spr.canBeTriggered()) {
             if (spr.trigger()) {
-              GameController.sound.play(spr.getSound());
+              engine.playSound(spr.getSound());
               newType = Type.TRAPPED;
             }
           } else {
-            GameController.sound.play(spr.getSound());
+            engine.playSound(spr.getSound());
             newType = Type.TRAPPED;
           }
-          if (type == Type.STOPPER || type == Type.BOMBER_STOPPER) {
+          if (type() == Type.STOPPER || type() == Type.BOMBER_STOPPER) {
             // erase stopper mask
-            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir);
-            m.clearType(maskX, maskY, 0, Stencil.MSK_STOPPER);
+            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir());
+            m.clearType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER);
           }
         }
         break;
       case Stencil.MSK_TRAP_REPLACE:
         {
-          SpriteObject spr = GameController.getLevel().getSprObject(Stencil.getObjectID(s));
+          SpriteObject spr = engine.getLevel().getSprObject(Stencil.getObjectID(s));
           if (spr.canBeTriggered()) {
             if (spr.trigger()) {
-              GameController.sound.play(spr.getSound());
-              hasDied = true;
+              engine.playSound(spr.getSound());
+              setFlag(LemmingStore.HAS_DIED, true);
             }
           } else {
-            GameController.sound.play(spr.getSound());
-            hasDied = true;
+            engine.playSound(spr.getSound());
+            setFlag(LemmingStore.HAS_DIED, true);
           }
-          if (type == Type.STOPPER || type == Type.BOMBER_STOPPER) {
+          if (type() == Type.STOPPER || type() == Type.BOMBER_STOPPER) {
             // erase stopper mask
-            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir);
-            m.clearType(maskX, maskY, 0, Stencil.MSK_STOPPER);
+            Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir());
+            m.clearType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER);
           }
           break;
         }
       case Stencil.MSK_EXIT:
-        switch (type) {
+        switch (type()) {
           case WALKER:
           case JUMPER:
           case BASHER:
           case MINER:
           case BUILDER:
           case DIGGER:
-            SpriteObject spr = GameController.getLevel().getSprObject(Stencil.getObjectID(s));
+            SpriteObject spr = engine.getLevel().getSprObject(Stencil.getObjectID(s));
             newType = Type.EXITING;
-            GameController.sound.play(spr.getSound());
+            engine.playSound(spr.getSound());
             break;
         }
         break;
@@ -814,23 +870,24 @@ public class Lemming {
     // animate
     if (oldType == newType) {
       boolean trigger = false;
-      switch (lemRes.animMode) {
+      switch (res().animMode) {
         case LOOP:
-          if (++frameIdx >= lemRes.frames * TIME_SCALE) frameIdx = 0;
-          if (lemRes.maskStep > 0 && frameIdx % (lemRes.maskStep * TIME_SCALE) == 0) trigger = true;
+          if (++store.frameIdx[slot] >= res().frames * TIME_SCALE) store.frameIdx[slot] = 0;
+          if (res().maskStep > 0 && store.frameIdx[slot] % (res().maskStep * TIME_SCALE) == 0)
+            trigger = true;
           break;
         case ONCE:
-          if (frameIdx < lemRes.frames * TIME_SCALE - 1) frameIdx++;
+          if (store.frameIdx[slot] < res().frames * TIME_SCALE - 1) store.frameIdx[slot]++;
           else trigger = true;
           break;
       }
       if (trigger) {
         // Trigger condition reached?
-        switch (type) {
+        switch (type()) {
           case BOMBER_STOPPER:
             {
-              Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir);
-              m.clearType(maskX, maskY, 0, Stencil.MSK_STOPPER);
+              Mask m = lemmings[getOrdinal(Type.STOPPER)].getMask(dir());
+              m.clearType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER);
             }
             // $FALL-THROUGH$
           case BOMBER:
@@ -839,54 +896,54 @@ public class Lemming {
           case SPLAT:
           case DROWNING:
           case TRAPPED:
-            hasDied = true;
+            setFlag(LemmingStore.HAS_DIED, true);
             break;
           case EXITING:
-            hasLeft = true;
-            GameController.increaseLeft();
+            setFlag(LemmingStore.HAS_LEFT, true);
+            engine.increaseLeft();
             break;
           case FLOATER_START:
-            type = Type.FLOATER; // should never happen
+            setType(Type.FLOATER); // should never happen
             // $FALL-THROUGH$
           case FLOATER:
-            frameIdx -= 5 * TIME_SCALE; // rewind 5 frames
+            store.frameIdx[slot] -= 5 * TIME_SCALE; // rewind 5 frames
             break;
           case CLIMBER_TO_WALKER:
             newType = Type.WALKER;
-            y -= 10; // why is this needed? could be done via foot coordinates?
+            store.y[slot] -= 10; // why is this needed? could be done via foot coordinates?
             break;
           case DIGGER:
             // the dig mask must be applied to the bottom of the lemming
             {
-              Mask m = lemRes.getMask(dir);
+              Mask m = res().getMask(dir());
               int sx = screenX();
               int sy = screenY();
-              m.eraseMask(sx, sy, 0, Stencil.MSK_STEEL);
+              m.eraseMask(engine, sx, sy, 0, Stencil.MSK_STEEL);
 
               // check for conversion to walker when hitting steel
-              if (lemRes.getImask(dir).checkType(sx, sy, 0, Stencil.MSK_STEEL)) {
-                GameController.sound.play(GameController.SND_CHINK);
+              if (res().getImask(dir()).checkType(engine, sx, sy, 0, Stencil.MSK_STEEL)) {
+                engine.playSound(GameController.SND_CHINK);
                 newType = Type.WALKER;
-              } else y += 2; // move down
+              } else store.y[slot] += 2; // move down
 
               // check for conversion to faller
               int freeMin = Integer.MAX_VALUE;
               free = 0;
-              int xOld = x;
+              int xOld = store.x[slot];
               for (int i = -6; i < 6; i++) { // should be 14 pixels, here it's more like 12
-                x = xOld + i;
-                if (x < 0) x = 0;
-                else if (x >= Level.WIDTH) x = Level.WIDTH;
+                store.x[slot] = xOld + i;
+                if (store.x[slot] < 0) store.x[slot] = 0;
+                else if (store.x[slot] >= Level.WIDTH) store.x[slot] = Level.WIDTH;
                 if ((free = freeBelow(FLOATER_STEP)) < freeMin) freeMin = free;
               }
-              x = xOld;
+              store.x[slot] = xOld;
               free = freeMin;
               if (free > 0) {
                 // convert to faller or walker
                 if (free >= FALL_DISTANCE_FALL) newType = Type.FALLER;
                 else newType = Type.FALLER;
-                if (free >= FALLER_STEP) y += FALLER_STEP;
-                else y += free;
+                if (free >= FALLER_STEP) store.y[slot] += FALLER_STEP;
+                else store.y[slot] += free;
               }
 
               break;
@@ -908,12 +965,12 @@ public class Lemming {
   private boolean turnedByStopper() {
     int s = (stencilMid() & Stencil.MSK_STOPPER);
 
-    if (s == Stencil.MSK_STOPPER_LEFT && dir == Direction.RIGHT) {
-      dir = Direction.LEFT;
+    if (s == Stencil.MSK_STOPPER_LEFT && dir() == Direction.RIGHT) {
+      setDir(Direction.LEFT);
       return true;
     }
-    if (s == Stencil.MSK_STOPPER_RIGHT && dir == Direction.LEFT) {
-      dir = Direction.RIGHT;
+    if (s == Stencil.MSK_STOPPER_RIGHT && dir() == Direction.LEFT) {
+      setDir(Direction.RIGHT);
       return true;
     }
     return false;
@@ -927,11 +984,10 @@ public class Lemming {
    */
   private void changeType(final Type oldType, final Type newType) {
     if (oldType != newType) {
-      type = newType;
-      lemRes = lemmings[getOrdinal(type)];
+      setType(newType);
       if (newType == Type.DIGGER)
-        frameIdx = lemRes.frames * TIME_SCALE - 1; // start digging immediately
-      else frameIdx = 0;
+        store.frameIdx[slot] = res().frames * TIME_SCALE - 1; // start digging immediately
+      else store.frameIdx[slot] = 0;
 
       // some types can't change the skill - check this
       switch (newType) {
@@ -942,29 +998,34 @@ public class Lemming {
         case BUILDER_END:
         case DIGGER:
         case MINER:
-          canChangeSkill = true;
+          setFlag(LemmingStore.CAN_CHANGE_SKILL, true);
           break;
         default:
-          canChangeSkill = false;
+          setFlag(LemmingStore.CAN_CHANGE_SKILL, false);
       }
     }
   }
 
   /** Let the Lemming explode. */
   private void explode() {
-    GameController.sound.play(GameController.SND_EXPLODE);
+    engine.playSound(GameController.SND_EXPLODE);
     // create particle explosion
-    GameController.addExplosion(midX(), midY());
-    hasDied = true;
-    changeType(type, Type.BOMBER);
+    engine.addExplosion(midX(), midY());
+    setFlag(LemmingStore.HAS_DIED, true);
+    changeType(type(), Type.BOMBER);
     // consider height difference between lemming and mask
-    Mask m = lemRes.getMask(Direction.RIGHT);
+    Mask m = res().getMask(Direction.RIGHT);
     // check if lemming is standing on steel
-    int sy = y + 1;
-    if (x > 0 && x < Level.WIDTH && sy > 0 && sy < Level.HEIGHT)
-      m.eraseMask(x - m.getWidth() / 2, midY() - m.getHeight() / 2 + 3, 0, Stencil.MSK_STEEL);
+    int sy = store.y[slot] + 1;
+    if (store.x[slot] > 0 && store.x[slot] < Level.WIDTH && sy > 0 && sy < Level.HEIGHT)
+      m.eraseMask(
+          engine,
+          store.x[slot] - m.getWidth() / 2,
+          midY() - m.getHeight() / 2 + 3,
+          0,
+          Stencil.MSK_STEEL);
     //			if ((Core.stencil.get(x + sy*Level.width) & Stencil.MSK_STEEL) == 0)
-    //				m.eraseMask(x-m.width/2,midY()-m.height/2,0,0);
+    //				m.eraseMask(engine, x-m.width/2,midY()-m.height/2,0,0);
   }
 
   /**
@@ -973,11 +1034,11 @@ public class Lemming {
    * @return stencil value from the middle of the lemming
    */
   private int stencilMid() {
-    int xm = x;
-    int ym = y - lemRes.size;
+    int xm = store.x[slot];
+    int ym = store.y[slot] - res().size;
     int retval;
     if (xm > 0 && xm < Level.WIDTH && ym > 0 && ym < Level.HEIGHT)
-      retval = GameController.getStencil().get(xm + Level.WIDTH * ym);
+      retval = engine.getStencil().get(xm + Level.WIDTH * ym);
     else retval = Stencil.MSK_EMPTY;
     return retval;
   }
@@ -989,15 +1050,15 @@ public class Lemming {
    */
   private boolean canBash() {
     int xm = midX();
-    int ypos = Level.WIDTH * (y - BASHER_CHECK_STEP);
+    int ypos = Level.WIDTH * (store.y[slot] - BASHER_CHECK_STEP);
     int xb;
     int bricks = 0;
     for (int i = 16; i < 25; i++) {
-      if (dir == Direction.RIGHT) xb = xm + i;
+      if (dir() == Direction.RIGHT) xb = xm + i;
       else xb = xm - i;
-      int sval = GameController.getStencil().get(xb + ypos);
-      if ((sval & Stencil.MSK_NO_DIG_LEFT) != 0 && dir == Direction.LEFT) return false;
-      if ((sval & Stencil.MSK_NO_DIG_RIGHT) != 0 && dir == Direction.RIGHT) return false;
+      int sval = engine.getStencil().get(xb + ypos);
+      if ((sval & Stencil.MSK_NO_DIG_LEFT) != 0 && dir() == Direction.LEFT) return false;
+      if ((sval & Stencil.MSK_NO_DIG_RIGHT) != 0 && dir() == Direction.RIGHT) return false;
       if ((sval & Stencil.MSK_STEEL) != 0) return false;
       if ((sval & Stencil.MSK_WALK_ON) == Stencil.MSK_BRICK) bricks++;
     }
@@ -1011,9 +1072,9 @@ public class Lemming {
    * @return true if digging is possible, false otherwise.
    */
   private boolean canDig() {
-    int ypos = Level.WIDTH * (y + 1);
-    int xm = x;
-    int sval = GameController.getStencil().get(xm + ypos);
+    int ypos = Level.WIDTH * (store.y[slot] + 1);
+    int xm = store.x[slot];
+    int sval = engine.getStencil().get(xm + ypos);
     if ((sval & Stencil.MSK_WALK_ON) == Stencil.MSK_BRICK) return true;
     return false;
   }
@@ -1024,21 +1085,21 @@ public class Lemming {
    * @return true if mining is possible, false otherwise.
    */
   private boolean canMine() {
-    int ypos = Level.WIDTH * (y + 1);
+    int ypos = Level.WIDTH * (store.y[slot] + 1);
     int bricks = 0;
     int xMin;
     int xMax;
-    if (dir == Direction.RIGHT) {
-      xMin = x;
-      xMax = x - lemRes.footX + lemRes.width;
+    if (dir() == Direction.RIGHT) {
+      xMin = store.x[slot];
+      xMax = store.x[slot] - res().footX + res().width;
     } else {
-      xMin = x - lemRes.footX;
-      xMax = x;
+      xMin = store.x[slot] - res().footX;
+      xMax = store.x[slot];
     }
     for (int xb = xMin; xb < xMax; xb++) {
-      int sval = GameController.getStencil().get(xb + ypos);
-      if ((sval & Stencil.MSK_NO_DIG_LEFT) != 0 && dir == Direction.LEFT) return false;
-      if ((sval & Stencil.MSK_NO_DIG_RIGHT) != 0 && dir == Direction.RIGHT) return false;
+      int sval = engine.getStencil().get(xb + ypos);
+      if ((sval & Stencil.MSK_NO_DIG_LEFT) != 0 && dir() == Direction.LEFT) return false;
+      if ((sval & Stencil.MSK_NO_DIG_RIGHT) != 0 && dir() == Direction.RIGHT) return false;
       if ((sval & Stencil.MSK_STEEL) != 0) return false;
       if ((sval & Stencil.MSK_WALK_ON) == Stencil.MSK_BRICK) bricks++;
     }
@@ -1052,19 +1113,12 @@ public class Lemming {
    * @return number of free pixels below the lemming
    */
   private int freeBelow(final int step) {
-    if (x < 0 || x >= Level.WIDTH) return 0;
-    int free = 0;
-    int pos = x;
-    Stencil stencil = GameController.getStencil();
-    int yb = y + 1;
-    pos = x + yb * Level.WIDTH; // line below the lemming
-    for (int i = 0; i < step; i++) {
-      if (yb + i >= Level.HEIGHT) return FALL_DISTANCE_FORCE_FALL; // convert most skill to faller
-      int s = stencil.get(pos);
-      if ((s & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY) free++;
-      else break;
-      pos += Level.WIDTH;
-    }
+    if (store.x[slot] < 0 || store.x[slot] >= Level.WIDTH) return 0;
+    int yb = store.y[slot] + 1; // line below the lemming
+    int max = Math.max(Math.min(step, Level.HEIGHT - yb), 0);
+    int free = engine.getStencil().freeBelow(store.x[slot], yb, max);
+    // reached the bottom of the level: convert most skill to faller
+    if (free == max && free < step) return FALL_DISTANCE_FORCE_FALL;
     return free;
   }
 
@@ -1075,16 +1129,16 @@ public class Lemming {
    */
   private boolean flipDirBorder() {
     boolean flip = false;
-    if (lemRes.dirs > 1) {
-      if (x < 0) {
-        x = 0;
+    if (res().dirs > 1) {
+      if (store.x[slot] < 0) {
+        store.x[slot] = 0;
         flip = true;
-      } else if (x >= Level.WIDTH) {
-        x = Level.WIDTH - 1;
+      } else if (store.x[slot] >= Level.WIDTH) {
+        store.x[slot] = Level.WIDTH - 1;
         flip = true;
       }
     }
-    if (flip) dir = (dir == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT;
+    if (flip) setDir((dir() == Direction.RIGHT) ? Direction.LEFT : Direction.RIGHT);
     return flip;
   }
 
@@ -1094,20 +1148,12 @@ public class Lemming {
    * @return number of free pixels above the lemming
    */
   private int freeAbove(final int step) {
-    if (x < 0 || x >= Level.WIDTH) return 0;
+    if (store.x[slot] < 0 || store.x[slot] >= Level.WIDTH) return 0;
 
-    int free = 0;
-    int pos;
     int ym = midY();
-    Stencil stencil = GameController.getStencil();
-    pos = x + ym * Level.WIDTH;
-    for (int i = 0; i < step; i++) {
-      if (ym - i <= 0) return -1; // splat
-      if ((stencil.get(pos) & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY
-      /*|| (stencil.get(pos+1) & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY  */ ) free++;
-      else break;
-      pos -= Level.WIDTH;
-    }
+    int max = Math.max(Math.min(step, ym), 0); // line 0 is never checked
+    int free = engine.getStencil().freeAbove(store.x[slot], ym, max);
+    if (free == max && free < step) return -1; // splat
     return free;
   }
 
@@ -1117,9 +1163,9 @@ public class Lemming {
    * @return true if Lemming has fallen to/through the bottom of the level, false otherwise
    */
   private boolean crossedLowerBorder() {
-    if (y >= Level.HEIGHT) {
-      hasDied = true;
-      GameController.sound.play(GameController.SND_DIE);
+    if (store.y[slot] >= Level.HEIGHT) {
+      setFlag(LemmingStore.HAS_DIED, true);
+      engine.playSound(GameController.SND_DIE);
       return true;
     }
     return false;
@@ -1131,20 +1177,15 @@ public class Lemming {
    * @return number of pixels of walkable ground above the Lemmings foot.
    */
   private int aboveGround() {
-    if (x < 0 || x >= Level.WIDTH) return Level.HEIGHT - 1;
+    if (store.x[slot] < 0 || store.x[slot] >= Level.WIDTH) return Level.HEIGHT - 1;
 
-    int ym = y;
+    int ym = store.y[slot];
     if (ym >= Level.HEIGHT) return Level.HEIGHT - 1;
-    int pos = x;
-    Stencil stencil = GameController.getStencil();
-    pos += ym * Level.WIDTH;
-    int levitation;
-    for (levitation = 0;
-        levitation < WALKER_OBSTACLE_HEIGHT;
-        levitation++, pos -= Level.WIDTH, ym--) {
-      if (ym < 0) return WALKER_OBSTACLE_HEIGHT + 1; // forbid leaving level to the top
-      if ((stencil.get(pos) & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY) break;
-    }
+    int max = Math.max(Math.min(WALKER_OBSTACLE_HEIGHT, ym + 1), 0);
+    int levitation = engine.getStencil().solidAbove(store.x[slot], ym, max);
+    // forbid leaving level to the top
+    if (levitation == max && levitation < WALKER_OBSTACLE_HEIGHT)
+      return WALKER_OBSTACLE_HEIGHT + 1;
     return levitation;
   }
 
@@ -1154,36 +1195,22 @@ public class Lemming {
    * @return true if climber reached a plateau he can walk on, false otherwise
    */
   private boolean reachedPlateau() {
-    if (x < 2 || x >= Level.WIDTH - 2) return false;
+    if (store.x[slot] < 2 || store.x[slot] >= Level.WIDTH - 2) return false;
     int ym = midY();
     if (ym >= Level.HEIGHT || ym < 0) return false;
-    int pos = x;
-    if (dir == Direction.LEFT) pos -= 2;
-    else pos += 2;
-    pos += ym * Level.WIDTH;
-    if ((GameController.getStencil().get(pos) & Stencil.MSK_WALK_ON) == Stencil.MSK_EMPTY)
-      return true;
-    else return false;
+    int xp = (dir() == Direction.LEFT) ? store.x[slot] - 2 : store.x[slot] + 2;
+    return !engine.getStencil().isWalkOn(xp, ym);
   }
 
   /**
-   * Replace a color in the animation frame with another color. Used to patch the color of debris
-   * from pink color to a level specific color.
+   * Use a level specific debris color instead of the pink template color in the animation frames.
+   * The frames for each color are created once and cached, so switching back to a color used
+   * before is free.
    *
-   * @param findCol color to find
-   * @param replaceCol color to replace with
+   * @param col debris color
    */
-  public static void patchColors(final int findCol, final int replaceCol) {
-    for (int l = 0; l < NUM_RESOURCES; l++) { // go through all the lemmings
-      LemmingResource lr = lemmings[l];
-      for (int f = 0; f < lr.frames; f++) // go through all frames
-      for (int d = 0; d < lr.dirs; d++) // go though all dirs
-        for (int xp = 0; xp < lr.width; xp++)
-            for (int yp = 0; yp < lr.height; yp++) {
-              BufferedImage i = lr.getImage(Direction.get(d), f);
-              if (i.getRGB(xp, yp) == findCol) i.setRGB(xp, yp, replaceCol);
-            }
-    }
+  public static void setDebrisColor(final int col) {
+    for (int l = 0; l < NUM_RESOURCES; l++) lemmings[l].setDebrisColor(col);
   }
 
   /**
@@ -1266,18 +1293,18 @@ public class Lemming {
    */
   public String getName() {
     Type t =
-        switch (type) {
+        switch (type()) {
           case BOMBER_STOPPER -> Type.BOMBER;
           case FLOATER_START -> Type.FLOATER;
-          default -> type;
+          default -> type();
         };
     String n = LEMM_NAMES[getOrdinal(t)];
     if (n.length() > 0) {
-      if (canFloat) {
-        if (canClimb) n += "(A)";
+      if (canFloat()) {
+        if (canClimb()) n += "(A)";
         else if (t != Type.FLOATER) n += "(F)";
       } else {
-        if (canClimb && t != Type.CLIMBER) n += "(C)";
+        if (canClimb() && t != Type.CLIMBER) n += "(C)";
       }
     }
     return n;
@@ -1289,7 +1316,7 @@ public class Lemming {
    * @return current skill/type of this Lemming
    */
   public Type getSkill() {
-    return type;
+    return type();
   }
 
   /**
@@ -1299,20 +1326,20 @@ public class Lemming {
    * @return true if a change was possible, false otherwise
    */
   public boolean setSkill(final Type skill) {
-    if (skill == type || hasDied) return false;
+    if (skill == type() || hasDied()) return false;
     // check types which can't even get an additional skill anymore
-    switch (type) {
+    switch (type()) {
       case DROWNING:
       case EXITING:
       case SPLAT:
       case TRAPPED:
       case BOMBER:
         if (skill == Type.NUKE) {
-          if (nuke) return false;
-          nuke = true;
-          if (explodeNumCtr == 0) {
-            explodeNumCtr = 5;
-            explodeCtr = 0;
+          if (nuke()) return false;
+          setFlag(LemmingStore.NUKE, true);
+          if (store.explodeNumCtr[slot] == 0) {
+            store.explodeNumCtr[slot] = 5;
+            store.explodeCtr[slot] = 0;
             return true;
           } else return false;
         }
@@ -1321,45 +1348,45 @@ public class Lemming {
     // check additional skills
     switch (skill) {
       case CLIMBER:
-        if (canClimb) return false;
-        canClimb = true;
+        if (canClimb()) return false;
+        setFlag(LemmingStore.CAN_CLIMB, true);
         return true;
       case FLOATER:
-        if (canFloat) return false;
-        canFloat = true;
+        if (canFloat()) return false;
+        setFlag(LemmingStore.CAN_FLOAT, true);
         return true;
       case NUKE: // special case:  nuke request
-        if (nuke) return false;
-        nuke = true;
+        if (nuke()) return false;
+        setFlag(LemmingStore.NUKE, true);
         // $FALL-THROUGH$
       case BOMBER:
-        if (explodeNumCtr == 0) {
-          explodeNumCtr = 5;
-          explodeCtr = 0;
+        if (store.explodeNumCtr[slot] == 0) {
+          store.explodeNumCtr[slot] = 5;
+          store.explodeCtr[slot] = 0;
           return true;
         } else return false;
     }
     // check main skills
-    if (canChangeSkill) {
+    if (canChangeSkill()) {
       switch (skill) {
         case DIGGER:
           if (canDig()) {
             // y += DIGGER_GND_OFFSET;
-            changeType(type, skill);
-            counter = 0;
+            changeType(type(), skill);
+            store.counter[slot] = 0;
             return true;
           } else return false;
         case MINER:
           if (canMine()) {
             // y += 2;
-            changeType(type, skill);
-            counter = 0;
+            changeType(type(), skill);
+            store.counter[slot] = 0;
             return true;
           } else return false;
         case BASHER:
           // if (canBash(true)) {
-          changeType(type, skill);
-          counter = 0;
+          changeType(type(), skill);
+          store.counter[slot] = 0;
           return true;
           // } else return false;
         case BUILDER:
@@ -1368,21 +1395,21 @@ public class Lemming {
             int fb = freeBelow(FALLER_STEP);
             if (fb != 0) return false;
             // start building at even positions
-            changeType(type, skill);
-            counter = 0;
+            changeType(type(), skill);
+            store.counter[slot] = 0;
             return true;
           }
         case STOPPER:
           {
             Mask m = getResource(Type.STOPPER).getMask(Direction.LEFT);
-            maskX = screenX();
-            maskY = screenY();
-            if (m.checkType(maskX, maskY, 0, Stencil.MSK_STOPPER))
+            store.maskX[slot] = screenX();
+            store.maskY[slot] = screenY();
+            if (m.checkType(engine, store.maskX[slot], store.maskY[slot], 0, Stencil.MSK_STOPPER))
               return false; // overlaps existing stopper
-            changeType(type, skill);
-            counter = 0;
+            changeType(type(), skill);
+            store.counter[slot] = 0;
             // set stopper mask
-            m.setStopperMask(maskX, maskY, x);
+            m.setStopperMask(engine, store.maskX[slot], store.maskY[slot], store.x[slot]);
             return true;
           }
       }
@@ -1396,7 +1423,7 @@ public class Lemming {
    * @return width of animation frame in pixels
    */
   public int width() {
-    return lemRes.width;
+    return res().width;
   }
 
   /**
@@ -1405,7 +1432,7 @@ public class Lemming {
    * @return height of animation frame in pixels
    */
   public int height() {
-    return lemRes.height;
+    return res().height;
   }
 
   /**
@@ -1414,7 +1441,7 @@ public class Lemming {
    * @param type skill/type
    * @return static resource for this skill/type
    */
-  private static LemmingResource getResource(final Type type) {
+  static LemmingResource getResource(final Type type) {
     return lemmings[getOrdinal(type)];
   }
 
@@ -1424,10 +1451,10 @@ public class Lemming {
    * @return X coordinate of upper left corner of animation frame
    */
   public int screenX() {
-    if (lemRes.dirs == 1 || dir == Direction.RIGHT) {
-      return x - lemRes.footX;
+    if (res().dirs == 1 || dir() == Direction.RIGHT) {
+      return store.x[slot] - res().footX;
     } else {
-      return x - lemRes.width + lemRes.footX;
+      return store.x[slot] - res().width + res().footX;
     }
   }
 
@@ -1437,7 +1464,78 @@ public class Lemming {
    * @return Y coordinate of upper left corner of animation frame
    */
   public int screenY() {
-    return y - lemRes.footY;
+    return store.y[slot] - res().footY;
+  }
+
+  /**
+   * Get X coordinate of upper left corner of animation frame between the previous and the
+   * current frame. Jumps (e.g. turning at the level border) are not interpolated.
+   *
+   * @param alpha position between the previous (0) and the current (1) frame
+   * @return X coordinate of upper left corner of animation frame
+   */
+  public int screenX(final double alpha) {
+    return screenX() - interpolationOffset(store.x[slot] - store.lastX[slot], alpha);
+  }
+
+  /**
+   * Get Y coordinate of upper left corner of animation frame between the previous and the
+   * current frame. Jumps are not interpolated.
+   *
+   * @param alpha position between the previous (0) and the current (1) frame
+   * @return Y coordinate of upper left corner of animation frame
+   */
+  public int screenY(final double alpha) {
+    return screenY() - interpolationOffset(store.y[slot] - store.lastY[slot], alpha);
+  }
+
+  /**
+   * Get the offset from the current position to the interpolated position.
+   *
+   * @param delta movement in the current frame in pixels
+   * @param alpha position between the previous (0) and the current (1) frame
+   * @return offset in pixels (0 for jumps)
+   */
+  static int interpolationOffset(final int delta, final double alpha) {
+    if (alpha >= 1.0 || Math.abs(delta) > MAX_INTERPOLATION_STEP) return 0;
+    return (int) Math.round((1.0 - alpha) * delta);
+  }
+
+  /**
+   * Get the ID of the Lemming. IDs are assigned in the order the Lemmings are added to the level
+   * and never reused, so they stay valid when other Lemmings die or leave the level.
+   *
+   * @return ID (-1 if the Lemming wasn't added to the level yet)
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Set the ID of the Lemming. Only used by the engine.
+   *
+   * @param i ID
+   */
+  void setId(final int i) {
+    id = i;
+  }
+
+  /**
+   * Get movement in x direction in the current frame.
+   *
+   * @return movement in pixels
+   */
+  int moveX() {
+    return store.x[slot] - store.lastX[slot];
+  }
+
+  /**
+   * Get movement in y direction in the current frame.
+   *
+   * @return movement in pixels
+   */
+  int moveY() {
+    return store.y[slot] - store.lastY[slot];
   }
 
   /**
@@ -1446,7 +1544,7 @@ public class Lemming {
    * @return X coordinate of collision position in pixels.
    */
   public int midX() {
-    return x;
+    return store.x[slot];
   }
 
   /**
@@ -1455,7 +1553,7 @@ public class Lemming {
    * @return Position inside lemming which is used for collisions
    */
   public int midY() {
-    return y - lemRes.size;
+    return store.y[slot] - res().size;
   }
 
   /**
@@ -1464,7 +1562,7 @@ public class Lemming {
    * @return heading of Lemming
    */
   public Direction getDirection() {
-    return dir;
+    return dir();
   }
 
   /**
@@ -1473,7 +1571,7 @@ public class Lemming {
    * @return current animation frame for this Lemming
    */
   public BufferedImage getImage() {
-    return lemRes.getImage(dir, frameIdx / TIME_SCALE);
+    return res().getImage(dir(), store.frameIdx[slot] / TIME_SCALE);
   }
 
   /**
@@ -1482,13 +1580,13 @@ public class Lemming {
    * @return image for explosion countdown (or null if no explosion countdown)
    */
   public BufferedImage getCountdown() {
-    if (explodeNumCtr == 0) return null;
-    else return explodeFont.getImage(explodeNumCtr - 1);
+    if (store.explodeNumCtr[slot] == 0) return null;
+    else return explodeFont.getImage(store.explodeNumCtr[slot] - 1);
   }
 
   /** Used for replay: start to display the selection image. */
   public void setSelected() {
-    selectCtr = 20;
+    store.selectCtr[slot] = 20;
   }
 
   /**
@@ -1497,7 +1595,7 @@ public class Lemming {
    * @return the selection image (or null if no selection displayed)
    */
   public BufferedImage getSelectImg() {
-    if (selectCtr == 0) return null;
+    if (store.selectCtr[slot] == 0) return null;
     else return MiscGfx.getImage(MiscGfx.Index.SELECT);
   }
 
@@ -1507,7 +1605,7 @@ public class Lemming {
    * @return true if Lemming has died, false otherwise
    */
   public boolean hasDied() {
-    return hasDied;
+    return flag(LemmingStore.HAS_DIED);
   }
 
   /**
@@ -1516,7 +1614,7 @@ public class Lemming {
    * @return true if Lemming has left the level, false otherwise
    */
   public boolean hasLeft() {
-    return hasLeft;
+    return flag(LemmingStore.HAS_LEFT);
   }
 
   /**
@@ -1525,7 +1623,7 @@ public class Lemming {
    * @return true if Lemming is to be nuked, false otherwise
    */
   public boolean nuke() {
-    return nuke;
+    return flag(LemmingStore.NUKE);
   }
 
   /**
@@ -1534,7 +1632,7 @@ public class Lemming {
    * @return true if Lemming can float, false otherwise
    */
   public boolean canFloat() {
-    return canFloat;
+    return flag(LemmingStore.CAN_FLOAT);
   }
 
   /**
@@ -1543,7 +1641,7 @@ public class Lemming {
    * @return true if Lemming can climb, false otherwise
    */
   public boolean canClimb() {
-    return canClimb;
+    return flag(LemmingStore.CAN_CLIMB);
   }
 
   /**
@@ -1552,7 +1650,7 @@ public class Lemming {
    * @return true if Lemming can get a new skill, false otherwise
    */
   public boolean canChangeSkill() {
-    return canChangeSkill;
+    return flag(LemmingStore.CAN_CHANGE_SKILL);
   }
 }
 
@@ -1588,8 +1686,17 @@ class LemmingResource {
 
   int maskStep;
 
-  /** array of images to store the animation [Direction][AnimationFrame] */
-  private HashMap<Lemming.Direction, ArrayList<BufferedImage>> img;
+  /** colors used in the animation frames */
+  private final int palette[];
+
+  /** palette indices of the animation frames [Direction][AnimationFrame][pixel] */
+  private final byte pixels[][][];
+
+  /** animation frames for each debris color used so far [Direction][AnimationFrame] */
+  private final HashMap<Integer, BufferedImage[][]> variants;
+
+  /** animation frames for the current debris color [Direction][AnimationFrame] */
+  private BufferedImage img[][];
 
   /** array of removal masks used for digging/bashing/mining/explosions etc. [Direction] */
   private Mask mask[];
@@ -1598,14 +1705,16 @@ class LemmingResource {
   private Mask iMask[];
 
   /**
-   * Constructor.
+   * Constructor. The animation frames are decoded into palette indices once, the images are created
+   * from them for each debris color (see {@link #setDebrisColor(int)}).
    *
    * @param sourceImg image containing animation frames (one above the other)
    * @param animFrames number of animation frames.
    * @param directions number of directions (1 or 2)
+   * @throws ResourceException
    */
-  LemmingResource(final BufferedImage sourceImg, final int animFrames, final int directions) {
-    img = new HashMap<Lemming.Direction, ArrayList<BufferedImage>>();
+  LemmingResource(final BufferedImage sourceImg, final int animFrames, final int directions)
+      throws ResourceException {
     mask = new Mask[directions];
     iMask = new Mask[directions];
     frames = animFrames;
@@ -1613,12 +1722,54 @@ class LemmingResource {
     height = sourceImg.getHeight(null) / animFrames;
     dirs = directions;
     animMode = Lemming.Animation.NONE;
-    img.put(
-        Lemming.Direction.RIGHT, ToolBox.getAnimation(sourceImg, animFrames, Transparency.BITMASK));
-    if (dirs > 1)
-      img.put(
-          Lemming.Direction.LEFT,
-          ToolBox.getAnimation(ToolBox.flipImageX(sourceImg), animFrames, Transparency.BITMASK));
+    // build palette and index frames, the left frames are mirrored
+    int argb[] = sourceImg.getRGB(0, 0, width, height * frames, null, 0, width);
+    HashMap<Integer, Integer> colors = new HashMap<Integer, Integer>();
+    int pal[] = new int[256];
+    pixels = new byte[dirs][frames][width * height];
+    for (int f = 0; f < frames; f++)
+      for (int y = 0; y < height; y++)
+        for (int x = 0; x < width; x++) {
+          int c = argb[(f * height + y) * width + x];
+          Integer i = colors.get(c);
+          if (i == null) {
+            if (colors.size() == pal.length)
+              throw new ResourceException("too many colors in Lemming animation");
+            i = colors.size();
+            colors.put(c, i);
+            pal[i] = c;
+          }
+          pixels[0][f][y * width + x] = (byte) (int) i;
+          if (dirs > 1) pixels[1][f][y * width + width - 1 - x] = (byte) (int) i;
+        }
+    palette = Arrays.copyOf(pal, colors.size());
+    variants = new HashMap<Integer, BufferedImage[][]>();
+    setDebrisColor(Level.TEMPLATE_COLOR);
+  }
+
+  /**
+   * Select the animation frames for a debris color. The frames are created from the palette
+   * indices with the pink template color replaced by the debris color the first time a color is
+   * used.
+   *
+   * @param col debris color
+   */
+  void setDebrisColor(final int col) {
+    img = variants.get(col);
+    if (img != null) return;
+    int pal[] = palette.clone();
+    for (int i = 0; i < pal.length; i++) if (pal[i] == Level.TEMPLATE_COLOR) pal[i] = col;
+    img = new BufferedImage[dirs][frames];
+    int line[] = new int[width * height];
+    for (int d = 0; d < dirs; d++)
+      for (int f = 0; f < frames; f++) {
+        byte idx[] = pixels[d][f];
+        for (int p = 0; p < line.length; p++) line[p] = pal[idx[p] & 0xff];
+        BufferedImage frame = ToolBox.createImage(width, height, Transparency.BITMASK);
+        frame.setRGB(0, 0, width, height, line, 0, width);
+        img[d][f] = frame;
+      }
+    variants.put(col, img);
   }
 
   /**
@@ -1673,8 +1824,8 @@ class LemmingResource {
    * @return specific animation frame
    */
   BufferedImage getImage(final Lemming.Direction dir, final int frame) {
-    if (dirs > 1) return img.get(dir).get(frame);
-    else return img.get(Lemming.Direction.RIGHT).get(frame);
+    if (dirs > 1) return img[dir.ordinal()][frame];
+    else return img[0][frame];
   }
 }
 
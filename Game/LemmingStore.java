@@ -0,0 +1,259 @@
+package Game;
+
+import java.util.Arrays;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * State of all Lemmings of a level, stored as parallel primitive arrays (one slot per Lemming).
+ *
+ * <p>A {@link Lemming} is only a view on one slot. The slots are kept in the order the Lemmings
+ * were added, so iterating over them by index visits the Lemmings in the same order as the list
+ * used before. Arrays only grow when more Lemmings are active than ever before, so simulating a
+ * frame doesn't allocate anything.
+ */
+final class LemmingStore {
+  /** flag: Lemming can float */
+  static final int CAN_FLOAT = 1;
+
+  /** flag: Lemming can climb */
+  static final int CAN_CLIMB = 2;
+
+  /** flag: Lemming can change its skill */
+  static final int CAN_CHANGE_SKILL = 4;
+
+  /** flag: Lemming is to be nuked */
+  static final int NUKE = 8;
+
+  /** flag: Lemming has died */
+  static final int HAS_DIED = 16;
+
+  /** flag: Lemming has left the level */
+  static final int HAS_LEFT = 32;
+
+  /** shared slot of all Lemmings removed from the level: it reads as a dead faller */
+  static final LemmingStore REMOVED = new LemmingStore(1);
+
+  static {
+    REMOVED.size = 1;
+    REMOVED.type[0] = (byte) Lemming.Type.FALLER.ordinal();
+    REMOVED.flags[0] = HAS_DIED;
+  }
+
+  /** number of used slots */
+  int size;
+
+  /** view of each slot */
+  Lemming views[];
+
+  /** animation frame */
+  int frameIdx[];
+
+  /** x coordinate of foot in pixels */
+  int x[];
+
+  /** y coordinate of foot in pixels */
+  int y[];
+
+  /** x coordinate of foot in the previous frame (for interpolation) */
+  int lastX[];
+
+  /** y coordinate of foot in the previous frame (for interpolation) */
+  int lastY[];
+
+  /** x coordinate for mask in pixels */
+  int maskX[];
+
+  /** y coordinate for mask in pixels */
+  int maskY[];
+
+  /** counter used for internal state changes */
+  int counter[];
+
+  /** another counter used for internal state changes */
+  int counter2[];
+
+  /** explosion counter when nuked */
+  int explodeNumCtr[];
+
+  /** counter used to manage the explosion */
+  int explodeCtr[];
+
+  /** counter used to display the select image in replay mode */
+  int selectCtr[];
+
+  /** ordinal of the Lemming's skill/type */
+  byte type[];
+
+  /** ordinal of the Lemming's heading */
+  byte dir[];
+
+  /** flags (see CAN_FLOAT etc.) */
+  byte flags[];
+
+  /**
+   * Constructor.
+   *
+   * @param capacity initial number of slots
+   */
+  LemmingStore(final int capacity) {
+    views = new Lemming[capacity];
+    frameIdx = new int[capacity];
+    x = new int[capacity];
+    y = new int[capacity];
+    lastX = new int[capacity];
+    lastY = new int[capacity];
+    maskX = new int[capacity];
+    maskY = new int[capacity];
+    counter = new int[capacity];
+    counter2 = new int[capacity];
+    explodeNumCtr = new int[capacity];
+    explodeCtr = new int[capacity];
+    selectCtr = new int[capacity];
+    type = new byte[capacity];
+    dir = new byte[capacity];
+    flags = new byte[capacity];
+  }
+
+  /**
+   * Get the number of used slots.
+   *
+   * @return number of used slots
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Get the view of a slot.
+   *
+   * @param slot slot
+   * @return Lemming using this slot
+   */
+  Lemming get(final int slot) {
+    return views[slot];
+  }
+
+  /**
+   * Move a Lemming into a new slot at the end of this store.
+   *
+   * @param l Lemming (its state is copied from the slot it uses now)
+   */
+  void add(final Lemming l) {
+    if (size == views.length) grow();
+    copy(l.store, l.slot, this, size);
+    views[size] = l;
+    l.store = this;
+    l.slot = size++;
+  }
+
+  /**
+   * Remove all Lemmings which died or left the level. The remaining Lemmings keep their order.
+   * Removed Lemmings are moved to the shared {@link #REMOVED} slot, so outdated references to them
+   * (e.g. in pending input commands) stay harmless.
+   */
+  void removeDead() {
+    int n = 0;
+    for (int i = 0; i < size; i++) {
+      Lemming l = views[i];
+      if ((flags[i] & (HAS_DIED | HAS_LEFT)) != 0) {
+        l.store = REMOVED;
+        l.slot = 0;
+        continue;
+      }
+      if (n != i) {
+        copy(this, i, this, n);
+        views[n] = l;
+        l.slot = n;
+      }
+      n++;
+    }
+    Arrays.fill(views, n, size, null);
+    size = n;
+  }
+
+  /** Remove all Lemmings. */
+  void clear() {
+    for (int i = 0; i < size; i++) {
+      views[i].store = REMOVED;
+      views[i].slot = 0;
+    }
+    Arrays.fill(views, 0, size, null);
+    size = 0;
+  }
+
+  /**
+   * Replace all slots by a copy of the slots of another store. The views aren't copied, they have
+   * to be bound to the new slots by the caller.
+   *
+   * @param src source store
+   */
+  void copyFrom(final LemmingStore src) {
+    clear();
+    while (views.length < src.size) grow();
+    for (int i = 0; i < src.size; i++) copy(src, i, this, i);
+    size = src.size;
+  }
+
+  /** Double the number of slots. */
+  private void grow() {
+    int capacity = 2 * views.length;
+    views = Arrays.copyOf(views, capacity);
+    frameIdx = Arrays.copyOf(frameIdx, capacity);
+    x = Arrays.copyOf(x, capacity);
+    y = Arrays.copyOf(y, capacity);
+    lastX = Arrays.copyOf(lastX, capacity);
+    lastY = Arrays.copyOf(lastY, capacity);
+    maskX = Arrays.copyOf(maskX, capacity);
+    maskY = Arrays.copyOf(maskY, capacity);
+    counter = Arrays.copyOf(counter, capacity);
+    counter2 = Arrays.copyOf(counter2, capacity);
+    explodeNumCtr = Arrays.copyOf(explodeNumCtr, capacity);
+    explodeCtr = Arrays.copyOf(explodeCtr, capacity);
+    selectCtr = Arrays.copyOf(selectCtr, capacity);
+    type = Arrays.copyOf(type, capacity);
+    dir = Arrays.copyOf(dir, capacity);
+    flags = Arrays.copyOf(flags, capacity);
+  }
+
+  /**
+   * Copy the state of a slot (without the view).
+   *
+   * @param src source store
+   * @param s source slot
+   * @param dst destination store
+   * @param d destination slot
+   */
+  private static void copy(
+      final LemmingStore src, final int s, final LemmingStore dst, final int d) {
+    dst.frameIdx[d] = src.frameIdx[s];
+    dst.x[d] = src.x[s];
+    dst.y[d] = src.y[s];
+    dst.lastX[d] = src.lastX[s];
+    dst.lastY[d] = src.lastY[s];
+    dst.maskX[d] = src.maskX[s];
+    dst.maskY[d] = src.maskY[s];
+    dst.counter[d] = src.counter[s];
+    dst.counter2[d] = src.counter2[s];
+    dst.explodeNumCtr[d] = src.explodeNumCtr[s];
+    dst.explodeCtr[d] = src.explodeCtr[s];
+    dst.selectCtr[d] = src.selectCtr[s];
+    dst.type[d] = src.type[s];
+    dst.dir[d] = src.dir[s];
+    dst.flags[d] = src.flags[s];
+  }
+}
@@ -10,7 +10,6 @@ import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
-import java.awt.image.PixelGrabber;
 import java.awt.image.WritableRaster;
 import java.io.File;
 import java.util.ArrayList;
@@ -54,7 +53,7 @@ public class Level {
   };
 
   /** template color to be replaced with debris color */
-  private static final int TEMPLATE_COLOR = 0xffff00ff;
+  static final int TEMPLATE_COLOR = 0xffff00ff;
 
   /** array of normal sprite objects - no transparency, drawn behind background image */
   private ArrayList<SpriteObject> sprObjBehind;
@@ -65,6 +64,12 @@ public class Level {
   /** array of all sprite objects (in front and behind) */
   private ArrayList<SpriteObject> sprObjects;
 
+  /** all sprite objects in drawing order: "behind" objects first, then "in front" objects */
+  private SpriteObject sprObjDrawOrder[];
+
+  /** empty array of sprite objects */
+  private static final SpriteObject NO_SPR_OBJECTS[] = new SpriteObject[0];
+
   /** array of level entries */
   private ArrayList<Entry> entries;
 
@@ -132,7 +137,7 @@ public class Level {
   private ArrayList<LvlObject> objects;
 
   /** background tiles - every pixel in them is interpreted as brick in the stencil */
-  private ArrayList<Image> tiles;
+  private ArrayList<TerrainTile> tiles;
 
   /** sprite objects of all sprite objects available in this style */
   private ArrayList<SpriteObject> sprObjAvailable;
@@ -157,6 +162,19 @@ public class Level {
    * @throws LemmException
    */
   void loadLevel(final String fname) throws ResourceException, LemmException {
+    loadLevel(fname, GameController.getCurLevelPack().getMaxFallDistance());
+  }
+
+  /**
+   * Load a level and all level resources.
+   *
+   * @param fname file name
+   * @param defaultMaxFallDistance maximum fall distance if not defined in the level
+   * @throws ResourceException
+   * @throws LemmException
+   */
+  public void loadLevel(final String fname, final int defaultMaxFallDistance)
+      throws ResourceException, LemmException {
     ready = false;
     // read level properties from file
     Props p = new Props();
@@ -165,8 +183,7 @@ public class Level {
     // read name
     lvlName = p.get("name", "");
 
-    maxFallDistance =
-        p.get("maxFallDistance", GameController.getCurLevelPack().getMaxFallDistance());
+    maxFallDistance = p.get("maxFallDistance", defaultMaxFallDistance);
     // read configuration in big endian word
     releaseRate = p.get("releaseRate", -1);
     numLemmings = p.get("numLemmings", -1);
@@ -227,16 +244,24 @@ public class Level {
     // load objects
     sprObjAvailable = null;
 
-    // first load the data from object descriptor file xxx.ini
-    File fnames = Core.findResource("styles/" + strStyle + "/" + strStyle + ".ini");
-    props = new Props();
-    if (!props.load(fnames)) {
-      if (style != -1) throw new ResourceException(fnames);
-      else throw new LemmException("Style " + strStyle + " not existing.");
+    // the decoded style is shared by all levels of this style
+    StyleCache.Style cached = StyleCache.get(strStyle);
+    if (cached == null) {
+      // first load the data from object descriptor file xxx.ini
+      File fnames = Core.findResource("styles/" + strStyle + "/" + strStyle + ".ini");
+      props = new Props();
+      if (!props.load(fnames)) {
+        if (style != -1) throw new ResourceException(fnames);
+        else throw new LemmException("Style " + strStyle + " not existing.");
+      }
+      // load blockset
+      cached = new StyleCache.Style(props, loadTileSet(strStyle), loadObjects(strStyle));
+      StyleCache.put(strStyle, cached);
     }
-    // load blockset
-    tiles = loadTileSet(strStyle);
-    sprObjAvailable = loadObjects(strStyle);
+    props = cached.props;
+    tiles = cached.tiles;
+    sprObjAvailable = cached.objects;
+    readColors();
     ready = true;
   }
 
@@ -252,8 +277,8 @@ public class Level {
     sprObjFront = null;
     sprObjBehind = null;
     sprObjects = null;
+    sprObjDrawOrder = null;
     entries = null;
-    System.gc();
     // the screenBuffer should be big enough to hold the level
     // returns stencil buffer;
     int bgWidth = bgImage.getWidth();
@@ -265,51 +290,11 @@ public class Level {
       stencil = s;
     } else stencil = new Stencil(bgWidth, bgImage.getHeight());
     // paint terrain
+    int bgPixels[] = ToolBox.getPixels(bgImage);
     for (int n = 0; n < terrain.size(); n++) {
       Terrain t = terrain.get(n);
-      Image i = tiles.get(t.id);
-      int width = i.getWidth(null);
-      int height = i.getHeight(null);
-
-      int source[] = new int[width * height];
-      PixelGrabber pixelgrabber = new PixelGrabber(i, 0, 0, width, height, source, 0, width);
-      try {
-        pixelgrabber.grabPixels();
-      } catch (InterruptedException interruptedexception) {
-      }
-      int tx = t.xPos;
-      int ty = t.yPos;
-      boolean upsideDown = (t.modifier & Terrain.MODE_UPSIDE_DOWN) != 0;
-      boolean overwrite = (t.modifier & Terrain.MODE_NO_OVERWRITE) == 0;
-      boolean remove = (t.modifier & Terrain.MODE_REMOVE) != 0;
-      try {
-        for (int y = 0; y < height; y++) {
-          if (y + ty < 0 || y + ty >= bgHeight) continue;
-          int yLineStencil = (y + ty) * bgWidth;
-          int yLine;
-          if (upsideDown) yLine = (height - y - 1) * width;
-          else yLine = y * width;
-          for (int x = 0; x < width; x++) {
-            if (x + tx < 0 || x + tx >= bgWidth) continue;
-            int col = source[yLine + x];
-            // ignore transparent pixels
-            if ((col & 0xff000000) == 0) continue;
-            boolean paint = false;
-            if (!overwrite) {
-              // don't overwrite -> only paint if background is transparent
-              if (stencil.get(yLineStencil + tx + x) == Stencil.MSK_EMPTY) paint = true;
-            } else if (remove) {
-              bgImage.setRGB(x + tx, y + ty, 0);
-              stencil.set(yLineStencil + tx + x, Stencil.MSK_EMPTY);
-            } else paint = true;
-            if (paint) {
-              bgImage.setRGB(x + tx, y + ty, col);
-              stencil.set(yLineStencil + tx + x, Stencil.MSK_BRICK);
-            }
-          }
-        }
-      } catch (ArrayIndexOutOfBoundsException ex) {
-      }
+      if (t.id < 0 || t.id >= tiles.size()) continue;
+      tiles.get(t.id).paint(bgImage, bgPixels, stencil, t.xPos, t.yPos, t.modifier);
     }
 
     // now for the animated objects
@@ -423,6 +408,14 @@ public class Level {
             // spr.img[frame].flush(); // will be overwritten -> flush data
             spr.setImage(frame, imgSpr);
           }
+        } else if (spr.getType() == SpriteObject.Type.NO_DIG_LEFT
+            || spr.getType() == SpriteObject.Type.NO_DIG_RIGHT) {
+          // mask operations erase pixels from these objects: don't modify the cached template
+          for (int frame = 0; frame < spr.getNumFrames(); frame++) {
+            imgSpr = ToolBox.createImage(spr.getWidth(), spr.getHeight(), Transparency.BITMASK);
+            imgSpr.getRaster().setRect(spr.getImage(frame).getRaster());
+            spr.setImage(frame, imgSpr);
+          }
         }
       } catch (ArrayIndexOutOfBoundsException ex) {
         // System.out.println("Array out of bounds");
@@ -449,52 +442,31 @@ public class Level {
         }
       }
     }
-    System.gc();
 
+    sprObjDrawOrder = new SpriteObject[sprObjects.size()];
+    sprObjBehind.toArray(sprObjDrawOrder);
+    for (int n = 0; n < sprObjFront.size(); n++)
+      sprObjDrawOrder[sprObjBehind.size() + n] = sprObjFront.get(n);
     return stencil;
   }
 
   /**
-   * Draw opaque objects behind background image.
+   * Get all sprite objects in drawing order: the opaque objects drawn behind the background image
+   * first, then the transparent objects drawn in front of it.
    *
-   * @param g graphics object to draw on
-   * @param width width of screen
-   * @param xOfs level offset position
+   * @return sprite objects (must not be modified)
    */
-  public void drawBehindObjects(final Graphics2D g, final int width, final int xOfs) {
-    // draw "behind" objects
-    if (sprObjBehind != null) {
-      for (SpriteObject spr : sprObjBehind) {
-        try {
-          BufferedImage img = spr.getImage();
-          if (spr.getX() + spr.getWidth() > xOfs && spr.getX() < xOfs + width)
-            g.drawImage(img, spr.getX() - xOfs, spr.getY(), null);
-          // spr.drawHidden(offImg,xOfsTemp);
-        } catch (ArrayIndexOutOfBoundsException ex) {
-        }
-      }
-    }
+  SpriteObject[] getSprObjectsInDrawOrder() {
+    return (sprObjDrawOrder != null) ? sprObjDrawOrder : NO_SPR_OBJECTS;
   }
 
   /**
-   * Draw transparent objects in front of background image.
+   * Get number of sprite objects drawn behind the background image.
    *
-   * @param g graphics object to draw on
-   * @param width width of screen
-   * @param xOfs level offset position
+   * @return number of objects at the start of {@link #getSprObjectsInDrawOrder()}
    */
-  public void drawInFrontObjects(final Graphics2D g, final int width, final int xOfs) {
-    // draw "in front" objects
-    if (sprObjFront != null) {
-      for (SpriteObject spr : sprObjFront) {
-        try {
-          BufferedImage img = spr.getImage();
-          if (spr.getX() + spr.getWidth() > xOfs && spr.getX() < xOfs + width)
-            g.drawImage(img, spr.getX() - xOfs, spr.getY(), null);
-        } catch (ArrayIndexOutOfBoundsException ex) {
-        }
-      }
-    }
+  int getSprObjectBehindNum() {
+    return (sprObjBehind != null) ? sprObjBehind.size() : 0;
   }
 
   //	/**
@@ -509,20 +481,29 @@ public class Level {
    * Load tile set from a styles folder.
    *
    * @param set name of the style
-   * @return array of images where each image contains one tile
+   * @return array of decoded tiles
    * @throws ResourceException
    */
-  private ArrayList<Image> loadTileSet(final String set) throws ResourceException {
-    ArrayList<Image> images = new ArrayList<Image>(64);
+  private ArrayList<TerrainTile> loadTileSet(final String set) throws ResourceException {
+    ArrayList<TerrainTile> images = new ArrayList<TerrainTile>(64);
     int tiles = props.get("tiles", 64);
     for (int n = 0; n < tiles; n++) {
       String fName = "styles/" + set + "/" + set + "_" + Integer.toString(n) + ".gif";
       Image img = Core.loadImage(fName);
-      images.add(img);
+      images.add(new TerrainTile(img));
     }
     return images;
   }
 
+  /** Read the global colors of the style from the style properties. */
+  private void readColors() {
+    bgCol = props.get("bgColor", 0x000000) | 0xff000000;
+    bgColor = new Color(bgCol);
+    debrisCol = props.get("debrisColor", 0xffffff) | 0xff000000;
+    particleCol = props.get("particleColor", DEFAULT_PARTICLE_COLORS);
+    for (int i = 0; i < particleCol.length; i++) particleCol[i] |= 0xff000000;
+  }
+
   /**
    * Load level sprite objects.
    *
@@ -531,14 +512,6 @@ public class Level {
    * @throws ResourceException
    */
   private ArrayList<SpriteObject> loadObjects(final String set) throws ResourceException {
-    // first some global settings
-    bgCol = props.get("bgColor", 0x000000) | 0xff000000;
-    bgColor = new Color(bgCol);
-    debrisCol = props.get("debrisColor", 0xffffff) | 0xff000000;
-    // replace pink color with debris color
-    Lemming.patchColors(TEMPLATE_COLOR, debrisCol);
-    particleCol = props.get("particleColor", DEFAULT_PARTICLE_COLORS);
-    for (int i = 0; i < particleCol.length; i++) particleCol[i] |= 0xff000000;
     // go through all the entries (shouldn't be more than 64)
     ArrayList<SpriteObject> sprites = new ArrayList<SpriteObject>(64);
     int idx;
@@ -611,14 +584,14 @@ public class Level {
       final int scaleX,
       final int scaleY,
       final boolean tint) {
-    Level level = GameController.getLevel();
     int bgCol;
     int width = bgImage.getWidth() / scaleX;
     int height = bgImage.getHeight() / scaleY;
     BufferedImage img;
 
     if (image == null || image.getWidth() != width || image.getHeight() != height)
-      img = ToolBox.createImage(width, height, Transparency.OPAQUE);
+      // ARGB int raster: mask operations modify its pixels directly
+      img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
     else img = image;
     Graphics2D gx = img.createGraphics();
     // clear background
@@ -628,8 +601,8 @@ public class Level {
     // (bgColor written can be slightly different from the one read)
     bgCol = img.getRGB(0, 0);
     // draw "behind" objects
-    if (level != null && level.sprObjBehind != null) {
-      for (SpriteObject spr : level.sprObjBehind) {
+    if (sprObjBehind != null) {
+      for (SpriteObject spr : sprObjBehind) {
         try {
           BufferedImage sprImg = spr.getImage();
           gx.drawImage(
@@ -645,8 +618,8 @@ public class Level {
     }
     gx.drawImage(bgImage, 0, 0, width, height, 0, 0, bgImage.getWidth(), bgImage.getHeight(), null);
     // draw "in front" objects
-    if (level != null && level.sprObjFront != null) {
-      for (SpriteObject spr : level.sprObjFront) {
+    if (sprObjFront != null) {
+      for (SpriteObject spr : sprObjFront) {
         try {
           BufferedImage sprImg = spr.getImage();
           gx.drawImage(
@@ -954,46 +927,6 @@ class LvlObject {
   }
 }
 
-/**
- * Storage class for a terrain/background tiles.
- *
- * @author Volker Oth
- */
-class Terrain {
-  /** paint mode: don't overwrite existing terrain pixel */
-  static final int MODE_NO_OVERWRITE = 8;
-
-  /** paint mode: upside down */
-  static final int MODE_UPSIDE_DOWN = 4;
-
-  /** paint mode: remove existing terrain pixels instead of overdrawing them */
-  static final int MODE_REMOVE = 2;
-
-  /** identifier */
-  int id;
-
-  /** x position in pixels */
-  int xPos;
-
-  /** y position in pixels */
-  int yPos;
-
-  /** modifier - must be one of the above MODEs */
-  int modifier;
-
-  /**
-   * Constructor.
-   *
-   * @param val three values as array [identifier, x position, y position]
-   */
-  public Terrain(final int[] val) {
-    id = val[0];
-    xPos = val[1];
-    yPos = val[2];
-    modifier = val[3];
-  }
-}
-
 /**
  * Storage class for steel tiles.
  *
@@ -1024,30 +957,3 @@ class Steel {
     height = val[3];
   }
 }
-
-/**
- * Storage class for level Entries.
- *
- * @author Volker Oth
- */
-class Entry {
-  /** identifier */
-  int id;
-
-  /** x position in pixels */
-  int xPos;
-
-  /** y position in pixels */
-  int yPos;
-
-  /**
-   * Constructor.
-   *
-   * @param x x position in pixels
-   * @param y y position in pixels
-   */
-  Entry(final int x, final int y) {
-    xPos = x;
-    yPos = y;
-  }
-}
@@ -0,0 +1,263 @@
+package Game;
+
+import Tools.Props;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Persistent index of the level pack metadata (level pack ini contents and level names), so the
+ * level ini files don't have to be parsed on every start.
+ *
+ * <p>Each entry stores the modification time and size of its file. An entry is only used if the
+ * file didn't change, else the file is parsed again. Entries of files which weren't requested are
+ * dropped when the index is saved.
+ *
+ * <p>Lookups are thread safe, so level packs may be read in parallel. The index is only read in the
+ * constructor and saved when all lookups are finished.
+ */
+final class LevelIndex {
+  /** name of the index file in the resource folder */
+  private static final String FILE_NAME = "levelindex.dat";
+
+  /** magic number at the start of the index file */
+  private static final int MAGIC = 0x4c494458; // "LIDX"
+
+  /** version of the file format */
+  private static final int VERSION = 1;
+
+  /** modification time and size of a file */
+  private static class Stamp {
+    /** modification time in milliseconds */
+    final long modified;
+
+    /** size in bytes */
+    final long length;
+
+    /**
+     * Constructor.
+     *
+     * @param m modification time in milliseconds
+     * @param l size in bytes
+     */
+    Stamp(final long m, final long l) {
+      modified = m;
+      length = l;
+    }
+
+    /**
+     * Get the current stamp of a file.
+     *
+     * @param f file
+     * @return stamp (0, 0 if the file doesn't exist)
+     */
+    static Stamp of(final File f) {
+      return new Stamp(f.lastModified(), f.length());
+    }
+
+    /**
+     * Check if the stamp is equal to another one.
+     *
+     * @param s other stamp
+     * @return true if both modification time and size are equal
+     */
+    boolean matches(final Stamp s) {
+      return modified == s.modified && length == s.length;
+    }
+  }
+
+  /** name of a level */
+  private static class LevelEntry {
+    /** stamp of the level ini */
+    final Stamp stamp;
+
+    /** name of the level */
+    final String name;
+
+    /**
+     * Constructor.
+     *
+     * @param s stamp of the level ini
+     * @param n name of the level
+     */
+    LevelEntry(final Stamp s, final String n) {
+      stamp = s;
+      name = n;
+    }
+  }
+
+  /** level pack */
+  private static class PackEntry {
+    /** stamp of the level pack ini */
+    final Stamp stamp;
+
+    /** level pack */
+    final LevelPack pack;
+
+    /**
+     * Constructor.
+     *
+     * @param s stamp of the level pack ini
+     * @param p level pack
+     */
+    PackEntry(final Stamp s, final LevelPack p) {
+      stamp = s;
+      pack = p;
+    }
+  }
+
+  /** index file */
+  private final File file;
+
+  /** level entries read from the index file by absolute path */
+  private final HashMap<String, LevelEntry> oldLevels = new HashMap<String, LevelEntry>();
+
+  /** level pack entries read from the index file by absolute path */
+  private final HashMap<String, PackEntry> oldPacks = new HashMap<String, PackEntry>();
+
+  /** level entries requested in this session */
+  private final ConcurrentHashMap<String, LevelEntry> levels =
+      new ConcurrentHashMap<String, LevelEntry>();
+
+  /** level pack entries requested in this session */
+  private final ConcurrentHashMap<String, PackEntry> packs =
+      new ConcurrentHashMap<String, PackEntry>();
+
+  /** number of files which had to be parsed */
+  private final AtomicInteger parsed = new AtomicInteger();
+
+  /** Constructor: read the index from the resource folder (empty if it's missing or invalid). */
+  LevelIndex() {
+    file = Core.findResource(FILE_NAME);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+      for (int n = in.readInt(); n > 0; n--) {
+        String path = in.readUTF();
+        Stamp s = new Stamp(in.readLong(), in.readLong());
+        oldLevels.put(path, new LevelEntry(s, in.readUTF()));
+      }
+      for (int n = in.readInt(); n > 0; n--) {
+        String path = in.readUTF();
+        Stamp s = new Stamp(in.readLong(), in.readLong());
+        oldPacks.put(path, new PackEntry(s, new LevelPack(in)));
+      }
+    } catch (IOException ex) {
+      // missing or broken index: everything is parsed again
+      oldLevels.clear();
+      oldPacks.clear();
+    }
+  }
+
+  /**
+   * Get a level pack from the index. The level names have to be validated via {@link
+   * #getLevelName(File)}.
+   *
+   * @param ini level pack ini
+   * @return level pack or null if the level pack ini isn't in the index or was changed
+   */
+  LevelPack getPack(final File ini) {
+    String path = ini.getAbsolutePath();
+    PackEntry e = oldPacks.get(path);
+    if (e == null || !e.stamp.matches(Stamp.of(ini))) return null;
+    packs.put(path, e);
+    return e.pack;
+  }
+
+  /**
+   * Add a parsed level pack to the index.
+   *
+   * @param ini level pack ini
+   * @param lp level pack
+   */
+  void putPack(final File ini, final LevelPack lp) {
+    packs.put(ini.getAbsolutePath(), new PackEntry(Stamp.of(ini), lp));
+    parsed.incrementAndGet();
+  }
+
+  /**
+   * Get the name of a level. The level ini is only parsed if it isn't in the index or was changed.
+   *
+   * @param ini level ini
+   * @return name of the level
+   */
+  String getLevelName(final File ini) {
+    String path = ini.getAbsolutePath();
+    Stamp s = Stamp.of(ini);
+    LevelEntry e = oldLevels.get(path);
+    if (e == null || !e.stamp.matches(s)) {
+      e = new LevelEntry(s, readLevelName(ini));
+      parsed.incrementAndGet();
+    }
+    levels.put(path, e);
+    return e.name;
+  }
+
+  /**
+   * Read the name of a level from its ini file.
+   *
+   * @param ini level ini
+   * @return name of the level (empty if the file can't be read)
+   */
+  static String readLevelName(final File ini) {
+    Props lvlProps = new Props();
+    lvlProps.load(ini);
+    return lvlProps.get("name", "");
+  }
+
+  /** Save the index if anything changed. Errors are ignored: the index is only a cache. */
+  void save() {
+    if (parsed.get() == 0 && levels.size() == oldLevels.size() && packs.size() == oldPacks.size())
+      return;
+    File tmp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(levels.size());
+      for (Map.Entry<String, LevelEntry> e : levels.entrySet()) {
+        out.writeUTF(e.getKey());
+        out.writeLong(e.getValue().stamp.modified);
+        out.writeLong(e.getValue().stamp.length);
+        out.writeUTF(e.getValue().name);
+      }
+      out.writeInt(packs.size());
+      for (Map.Entry<String, PackEntry> e : packs.entrySet()) {
+        out.writeUTF(e.getKey());
+        out.writeLong(e.getValue().stamp.modified);
+        out.writeLong(e.getValue().stamp.length);
+        e.getValue().pack.write(out);
+      }
+    } catch (IOException ex) {
+      tmp.delete();
+      return;
+    }
+    file.delete();
+    tmp.renameTo(file);
+  }
+}
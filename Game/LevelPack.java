@@ -1,8 +1,16 @@
 package Game;
 
 import Tools.Props;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /*
  * Copyright 2009 Volker Oth
@@ -49,6 +57,71 @@ public class LevelPack {
   /** offset to apply in level code algorithm */
   private int codeOffset;
 
+  /**
+   * Read all level packs from the levels folder. Unchanged level packs and level names are taken
+   * from the {@link LevelIndex}.
+   *
+   * <p>The level pack files are parsed in parallel, then the level names of all packs are read in
+   * parallel. The results are collected in the order of the sorted folder names.
+   *
+   * @return list of level packs sorted by folder name
+   * @throws ResourceException
+   */
+  static ArrayList<LevelPack> readLevelPacks() throws ResourceException {
+    File dir = Core.findResource("levels");
+    File files[] = dir.listFiles();
+    // now get the names of the directories
+    ArrayList<String> dirs = new ArrayList<String>();
+    for (File file : files) if (file.isDirectory()) dirs.add(file.getName());
+
+    Collections.sort(dirs);
+
+    LevelIndex index = new LevelIndex();
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    ArrayList<LevelPack> packs = new ArrayList<LevelPack>();
+    try {
+      // read level pack files
+      ArrayList<Callable<LevelPack>> packTasks = new ArrayList<Callable<LevelPack>>(dirs.size());
+      for (String lvlName : dirs) {
+        File ini = Core.findResource("levels/" + lvlName + "/levelpack.ini");
+        packTasks.add(
+            () -> {
+              LevelPack tlp = index.getPack(ini);
+              if (tlp == null) {
+                tlp = new LevelPack(ini, false);
+                if (!tlp.getName().equals("empty")) index.putPack(ini, tlp);
+              }
+              return tlp;
+            });
+      }
+      for (Future<LevelPack> f : pool.invokeAll(packTasks)) {
+        LevelPack tlp = f.get();
+        if (!tlp.getName().equals("empty")) packs.add(tlp);
+      }
+
+      // read level names
+      ArrayList<Callable<Void>> nameTasks = new ArrayList<Callable<Void>>();
+      for (LevelPack tlp : packs)
+        for (ArrayList<LevelInfo> levels : tlp.lvlInfo)
+          for (LevelInfo info : levels)
+            nameTasks.add(
+                () -> {
+                  info.setName(index.getLevelName(new File(info.getFileName())));
+                  return null;
+                });
+      for (Future<Void> f : pool.invokeAll(nameTasks)) f.get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof ResourceException) throw (ResourceException) ex.getCause();
+      throw new RuntimeException(ex.getCause());
+    } catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    } finally {
+      pool.shutdown();
+    }
+    index.save();
+    return packs;
+  }
+
   /** Constructor for dummy level pack. Needed for loading single levels. */
   public LevelPack() {
     name = "test";
@@ -77,6 +150,17 @@ public class LevelPack {
    * @throws ResourceException
    */
   public LevelPack(final File file) throws ResourceException {
+    this(file, true);
+  }
+
+  /**
+   * Constructor for loading a level pack.
+   *
+   * @param file File of level pack ini
+   * @param readNames true: read the level names from the level files, false: leave them empty
+   * @throws ResourceException
+   */
+  private LevelPack(final File file, final boolean readNames) throws ResourceException {
     // extract path from descriptor file
     path = file.getParentFile();
     // load the descriptor file
@@ -124,14 +208,12 @@ public class LevelPack {
         if (levelStr.length == 2) {
           File iniFile = new File(path, levelStr[0]);
 
-          // get name from ini file
-          Props lvlProps = new Props();
-          lvlProps.load(iniFile);
           // Now put everything together
           LevelInfo info = new LevelInfo();
           info.setFileName(iniFile.getAbsolutePath());
           info.setMusic(music.get(Integer.parseInt(levelStr[1])));
-          info.setName(lvlProps.get("name", "")); // only used in menu
+          // only used in menu
+          info.setName(readNames ? LevelIndex.readLevelName(iniFile) : "");
           levels.add(info);
         }
         idx++;
@@ -140,6 +222,56 @@ public class LevelPack {
     }
   }
 
+  /**
+   * Constructor for reading a level pack from the level index.
+   *
+   * @param in stream to read from (see {@link #write(DataOutputStream)})
+   * @throws IOException
+   */
+  LevelPack(final DataInputStream in) throws IOException {
+    name = in.readUTF();
+    path = new File(in.readUTF());
+    codeSeed = in.readUTF();
+    maxFallDistance = in.readInt();
+    codeOffset = in.readInt();
+    for (int d = in.readInt(); d > 0; d--) {
+      diffLevels.add(in.readUTF());
+      ArrayList<LevelInfo> levels = new ArrayList<LevelInfo>();
+      for (int n = in.readInt(); n > 0; n--) {
+        LevelInfo info = new LevelInfo();
+        info.setFileName(in.readUTF());
+        info.setMusic(in.readUTF());
+        info.setName(in.readUTF());
+        levels.add(info);
+      }
+      lvlInfo.add(levels);
+    }
+  }
+
+  /**
+   * Write the level pack to the level index.
+   *
+   * @param out stream to write to
+   * @throws IOException
+   */
+  void write(final DataOutputStream out) throws IOException {
+    out.writeUTF(name);
+    out.writeUTF(path.getPath());
+    out.writeUTF(codeSeed);
+    out.writeInt(maxFallDistance);
+    out.writeInt(codeOffset);
+    out.writeInt(diffLevels.size());
+    for (int d = 0; d < diffLevels.size(); d++) {
+      out.writeUTF(diffLevels.get(d));
+      out.writeInt(lvlInfo.get(d).size());
+      for (LevelInfo info : lvlInfo.get(d)) {
+        out.writeUTF(info.getFileName());
+        out.writeUTF(info.getMusic());
+        out.writeUTF(info.getName());
+      }
+    }
+  }
+
   /**
    * Assemble level pack and difficulty level to string.
    *
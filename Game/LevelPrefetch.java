@@ -0,0 +1,154 @@
+package Game;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Loads and paints a level in a background thread, e.g. the next level while the debriefing is
+ * shown. The level is painted into a spare background image and stencil, which are handed over to
+ * the {@link SimulationEngine} when the level is started. The background image and stencil of the
+ * previous level are recycled as spares for the next prefetch.
+ */
+final class LevelPrefetch {
+  /** Prefetched level. */
+  static class Result {
+    /** loaded and painted level */
+    final Level level;
+
+    /** background image the level was painted into */
+    final BufferedImage bgImage;
+
+    /** stencil of the level */
+    final Stencil stencil;
+
+    /** small preview image of the level */
+    final BufferedImage preview;
+
+    /**
+     * Constructor.
+     *
+     * @param lvl loaded and painted level
+     * @param bg background image the level was painted into
+     * @param s stencil of the level
+     * @param p small preview image of the level
+     */
+    Result(final Level lvl, final BufferedImage bg, final Stencil s, final BufferedImage p) {
+      level = lvl;
+      bgImage = bg;
+      stencil = s;
+      preview = p;
+    }
+  }
+
+  /** pending or finished prefetch (null: none) */
+  private FutureTask<Result> task;
+
+  /** file name of the level loaded by the task */
+  private String fileName;
+
+  /** background image to paint the next prefetched level into (null: create a new one) */
+  private BufferedImage spareImage;
+
+  /** stencil to reuse for the next prefetched level (may be null) */
+  private Stencil spareStencil;
+
+  /**
+   * Start loading and painting a level in the background. Ignored if another level is still being
+   * loaded.
+   *
+   * @param fName file name of the level
+   * @param maxFallDistance maximum fall distance if not defined in the level
+   */
+  synchronized void start(final String fName, final int maxFallDistance) {
+    if (task != null) {
+      if (fName.equals(fileName) || !task.isDone()) return;
+      discard();
+    }
+    final BufferedImage bg =
+        (spareImage != null)
+            ? spareImage
+            : new BufferedImage(Level.WIDTH, Level.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    final Stencil s = spareStencil;
+    spareImage = null;
+    spareStencil = null;
+    fileName = fName;
+    task =
+        new FutureTask<Result>(
+            () -> {
+              Level lvl = new Level();
+              lvl.loadLevel(fName, maxFallDistance);
+              Stencil stencil = SimulationEngine.paintLevel(lvl, bg, s);
+              BufferedImage preview = lvl.createMiniMap(null, bg, 4, 4, false);
+              return new Result(lvl, bg, stencil, preview);
+            });
+    Thread t = new Thread(task, "Level prefetch");
+    t.setDaemon(true);
+    t.setPriority(Thread.MIN_PRIORITY);
+    t.start();
+  }
+
+  /**
+   * Take the prefetched level. Waits if the level is still being loaded.
+   *
+   * @param fName file name of the level
+   * @return prefetched level or null if this level wasn't prefetched (or loading failed)
+   */
+  synchronized Result take(final String fName) {
+    if (task == null || !fName.equals(fileName)) {
+      if (task != null && task.isDone()) discard();
+      return null;
+    }
+    try {
+      return task.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException ex) {
+      // the level will be loaded again in the foreground, which reports the error
+      return null;
+    } finally {
+      task = null;
+      fileName = null;
+    }
+  }
+
+  /**
+   * Hand over the background image and stencil of a level which isn't used any more, so they can
+   * be reused for the next prefetch.
+   *
+   * @param bg background image
+   * @param s stencil
+   */
+  synchronized void recycle(final BufferedImage bg, final Stencil s) {
+    spareImage = bg;
+    spareStencil = s;
+  }
+
+  /** Drop the result of a finished prefetch which isn't needed and recycle its buffers. */
+  private void discard() {
+    try {
+      Result r = task.get();
+      recycle(r.bgImage, r.stencil);
+    } catch (InterruptedException | ExecutionException ex) {
+    }
+    task = null;
+    fileName = null;
+  }
+}
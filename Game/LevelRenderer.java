@@ -0,0 +1,358 @@
+package Game;
+
+import Tools.ToolBox;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Damage tracking renderer for the level area of the screen.
+ *
+ * <p>The background color, the "behind" objects, the background image and the "in front" objects
+ * are composited into one opaque image of the whole level. Only the parts of this image which were
+ * changed by mask operations or animated objects are composited again.
+ *
+ * <p>The renderer runs in the render thread and only uses the data of a {@link RenderFrame}: the
+ * copy of the background image, the frame indices of the level objects and the sequence numbers of
+ * the changed terrain tiles.
+ *
+ * <p>The offscreen buffers of the {@link GraphicsPane} keep their contents between frames. Before
+ * the sprites (Lemmings, explosions, cursor) are drawn, only the tiles which changed since the
+ * buffer was drawn last time are copied from the composite image: changed level tiles, tiles
+ * covered by the sprites of the last frame and tiles which were scrolled into view.
+ */
+public class LevelRenderer {
+  /** tile size is 1 &lt;&lt; TILE_SHIFT pixels */
+  static final int TILE_SHIFT = 4;
+
+  /** tile size in pixels */
+  static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+  /** number of tiles in x direction */
+  static final int TILES_X = (Level.WIDTH + TILE_SIZE - 1) >> TILE_SHIFT;
+
+  /** number of tiles in y direction */
+  static final int TILES_Y = (Level.HEIGHT + TILE_SIZE - 1) >> TILE_SHIFT;
+
+  /** state of one offscreen buffer */
+  private static class Buffer {
+    /** tiles which have to be copied from the composite image */
+    final boolean dirty[] = new boolean[TILES_X * TILES_Y];
+
+    /** areas covered by sprites drawn in this buffer (level coordinates) */
+    final ArrayList<Rectangle> sprites = new ArrayList<Rectangle>();
+
+    /** flag: the level area of this buffer contains a valid image */
+    boolean valid;
+
+    /** horizontal scrolling offset used when this buffer was drawn */
+    int xPos;
+
+    /** width of the level area when this buffer was drawn */
+    int width;
+  }
+
+  /** composite image of the whole level */
+  private final BufferedImage composite;
+
+  /** graphics object of the composite image */
+  private final Graphics2D compositeGfx;
+
+  /** tiles of the composite image which have to be composited again */
+  private final boolean dirty[];
+
+  /** state of the offscreen buffers */
+  private final Buffer buffers[];
+
+  /** frame index of each level object when it was last composited */
+  private int spriteFrames[];
+
+  /** level objects when they were last composited */
+  private SpriteObject spriteObjects[];
+
+  /** sequence number of the frame which was composited last */
+  private int lastSeq;
+
+  /** number of pixels copied from the composite image in the last frame */
+  private int lastCopiedPixels;
+
+  /**
+   * Constructor.
+   *
+   * @param numBuffers number of offscreen buffers which are drawn alternately
+   */
+  public LevelRenderer(final int numBuffers) {
+    composite = ToolBox.createImage(Level.WIDTH, Level.HEIGHT, Transparency.OPAQUE);
+    compositeGfx = composite.createGraphics();
+    dirty = new boolean[TILES_X * TILES_Y];
+    Arrays.fill(dirty, true);
+    buffers = new Buffer[numBuffers];
+    for (int i = 0; i < numBuffers; i++) buffers[i] = new Buffer();
+    spriteFrames = new int[0];
+    spriteObjects = new SpriteObject[0];
+  }
+
+  /**
+   * Mark all tiles touching a rectangle.
+   *
+   * @param tiles tile array
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  private static void mark(final boolean tiles[], int x, int y, int w, int h) {
+    int r[] = clip(x, y, w, h);
+    if (r == null) return;
+    for (int ty = r[1]; ty <= r[3]; ty++)
+      Arrays.fill(tiles, ty * TILES_X + r[0], ty * TILES_X + r[2] + 1, true);
+  }
+
+  /**
+   * Set all tiles touching a rectangle to a value.
+   *
+   * @param tiles tile array
+   * @param val value
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  static void mark(final int tiles[], final int val, int x, int y, int w, int h) {
+    int r[] = clip(x, y, w, h);
+    if (r == null) return;
+    for (int ty = r[1]; ty <= r[3]; ty++)
+      Arrays.fill(tiles, ty * TILES_X + r[0], ty * TILES_X + r[2] + 1, val);
+  }
+
+  /**
+   * Get the tiles touching a rectangle.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   * @return first tile x, first tile y, last tile x, last tile y (null: outside the level)
+   */
+  private static int[] clip(int x, int y, int w, int h) {
+    if (x < 0) {
+      w += x;
+      x = 0;
+    }
+    if (y < 0) {
+      h += y;
+      y = 0;
+    }
+    if (x + w > Level.WIDTH) w = Level.WIDTH - x;
+    if (y + h > Level.HEIGHT) h = Level.HEIGHT - y;
+    if (w <= 0 || h <= 0) return null;
+    return new int[] {
+      x >> TILE_SHIFT, y >> TILE_SHIFT, (x + w - 1) >> TILE_SHIFT, (y + h - 1) >> TILE_SHIFT
+    };
+  }
+
+  /**
+   * Mark the tiles of the level which changed since the last composited frame as dirty.
+   *
+   * @param f frame
+   */
+  private void checkTerrain(final RenderFrame f) {
+    for (int t = 0; t < dirty.length; t++) if (f.tileSeq[t] > lastSeq) dirty[t] = true;
+    lastSeq = f.seq;
+  }
+
+  /**
+   * Forget the contents of an offscreen buffer, e.g. because something else was drawn into it.
+   *
+   * @param buf index of offscreen buffer
+   */
+  public synchronized void invalidate(final int buf) {
+    buffers[buf].valid = false;
+  }
+
+  /**
+   * Mark the tiles of animated level objects which changed their frame as dirty.
+   *
+   * @param f frame
+   */
+  private void checkSprites(final RenderFrame f) {
+    int num = f.objects.length;
+    if (spriteObjects != f.objects) {
+      spriteObjects = f.objects;
+      spriteFrames = new int[num];
+      Arrays.fill(spriteFrames, -1);
+    }
+    for (int n = 0; n < num; n++) {
+      SpriteObject spr = f.objects[n];
+      int frame = f.objFrames[n];
+      if (frame != spriteFrames[n]) {
+        spriteFrames[n] = frame;
+        mark(dirty, spr.getX(), spr.getY(), spr.getWidth(), spr.getHeight());
+      }
+    }
+  }
+
+  /**
+   * Draw level objects which touch an area.
+   *
+   * @param g graphics object (level offset at position 0)
+   * @param f frame
+   * @param from index of the first object
+   * @param to index after the last object
+   * @param width width of the area in pixels
+   * @param xOfs x position of the area in pixels
+   */
+  private static void drawObjects(
+      final Graphics2D g,
+      final RenderFrame f,
+      final int from,
+      final int to,
+      final int width,
+      final int xOfs) {
+    for (int n = from; n < to; n++) {
+      SpriteObject spr = f.objects[n];
+      if (spr.getX() + spr.getWidth() > xOfs && spr.getX() < xOfs + width)
+        g.drawImage(spr.getImage(f.objFrames[n]), spr.getX() - xOfs, spr.getY(), null);
+    }
+  }
+
+  /**
+   * Composite all dirty tiles of the level image again.
+   *
+   * @param f frame
+   */
+  private void updateComposite(final RenderFrame f) {
+    compositeGfx.setBackground(f.bgColor);
+    for (int ty = 0; ty < TILES_Y; ty++) {
+      int row = ty * TILES_X;
+      for (int tx = 0; tx < TILES_X; tx++) {
+        if (!dirty[row + tx]) continue;
+        // combine all dirty tiles in this row
+        int tx1 = tx;
+        while (tx1 + 1 < TILES_X && dirty[row + tx1 + 1]) tx1++;
+        int x0 = tx << TILE_SHIFT;
+        int y0 = ty << TILE_SHIFT;
+        int w = Math.min((tx1 + 1) << TILE_SHIFT, Level.WIDTH) - x0;
+        int h = Math.min(y0 + TILE_SIZE, Level.HEIGHT) - y0;
+
+        Graphics2D g = (Graphics2D) compositeGfx.create();
+        g.clipRect(x0, y0, w, h);
+        g.clearRect(x0, y0, w, h);
+        // the level draw methods expect the level offset to be at position 0
+        g.translate(x0, 0);
+        drawObjects(g, f, 0, f.numBehind, w, x0);
+        g.drawImage(f.terrain, 0, y0, w, y0 + h, x0, y0, x0 + w, y0 + h, null);
+        drawObjects(g, f, f.numBehind, f.objects.length, w, x0);
+        g.dispose();
+
+        for (Buffer b : buffers) Arrays.fill(b.dirty, row + tx, row + tx1 + 1, true);
+        Arrays.fill(dirty, row + tx, row + tx1 + 1, false);
+        tx = tx1;
+      }
+    }
+  }
+
+  /**
+   * Draw the level (without Lemmings etc.) into an offscreen buffer. Only the parts which changed
+   * since the buffer was drawn the last time are copied.
+   *
+   * @param g graphics object of the offscreen buffer
+   * @param buf index of offscreen buffer
+   * @param f frame to draw
+   * @param width width of the level area on screen in pixels
+   */
+  synchronized void draw(final Graphics2D g, final int buf, final RenderFrame f, final int width) {
+    int xPos = f.xPos;
+    Buffer b = buffers[buf];
+
+    checkTerrain(f);
+    checkSprites(f);
+    updateComposite(f);
+
+    if (!b.valid || b.width != width || Math.abs(b.xPos - xPos) >= width) {
+      Arrays.fill(b.dirty, true);
+    } else if (b.xPos != xPos) {
+      // move the part which is still visible, then update the part scrolled into view
+      int dx = b.xPos - xPos;
+      if (dx > 0) {
+        g.copyArea(0, 0, width - dx, Level.HEIGHT, dx, 0);
+        mark(b.dirty, xPos, 0, dx, Level.HEIGHT);
+      } else {
+        g.copyArea(-dx, 0, width + dx, Level.HEIGHT, dx, 0);
+        mark(b.dirty, b.xPos + width, 0, -dx, Level.HEIGHT);
+      }
+    }
+    // remove the sprites drawn in the last frame
+    for (Rectangle r : b.sprites) mark(b.dirty, r.x, r.y, r.width, r.height);
+    b.sprites.clear();
+
+    // copy dirty tiles inside the visible area
+    int copied = 0;
+    int tx0 = xPos >> TILE_SHIFT;
+    int tx1 = Math.min((xPos + width - 1) >> TILE_SHIFT, TILES_X - 1);
+    for (int ty = 0; ty < TILES_Y; ty++) {
+      int row = ty * TILES_X;
+      for (int tx = tx0; tx <= tx1; tx++) {
+        if (!b.dirty[row + tx]) continue;
+        int txe = tx;
+        while (txe + 1 <= tx1 && b.dirty[row + txe + 1]) txe++;
+        int x0 = Math.max(tx << TILE_SHIFT, xPos);
+        int x1 = Math.min((txe + 1) << TILE_SHIFT, xPos + width);
+        int y0 = ty << TILE_SHIFT;
+        int y1 = Math.min(y0 + TILE_SIZE, Level.HEIGHT);
+        g.drawImage(composite, x0 - xPos, y0, x1 - xPos, y1, x0, y0, x1, y1, null);
+        copied += (x1 - x0) * (y1 - y0);
+        tx = txe;
+      }
+    }
+    Arrays.fill(b.dirty, false);
+    lastCopiedPixels = copied;
+
+    b.valid = true;
+    b.xPos = xPos;
+    b.width = width;
+  }
+
+  /**
+   * Register a sprite drawn on top of the level, so it will be removed in the next frame drawn into
+   * the same buffer.
+   *
+   * @param buf index of offscreen buffer
+   * @param x x position in pixels (level coordinates)
+   * @param y y position in pixels
+   * @param width width in pixels
+   * @param height height in pixels
+   */
+  public synchronized void addSprite(
+      final int buf, final int x, final int y, final int width, final int height) {
+    buffers[buf].sprites.add(new Rectangle(x, y, width, height));
+  }
+
+  /**
+   * Get number of pixels copied from the composite image in the last frame.
+   *
+   * @return number of pixels
+   */
+  public synchronized int getLastCopiedPixels() {
+    return lastCopiedPixels;
+  }
+}
@@ -0,0 +1,220 @@
+package Game;
+
+import GameUtil.Sprite;
+import Tools.ToolBox;
+import java.awt.image.BufferedImage;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Copy of a freshly painted level (background image, stencil, mini map and the state of the level
+ * objects), so the level can be restarted with a few array copies instead of painting it again.
+ *
+ * <p>Only the frames of "no dig" objects are copied, since these are the only object images which
+ * are modified by the simulation (see {@link Mask}).
+ */
+final class LevelSnapshot {
+  /** level the snapshot was taken of */
+  private final Level level;
+
+  /** ARGB pixels of the background image */
+  private final int bgPixels[];
+
+  /** copy of the stencil */
+  private final Stencil stencil;
+
+  /** mini map the pixels were copied from (null: none) */
+  private BufferedImage miniMap;
+
+  /** pixels of the mini map */
+  private Object miniMapPixels;
+
+  /** animation frame index of each level object */
+  private final int frameIdx[];
+
+  /** animation mode of each level object */
+  private final Sprite.Animation animMode[];
+
+  /** pixels of each animation frame of the "no dig" objects - [object][frame] (null: other type) */
+  private final Object frames[][];
+
+  /**
+   * Constructor: take a snapshot of a freshly painted level.
+   *
+   * @param lvl painted level
+   * @param bg background image the level was painted into
+   * @param s stencil of the level
+   * @param old previous snapshot whose buffers may be reused (may be null)
+   */
+  LevelSnapshot(final Level lvl, final BufferedImage bg, final Stencil s, final LevelSnapshot old) {
+    level = lvl;
+    bgPixels = copyRGB(bg, (old != null) ? old.bgPixels : null);
+    if (old != null
+        && old.stencil.getWidth() == s.getWidth()
+        && old.stencil.getHeight() == s.getHeight()) stencil = old.stencil;
+    else stencil = new Stencil(s.getWidth(), s.getHeight());
+    stencil.copyFrom(s);
+
+    int num = lvl.getSprObjectNum();
+    frameIdx = new int[num];
+    animMode = new Sprite.Animation[num];
+    frames = new Object[num][];
+    for (int n = 0; n < num; n++) {
+      SpriteObject spr = lvl.getSprObject(n);
+      frameIdx[n] = spr.getFrameIdx();
+      animMode[n] = spr.getAnimMode();
+      if (spr.getType() != SpriteObject.Type.NO_DIG_LEFT
+          && spr.getType() != SpriteObject.Type.NO_DIG_RIGHT) continue;
+      frames[n] = new Object[spr.getNumFrames()];
+      for (int f = 0; f < frames[n].length; f++) frames[n][f] = copyPixels(spr.getImage(f), null);
+    }
+  }
+
+  /**
+   * Check if this is a snapshot of the given level.
+   *
+   * @param lvl level
+   * @return true if the snapshot was taken of this level object
+   */
+  boolean isOf(final Level lvl) {
+    return level == lvl;
+  }
+
+  /**
+   * Remember the mini map of the level while it's still unchanged.
+   *
+   * @param img mini map image (null: none)
+   */
+  void setMiniMap(final BufferedImage img) {
+    miniMap = img;
+    miniMapPixels = (img != null) ? copyPixels(img, miniMapPixels) : null;
+  }
+
+  /**
+   * Restore the level to the state it had when the snapshot was taken.
+   *
+   * @param bg background image of the level
+   * @param s stencil of the level
+   * @param img mini map image of the level (may be null)
+   * @return true if the mini map was restored as well
+   */
+  boolean restore(final BufferedImage bg, final Stencil s, final BufferedImage img) {
+    restoreRGB(bg, bgPixels, 0, 0, bg.getWidth(), bg.getHeight());
+    s.copyFrom(stencil);
+    for (int n = 0; n < frameIdx.length; n++) {
+      SpriteObject spr = level.getSprObject(n);
+      spr.resetAnimation(frameIdx[n], animMode[n]);
+      if (frames[n] != null)
+        for (int f = 0; f < frames[n].length; f++) restorePixels(spr.getImage(f), frames[n][f]);
+    }
+    if (img == null || img != miniMap) return false;
+    restorePixels(img, miniMapPixels);
+    return true;
+  }
+
+  /**
+   * Restore a rectangle of the background image and stencil only. The level objects are not
+   * changed.
+   *
+   * @param bg background image of the level
+   * @param s stencil of the level
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  void restoreRect(
+      final BufferedImage bg, final Stencil s, final int x, final int y, final int w, final int h) {
+    restoreRGB(bg, bgPixels, x, y, w, h);
+    for (int yy = y; yy < y + h; yy++)
+      for (int xx = x; xx < x + w; xx++) s.set(xx, yy, stencil.get(xx, yy));
+  }
+
+  /**
+   * Copy the ARGB pixels of an image.
+   *
+   * @param img image
+   * @param old array to reuse if it has the right size (may be null)
+   * @return ARGB pixels
+   */
+  private static int[] copyRGB(final BufferedImage img, final int old[]) {
+    int len = img.getWidth() * img.getHeight();
+    int copy[] = (old != null && old.length == len) ? old : new int[len];
+    int pixels[] = ToolBox.getPixels(img);
+    if (pixels != null) System.arraycopy(pixels, 0, copy, 0, len);
+    else img.getRGB(0, 0, img.getWidth(), img.getHeight(), copy, 0, img.getWidth());
+    return copy;
+  }
+
+  /**
+   * Write a rectangle of pixels copied via {@link #copyRGB(BufferedImage, int[])} back into an
+   * image.
+   *
+   * @param img image
+   * @param data ARGB pixels of the whole image
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  private static void restoreRGB(
+      final BufferedImage img,
+      final int data[],
+      final int x,
+      final int y,
+      final int w,
+      final int h) {
+    int width = img.getWidth();
+    int pixels[] = ToolBox.getPixels(img);
+    if (pixels == null) img.setRGB(x, y, w, h, data, y * width + x, width);
+    else if (x == 0 && w == width) System.arraycopy(data, y * width, pixels, y * width, h * width);
+    else
+      for (int yy = y; yy < y + h; yy++)
+        System.arraycopy(data, yy * width + x, pixels, yy * width + x, w);
+  }
+
+  /**
+   * Copy the pixels of an image.
+   *
+   * @param img image
+   * @param old array to reuse if it has the right type and size (may be null)
+   * @return pixels in the transfer type of the image raster
+   */
+  static Object copyPixels(final BufferedImage img, final Object old) {
+    int pixels[] = ToolBox.getPixels(img);
+    if (pixels == null)
+      return img.getRaster().getDataElements(0, 0, img.getWidth(), img.getHeight(), null);
+    int copy[] =
+        (old instanceof int[] && ((int[]) old).length == pixels.length)
+            ? (int[]) old
+            : new int[pixels.length];
+    System.arraycopy(pixels, 0, copy, 0, pixels.length);
+    return copy;
+  }
+
+  /**
+   * Write pixels copied via {@link #copyPixels(BufferedImage, Object)} back into an image.
+   *
+   * @param img image
+   * @param data pixels
+   */
+  static void restorePixels(final BufferedImage img, final Object data) {
+    int pixels[] = ToolBox.getPixels(img);
+    if (pixels != null) System.arraycopy((int[]) data, 0, pixels, 0, pixels.length);
+    else img.getRaster().setDataElements(0, 0, img.getWidth(), img.getHeight(), data);
+  }
+}
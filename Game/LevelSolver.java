@@ -0,0 +1,687 @@
+package Game;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Command line level solver. Searches for a sequence of skill assignments which saves enough
+ * Lemmings and writes it as a replay file which can be played back in the game.
+ *
+ * <p>The levels are simulated headless by a {@link SimulationEngine}. Every node of the search
+ * tree is one skill assignment at a candidate frame: the node is simulated until the level ends,
+ * and at every candidate frame on the way each skill which could be assigned to an active Lemming
+ * becomes a child node. Lemmings which are in exactly the same state are only branched on once.
+ * The search uses iterative deepening on the number of assigned skills, so the first solution
+ * found uses as few skills as possible. The nodes are explored in parallel on a work-stealing
+ * fork-join pool. Every worker thread uses its own engine and keeps the {@link Keyframe}s of the
+ * latest candidate frames, so a child node usually starts from a keyframe instead of simulating
+ * the level from the start. States already reached by another node are pruned via {@link
+ * SimulationEngine#stateHash()}, as are states in which too few Lemmings are left to be saved.
+ *
+ * <p>The release rate and the nuke are never changed by the solver.
+ */
+public class LevelSolver {
+  /** stop simulating a level after 20 minutes of game time */
+  private static final int MAX_FRAMES = (int) (20 * 60 * SimulationEngine.MAX_SECOND_CTR);
+
+  /** maximum number of skills assigned in a solution */
+  static final int MAX_SKILLS = 10;
+
+  /** maximum number of nodes searched per level */
+  static final int MAX_NODES = 20000;
+
+  /** maximum number of state hashes stored per search */
+  private static final int MAX_STATES = 1 << 20;
+
+  /** distance in frames between two candidate frames */
+  private static final int STEP = 8;
+
+  /** a Lemming in an unchanged state is only branched on again after moving this many pixels */
+  private static final int MIN_DISTANCE = 16;
+
+  /** number of keyframes kept by each worker thread */
+  private static final int CACHE_SIZE = 64;
+
+  /** skills tried by the solver */
+  private static final Lemming.Type SKILLS[] = {
+    Lemming.Type.CLIMBER,
+    Lemming.Type.FLOATER,
+    Lemming.Type.BOMBER,
+    Lemming.Type.STOPPER,
+    Lemming.Type.BUILDER,
+    Lemming.Type.BASHER,
+    Lemming.Type.MINER,
+    Lemming.Type.DIGGER
+  };
+
+  /** worker state of each thread */
+  private static final ThreadLocal<Worker> WORKER = ThreadLocal.withInitial(Worker::new);
+
+  /** Candidate frame of a node: all child nodes assigning a skill in this frame share it. */
+  static final class Branch {
+    /** node being simulated */
+    final Node node;
+
+    /** frame number */
+    final int frame;
+
+    /**
+     * Constructor.
+     *
+     * @param n node being simulated
+     * @param f frame number
+     */
+    Branch(final Node n, final int f) {
+      node = n;
+      frame = f;
+    }
+  }
+
+  /** Node of the search tree: one skill assignment. */
+  static final class Node {
+    /** candidate frame the skill is assigned in (null: root node, no assignment) */
+    final Branch from;
+
+    /** ID of the Lemming */
+    final int lemming;
+
+    /** skill assigned */
+    final Lemming.Type skill;
+
+    /** number of skills assigned up to this node */
+    final int depth;
+
+    /**
+     * Constructor.
+     *
+     * @param b candidate frame the skill is assigned in (null: root node)
+     * @param id ID of the Lemming
+     * @param s skill
+     */
+    Node(final Branch b, final int id, final Lemming.Type s) {
+      from = b;
+      lemming = id;
+      skill = s;
+      depth = (b == null) ? 0 : b.node.depth + 1;
+    }
+  }
+
+  /** Level to solve. */
+  static final class Problem {
+    /** level pack */
+    final LevelPack pack;
+
+    /** difficulty level */
+    final int diffLevel;
+
+    /** level number (0..n-1) */
+    final int lvlNumber;
+
+    /**
+     * Constructor.
+     *
+     * @param lp level pack
+     * @param diff difficulty level
+     * @param lvl level number (0..n-1)
+     */
+    Problem(final LevelPack lp, final int diff, final int lvl) {
+      pack = lp;
+      diffLevel = diff;
+      lvlNumber = lvl;
+    }
+
+    /**
+     * Load the level into an engine and start it.
+     *
+     * @param engine simulation engine
+     * @throws ResourceException
+     * @throws LemmException
+     */
+    void load(final SimulationEngine engine) throws ResourceException, LemmException {
+      String lvlPath = pack.getInfo(diffLevel, lvlNumber).getFileName();
+      engine.getLevel().loadLevel(lvlPath, pack.getMaxFallDistance());
+      engine.initLevel();
+    }
+
+    /**
+     * Get the level information as stored in a replay.
+     *
+     * @return level information
+     */
+    ReplayLevelInfo getInfo() {
+      ReplayLevelInfo info = new ReplayLevelInfo();
+      info.setLevelPack(pack.getName());
+      info.setDiffLevel(diffLevel);
+      info.setLvlNumber(lvlNumber);
+      return info;
+    }
+
+    @Override
+    public String toString() {
+      return pack.getName()
+          + " "
+          + pack.getDiffLevels().get(diffLevel)
+          + " "
+          + (lvlNumber + 1)
+          + " ("
+          + pack.getInfo(diffLevel, lvlNumber).getName().trim()
+          + ")";
+    }
+  }
+
+  /** Simulation state of one worker thread. */
+  private static final class Worker {
+    /** simulation engine */
+    final SimulationEngine engine = new SimulationEngine(new Level());
+
+    /** keyframes of the latest candidate frames, least recently used first */
+    final LinkedHashMap<Branch, Keyframe> cache =
+        new LinkedHashMap<Branch, Keyframe>(2 * CACHE_SIZE, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<Branch, Keyframe> eldest) {
+            if (size() <= CACHE_SIZE) return false;
+            eldest.getValue().release();
+            return true;
+          }
+        };
+
+    /** level loaded into the engine */
+    Problem problem;
+
+    /** keyframe of the first frame of the level */
+    Keyframe start;
+
+    /**
+     * Load a level unless it's already loaded.
+     *
+     * @param p level
+     * @throws ResourceException
+     * @throws LemmException
+     */
+    void prepare(final Problem p) throws ResourceException, LemmException {
+      if (problem == p) return;
+      for (Keyframe k : cache.values()) k.release();
+      cache.clear();
+      if (start != null) start.release();
+      start = null;
+      problem = null;
+      p.load(engine);
+      start = engine.takeKeyframe();
+      problem = p;
+    }
+
+    /**
+     * Bring the engine into the state right after the assignment of a node.
+     *
+     * @param n node
+     * @return true if the skill could be assigned, false otherwise
+     */
+    boolean moveTo(final Node n) {
+      if (n.from == null) {
+        engine.restoreKeyframe(start);
+        return true;
+      }
+      Keyframe k = cache.get(n.from);
+      if (k != null) engine.restoreKeyframe(k);
+      else {
+        if (!moveTo(n.from.node)) throw new IllegalStateException("Simulation isn't deterministic");
+        while (engine.getFrame() < n.from.frame) engine.step();
+      }
+      Lemming l = engine.getLemming(n.lemming);
+      return l != null && engine.assignSkill(l, n.skill);
+    }
+  }
+
+  /** Iteration of the search with a fixed maximum number of skills. */
+  private static final class Search {
+    /** level to solve */
+    final Problem problem;
+
+    /** maximum number of skills assigned */
+    final int maxSkills;
+
+    /** number of nodes searched in all iterations */
+    final AtomicInteger nodes;
+
+    /** hashes of the states reached */
+    final Set<Long> visited = ConcurrentHashMap.newKeySet();
+
+    /** first solution found */
+    final AtomicReference<Node> solution = new AtomicReference<Node>();
+
+    /** flag: the maximum number of nodes was reached */
+    volatile boolean stopped;
+
+    /** first error occurred */
+    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+    /**
+     * Constructor.
+     *
+     * @param p level to solve
+     * @param max maximum number of skills assigned
+     * @param n number of nodes searched in all iterations
+     */
+    Search(final Problem p, final int max, final AtomicInteger n) {
+      problem = p;
+      maxSkills = max;
+      nodes = n;
+    }
+
+    /**
+     * Check if the search is over.
+     *
+     * @return true if a solution was found or the search was stopped, false otherwise
+     */
+    boolean isOver() {
+      return stopped || solution.get() != null || error.get() != null;
+    }
+
+    /**
+     * Simulate a node and collect its child nodes.
+     *
+     * @param n node
+     * @return child nodes (empty if the node is a solution or the search is over)
+     * @throws ResourceException
+     * @throws LemmException
+     */
+    ArrayList<Node> expand(final Node n) throws ResourceException, LemmException {
+      ArrayList<Node> children = new ArrayList<Node>();
+      if (isOver()) return children;
+      if (nodes.incrementAndGet() > MAX_NODES) {
+        stopped = true;
+        return children;
+      }
+      Worker w = WORKER.get();
+      w.prepare(problem);
+      if (!w.moveTo(n)) return children;
+      SimulationEngine engine = w.engine;
+      boolean branch = n.depth < maxSkills;
+      // position and state of each Lemming when it was branched on the last time
+      int lastX[] = new int[0];
+      int lastY[] = new int[0];
+      int lastState[] = new int[0];
+      int firstFrame = (n.from == null) ? 0 : n.from.frame + 1;
+      while (!engine.isFinished() && engine.getFrame() < MAX_FRAMES) {
+        int f = engine.getFrame();
+        if (f >= firstFrame && f % STEP == 0) {
+          if (isOver()) return new ArrayList<Node>();
+          // lost or reached by another node: only the branches taken so far are left
+          if (isLost(engine)) return children;
+          long h = engine.stateHash();
+          if (visited.size() < MAX_STATES ? !visited.add(h) : visited.contains(h)) return children;
+          if (branch) {
+            Branch b = new Branch(n, f);
+            int num = children.size();
+            HashSet<Long> seen = new HashSet<Long>();
+            for (int i = 0; i < engine.getNumLemmings(); i++) {
+              Lemming l = engine.getLemmingAt(i);
+              if (l.hasDied() || l.hasLeft()) continue;
+              LemmingStore s = l.store;
+              int x = s.x[l.slot];
+              int y = s.y[l.slot];
+              int state = 1 + s.type[l.slot] + (s.dir[l.slot] << 8) + (s.flags[l.slot] << 16);
+              // Lemmings in the same state behave the same: branch on the first one only
+              long key = x + ((long) y << 16) + ((long) state << 32);
+              if (!seen.add(SimulationEngine.mix(key + 31L * s.counter[l.slot]))) continue;
+              int id = l.getId();
+              if (id >= lastX.length) {
+                int len = Math.max(id + 1, 2 * lastX.length);
+                lastX = Arrays.copyOf(lastX, len);
+                lastY = Arrays.copyOf(lastY, len);
+                lastState = Arrays.copyOf(lastState, len);
+              }
+              if (state == lastState[id]
+                  && Math.abs(x - lastX[id]) + Math.abs(y - lastY[id]) < MIN_DISTANCE) continue;
+              lastX[id] = x;
+              lastY[id] = y;
+              lastState[id] = state;
+              for (Lemming.Type skill : SKILLS)
+                if (engine.getNumSkills(skill) > 0 && canAssign(l, skill))
+                  children.add(new Node(b, id, skill));
+            }
+            if (children.size() > num) w.cache.put(b, engine.takeKeyframe());
+          }
+        }
+        engine.step();
+      }
+      if (engine.getNumLeft() >= engine.getNumToRescue()) {
+        solution.compareAndSet(null, n);
+        children.clear();
+      }
+      return children;
+    }
+  }
+
+  /** Fork-join task searching the subtree of a node. */
+  private static final class Task extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /** search */
+    private final Search search;
+
+    /** node */
+    private final Node node;
+
+    /**
+     * Constructor.
+     *
+     * @param s search
+     * @param n node
+     */
+    Task(final Search s, final Node n) {
+      search = s;
+      node = n;
+    }
+
+    @Override
+    protected void compute() {
+      ArrayList<Node> children;
+      try {
+        children = search.expand(node);
+      } catch (ResourceException | LemmException | RuntimeException ex) {
+        search.error.compareAndSet(null, ex);
+        return;
+      }
+      if (children.isEmpty() || search.isOver()) return;
+      ArrayList<Task> tasks = new ArrayList<Task>(children.size());
+      for (Node c : children) tasks.add(new Task(search, c));
+      invokeAll(tasks);
+    }
+  }
+
+  /**
+   * Check if a skill could be assigned to a Lemming. This only checks the simple conditions of
+   * {@link Lemming#setSkill(Lemming.Type)}, the assignment may still fail.
+   *
+   * @param l Lemming
+   * @param skill skill
+   * @return false if the skill can't be assigned, true if it may be possible
+   */
+  private static boolean canAssign(final Lemming l, final Lemming.Type skill) {
+    if (skill == l.getSkill()) return false;
+    switch (l.getSkill()) {
+      case DROWNING:
+      case EXITING:
+      case SPLAT:
+      case TRAPPED:
+      case BOMBER:
+        return false;
+    }
+    switch (skill) {
+      case CLIMBER:
+        return !l.canClimb();
+      case FLOATER:
+        return !l.canFloat();
+      case BOMBER:
+        return l.store.explodeNumCtr[l.slot] == 0;
+      default:
+        return l.canChangeSkill();
+    }
+  }
+
+  /**
+   * Check if too few Lemmings are left to finish the level.
+   *
+   * @param engine simulation engine
+   * @return true if the level can't be finished any more
+   */
+  private static boolean isLost(final SimulationEngine engine) {
+    int alive = engine.getNumLemmingsMax() - engine.getNumLemmingsOut() + engine.getNumLeft();
+    for (int i = 0; i < engine.getNumLemmings(); i++) {
+      Lemming l = engine.getLemmingAt(i);
+      if (!l.hasDied() && !l.hasLeft()) alive++;
+    }
+    return alive < engine.getNumToRescue();
+  }
+
+  /** Result of solving one level. */
+  static class Result {
+    /** level */
+    final Problem problem;
+
+    /** replay of the solution (null if none was found) */
+    ReplayStream replay;
+
+    /** number of skills used by the solution */
+    int skills;
+
+    /** number of nodes searched */
+    int nodes;
+
+    /** flag: the search was stopped before the search space was exhausted */
+    boolean stopped;
+
+    /** number of Lemmings saved when the replay was played back */
+    int saved;
+
+    /** error message (null if the level could be searched) */
+    String error;
+
+    /**
+     * Constructor.
+     *
+     * @param p level
+     */
+    Result(final Problem p) {
+      problem = p;
+    }
+
+    /**
+     * Get solution state.
+     *
+     * @return true if a solution was found and verified
+     */
+    boolean solved() {
+      return error == null && replay != null;
+    }
+  }
+
+  /** fork-join pool used for the search */
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructor.
+   *
+   * @param threads number of worker threads
+   */
+  LevelSolver(final int threads) {
+    pool = new ForkJoinPool(threads);
+  }
+
+  /**
+   * Search a solution for a level.
+   *
+   * @param p level
+   * @return result
+   */
+  Result solve(final Problem p) {
+    Result res = new Result(p);
+    AtomicInteger nodes = new AtomicInteger();
+    Node root = new Node(null, -1, null);
+    for (int max = 0; max <= MAX_SKILLS; max++) {
+      Search search = new Search(p, max, nodes);
+      pool.invoke(new Task(search, root));
+      res.nodes = Math.min(nodes.get(), MAX_NODES);
+      if (search.error.get() != null) {
+        Exception ex = search.error.get();
+        if (ex instanceof ResourceException) res.error = "missing resource " + ex.getMessage();
+        else res.error = ex.toString();
+        return res;
+      }
+      Node n = search.solution.get();
+      if (n != null) {
+        res.skills = n.depth;
+        ReplayStream replay = toReplay(n);
+        verify(p, replay, res);
+        if (res.error == null) res.replay = replay;
+        return res;
+      }
+      if (search.stopped) {
+        res.stopped = true;
+        return res;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Convert the skill assignments leading to a node into a replay.
+   *
+   * @param n node
+   * @return replay
+   */
+  private static ReplayStream toReplay(final Node n) {
+    ArrayList<Node> path = new ArrayList<Node>();
+    for (Node p = n; p.from != null; p = p.from.node) path.add(p);
+    ReplayStream replay = new ReplayStream();
+    for (int i = path.size() - 1; i >= 0; i--) {
+      Node p = path.get(i);
+      replay.addSelectSkillEvent(p.from.frame, p.skill);
+      replay.addAssignSkillEvent(p.from.frame, p.skill, p.lemming);
+    }
+    return replay;
+  }
+
+  /**
+   * Play back a replay in a new engine to make sure it solves the level.
+   *
+   * @param p level
+   * @param replay replay
+   * @param res result to store the number of saved Lemmings or the error in
+   */
+  private static void verify(final Problem p, final ReplayStream replay, final Result res) {
+    SimulationEngine engine = new SimulationEngine(new Level());
+    try {
+      p.load(engine);
+    } catch (ResourceException | LemmException ex) {
+      res.error = ex.getMessage();
+      return;
+    }
+    replay.rewind();
+    while (!engine.isFinished() && engine.getFrame() < MAX_FRAMES) engine.step(replay);
+    replay.rewind();
+    res.saved = engine.getNumLeft();
+    if (res.saved < engine.getNumToRescue()) res.error = "replay of the solution failed";
+  }
+
+  /**
+   * Get the name of the replay file of a level.
+   *
+   * @param p level
+   * @return file name
+   */
+  private static String getFileName(final Problem p) {
+    String name = p.pack.getName() + "_" + p.pack.getDiffLevels().get(p.diffLevel);
+    name = name.replaceAll("[^A-Za-z0-9_-]", "_");
+    return String.format("%s_%02d.rpl", name, p.lvlNumber + 1);
+  }
+
+  /**
+   * Command line entry: solve levels, write the solutions as replay files and print the results.
+   *
+   * @param dir folder to write the replay files to
+   * @param packName name of level pack
+   * @param diffName name or number (1..n) of difficulty level (null: all)
+   * @param lvlNumber level number (1..n, 0: all)
+   * @param out stream to print the results to
+   * @return true if all levels were solved, false otherwise
+   * @throws LemmException
+   * @throws ResourceException
+   */
+  public static boolean run(
+      final File dir,
+      final String packName,
+      final String diffName,
+      final int lvlNumber,
+      final PrintStream out)
+      throws LemmException, ResourceException {
+    System.setProperty("java.awt.headless", "true");
+    Core.initHeadless();
+    Explosion.init();
+    Lemming.loadLemmings();
+
+    LevelPack lp = null;
+    for (LevelPack p : LevelPack.readLevelPacks())
+      if (p.getName().equalsIgnoreCase(packName)) {
+        lp = p;
+        break;
+      }
+    if (lp == null) throw new LemmException("Level pack " + packName + " not found");
+    ArrayList<Problem> problems = new ArrayList<Problem>();
+    boolean found = false;
+    for (int d = 0; d < lp.getDiffLevels().size(); d++) {
+      if (diffName != null
+          && !diffName.equalsIgnoreCase(lp.getDiffLevels().get(d))
+          && !diffName.equals(Integer.toString(d + 1))) continue;
+      found = true;
+      for (int n = 0; n < lp.getLevelCount(d); n++)
+        if (lvlNumber == 0 || lvlNumber == n + 1) problems.add(new Problem(lp, d, n));
+    }
+    if (!found) throw new LemmException("Difficulty level " + diffName + " not found");
+    if (problems.isEmpty()) throw new LemmException("Level " + lvlNumber + " not found");
+    if (!dir.isDirectory() && !dir.mkdirs())
+      throw new LemmException("Can't create folder " + dir.getPath());
+
+    LevelSolver solver = new LevelSolver(Runtime.getRuntime().availableProcessors());
+    long start = System.nanoTime();
+    int solved = 0;
+    try {
+      for (Problem p : problems) {
+        long t = System.nanoTime();
+        Result r = solver.solve(p);
+        long millis = (System.nanoTime() - t) / 1000000;
+        StringBuffer sb = new StringBuffer();
+        sb.append(p).append(": ");
+        if (r.error != null) sb.append("ERROR ").append(r.error);
+        else if (r.replay != null) {
+          File file = new File(dir, getFileName(p));
+          if (!r.replay.save(file, p.getInfo()))
+            throw new LemmException("Can't write " + file.getPath());
+          sb.append("solved with ").append(r.skills).append(" skills, saved ").append(r.saved);
+          sb.append(" - ").append(file.getName());
+          solved++;
+        } else if (r.stopped) sb.append("not solved, search limit reached");
+        else sb.append("no solution with up to ").append(MAX_SKILLS).append(" skills");
+        sb.append(" (").append(r.nodes).append(" nodes, ").append(millis).append("ms)");
+        out.println(sb);
+      }
+    } finally {
+      solver.pool.shutdown();
+    }
+    long millis = (System.nanoTime() - start) / 1000000;
+    out.println(
+        problems.size() + " levels, " + solved + " solved, " + (problems.size() - solved)
+            + " not solved (" + millis + "ms)");
+    return solved == problems.size();
+  }
+}
@@ -1,5 +1,6 @@
 package Game;
 
+import Tools.ToolBox;
 import java.awt.image.BufferedImage;
 
 /*
@@ -73,115 +74,253 @@ public class Mask {
     }
   }
 
+  /**
+   * Pixels of an image which are modified by one mask operation. If the image uses an ARGB int
+   * raster, the pixels are modified in place. Else the affected rectangle is read into a scratch
+   * array once and written back with one call in {@link #commit()}, so the color model is used
+   * once per mask operation instead of once per pixel.
+   *
+   * <p>Writing into the raster makes the background image and the mini map unmanaged for good.
+   * Neither is drawn to the screen directly: the level renderer only copies the changed tiles
+   * into its managed composite image, and the mini map is shown from a managed copy made by
+   * {@link ToolBox#copyImage}.
+   */
+  private static class Pixels {
+    /** image to modify */
+    private final BufferedImage img;
+
+    /** pixel data (either the raster of the image or a copy of the affected rectangle) */
+    private final int data[];
+
+    /** offset which has to be added to y * stride + x to get the index of a pixel in data */
+    private final int offset;
+
+    /** length of one line in data */
+    private final int stride;
+
+    /** affected rectangle */
+    private final int x0, y0, w, h;
+
+    /** flag: data is a copy which has to be written back */
+    private final boolean copy;
+
+    /** flag: at least one pixel was modified */
+    private boolean modified;
+
+    /**
+     * Constructor.
+     *
+     * @param image image to modify
+     * @param x x position of affected rectangle in pixels
+     * @param y y position of affected rectangle in pixels
+     * @param width width of affected rectangle in pixels
+     * @param height height of affected rectangle in pixels
+     */
+    Pixels(final BufferedImage image, final int x, final int y, final int width, final int height) {
+      img = image;
+      x0 = x;
+      y0 = y;
+      w = width;
+      h = height;
+      int raster[] = ToolBox.getPixels(image);
+      copy = (raster == null);
+      if (copy) {
+        data = image.getRGB(x, y, width, height, null, 0, width);
+        stride = width;
+        offset = -(y * width + x);
+      } else {
+        data = raster;
+        stride = image.getWidth();
+        offset = 0;
+      }
+    }
+
+    /**
+     * Set one pixel.
+     *
+     * @param x x position in pixels
+     * @param y y position in pixels
+     * @param rgb ARGB color
+     */
+    void set(final int x, final int y, final int rgb) {
+      data[offset + y * stride + x] = rgb;
+      modified = true;
+    }
+
+    /**
+     * Write the modified pixels back to the image (if needed).
+     *
+     * @return true if at least one pixel was modified
+     */
+    boolean commit() {
+      if (modified && copy) img.setRGB(x0, y0, w, h, data, 0, w);
+      return modified;
+    }
+  }
+
+  /**
+   * Get the pixels of the mini map which are affected by a mask operation.
+   *
+   * @param small mini map image (may be null)
+   * @param scaleX ratio of background image width to mini map width
+   * @param scaleY ratio of background image height to mini map height
+   * @param xMin first affected column in the background image
+   * @param yMin first affected line in the background image
+   * @param xMax last affected column in the background image + 1
+   * @param yMax last affected line in the background image + 1
+   * @return pixels of mini map or null if there's no mini map
+   */
+  private static Pixels miniMapPixels(
+      final BufferedImage small,
+      final float scaleX,
+      final float scaleY,
+      final int xMin,
+      final int yMin,
+      final int xMax,
+      final int yMax) {
+    if (small == null) return null;
+    int x0 = Math.min((int) Math.floor(xMin / scaleX), small.getWidth() - 1);
+    int y0 = Math.min((int) Math.floor(yMin / scaleY), small.getHeight() - 1);
+    int x1 = Math.min((int) Math.floor((xMax - 1) / scaleX), small.getWidth() - 1);
+    int y1 = Math.min((int) Math.floor((yMax - 1) / scaleY), small.getHeight() - 1);
+    return new Pixels(small, x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+  }
+
   /**
    * Apply erase mask (to background image, MiniMap and Stencil).
    *
+   * @param engine simulation engine
    * @param x0 x position in pixels
    * @param y0 y position in pixels
    * @param maskNum index of mask if there are multiple animation frames, else 0
    * @param checkMask Stencil bitmask with attributes that make the pixel indestructible
    * @return true if the number of indestructible pixels was > than maxMaskPixels
    */
-  public boolean eraseMask(final int x0, final int y0, final int maskNum, final int checkMask) {
+  public boolean eraseMask(
+      final SimulationEngine engine,
+      final int x0,
+      final int y0,
+      final int maskNum,
+      final int checkMask) {
     int ctrIndestructable = 0;
-    BufferedImage bgImage = GameController.getBgImage();
-    BufferedImage bgImageSmall = MiniMap.getImage();
-    Stencil stencil = GameController.getStencil();
+    BufferedImage bgImage = engine.getBgImage();
+    BufferedImage bgImageSmall = engine.getMiniMap();
+    Stencil stencil = engine.getStencil();
     byte m[] = mask[maskNum];
-    int sPos = y0 * bgImage.getWidth();
-    int pos = 0;
-    float scaleX = (float) bgImage.getWidth() / bgImageSmall.getWidth();
-    float scaleY = (float) bgImage.getHeight() / bgImageSmall.getHeight();
-    int xMax = Math.min(x0 + width, bgImage.getWidth());
+    int bgWidth = bgImage.getWidth();
+    float scaleX = (bgImageSmall == null) ? 0 : (float) bgWidth / bgImageSmall.getWidth();
+    float scaleY =
+        (bgImageSmall == null) ? 0 : (float) bgImage.getHeight() / bgImageSmall.getHeight();
+    int xMin = Math.max(x0, 0);
+    int yMin = Math.max(y0, 0);
+    int xMax = Math.min(x0 + width, bgWidth);
     int yMax = Math.min(y0 + height, bgImage.getHeight());
+    if (xMin >= xMax || yMin >= yMax) return false;
 
+    Pixels bg = new Pixels(bgImage, xMin, yMin, xMax - xMin, yMax - yMin);
+    Pixels small = miniMapPixels(bgImageSmall, scaleX, scaleY, xMin, yMin, xMax, yMax);
     int bgCol = 0;
 
-    for (int y = y0; y < yMax; y++, pos += width, sPos += bgImage.getWidth()) {
-      if (y < 0) continue;
+    for (int y = yMin; y < yMax; y++) {
+      int pos = (y - y0) * width - x0;
+      int sPos = y * bgWidth;
       boolean drawSmallY = (y % scaleY) <= 0;
-      for (int x = x0; x < xMax; x++) {
-        if (x < 0) continue;
-        boolean drawSmallX = (x % scaleX) <= 0;
+      for (int x = xMin; x < xMax; x++) {
+        if (m[pos + x] == 0) continue;
         int s = stencil.get(sPos + x);
-        if (m[pos + x - x0] != 0) {
-          if ((s & checkMask) == 0) {
-            // special handling for objects with "NO DIG" stencil (basically arrows)
-            if ((s & Stencil.MSK_NO_DIG) != 0) {
-              // get object
-              SpriteObject spr = GameController.getLevel().getSprObject(Stencil.getObjectID(s));
-              // remove pixel from all object images
-              spr.setPixel(x - spr.getX(), y - spr.getY(), 0);
-            }
-            // erase pixel
-            stencil.set(sPos + x, s & Stencil.MSK_ERASE); // erase brick in stencil
-            bgImage.setRGB(x, y, bgCol); // erase pixel in bgIMage
-            if (drawSmallX && drawSmallY) {
-              int xCoord = (int) Math.floor(x / scaleX);
-              int yCoord = (int) Math.floor(y / scaleY);
-              bgImageSmall.setRGB(
-                  xCoord, yCoord, 0xff000000 /*bgCol*/); // erase pixel in bgIMageSmall
-            }
-          } else // don't erase pixel
-          ctrIndestructable++;
-        }
+        if ((s & checkMask) == 0) {
+          // special handling for objects with "NO DIG" stencil (basically arrows)
+          if ((s & Stencil.MSK_NO_DIG) != 0) {
+            // get object
+            SpriteObject spr = engine.getLevel().getSprObject(Stencil.getObjectID(s));
+            // remove pixel from all object images
+            spr.setPixel(x - spr.getX(), y - spr.getY(), 0);
+          }
+          // erase pixel
+          stencil.set(sPos + x, s & Stencil.MSK_ERASE); // erase brick in stencil
+          bg.set(x, y, bgCol); // erase pixel in bgIMage
+          if (small != null && drawSmallY && (x % scaleX) <= 0) {
+            int xCoord = (int) Math.floor(x / scaleX);
+            int yCoord = (int) Math.floor(y / scaleY);
+            small.set(xCoord, yCoord, 0xff000000 /*bgCol*/); // erase pixel in bgIMageSmall
+          }
+        } else // don't erase pixel
+        ctrIndestructable++;
       }
     }
+    if (small != null) small.commit();
+    engine.touch(xMin, yMin, xMax - xMin, yMax - yMin);
+    if (bg.commit()) engine.damage(xMin, yMin, xMax - xMin, yMax - yMin);
     return ctrIndestructable > maxMaskPixels[maskNum]; // to be checked
   }
 
   /**
    * Paint one step (of a stair created by a Builder
    *
+   * @param engine simulation engine
    * @param x0 x position in pixels
    * @param y0 y position in pixels
    * @param maskNum index of mask if there are multiple animation frames, else 0
    * @param color Color to use to paint the step in the background image
    */
-  public void paintStep(final int x0, final int y0, final int maskNum, final int color) {
-    BufferedImage bgImage = GameController.getBgImage();
-    BufferedImage bgImageSmall = MiniMap.getImage();
-    Stencil stencil = GameController.getStencil();
+  public void paintStep(
+      final SimulationEngine engine,
+      final int x0,
+      final int y0,
+      final int maskNum,
+      final int color) {
+    BufferedImage bgImage = engine.getBgImage();
+    BufferedImage bgImageSmall = engine.getMiniMap();
+    Stencil stencil = engine.getStencil();
     byte m[] = mask[maskNum];
-    int sPos = y0 * bgImage.getWidth();
-    int pos = 0;
-    float scaleX = (float) bgImage.getWidth() / bgImageSmall.getWidth();
-    float scaleY = (float) bgImage.getHeight() / bgImageSmall.getHeight();
-    int xMax = Math.min(x0 + width, bgImage.getWidth());
+    int bgWidth = bgImage.getWidth();
+    float scaleX = (bgImageSmall == null) ? 0 : (float) bgWidth / bgImageSmall.getWidth();
+    float scaleY =
+        (bgImageSmall == null) ? 0 : (float) bgImage.getHeight() / bgImageSmall.getHeight();
+    int xMin = Math.max(x0, 0);
+    int yMin = Math.max(y0, 0);
+    int xMax = Math.min(x0 + width, bgWidth);
     int yMax = Math.min(y0 + height, bgImage.getHeight());
+    if (xMin >= xMax || yMin >= yMax) return;
 
-    for (int y = y0; y < yMax; y++, pos += width, sPos += bgImage.getWidth()) {
+    Pixels bg = new Pixels(bgImage, xMin, yMin, xMax - xMin, yMax - yMin);
+    Pixels small = miniMapPixels(bgImageSmall, scaleX, scaleY, xMin, yMin, xMax, yMax);
+
+    for (int y = yMin; y < yMax; y++) {
+      int pos = (y - y0) * width - x0;
+      int sPos = y * bgWidth;
       boolean drawSmallY = (y % scaleY) <= 0;
-      if (y < 0) continue;
-      for (int x = x0; x < xMax; x++) {
-        if (x < 0) continue;
-        boolean drawSmallX = (x % scaleX) <= 0;
+      for (int x = xMin; x < xMax; x++) {
+        if (m[pos + x] == 0) continue;
+        // mask pixel set
         int s = stencil.get(sPos + x);
-        if (m[pos + x - x0] != 0) {
-          // mask pixel set
-          if ((s & Stencil.MSK_WALK_ON) == 0) s |= Stencil.MSK_BRICK;
-          stencil.set(sPos + x, s | Stencil.MSK_STAIR); // set type in stencil
-          bgImage.setRGB(x, y, color);
-          if (drawSmallX && drawSmallY) {
-            int xCoord = (int) Math.floor(x / scaleX);
-            int yCoord = (int) Math.floor(y / scaleY);
-            bgImageSmall.setRGB(xCoord, yCoord, color & 0xff00ff00); // green pixel in bgIMageSmall
-          }
+        if ((s & Stencil.MSK_WALK_ON) == 0) s |= Stencil.MSK_BRICK;
+        stencil.set(sPos + x, s | Stencil.MSK_STAIR); // set type in stencil
+        bg.set(x, y, color);
+        if (small != null && drawSmallY && (x % scaleX) <= 0) {
+          int xCoord = (int) Math.floor(x / scaleX);
+          int yCoord = (int) Math.floor(y / scaleY);
+          small.set(xCoord, yCoord, color & 0xff00ff00); // green pixel in bgIMageSmall
         }
       }
     }
+    if (small != null) small.commit();
+    engine.touch(xMin, yMin, xMax - xMin, yMax - yMin);
+    if (bg.commit()) engine.damage(xMin, yMin, xMax - xMin, yMax - yMin);
   }
 
   /**
    * Create stopper mask in the Stencil only (Lemming is assigned a Blocker/Stopper
    *
+   * @param engine simulation engine
    * @param x0 x position in pixels
    * @param y0 y position in pixels
    * @param xMid x position of Lemming's foot
    */
-  public void setStopperMask(final int x0, final int y0, final int xMid) {
-    BufferedImage bgImage = GameController.getBgImage();
-    Stencil stencil = GameController.getStencil();
+  public void setStopperMask(
+      final SimulationEngine engine, final int x0, final int y0, final int xMid) {
+    BufferedImage bgImage = engine.getBgImage();
+    Stencil stencil = engine.getStencil();
     byte m[] = mask[0];
     int sPos = y0 * bgImage.getWidth();
     int pos = 0;
@@ -200,19 +339,26 @@ public class Mask {
         }
       }
     }
+    engine.touch(x0, y0, xMax - x0, yMax - y0);
   }
 
   /**
    * Use mask to check bitmask properties of Stencil.
    *
+   * @param engine simulation engine
    * @param x0 x position in pixels
    * @param y0 y position in pixels
    * @param maskNum index of mask if there are multiple animation frames, else 0
    * @param type Stencil bitmask to check (may contain several attributes)
    * @return true if at least one pixel with one of the given attributes is found
    */
-  public boolean checkType(final int x0, final int y0, final int maskNum, final int type) {
-    Stencil stencil = GameController.getStencil();
+  public boolean checkType(
+      final SimulationEngine engine,
+      final int x0,
+      final int y0,
+      final int maskNum,
+      final int type) {
+    Stencil stencil = engine.getStencil();
     byte m[] = mask[maskNum];
     int sPos = y0 * stencil.getWidth();
     int pos = 0;
@@ -235,31 +381,35 @@ public class Mask {
   /**
    * Erase certain properties from Stencil bitmask.
    *
+   * @param engine simulation engine
    * @param x0 x position in pixels
    * @param y0 y position in pixels
    * @param maskNum index of mask if there are multiple animation frames, else 0
    * @param type Stencil bitmask to erase (may contain several attributes)
    */
-  public void clearType(final int x0, final int y0, final int maskNum, final int type) {
-    BufferedImage bgImage = GameController.getBgImage();
-    Stencil stencil = GameController.getStencil();
+  public void clearType(
+      final SimulationEngine engine,
+      final int x0,
+      final int y0,
+      final int maskNum,
+      final int type) {
+    Stencil stencil = engine.getStencil();
     byte m[] = mask[maskNum];
-    int sPos = y0 * bgImage.getWidth();
-    int pos = 0;
-    int xMax = Math.min(x0 + width, bgImage.getWidth());
-    int yMax = Math.min(y0 + height, bgImage.getHeight());
+    int sWidth = stencil.getWidth();
+    int xMin = Math.max(x0, 0);
+    int xMax = Math.min(x0 + width, sWidth);
+    int yMax = Math.min(y0 + height, stencil.getHeight());
 
-    for (int y = y0; y < yMax; y++, pos += width, sPos += bgImage.getWidth()) {
-      if (y < 0) continue;
-      for (int x = x0; x < xMax; x++) {
-        if (x < 0) continue;
-        if (m[pos + x - x0] != 0) {
-          int s = stencil.get(sPos + x);
-          stencil.set(sPos + x, s & ~type); // erase type in stencil
-          // bgImage.setRGB(x, y, 0xffff0000); // debug
-        }
+    for (int y = Math.max(y0, 0); y < yMax; y++) {
+      int pos = (y - y0) * width - x0;
+      int sPos = y * sWidth;
+      for (int x = xMin; x < xMax; x++) {
+        if (m[pos + x] == 0) continue;
+        int s = stencil.get(sPos + x);
+        if ((s & type) != 0) stencil.set(sPos + x, s & ~type); // erase type in stencil
       }
     }
+    engine.touch(xMin, y0, xMax - xMin, yMax - y0);
   }
 
   /**
@@ -45,6 +45,9 @@ public class MiniMap {
   /** Y scale */
   private static int scaleY;
 
+  /** flag: greenish tint was applied */
+  private static boolean tinted;
+
   /** height of mini map */
   private static int height;
 
@@ -61,29 +64,56 @@ public class MiniMap {
    * @param tint true: apply greenish tint, false: use original colors
    */
   public static void init(final int y, final int sx, final int sy, final boolean tint) {
+    SimulationEngine engine = GameController.getEngine();
+    boolean keep =
+        img != null
+            && engine.getMiniMap() == img
+            && engine.isMiniMapPristine()
+            && sx == scaleX
+            && sy == scaleY
+            && tint == tinted;
     yPos = y;
     scaleX = sx;
     scaleY = sy;
-    Level level = GameController.getLevel();
-    BufferedImage bgImage = GameController.getBgImage();
-    img = level.createMiniMap(img, bgImage, scaleX, scaleY, tint);
+    tinted = tint;
+    // after a restart the mini map was already restored together with the level
+    if (!keep) {
+      img = engine.getLevel().createMiniMap(img, engine.getBgImage(), scaleX, scaleY, tint);
+      engine.setMiniMap(img);
+    }
     width = img.getWidth();
     height = img.getHeight();
   }
 
+  /**
+   * Create the mini map again from the background image, e.g. after the level was restored to an
+   * earlier state. The image is reused, so the engine keeps updating it.
+   */
+  public static void refresh() {
+    SimulationEngine engine = GameController.getEngine();
+    if (img == null || engine.getMiniMap() != img) return;
+    engine.getLevel().createMiniMap(img, engine.getBgImage(), scaleX, scaleY, tinted);
+  }
+
   /**
    * Draw mini map.
    *
    * @param g Graphics object to draw on
+   * @param map mini map image (copy passed via the {@link RenderFrame})
    * @param x x position in pixels
    * @param y y position in pixels
    * @param xOfs horizontal level offset
    */
-  public static void draw(
-      final Graphics2D g, final int x, final int y, final int xOfs, final int wWidth) {
-    g.drawImage(img, x, y, null);
+  static void draw(
+      final Graphics2D g,
+      final BufferedImage map,
+      final int x,
+      final int y,
+      final int xOfs,
+      final int wWidth) {
+    g.drawImage(map, x, y, null);
     g.setColor(BORDER_COLOR);
-    g.drawRect(x + xOfs / scaleX, y, wWidth / scaleX, img.getHeight() - 1);
+    g.drawRect(x + xOfs / scaleX, y, wWidth / scaleX, map.getHeight() - 1);
   }
 
   /**
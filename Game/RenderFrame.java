@@ -0,0 +1,272 @@
+package Game;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Everything the render thread needs to draw one simulation frame.
+ *
+ * <p>Frames are filled by the simulation thread and handed over to the render thread via the
+ * {@link FrameExchange}. A frame is only written while the simulation thread owns it and only read
+ * while the render thread owns it, so its contents never change while it's drawn. Frames are
+ * reused: the Lemming and explosion entries are pooled and the terrain image is only updated where
+ * the level changed since the frame was filled the last time.
+ */
+final class RenderFrame {
+  /** Drawing state of one Lemming. */
+  static final class LemmingView {
+    /** Lemming (only used to request a skill) */
+    Lemming lemming;
+
+    /** image of the current animation frame */
+    BufferedImage image;
+
+    /** countdown image of a bomber (null: none) */
+    BufferedImage countdown;
+
+    /** selection image (null: none) */
+    BufferedImage select;
+
+    /** x position of the image in pixels */
+    int x;
+
+    /** y position of the image in pixels */
+    int y;
+
+    /** movement in x direction in this frame */
+    int moveX;
+
+    /** movement in y direction in this frame */
+    int moveY;
+
+    /** x coordinate of the middle in pixels */
+    int midX;
+
+    /** y coordinate of the middle in pixels */
+    int midY;
+
+    /** width in pixels */
+    int width;
+
+    /** name of the current skill (empty if the Lemming can't be selected) */
+    String name;
+
+    /** current skill */
+    Lemming.Type skill;
+
+    /** heading direction */
+    Lemming.Direction dir;
+
+    /** flag: Lemming is a climber */
+    boolean canClimb;
+
+    /** flag: Lemming is a floater */
+    boolean canFloat;
+
+    /** flag: a skill may be assigned to this Lemming */
+    boolean canChangeSkill;
+
+    /**
+     * Store the state of a Lemming.
+     *
+     * @param l Lemming
+     */
+    void set(final Lemming l) {
+      lemming = l;
+      image = l.getImage();
+      countdown = l.getCountdown();
+      select = l.getSelectImg();
+      x = l.screenX();
+      y = l.screenY();
+      moveX = l.moveX();
+      moveY = l.moveY();
+      midX = l.midX();
+      midY = l.midY();
+      width = l.width();
+      name = l.getName();
+      skill = l.getSkill();
+      dir = l.getDirection();
+      canClimb = l.canClimb();
+      canFloat = l.canFloat();
+      canChangeSkill = l.canChangeSkill();
+    }
+  }
+
+  /** Drawing state of one explosion. */
+  static final class ExplosionView {
+    /** flag: the explosion image is shown */
+    boolean showImage;
+
+    /** x position of the explosion image in pixels */
+    int imgX;
+
+    /** y position of the explosion image in pixels */
+    int imgY;
+
+    /** number of particles */
+    int num;
+
+    /** x positions of the particles in pixels */
+    int px[];
+
+    /** y positions of the particles in pixels */
+    int py[];
+
+    /** colors of the particles */
+    Color color[];
+
+    /** area covered by the explosion (level coordinates) */
+    final Rectangle bounds = new Rectangle();
+  }
+
+  /** game state when the frame was filled */
+  GameController.State gameState;
+
+  /** flag: frame contains a level */
+  boolean hasLevel;
+
+  /** time the frame was filled (System.nanoTime()) */
+  long updateTime;
+
+  /** duration of one simulation update in nanoseconds */
+  long updateNanos;
+
+  /** flag: simulation was advanced in the last update (Lemmings may be interpolated) */
+  boolean stepped;
+
+  /** horizontal scrolling offset in pixels */
+  int xPos;
+
+  /** background color of the level */
+  Color bgColor;
+
+  /** level objects in drawing order: "behind" objects first, then "in front" objects */
+  SpriteObject objects[] = new SpriteObject[0];
+
+  /** animation frame index of each level object */
+  int objFrames[] = new int[0];
+
+  /** number of "behind" objects at the start of the objects array */
+  int numBehind;
+
+  /** copy of the background image */
+  BufferedImage terrain;
+
+  /** sequence number of this frame (see {@link FrameExchange}) */
+  int seq;
+
+  /** sequence number of the last change of each terrain tile */
+  int tileSeq[];
+
+  /** copy of the mini map */
+  BufferedImage miniMap;
+
+  /** Lemmings (pooled, only the first numLemmings entries are valid) */
+  final ArrayList<LemmingView> lemmings = new ArrayList<LemmingView>();
+
+  /** number of valid Lemming entries */
+  int numLemmings;
+
+  /** explosions (pooled, only the first numExplosions entries are valid) */
+  final ArrayList<ExplosionView> explosions = new ArrayList<ExplosionView>();
+
+  /** number of valid explosion entries */
+  int numExplosions;
+
+  /** currently selected skill */
+  Lemming.Type selectedSkill;
+
+  /** values of the counters above the icons */
+  final int counters[] = new int[10];
+
+  /** pressed icons as bitmask (see {@link Icons#getPressed()}) */
+  int iconsPressed;
+
+  /** number of Lemmings out */
+  int numOut;
+
+  /** number of Lemmings saved */
+  int numLeft;
+
+  /** maximum number of Lemmings */
+  int numLemmingsMax;
+
+  /** time left in seconds */
+  int time;
+
+  /** flag: cheat mode is active */
+  boolean cheat;
+
+  /** x position in the level the stencil value was read from */
+  int stencilX;
+
+  /** y position in the level the stencil value was read from */
+  int stencilY;
+
+  /** stencil value at the mouse position (only in cheat mode) */
+  int stencilVal;
+
+  /** replay image (null: not in replay mode) */
+  BufferedImage replayImage;
+
+  /** current frame shown by the scrub bar */
+  int scrubFrame;
+
+  /** number of frames covered by the scrub bar */
+  int scrubLength;
+
+  /** first frame in which the replay differed from its recorded state hashes (-1: none) */
+  int divergentFrame;
+
+  /**
+   * Get a pooled Lemming entry.
+   *
+   * @param idx index
+   * @return entry
+   */
+  LemmingView lemming(final int idx) {
+    while (lemmings.size() <= idx) lemmings.add(new LemmingView());
+    return lemmings.get(idx);
+  }
+
+  /**
+   * Get a pooled explosion entry.
+   *
+   * @param idx index
+   * @return entry
+   */
+  ExplosionView explosion(final int idx) {
+    while (explosions.size() <= idx) explosions.add(new ExplosionView());
+    return explosions.get(idx);
+  }
+
+  /**
+   * Get time as String "minutes-seconds"
+   *
+   * @return time as String "minutes-seconds"
+   */
+  String getTimeString() {
+    String t1 = Integer.toString(time / 60);
+    String t2 = Integer.toString(time % 60);
+    if (t2.length() < 2) t2 = "0" + t2;
+    return t1 + "-" + t2;
+  }
+}
@@ -0,0 +1,67 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for ASSIGN_SKILL event
+ *
+ * @author Volker Oth
+ */
+class ReplayAssignSkillEvent extends ReplayEvent {
+  /** skill */
+  Lemming.Type skill;
+
+  /** Lemming: ID or index in the list of active Lemmings (see byIndex) */
+  int lemming;
+
+  /** flag: lemming is an index (replay format version 1) */
+  boolean byIndex;
+
+  /**
+   * Skill assigned
+   *
+   * @param ctr Frame counter
+   * @param s skill selected
+   * @param lem ID or index of the Lemming the skill was assigned to
+   * @param index true: lem is an index, false: lem is an ID
+   */
+  public ReplayAssignSkillEvent(
+      final int ctr, final Lemming.Type s, final int lem, final boolean index) {
+    super(ctr, ReplayStream.ASSIGN_SKILL);
+    skill = s;
+    lemming = lem;
+    byIndex = index;
+  }
+
+  /**
+   * Refer to the Lemming by its ID from now on.
+   *
+   * @param id ID of the Lemming
+   */
+  void setLemmingId(final int id) {
+    lemming = id;
+    byIndex = false;
+  }
+
+  /* (non-Javadoc)
+   * @see Game.ReplayEvent#toString()
+   */
+  @Override
+  public String toString() {
+    return super.toString() + ", " + skill.ordinal() + ", " + lemming;
+  }
+}
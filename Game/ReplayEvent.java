@@ -0,0 +1,49 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for one replay event.
+ *
+ * @author Volker Oth
+ */
+class ReplayEvent {
+  /** frame counter */
+  int frameCtr;
+
+  /** event type */
+  int type;
+
+  /**
+   * Constructor
+   *
+   * @param ctr frame counter
+   * @param t type
+   */
+  public ReplayEvent(final int ctr, final int t) {
+    frameCtr = ctr;
+    type = t;
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return "" + frameCtr + ", " + type;
+  }
+}
@@ -0,0 +1,46 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for MOVE_XPOS event.
+ *
+ * @author Volker Oth
+ */
+class ReplayMoveXPosEvent extends ReplayEvent {
+  /** screen x position */
+  int xPos;
+
+  /**
+   * Screen X position changed event
+   *
+   * @param ctr Frame counter
+   * @param x release x position
+   */
+  public ReplayMoveXPosEvent(final int ctr, final int x) {
+    super(ctr, ReplayStream.MOVE_XPOS);
+    xPos = x;
+  }
+
+  /* (non-Javadoc)
+   * @see Game.ReplayEvent#toString()
+   */
+  @Override
+  public String toString() {
+    return super.toString() + ", " + xPos;
+  }
+}
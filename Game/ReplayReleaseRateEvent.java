@@ -0,0 +1,45 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for SET_RELEASE_RATE event.
+ *
+ * @author Volker Oth
+ */
+class ReplayReleaseRateEvent extends ReplayEvent {
+  int releaseRate;
+
+  /**
+   * Release Rate changed event
+   *
+   * @param ctr Frame counter
+   * @param rate release rate value
+   */
+  public ReplayReleaseRateEvent(final int ctr, final int rate) {
+    super(ctr, ReplayStream.SET_RELEASE_RATE);
+    releaseRate = rate;
+  }
+
+  /* (non-Javadoc)
+   * @see Game.ReplayEvent#toString()
+   */
+  @Override
+  public String toString() {
+    return super.toString() + ", " + releaseRate;
+  }
+}
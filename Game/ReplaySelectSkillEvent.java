@@ -0,0 +1,45 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for SELECT_SKILL event.
+ *
+ * @author Volker Oth
+ */
+class ReplaySelectSkillEvent extends ReplayEvent {
+  Lemming.Type skill;
+
+  /**
+   * Skill selected
+   *
+   * @param ctr Frame counter
+   * @param s skill selected
+   */
+  public ReplaySelectSkillEvent(final int ctr, final Lemming.Type s) {
+    super(ctr, ReplayStream.SELECT_SKILL);
+    skill = s;
+  }
+
+  /* (non-Javadoc)
+   * @see Game.ReplayEvent#toString()
+   */
+  @Override
+  public String toString() {
+    return super.toString() + ", " + skill.ordinal();
+  }
+}
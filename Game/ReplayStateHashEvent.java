@@ -0,0 +1,43 @@
+package Game;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/** Storage class for STATE_HASH event. */
+class ReplayStateHashEvent extends ReplayEvent {
+  /** hash of the simulation state when the event was recorded */
+  long hash;
+
+  /**
+   * State hash event
+   *
+   * @param ctr Frame counter
+   * @param h state hash
+   */
+  public ReplayStateHashEvent(final int ctr, final long h) {
+    super(ctr, ReplayStream.STATE_HASH);
+    hash = h;
+  }
+
+  /* (non-Javadoc)
+   * @see Game.ReplayEvent#toString()
+   */
+  @Override
+  public String toString() {
+    // stored as two ints, like all other event values
+    return super.toString() + ", " + (int) (hash >> 32) + ", " + (int) hash;
+  }
+}
@@ -6,6 +6,8 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /*
  * Copyright 2009 Volker Oth
@@ -35,6 +37,26 @@ public class ReplayStream {
   static final int SELECT_SKILL = 2;
   static final int SET_RELEASE_RATE = 3;
   static final int NUKE = 4;
+  static final int STATE_HASH = 5;
+
+  /**
+   * version of the replay format: 1 (header "#REPLAY") refers to Lemmings by their index in the
+   * list of active Lemmings, 2 (header "#REPLAY 2") by their ID, 3 (header "#REPLAY 3") may
+   * contain STATE_HASH events
+   */
+  static final int VERSION = 3;
+
+  /** first line of a replay file */
+  private static final String HEADER = "#REPLAY";
+
+  /** thread writing replay files in the background */
+  private static final ExecutorService WRITER =
+      Executors.newSingleThreadExecutor(
+          r -> {
+            Thread t = new Thread(r, "Replay writer");
+            t.setDaemon(true);
+            return t;
+          });
 
   private ArrayList<ReplayEvent> events;
   private int replayIndex;
@@ -70,6 +92,45 @@ public class ReplayStream {
     return null; /* no more events for this frame */
   }
 
+  /**
+   * Set the replay position to a frame: the next event returned by {@link #getNext(int)} is the
+   * first one stored for this frame or later.
+   *
+   * @param ctr frame counter
+   */
+  public void seek(final int ctr) {
+    int i = 0;
+    while (i < events.size() && events.get(i).frameCtr < ctr) i++;
+    replayIndex = i;
+  }
+
+  /**
+   * Get the last event of a type stored before a frame.
+   *
+   * @param type event type
+   * @param ctr frame counter
+   * @return replay event or null if there's none
+   */
+  ReplayEvent getLast(final int type, final int ctr) {
+    ReplayEvent last = null;
+    for (ReplayEvent r : events) {
+      if (r.frameCtr >= ctr) break;
+      if (r.type == type) last = r;
+    }
+    return last;
+  }
+
+  /**
+   * Remove all events stored for a frame or later.
+   *
+   * @param ctr frame counter
+   */
+  public void truncate(final int ctr) {
+    int i = events.size();
+    while (i > 0 && events.get(i - 1).frameCtr >= ctr) events.remove(--i);
+    if (replayIndex > i) replayIndex = i;
+  }
+
   /** Clear the replay buffer. */
   public void clear() {
     events.clear();
@@ -103,16 +164,26 @@ public class ReplayStream {
       ArrayList<ReplayEvent> ev = new ArrayList<ReplayEvent>();
       BufferedReader f = new BufferedReader(new FileReader(file));
       String line = f.readLine();
-      if (!line.equals("#REPLAY")) {
+      int version;
+      if (line == null) version = -1;
+      else if (line.equals(HEADER)) version = 1;
+      else if (line.startsWith(HEADER + " "))
+        version = Integer.parseInt(line.substring(HEADER.length() + 1).trim());
+      else version = -1;
+      if (version < 1 || version > VERSION) {
         f.close();
         return null;
       }
       // read level info
       line = f.readLine();
+      if (line == null) {
+        f.close();
+        return null;
+      }
       String e[] = line.split(",");
       for (int j = 0; j < e.length; j++) e[j] = e[j].trim();
       ReplayLevelInfo rli = new ReplayLevelInfo();
-      if (e[0].charAt(0) != '#') {
+      if (e.length < 3 || e[0].isEmpty() || e[0].charAt(0) != '#') {
         f.close();
         return null;
       }
@@ -127,7 +198,7 @@ public class ReplayStream {
 
         switch (i[1]) {
           case ASSIGN_SKILL:
-            ev.add(new ReplayAssignSkillEvent(i[0], Lemming.Type.get(i[2]), i[3]));
+            ev.add(new ReplayAssignSkillEvent(i[0], Lemming.Type.get(i[2]), i[3], version == 1));
             break;
           case MOVE_XPOS:
             ev.add(new ReplayMoveXPosEvent(i[0], i[2]));
@@ -141,6 +212,9 @@ public class ReplayStream {
           case NUKE:
             ev.add(new ReplayEvent(i[0], NUKE));
             break;
+          case STATE_HASH:
+            ev.add(new ReplayStateHashEvent(i[0], ((long) i[2] << 32) | (i[3] & 0xffffffffL)));
+            break;
           default:
             return null;
         }
@@ -154,29 +228,93 @@ public class ReplayStream {
   }
 
   /**
-   * Store replay info in a file.
+   * Store replay info of the current level in a file.
    *
    * @param fname file name
    * @return true if save ok, false otherwise
    */
   public boolean save(final File file) {
-    try {
-      FileWriter f = new FileWriter(file);
-      f.write("#REPLAY\n");
-      LevelPack lp = GameController.getCurLevelPack();
-      f.write(
-          "#"
-              + lp.getName()
-              + ", "
-              + GameController.getCurDiffLevel()
-              + ", "
-              + GameController.getCurLevelNumber()
-              + "\n");
-      for (ReplayEvent r : events) {
-        f.write(r.toString() + "\n"); // will use toString of the correct child object
-      }
-      f.close();
+    return write(file, format(getCurLevelInfo()));
+  }
 
+  /**
+   * Store replay info in a file.
+   *
+   * @param file file
+   * @param info level the replay belongs to
+   * @return true if save ok, false otherwise
+   */
+  public boolean save(final File file, final ReplayLevelInfo info) {
+    return write(file, format(info));
+  }
+
+  /**
+   * Store replay info in a file without waiting for the file to be written. The replay is
+   * formatted in the calling thread, so it may be changed afterwards. The files are written one
+   * after the other in the order of the calls. Errors are ignored.
+   *
+   * @param file file
+   */
+  public void saveInBackground(final File file) {
+    final String text = format(getCurLevelInfo());
+    WRITER.execute(() -> write(file, text));
+  }
+
+  /**
+   * Get the level information of the current level.
+   *
+   * @return level information
+   */
+  private static ReplayLevelInfo getCurLevelInfo() {
+    ReplayLevelInfo info = new ReplayLevelInfo();
+    info.setLevelPack(GameController.getCurLevelPack().getName());
+    info.setDiffLevel(GameController.getCurDiffLevel());
+    info.setLvlNumber(GameController.getCurLevelNumber());
+    return info;
+  }
+
+  /**
+   * Format the replay info as written to a replay file.
+   *
+   * @param info level the replay belongs to
+   * @return contents of the replay file
+   */
+  private String format(final ReplayLevelInfo info) {
+    // Events of an old replay refer to Lemmings by index until they were played once. If none was
+    // played, the replay is written in the old format. Else it's written up to the first event
+    // which wasn't played. State hashes only exist in the current format.
+    boolean byIndex = true;
+    for (ReplayEvent r : events)
+      if (r instanceof ReplayAssignSkillEvent && !((ReplayAssignSkillEvent) r).byIndex
+          || r instanceof ReplayStateHashEvent) byIndex = false;
+    StringBuilder sb = new StringBuilder();
+    sb.append(byIndex ? HEADER : HEADER + " " + VERSION).append('\n');
+    sb.append(
+        "#"
+            + info.getLevelPack()
+            + ", "
+            + info.getDiffLevel()
+            + ", "
+            + info.getLvlNumber()
+            + "\n");
+    for (ReplayEvent r : events) {
+      if (!byIndex && r instanceof ReplayAssignSkillEvent && ((ReplayAssignSkillEvent) r).byIndex)
+        break;
+      sb.append(r.toString()).append('\n'); // will use toString of the correct child object
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Write formatted replay info to a file.
+   *
+   * @param file file
+   * @param text contents of the replay file
+   * @return true if save ok, false otherwise
+   */
+  private static boolean write(final File file, final String text) {
+    try (FileWriter f = new FileWriter(file)) {
+      f.write(text);
       return true;
     } catch (IOException e) {
       return false;
@@ -198,10 +336,10 @@ public class ReplayStream {
    *
    * @param ctr frame counter
    * @param skill skill assigned
-   * @param lemming Lemming the skill was assigned to
+   * @param lemming ID of the Lemming the skill was assigned to
    */
   public void addAssignSkillEvent(final int ctr, final Lemming.Type skill, final int lemming) {
-    ReplayAssignSkillEvent event = new ReplayAssignSkillEvent(ctr, skill, lemming);
+    ReplayAssignSkillEvent event = new ReplayAssignSkillEvent(ctr, skill, lemming, false);
     events.add(event);
   }
 
@@ -238,155 +376,15 @@ public class ReplayStream {
     ReplayReleaseRateEvent event = new ReplayReleaseRateEvent(ctr, releaserate);
     events.add(event);
   }
-}
-
-/**
- * Storage class for one replay event.
- *
- * @author Volker Oth
- */
-class ReplayEvent {
-  /** frame counter */
-  int frameCtr;
-
-  /** event type */
-  int type;
 
   /**
-   * Constructor
+   * Add STATE_HASH event (hash of the simulation state, used to detect diverging playback).
    *
    * @param ctr frame counter
-   * @param t type
-   */
-  public ReplayEvent(final int ctr, final int t) {
-    frameCtr = ctr;
-    type = t;
-  }
-
-  /* (non-Javadoc)
-   * @see java.lang.Object#toString()
-   */
-  @Override
-  public String toString() {
-    return "" + frameCtr + ", " + type;
-  }
-}
-
-/**
- * Storage class for ASSIGN_SKILL event
- *
- * @author Volker Oth
- */
-class ReplayAssignSkillEvent extends ReplayEvent {
-  /** skill */
-  Lemming.Type skill;
-
-  /** Lemming */
-  int lemming;
-
-  /**
-   * Skill assigned
-   *
-   * @param ctr Frame counter
-   * @param s skill selected
-   * @param lem lemming no. that the skill was assigned
-   */
-  public ReplayAssignSkillEvent(final int ctr, final Lemming.Type s, final int lem) {
-    super(ctr, ReplayStream.ASSIGN_SKILL);
-    skill = s;
-    lemming = lem;
-  }
-
-  /* (non-Javadoc)
-   * @see Game.ReplayEvent#toString()
-   */
-  @Override
-  public String toString() {
-    return super.toString() + ", " + skill.ordinal() + ", " + lemming;
-  }
-}
-
-/**
- * Storage class for SELECT_SKILL event.
- *
- * @author Volker Oth
- */
-class ReplaySelectSkillEvent extends ReplayEvent {
-  Lemming.Type skill;
-
-  /**
-   * Skill selected
-   *
-   * @param ctr Frame counter
-   * @param s skill selected
+   * @param hash state hash (see {@link SimulationEngine#stateHash()})
    */
-  public ReplaySelectSkillEvent(final int ctr, final Lemming.Type s) {
-    super(ctr, ReplayStream.SELECT_SKILL);
-    skill = s;
-  }
-
-  /* (non-Javadoc)
-   * @see Game.ReplayEvent#toString()
-   */
-  @Override
-  public String toString() {
-    return super.toString() + ", " + skill.ordinal();
-  }
-}
-
-/**
- * Storage class for MOVE_XPOS event.
- *
- * @author Volker Oth
- */
-class ReplayMoveXPosEvent extends ReplayEvent {
-  /** screen x position */
-  int xPos;
-
-  /**
-   * Screen X position changed event
-   *
-   * @param ctr Frame counter
-   * @param x release x position
-   */
-  public ReplayMoveXPosEvent(final int ctr, final int x) {
-    super(ctr, ReplayStream.MOVE_XPOS);
-    xPos = x;
-  }
-
-  /* (non-Javadoc)
-   * @see Game.ReplayEvent#toString()
-   */
-  @Override
-  public String toString() {
-    return super.toString() + ", " + xPos;
-  }
-}
-
-/**
- * Storage class for SET_RELEASE_RATE event.
- *
- * @author Volker Oth
- */
-class ReplayReleaseRateEvent extends ReplayEvent {
-  int releaseRate;
-
-  /**
-   * Release Rate changed event
-   *
-   * @param ctr Frame counter
-   * @param rate release rate value
-   */
-  public ReplayReleaseRateEvent(final int ctr, final int rate) {
-    super(ctr, ReplayStream.SET_RELEASE_RATE);
-    releaseRate = rate;
-  }
-
-  /* (non-Javadoc)
-   * @see Game.ReplayEvent#toString()
-   */
-  @Override
-  public String toString() {
-    return super.toString() + ", " + releaseRate;
+  public void addStateHashEvent(final int ctr, final long hash) {
+    ReplayStateHashEvent event = new ReplayStateHashEvent(ctr, hash);
+    events.add(event);
   }
 }
@@ -0,0 +1,231 @@
+package Game;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Command line verification of replays. Loads all replay files of a folder, simulates them at
+ * full speed on a fork-join pool and reports the number of saved Lemmings for each replay. Replays
+ * containing state hashes are also checked to play back exactly as recorded.
+ *
+ * <p>Every worker thread uses its own {@link Level} and {@link SimulationEngine}, so the replays
+ * don't share any simulation state.
+ */
+public class ReplayVerifier {
+  /** stop simulating a replay after 20 minutes of game time */
+  private static final int MAX_FRAMES = (int) (20 * 60 * SimulationEngine.MAX_SECOND_CTR);
+
+  /** simulation engine of each worker thread */
+  private static final ThreadLocal<SimulationEngine> ENGINE =
+      ThreadLocal.withInitial(() -> new SimulationEngine(new Level()));
+
+  /** level packs by name */
+  private final HashMap<String, LevelPack> levelPacks;
+
+  /**
+   * Constructor.
+   *
+   * @param packs list of available level packs
+   */
+  ReplayVerifier(final List<LevelPack> packs) {
+    levelPacks = new HashMap<String, LevelPack>();
+    for (LevelPack lp : packs) levelPacks.put(lp.getName(), lp);
+  }
+
+  /** Result of the verification of one replay. */
+  static class Result {
+    /** replay file */
+    final File file;
+
+    /** level information stored in the replay (null if the replay couldn't be loaded) */
+    ReplayLevelInfo info;
+
+    /** number of Lemmings saved */
+    int saved;
+
+    /** number of Lemmings which had to be saved */
+    int needed;
+
+    /** frame at which the level ended */
+    int frame;
+
+    /** first frame which differed from the state hashes stored in the replay (-1: none) */
+    int divergentFrame = -1;
+
+    /** first frame with a skill assignment to a Lemming which doesn't exist (-1: none) */
+    int unresolvedFrame = -1;
+
+    /** error message (null if the replay could be simulated) */
+    String error;
+
+    /**
+     * Constructor.
+     *
+     * @param f replay file
+     */
+    Result(final File f) {
+      file = f;
+    }
+
+    /**
+     * Get verification state.
+     *
+     * @return true if the replay could be simulated without diverging, all skill assignments could
+     *     be applied and enough Lemmings were saved
+     */
+    boolean passed() {
+      return error == null && saved >= needed && divergentFrame < 0 && unresolvedFrame < 0;
+    }
+
+    @Override
+    public String toString() {
+      StringBuffer sb = new StringBuffer();
+      sb.append(file.getName()).append(": ");
+      if (info != null)
+        sb.append(info.getLevelPack())
+            .append(" ")
+            .append(info.getDiffLevel())
+            .append(" ")
+            .append(info.getLvlNumber() + 1)
+            .append(": ");
+      if (error != null) sb.append("ERROR ").append(error);
+      else {
+        sb.append("saved ").append(saved).append(", needed ").append(needed);
+        sb.append(", frame ").append(frame);
+        if (divergentFrame >= 0) sb.append(", diverged at frame ").append(divergentFrame);
+        if (unresolvedFrame >= 0)
+          sb.append(", skill assigned to missing Lemming at frame ").append(unresolvedFrame);
+        sb.append(passed() ? " - OK" : " - FAILED");
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Simulate one replay in the engine of the calling thread.
+   *
+   * @param file replay file
+   * @return verification result
+   */
+  Result verify(final File file) {
+    Result res = new Result(file);
+    try {
+      ReplayStream replay = new ReplayStream();
+      res.info = replay.load(file);
+      if (res.info == null) {
+        res.error = "wrong format";
+        return res;
+      }
+      LevelPack lp = levelPacks.get(res.info.getLevelPack());
+      if (lp == null) {
+        res.error = "unknown level pack";
+        return res;
+      }
+      SimulationEngine engine = ENGINE.get();
+      String lvlPath = lp.getInfo(res.info.getDiffLevel(), res.info.getLvlNumber()).getFileName();
+      engine.getLevel().loadLevel(lvlPath, lp.getMaxFallDistance());
+      engine.initLevel();
+      replay.rewind();
+      while (!engine.isFinished() && engine.getFrame() < MAX_FRAMES) engine.step(replay);
+      res.saved = engine.getNumLeft();
+      res.needed = engine.getNumToRescue();
+      res.frame = engine.getFrame();
+      res.divergentFrame = engine.getDivergentFrame();
+      res.unresolvedFrame = engine.getUnresolvedFrame();
+    } catch (ResourceException ex) {
+      res.error = "missing resource " + ex.getMessage();
+    } catch (LemmException ex) {
+      res.error = ex.getMessage();
+    } catch (IndexOutOfBoundsException ex) {
+      // level doesn't exist
+      res.error = "replay doesn't match level";
+    } catch (RuntimeException ex) {
+      // a broken replay or level must not abort the verification of all other replays
+      res.error = ex.toString();
+    }
+    return res;
+  }
+
+  /**
+   * Verify all replays in a folder.
+   *
+   * @param dir folder containing the replay files
+   * @param threads number of worker threads
+   * @return list of results in the order of the (sorted) file names
+   */
+  List<Result> verifyAll(final File dir, final int threads) {
+    File files[] = dir.listFiles((d, name) -> name.toLowerCase().endsWith(".rpl"));
+    if (files == null) return new ArrayList<Result>();
+    Arrays.sort(files);
+
+    ArrayList<Callable<Result>> tasks = new ArrayList<Callable<Result>>(files.length);
+    for (File f : files) tasks.add(() -> verify(f));
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    ArrayList<Result> results = new ArrayList<Result>(files.length);
+    try {
+      for (Future<Result> f : pool.invokeAll(tasks)) results.add(f.get());
+    } catch (InterruptedException | ExecutionException ex) {
+      throw new RuntimeException(ex);
+    } finally {
+      pool.shutdown();
+    }
+    return results;
+  }
+
+  /**
+   * Command line entry: verify all replays in a folder and print the results.
+   *
+   * @param dir folder containing the replay files
+   * @param out stream to print the results to
+   * @return true if all replays passed, false otherwise
+   * @throws LemmException
+   * @throws ResourceException
+   */
+  public static boolean run(final File dir, final PrintStream out)
+      throws LemmException, ResourceException {
+    System.setProperty("java.awt.headless", "true");
+    Core.initHeadless();
+    Explosion.init();
+    Lemming.loadLemmings();
+
+    ReplayVerifier verifier = new ReplayVerifier(LevelPack.readLevelPacks());
+    long start = System.nanoTime();
+    List<Result> results = verifier.verifyAll(dir, Runtime.getRuntime().availableProcessors());
+    long millis = (System.nanoTime() - start) / 1000000;
+
+    int passed = 0;
+    for (Result r : results) {
+      out.println(r);
+      if (r.passed()) passed++;
+    }
+    out.println(
+        results.size() + " replays, " + passed + " passed, " + (results.size() - passed)
+            + " failed (" + millis + "ms)");
+    return passed == results.size();
+  }
+}
@@ -0,0 +1,1054 @@
+package Game;
+
+import GameUtil.Sound;
+import GameUtil.Sprite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Simulation of a single level. Holds the state of a running level (background image, stencil,
+ * Lemmings, explosions and skill counters) and advances it frame by frame.
+ *
+ * <p>The engine doesn't draw, doesn't wait and doesn't need a window, so it can also be used to
+ * simulate levels as fast as possible, e.g. to verify replays. {@link GameController} owns the
+ * engine used for the interactive game. Other engines may run in parallel as long as each one has
+ * its own {@link Level} object and is only used by one thread at a time.
+ */
+public class SimulationEngine {
+  /** redraw animated level obejcts every 3rd frame (about 100ms) */
+  static final int MAX_ANIM_CTR = 100 * 1000 / GameController.MICROSEC_PER_FRAME;
+
+  /** open Entry after about 1.5 seconds */
+  static final int MAX_ENTRY_OPEN_CTR = 1500 * 1000 / GameController.MICROSEC_PER_FRAME;
+
+  /** one second is 33.33 ticks (integer would cause error) */
+  static final double MAX_SECOND_CTR = 1000.0 * 1000 / GameController.MICROSEC_PER_FRAME;
+
+  /** maximum release rate */
+  static final int MAX_RELEASE_RATE = 99;
+
+  /** color used to erase the background (transparent) */
+  private static final Color BLANK_COLOR = new Color(0xff, 0, 0, 0);
+
+  /** level object */
+  private Level level;
+
+  /** the background image */
+  private BufferedImage bgImage;
+
+  /** the background stencil */
+  private Stencil stencil;
+
+  /** mini map image which is updated by mask operations (may be null) */
+  private BufferedImage miniMap;
+
+  /** copy of the freshly painted level used to restart it (null: none) */
+  private LevelSnapshot pristine;
+
+  /** flag: the mini map was restored together with the level and is still unchanged */
+  private boolean miniMapPristine;
+
+  /** sound object (null: no sound) */
+  private Sound sound;
+
+  /** listener informed about changes of the background image (may be null) */
+  private DamageListener damageListener;
+
+  /** copy-on-write snapshots of the terrain */
+  private final TerrainTiles tiles = new TerrainTiles();
+
+  /** all active Lemmings in the Level */
+  private final LemmingStore lemmings;
+
+  /** active Lemmings by ID (null: Lemming died or left the level) */
+  private Lemming lemmingsById[] = new Lemming[128];
+
+  /** ID of the next Lemming added to the level */
+  private int nextLemmingId;
+
+  /** list of all active explosions */
+  private final ArrayList<Explosion> explosions;
+
+  /** trap door logic */
+  private final TrapDoor trapDoor;
+
+  /** flag: cheat mode is active (no time limit, unlimited skills) */
+  private boolean cheat;
+
+  /** flag: level is finished (time is up or no Lemmings left) */
+  private boolean finished;
+
+  /** flag: entry is openend */
+  private boolean entryOpened;
+
+  /** flag: nuke was acticated */
+  private boolean nuke;
+
+  /** frame counter for handling opening of entries */
+  private int entryOpenCtr;
+
+  /** frame counter for handling time */
+  private double secondCtr;
+
+  /** frame counter used to handle release of new Lemmings */
+  private int releaseCtr;
+
+  /** threshold to release a new Lemming */
+  private int releaseBase;
+
+  /** frame counter used to update animated sprite objects */
+  private int animCtr;
+
+  /** free running update counter */
+  private int updateCtr;
+
+  /** number of frames simulated since the level was started (also used for replays) */
+  private int frame;
+
+  /** first frame whose state differed from the state hash stored in the replay (-1: none) */
+  private int divergentFrame = -1;
+
+  /** first frame in which the replay assigned a skill to a missing Lemming (-1: none) */
+  private int unresolvedFrame = -1;
+
+  /** number of Lemmings which left the level */
+  private int numLeft;
+
+  /** release rate 0..99 */
+  private int releaseRate;
+
+  /** number of Lemmings available */
+  private int numLemmingsMax;
+
+  /** number of Lemmings who entered the level */
+  private int numLemmingsOut;
+
+  /** number of Lemmings which have to be rescued to finish the level */
+  private int numToRescue;
+
+  /** time left in seconds */
+  private int time;
+
+  /** number of climber skills left to be assigned */
+  private int numClimbers;
+
+  /** number of floater skills left to be assigned */
+  private int numFloaters;
+
+  /** number of bomber skills left to be assigned */
+  private int numBombers;
+
+  /** number of blocker skills left to be assigned */
+  private int numBlockers;
+
+  /** number of builder skills left to be assigned */
+  private int numBuilders;
+
+  /** number of basher skills left to be assigned */
+  private int numBashers;
+
+  /** number of miner skills left to be assigned */
+  private int numMiners;
+
+  /** number of digger skills left to be assigned */
+  private int numDiggers;
+
+  /**
+   * Constructor.
+   *
+   * @param lvl level to simulate (must be loaded before {@link #initLevel()} is called)
+   * @param bg background image to paint the level into (Level.WIDTH x Level.HEIGHT)
+   */
+  public SimulationEngine(final Level lvl, final BufferedImage bg) {
+    level = lvl;
+    bgImage = bg;
+    lemmings = new LemmingStore(128);
+    explosions = new ArrayList<Explosion>();
+    trapDoor = new TrapDoor();
+  }
+
+  /**
+   * Constructor for an engine without a display.
+   *
+   * @param lvl level to simulate (must be loaded before {@link #initLevel()} is called)
+   */
+  public SimulationEngine(final Level lvl) {
+    this(lvl, new BufferedImage(Level.WIDTH, Level.HEIGHT, BufferedImage.TYPE_INT_ARGB));
+  }
+
+  /**
+   * Paint a level into a background image and stencil. The level isn't changed by the simulation,
+   * so this may be done in any thread for a level which isn't simulated.
+   *
+   * @param lvl loaded level
+   * @param bg background image (Level.WIDTH x Level.HEIGHT)
+   * @param s stencil to reuse (may be null)
+   * @return stencil of the level
+   */
+  static Stencil paintLevel(final Level lvl, final BufferedImage bg, final Stencil s) {
+    Graphics2D bgGfx = bg.createGraphics();
+    bgGfx.setBackground(BLANK_COLOR);
+    bgGfx.clearRect(0, 0, bg.getWidth(), bg.getHeight());
+    bgGfx.dispose();
+
+    return lvl.paintLevel(bg, s);
+  }
+
+  /** Initialize the level after it was loaded: paint it and reset all counters. */
+  public void initLevel() {
+    stencil = paintLevel(level, bgImage, stencil);
+    pristine = new LevelSnapshot(level, bgImage, stencil, pristine);
+    miniMapPristine = false;
+    reset();
+  }
+
+  /**
+   * Restart the level: restore the level as it was painted by the last {@link #initLevel()} and
+   * reset all counters. The level is painted again if there's no snapshot of it.
+   */
+  public void restartLevel() {
+    if (pristine == null || !pristine.isOf(level)) {
+      initLevel();
+      return;
+    }
+    miniMapPristine = pristine.restore(bgImage, stencil, miniMap);
+    reset();
+  }
+
+  /**
+   * Initialize a level which was already painted (see {@link #paintLevel(Level, BufferedImage,
+   * Stencil)}) and reset all counters. The engine uses the given level, background image and
+   * stencil from now on.
+   *
+   * @param lvl loaded and painted level
+   * @param bg background image the level was painted into
+   * @param s stencil of the level
+   */
+  void initLevel(final Level lvl, final BufferedImage bg, final Stencil s) {
+    level = lvl;
+    bgImage = bg;
+    stencil = s;
+    pristine = new LevelSnapshot(level, bgImage, stencil, pristine);
+    miniMapPristine = false;
+    reset();
+  }
+
+  /** Reset all counters and start the level. */
+  private void reset() {
+    damage(0, 0, bgImage.getWidth(), bgImage.getHeight());
+    tiles.reset(bgImage, stencil, pristine);
+
+    lemmings.clear();
+    Arrays.fill(lemmingsById, 0, nextLemmingId, null);
+    nextLemmingId = 0;
+    explosions.clear();
+
+    trapDoor.reset(level.getEntryNum());
+    finished = false;
+    nuke = false;
+    entryOpened = false;
+    entryOpenCtr = 0;
+    secondCtr = 0;
+    releaseCtr = 0;
+    animCtr = 0;
+    updateCtr = 0;
+    frame = 0;
+    divergentFrame = -1;
+    unresolvedFrame = -1;
+
+    numLeft = 0;
+    releaseRate = level.getReleaseRate();
+    numLemmingsMax = level.getNumLemmings();
+    numLemmingsOut = 0;
+    numToRescue = level.getNumToRescue();
+    time = level.getTimeLimitSeconds();
+    numClimbers = level.getNumClimbers();
+    numFloaters = level.getNumFloaters();
+    numBombers = level.getNumBombers();
+    numBlockers = level.getNumBlockers();
+    numBuilders = level.getNumBuilders();
+    numBashers = level.getNumBashers();
+    numMiners = level.getNumMiners();
+    numDiggers = level.getMumDiggers();
+
+    calcReleaseBase();
+  }
+
+  /** Simulate one frame. */
+  public void step() {
+    updateCtr++;
+    miniMapPristine = false;
+
+    // store locally to avoid it's overwritten amidst function
+    boolean nukeTemp = nuke;
+
+    // time
+    secondCtr += 1.0;
+    if (secondCtr > MAX_SECOND_CTR) {
+      // one second passed
+      secondCtr -= MAX_SECOND_CTR;
+      time--;
+      if (!cheat && time == 0) {
+        // level failed
+        finished = true;
+      }
+    }
+    // release
+    if (entryOpened
+        && !nukeTemp
+        && numLemmingsOut < numLemmingsMax
+        && ++releaseCtr >= releaseBase) {
+      releaseCtr = 0;
+      releaseLemming();
+    }
+    // nuking
+    if (nukeTemp && ((updateCtr & 1) == 1)) {
+      for (int i = 0; i < lemmings.size(); i++) {
+        Lemming l = lemmings.get(i);
+        if (!l.nuke() && !l.hasDied() && !l.hasLeft()) {
+          l.setSkill(Lemming.Type.NUKE);
+          break;
+        }
+      }
+    }
+    // open trap doors ?
+    if (!entryOpened) {
+      if (++entryOpenCtr == MAX_ENTRY_OPEN_CTR) {
+        for (int i = 0; i < level.getEntryNum(); i++)
+          level.getSprObject(level.getEntry(i).id).setAnimMode(Sprite.Animation.ONCE);
+        playSound(GameController.SND_DOOR);
+      } else if (entryOpenCtr == MAX_ENTRY_OPEN_CTR + 10 * MAX_ANIM_CTR) {
+        entryOpened = true;
+        releaseCtr = releaseBase; // first lemming to enter at once
+      }
+    }
+    // end of game conditions
+    if ((nukeTemp || numLemmingsOut == numLemmingsMax)
+        && explosions.size() == 0
+        && lemmings.size() == 0) {
+      finished = true;
+    }
+
+    // remove Lemmings which died or left the level in the previous frame, animate the others
+    for (int i = 0; i < lemmings.size(); i++) {
+      Lemming l = lemmings.get(i);
+      if (l.hasDied() || l.hasLeft()) lemmingsById[l.getId()] = null;
+    }
+    lemmings.removeDead();
+    for (int i = 0; i < lemmings.size(); i++) lemmings.get(i).animate();
+
+    // remove finished explosions, update the others (indices instead of an iterator to avoid
+    // allocations)
+    int numExplosions = 0;
+    for (int i = 0; i < explosions.size(); i++) {
+      Explosion e = explosions.get(i);
+      if (e.isFinished()) continue;
+      e.update();
+      explosions.set(numExplosions++, e);
+    }
+    for (int i = explosions.size() - 1; i >= numExplosions; i--) explosions.remove(i);
+
+    // animate level objects
+    if (++animCtr > MAX_ANIM_CTR) {
+      animCtr -= MAX_ANIM_CTR;
+      for (int n = 0; n < level.getSprObjectNum(); n++) {
+        SpriteObject spr = level.getSprObject(n);
+        spr.getImageAnim(); // just to animate
+      }
+    }
+
+    frame++;
+  }
+
+  /**
+   * Simulate one frame of a replay: apply all replay events stored for this frame, then simulate.
+   *
+   * @param replay replay stream to read the events from
+   */
+  public void step(final ReplayStream replay) {
+    ReplayEvent r;
+    while ((r = replay.getNext(frame)) != null) applyReplayEvent(r);
+    step();
+  }
+
+  /**
+   * Apply a replay event. Only events which change the simulation are handled, events which only
+   * concern the display (screen position, selected skill icon) are ignored. State hashes are
+   * compared with the current state (see {@link #getDivergentFrame()}).
+   *
+   * @param r replay event
+   * @return true if the event was handled, false otherwise
+   */
+  boolean applyReplayEvent(final ReplayEvent r) {
+    switch (r.type) {
+      case ReplayStream.ASSIGN_SKILL:
+        {
+          ReplayAssignSkillEvent rs = (ReplayAssignSkillEvent) r;
+          Lemming l;
+          if (rs.byIndex) {
+            // old replay: resolve the index once, from now on the event refers to the ID
+            l = (rs.lemming >= 0 && rs.lemming < lemmings.size()) ? lemmings.get(rs.lemming) : null;
+            if (l != null) rs.setLemmingId(l.getId());
+          } else l = getLemming(rs.lemming);
+          if (l == null) {
+            // replay doesn't match the level
+            if (unresolvedFrame < 0) unresolvedFrame = frame;
+            return true;
+          }
+          l.setSkill(rs.skill);
+          l.setSelected();
+          switch (rs.skill) {
+            case FLOATER:
+              numFloaters -= 1;
+              break;
+            case CLIMBER:
+              numClimbers -= 1;
+              break;
+            case BOMBER:
+              numBombers -= 1;
+              break;
+            case DIGGER:
+              numDiggers -= 1;
+              break;
+            case BASHER:
+              numBashers -= 1;
+              break;
+            case BUILDER:
+              numBuilders -= 1;
+              break;
+            case MINER:
+              numMiners -= 1;
+              break;
+            case STOPPER:
+              numBlockers -= 1;
+              break;
+          }
+          playSound(GameController.SND_CHANGE_OP);
+          return true;
+        }
+      case ReplayStream.SET_RELEASE_RATE:
+        ReplayReleaseRateEvent rr = (ReplayReleaseRateEvent) r;
+        setReleaseRate(rr.releaseRate);
+        if (sound != null) sound.playPitched(releaseRate);
+        return true;
+      case ReplayStream.NUKE:
+        nuke = true;
+        return true;
+      case ReplayStream.STATE_HASH:
+        if (divergentFrame < 0 && ((ReplayStateHashEvent) r).hash != stateHash())
+          divergentFrame = frame;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Assign a skill to a Lemming if the skill is still available.
+   *
+   * @param lemm Lemming
+   * @param skill skill to assign
+   * @return true if the skill was assigned, false otherwise
+   */
+  public boolean assignSkill(final Lemming lemm, final Lemming.Type skill) {
+    if (cheat) return lemm.setSkill(skill);
+
+    switch (skill) {
+      case BASHER:
+        if (numBashers > 0 && lemm.setSkill(skill)) {
+          numBashers -= 1;
+          return true;
+        }
+        break;
+      case BOMBER:
+        if (numBombers > 0 && lemm.setSkill(skill)) {
+          numBombers -= 1;
+          return true;
+        }
+        break;
+      case BUILDER:
+        if (numBuilders > 0 && lemm.setSkill(skill)) {
+          numBuilders -= 1;
+          return true;
+        }
+        break;
+      case CLIMBER:
+        if (numClimbers > 0 && lemm.setSkill(skill)) {
+          numClimbers -= 1;
+          return true;
+        }
+        break;
+      case DIGGER:
+        if (numDiggers > 0 && lemm.setSkill(skill)) {
+          numDiggers -= 1;
+          return true;
+        }
+        break;
+      case FLOATER:
+        if (numFloaters > 0 && lemm.setSkill(skill)) {
+          numFloaters -= 1;
+          return true;
+        }
+        break;
+      case MINER:
+        if (numMiners > 0 && lemm.setSkill(skill)) {
+          numMiners -= 1;
+          return true;
+        }
+        break;
+      case STOPPER:
+        if (numBlockers > 0 && lemm.setSkill(skill)) {
+          numBlockers -= 1;
+          return true;
+        }
+        break;
+    }
+    return false;
+  }
+
+  /**
+   * Get number of skills of the given type left to be assigned.
+   *
+   * @param skill skill type
+   * @return number of skills left (0 for types which are no skills)
+   */
+  public int getNumSkills(final Lemming.Type skill) {
+    return switch (skill) {
+      case CLIMBER -> numClimbers;
+      case FLOATER -> numFloaters;
+      case BOMBER -> numBombers;
+      case STOPPER -> numBlockers;
+      case BUILDER -> numBuilders;
+      case BASHER -> numBashers;
+      case MINER -> numMiners;
+      case DIGGER -> numDiggers;
+      default -> 0;
+    };
+  }
+
+  /** Calculate the counter threshold for releasing a new Lemmings. */
+  private void calcReleaseBase() {
+    // the original formula is: release lemming every 4+(99-speed)/2 time steps
+    // where one step is 60ms (3s/50) or 66ms (4s/60).
+    // Lemmini runs at 30ms/33ms, so the term has to be multiplied by 2
+    // 8+(99-releaseRate) should be correct
+    releaseBase = 8 + (99 - releaseRate);
+  }
+
+  /**
+   * Play a sound (if a sound object is attached).
+   *
+   * @param idx index of the sound
+   */
+  void playSound(final int idx) {
+    if (sound != null) sound.play(idx);
+  }
+
+  /**
+   * Inform the damage listener about a change of the background image.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param width width in pixels
+   * @param height height in pixels
+   */
+  public void damage(final int x, final int y, final int width, final int height) {
+    tiles.touch(x, y, width, height);
+    if (damageListener != null) damageListener.damaged(x, y, width, height);
+  }
+
+  /**
+   * Remember a change of the stencil which doesn't change the background image.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param width width in pixels
+   * @param height height in pixels
+   */
+  void touch(final int x, final int y, final int width, final int height) {
+    tiles.touch(x, y, width, height);
+  }
+
+  /**
+   * Get the copy-on-write snapshots of the terrain.
+   *
+   * @return terrain tiles
+   */
+  TerrainTiles getTerrainTiles() {
+    return tiles;
+  }
+
+  /**
+   * Take a keyframe of the current state. The keyframe can only be restored until the level is
+   * restarted.
+   *
+   * @return keyframe (has to be released when it's not needed any more)
+   */
+  Keyframe takeKeyframe() {
+    Keyframe k = new Keyframe(level, frame);
+    k.terrain = tiles.snapshot();
+    k.storeObjects();
+    k.lemmings = new LemmingStore(Math.max(lemmings.size(), 1));
+    k.lemmings.copyFrom(lemmings);
+    k.lemmingIds = new int[lemmings.size()];
+    for (int i = 0; i < lemmings.size(); i++) k.lemmingIds[i] = lemmings.get(i).getId();
+    k.nextLemmingId = nextLemmingId;
+    for (Explosion e : explosions) k.explosions.add(new Explosion(e));
+    k.trapDoor.copyFrom(trapDoor);
+    k.finished = finished;
+    k.entryOpened = entryOpened;
+    k.nuke = nuke;
+    k.entryOpenCtr = entryOpenCtr;
+    k.secondCtr = secondCtr;
+    k.releaseCtr = releaseCtr;
+    k.animCtr = animCtr;
+    k.updateCtr = updateCtr;
+    k.numLeft = numLeft;
+    k.releaseRate = releaseRate;
+    k.numLemmingsMax = numLemmingsMax;
+    k.numLemmingsOut = numLemmingsOut;
+    k.numToRescue = numToRescue;
+    k.time = time;
+    k.numSkills[0] = numClimbers;
+    k.numSkills[1] = numFloaters;
+    k.numSkills[2] = numBombers;
+    k.numSkills[3] = numBlockers;
+    k.numSkills[4] = numBuilders;
+    k.numSkills[5] = numBashers;
+    k.numSkills[6] = numMiners;
+    k.numSkills[7] = numDiggers;
+    return k;
+  }
+
+  /**
+   * Restore the state stored in a keyframe. Lemmings of the current state are removed from the
+   * level, the restored Lemmings are new objects with the same IDs. The mini map isn't updated.
+   *
+   * @param k keyframe taken by {@link #takeKeyframe()} since the level was (re)started
+   */
+  void restoreKeyframe(final Keyframe k) {
+    if (k.level != level)
+      throw new IllegalStateException("Keyframe doesn't belong to the current level");
+    tiles.restore(k.terrain, damageListener);
+    k.restoreObjects();
+    miniMapPristine = false;
+
+    Arrays.fill(lemmingsById, 0, nextLemmingId, null);
+    lemmings.copyFrom(k.lemmings);
+    nextLemmingId = k.nextLemmingId;
+    if (lemmingsById.length < nextLemmingId)
+      lemmingsById = Arrays.copyOf(lemmingsById, Math.max(nextLemmingId, 2 * lemmingsById.length));
+    for (int i = 0; i < lemmings.size(); i++)
+      lemmingsById[k.lemmingIds[i]] = new Lemming(this, lemmings, i, k.lemmingIds[i]);
+    explosions.clear();
+    for (Explosion e : k.explosions) explosions.add(new Explosion(e));
+    trapDoor.copyFrom(k.trapDoor);
+
+    frame = k.frame;
+    if (divergentFrame >= frame) divergentFrame = -1; // will be checked again
+    if (unresolvedFrame >= frame) unresolvedFrame = -1;
+    finished = k.finished;
+    entryOpened = k.entryOpened;
+    nuke = k.nuke;
+    entryOpenCtr = k.entryOpenCtr;
+    secondCtr = k.secondCtr;
+    releaseCtr = k.releaseCtr;
+    animCtr = k.animCtr;
+    updateCtr = k.updateCtr;
+    numLeft = k.numLeft;
+    releaseRate = k.releaseRate;
+    numLemmingsMax = k.numLemmingsMax;
+    numLemmingsOut = k.numLemmingsOut;
+    numToRescue = k.numToRescue;
+    time = k.time;
+    numClimbers = k.numSkills[0];
+    numFloaters = k.numSkills[1];
+    numBombers = k.numSkills[2];
+    numBlockers = k.numSkills[3];
+    numBuilders = k.numSkills[4];
+    numBashers = k.numSkills[5];
+    numMiners = k.numSkills[6];
+    numDiggers = k.numSkills[7];
+    calcReleaseBase();
+  }
+
+  /**
+   * Get a hash of the simulation state. States with equal hashes behave equally in all following
+   * frames (barring hash collisions), no matter how they were reached. Visual-only state (e.g.
+   * background image, explosion particles and selection markers) isn't included.
+   *
+   * <p>The stencil keeps its hash up to date with every change (see {@link Stencil#getHash()}),
+   * so the cost only depends on the number of Lemmings and objects, not on the level size.
+   *
+   * @return hash
+   */
+  long stateHash() {
+    long h = mix(frame);
+    h = mix(h + releaseCtr);
+    h = mix(h + entryOpenCtr);
+    h = mix(h + animCtr);
+    h = mix(h + updateCtr);
+    h = mix(h + Double.doubleToLongBits(secondCtr));
+    h = mix(h + ((finished ? 1 : 0) | (entryOpened ? 2 : 0) | (nuke ? 4 : 0)));
+    h = mix(h + releaseRate);
+    h = mix(h + numLeft);
+    h = mix(h + numLemmingsOut);
+    h = mix(h + time);
+    h = mix(h + trapDoor.getCounter());
+    h = mix(h + numClimbers + (numFloaters << 8) + (numBombers << 16) + (numBlockers << 24));
+    h = mix(h + numBuilders + (numBashers << 8) + (numMiners << 16) + (numDiggers << 24));
+    for (int n = 0; n < level.getSprObjectNum(); n++) {
+      SpriteObject spr = level.getSprObject(n);
+      h = mix(h + spr.getFrameIdx() + (spr.isTriggered() ? 1L << 32 : 0));
+    }
+    LemmingStore s = lemmings;
+    for (int i = 0; i < s.size(); i++) {
+      h = mix(h + s.x[i] + ((long) s.y[i] << 16) + ((long) s.frameIdx[i] << 32));
+      h = mix(h + s.type[i] + (s.dir[i] << 8) + (s.flags[i] << 16) + ((long) s.counter[i] << 32));
+      h = mix(h + s.counter2[i] + ((long) s.explodeNumCtr[i] << 32));
+      h = mix(h + s.explodeCtr[i] + ((long) s.maskX[i] << 16) + ((long) s.maskY[i] << 40));
+    }
+    return h ^ stencil.getHash();
+  }
+
+  /**
+   * Mix the bits of a value (finalizer of the SplitMix64 generator).
+   *
+   * @param z value
+   * @return mixed value
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Add a new explosion.
+   *
+   * @param x x coordinate in pixels.
+   * @param y y coordinate in pixels.
+   */
+  void addExplosion(final int x, final int y) {
+    explosions.add(new Explosion(level, x, y));
+  }
+
+  /** Lemming has left the Level. */
+  void increaseLeft() {
+    numLeft += 1;
+  }
+
+  /** Release a Lemming from the next trap door. */
+  void releaseLemming() {
+    try {
+      if (level.getEntryNum() != 0) {
+        Entry e = level.getEntry(trapDoor.getNext());
+        Lemming l = new Lemming(this, e.xPos + 2, e.yPos + 20);
+        addLemming(l);
+        numLemmingsOut++;
+      }
+    } catch (ArrayIndexOutOfBoundsException ex) {
+    }
+  }
+
+  /**
+   * Add a lemming.
+   *
+   * @param l the lemming to add
+   */
+  public void addLemming(final Lemming l) {
+    if (nextLemmingId == lemmingsById.length)
+      lemmingsById = Arrays.copyOf(lemmingsById, 2 * lemmingsById.length);
+    l.setId(nextLemmingId);
+    lemmingsById[nextLemmingId++] = l;
+    lemmings.add(l);
+  }
+
+  /**
+   * Get an active Lemming by its ID.
+   *
+   * @param id ID (see {@link Lemming#getId()})
+   * @return Lemming or null if there's no active Lemming with this ID
+   */
+  public Lemming getLemming(final int id) {
+    if (id < 0 || id >= nextLemmingId) return null;
+    return lemmingsById[id];
+  }
+
+  /**
+   * Get number of active Lemmings.
+   *
+   * @return number of active Lemmings
+   */
+  public int getNumLemmings() {
+    return lemmings.size();
+  }
+
+  /**
+   * Get an active Lemming by its position in the list of active Lemmings. The list is ordered by
+   * the time the Lemmings were added. Lemmings which died or left the level in the current frame
+   * are only removed at the start of the next frame.
+   *
+   * @param idx index (0..getNumLemmings()-1)
+   * @return active Lemming
+   */
+  public Lemming getLemmingAt(final int idx) {
+    return lemmings.get(idx);
+  }
+
+  /**
+   * Get list of all active explosions.
+   *
+   * @return list of all active explosions
+   */
+  public ArrayList<Explosion> getExplosions() {
+    return explosions;
+  }
+
+  /**
+   * Get level object.
+   *
+   * @return level object
+   */
+  public Level getLevel() {
+    return level;
+  }
+
+  /**
+   * Get background image of level.
+   *
+   * @return background image of level
+   */
+  public BufferedImage getBgImage() {
+    return bgImage;
+  }
+
+  /**
+   * Get background stencil of level.
+   *
+   * @return background stencil of level
+   */
+  public Stencil getStencil() {
+    return stencil;
+  }
+
+  /**
+   * Set mini map image which is updated by mask operations.
+   *
+   * @param img mini map image (null: don't update a mini map)
+   */
+  public void setMiniMap(final BufferedImage img) {
+    miniMap = img;
+    // the mini map is created before the level is started, so it's still unchanged here
+    if (pristine != null) pristine.setMiniMap(img);
+    miniMapPristine = false;
+  }
+
+  /**
+   * Get mini map image which is updated by mask operations.
+   *
+   * @return mini map image (may be null)
+   */
+  public BufferedImage getMiniMap() {
+    return miniMap;
+  }
+
+  /**
+   * Check if the mini map was restored by {@link #restartLevel()}, so it doesn't need to be
+   * created again.
+   *
+   * @return true if the mini map shows the unchanged level
+   */
+  public boolean isMiniMapPristine() {
+    return miniMapPristine;
+  }
+
+  /**
+   * Set listener to inform about changes of the background image.
+   *
+   * @param l damage listener (null: no listener)
+   */
+  public void setDamageListener(final DamageListener l) {
+    damageListener = l;
+  }
+
+  /**
+   * Set sound object.
+   *
+   * @param s sound object (null: no sound)
+   */
+  public void setSound(final Sound s) {
+    sound = s;
+  }
+
+  /**
+   * Enable/disable cheat mode.
+   *
+   * @param c true: enable, false: disable
+   */
+  public void setCheat(final boolean c) {
+    cheat = c;
+  }
+
+  /**
+   * Get finished state.
+   *
+   * @return true if the level is finished (time is up or no Lemmings left), false otherwise
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * Get entry state.
+   *
+   * @return true if the entries are opened, false otherwise
+   */
+  public boolean isEntryOpened() {
+    return entryOpened;
+  }
+
+  /** Nuke all Lemmings. */
+  public void nuke() {
+    nuke = true;
+  }
+
+  /**
+   * Get nuke state.
+   *
+   * @return true if the Lemmings are nuked, false otherwise
+   */
+  public boolean isNuked() {
+    return nuke;
+  }
+
+  /**
+   * Get the first frame in which the simulation differed from the state hashes stored in the
+   * replay which was played back.
+   *
+   * @return frame number or -1 if no difference was found
+   */
+  public int getDivergentFrame() {
+    return divergentFrame;
+  }
+
+  /**
+   * Get the first frame in which the replay which was played back assigned a skill to a Lemming
+   * which doesn't exist.
+   *
+   * @return frame number or -1 if all skill assignments could be applied
+   */
+  public int getUnresolvedFrame() {
+    return unresolvedFrame;
+  }
+
+  /**
+   * Get number of frames simulated since the level was started.
+   *
+   * @return number of frames
+   */
+  public int getFrame() {
+    return frame;
+  }
+
+  /**
+   * Set release rate.
+   *
+   * @param r release rate 0..99
+   */
+  public void setReleaseRate(final int r) {
+    releaseRate = r;
+    calcReleaseBase();
+  }
+
+  /**
+   * Get release rate.
+   *
+   * @return release rate 0..99
+   */
+  public int getReleaseRate() {
+    return releaseRate;
+  }
+
+  /**
+   * Get number of Lemmings which left the level.
+   *
+   * @return number of Lemmings which left the level
+   */
+  public int getNumLeft() {
+    return numLeft;
+  }
+
+  /**
+   * Set number of Lemmings which left the level.
+   *
+   * @param n number of Lemmings which left the level
+   */
+  public void setNumLeft(final int n) {
+    numLeft = n;
+  }
+
+  /**
+   * Get maximum number of Lemmings for this level.
+   *
+   * @return maximum number of Lemmings for this level
+   */
+  public int getNumLemmingsMax() {
+    return numLemmingsMax;
+  }
+
+  /**
+   * Set maximum number of Lemmings released from the trap doors.
+   *
+   * @param num maximum number of Lemmings
+   */
+  void setNumLemmingsMax(final int num) {
+    numLemmingsMax = num;
+  }
+
+  /**
+   * Get number of Lemmings who entered the level.
+   *
+   * @return number of Lemmings who entered the level
+   */
+  public int getNumLemmingsOut() {
+    return numLemmingsOut;
+  }
+
+  /**
+   * Get number of Lemmings to rescue.
+   *
+   * @return number of Lemmings to rescue
+   */
+  public int getNumToRescue() {
+    return numToRescue;
+  }
+
+  /**
+   * Get time left in seconds.
+   *
+   * @return time left in seconds
+   */
+  public int getTime() {
+    return time;
+  }
+}
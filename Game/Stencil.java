@@ -1,5 +1,7 @@
 package Game;
 
+import java.util.Arrays;
+
 /*
  * Copyright 2009 Volker Oth
  *
@@ -87,8 +89,35 @@ public class Stencil {
   /** number of bits the identifier is shifter up (below is the bitmask part) */
   private static final int ID_SHIFT_VAL = 16;
 
-  /** array which represents the stencil buffer */
-  private int stencil[];
+  /** bitmask part of a stencil value as stored in the mask array */
+  private static final int MASK_BITS = 0x7fff;
+
+  /** internal flag in the mask array: an identifier is stored for this position */
+  private static final int HAS_ID = 0x8000;
+
+  /* The stencil is not stored as one int per pixel:
+   * - the bitmask part is stored in a char array (row major, same index as the position)
+   * - the identifiers are only used by few pixels (traps, exits etc.) and are stored in a small
+   *   hash map. The HAS_ID flag in the mask array avoids the lookup for all other pixels.
+   * - the MSK_WALK_ON property is additionally stored in a bitplane in column major order. It
+   *   is used to (re)build a run length index of each column, so the vertical queries done by
+   *   the Lemmings (free pixels below etc.) are binary searches.
+   */
+
+  /** bitmask part of the stencil values */
+  private final char mask[];
+
+  /** identifiers of the positions with the HAS_ID flag */
+  private final IdMap ids;
+
+  /** MSK_WALK_ON bitplane, one bit per pixel, column major */
+  private final long walkOn[];
+
+  /** number of longs used per column in the bitplane */
+  private final int colWords;
+
+  /** run length index of the solid and empty spans of each column */
+  private final ColumnRuns columns;
 
   /** width of stencil (=width of level) */
   private int width;
@@ -96,6 +125,9 @@ public class Stencil {
   /** height of stencil (=height of level) */
   private int height;
 
+  /** sum of the hashes of all non-empty positions, updated by every change */
+  private long hash;
+
   /**
    * Constructor.
    *
@@ -105,13 +137,35 @@ public class Stencil {
   public Stencil(final int w, final int h) {
     width = w;
     height = h;
-    stencil = new int[width * height];
+    mask = new char[width * height];
+    ids = new IdMap();
+    colWords = (height + 63) >> 6;
+    walkOn = new long[width * colWords];
+    columns = new ColumnRuns(walkOn, width, height, colWords);
   }
 
   /** Clear stencil (fill with MSK_EMPTY). */
   public void clear() {
-    int size = width * height;
-    for (int idx = 0; idx < size; idx++) stencil[idx] = MSK_EMPTY;
+    Arrays.fill(mask, (char) MSK_EMPTY);
+    Arrays.fill(walkOn, 0);
+    ids.clear();
+    columns.invalidateAll();
+    hash = 0;
+  }
+
+  /**
+   * Copy the contents of another stencil of the same size.
+   *
+   * @param src stencil to copy
+   */
+  public void copyFrom(final Stencil src) {
+    if (src.width != width || src.height != height)
+      throw new IllegalArgumentException("Stencil size mismatch");
+    System.arraycopy(src.mask, 0, mask, 0, mask.length);
+    System.arraycopy(src.walkOn, 0, walkOn, 0, walkOn.length);
+    ids.copyFrom(src.ids);
+    columns.invalidateAll();
+    hash = src.hash;
   }
 
   /**
@@ -122,7 +176,7 @@ public class Stencil {
    * @param val stencil value
    */
   public void set(final int x, final int y, final int val) {
-    stencil[x + y * width] = val;
+    set(x + y * width, val);
   }
 
   /**
@@ -132,7 +186,47 @@ public class Stencil {
    * @param val stencil value
    */
   public void set(final int pos, final int val) {
-    stencil[pos] = val;
+    int oldVal = get(pos);
+    int newVal = val & ~HAS_ID; // value as returned by get()
+    if (oldVal == newVal) return;
+    hash += hash(pos, newVal) - hash(pos, oldVal);
+    int old = mask[pos];
+    int m = val & MASK_BITS;
+    int id = val >> ID_SHIFT_VAL;
+    if (id != 0) {
+      ids.put(pos, id);
+      m |= HAS_ID;
+    } else if ((old & HAS_ID) != 0) ids.remove(pos);
+    mask[pos] = (char) m;
+
+    if (((old ^ m) & MSK_WALK_ON) == 0) return;
+    int y = pos / width;
+    int x = pos - y * width;
+    int idx = x * colWords + (y >> 6);
+    if ((m & MSK_WALK_ON) != 0) walkOn[idx] |= 1L << y;
+    else walkOn[idx] &= ~(1L << y);
+    columns.invalidate(x);
+  }
+
+  /**
+   * Get the hash of a stencil value at a position.
+   *
+   * @param pos position
+   * @param val stencil value
+   * @return hash (0 for MSK_EMPTY)
+   */
+  private static long hash(final int pos, final int val) {
+    return (val == MSK_EMPTY) ? 0 : SimulationEngine.mix(((long) pos << 32) | (val & 0xffffffffL));
+  }
+
+  /**
+   * Get a hash of the whole stencil. The hash is updated with every change, so this is cheap.
+   * Stencils with equal contents have equal hashes.
+   *
+   * @return hash (0 for an empty stencil)
+   */
+  public long getHash() {
+    return hash;
   }
 
   /**
@@ -143,7 +237,7 @@ public class Stencil {
    * @return stencil value
    */
   public int get(final int x, final int y) {
-    return stencil[x + y * width];
+    return get(x + y * width);
   }
 
   /**
@@ -153,7 +247,9 @@ public class Stencil {
    * @return stencil value
    */
   public int get(final int pos) {
-    return stencil[pos];
+    int m = mask[pos];
+    if ((m & HAS_ID) == 0) return m;
+    return (m & MASK_BITS) | (ids.get(pos) << ID_SHIFT_VAL);
   }
 
   /**
@@ -164,8 +260,7 @@ public class Stencil {
    * @param val stencil value
    */
   public void and(final int x, final int y, final int val) {
-    int pos = x + y * width;
-    stencil[pos] = (stencil[pos] & val);
+    and(x + y * width, val);
   }
 
   /**
@@ -175,7 +270,7 @@ public class Stencil {
    * @param val stencil value
    */
   public void and(final int pos, final int val) {
-    stencil[pos] = (stencil[pos] & val);
+    set(pos, get(pos) & val);
   }
 
   /**
@@ -186,8 +281,7 @@ public class Stencil {
    * @param val stencil value
    */
   public void or(final int x, final int y, final int val) {
-    int pos = x + y * width;
-    stencil[pos] = (stencil[pos] | val);
+    or(x + y * width, val);
   }
 
   /**
@@ -197,7 +291,7 @@ public class Stencil {
    * @param val stencil value
    */
   public void or(final int pos, final int val) {
-    stencil[pos] = (stencil[pos] | val);
+    set(pos, get(pos) | val);
   }
 
   /**
@@ -208,7 +302,7 @@ public class Stencil {
    * @param id identifier (must not exceed 16bit)
    */
   public void setID(final int x, final int y, final int id) {
-    stencil[x + y * width] |= (id << ID_SHIFT_VAL);
+    setID(x + y * width, id);
   }
 
   /**
@@ -218,7 +312,7 @@ public class Stencil {
    * @param id identifier (must not exceed 16bit)
    */
   public void setID(final int pos, final int id) {
-    stencil[pos] |= (id << ID_SHIFT_VAL);
+    or(pos, id << ID_SHIFT_VAL);
   }
 
   /**
@@ -229,7 +323,7 @@ public class Stencil {
    * @return identifier
    */
   public int getID(final int x, final int y) {
-    return (stencil[x + y * width] >> ID_SHIFT_VAL);
+    return getID(x + y * width);
   }
 
   /**
@@ -239,7 +333,63 @@ public class Stencil {
    * @return identifier
    */
   public int getID(final int pos) {
-    return (stencil[pos] >> ID_SHIFT_VAL);
+    return (mask[pos] & HAS_ID) == 0 ? 0 : ids.get(pos);
+  }
+
+  /**
+   * Check if Lemmings can walk on the given position (MSK_WALK_ON).
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @return true if either brick or steel
+   */
+  public boolean isWalkOn(final int x, final int y) {
+    return (walkOn[x * colWords + (y >> 6)] & (1L << y)) != 0;
+  }
+
+  /**
+   * Count the free pixels (no MSK_WALK_ON) from the given position downwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (limited to the bottom of the stencil)
+   * @return number of consecutive free pixels
+   */
+  public int freeBelow(final int x, final int y, final int max) {
+    return columns.freeBelow(x, y, Math.min(max, height - y));
+  }
+
+  /**
+   * Count the free pixels (no MSK_WALK_ON) from the given position upwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (limited to the top of the stencil)
+   * @return number of consecutive free pixels
+   */
+  public int freeAbove(final int x, final int y, final int max) {
+    return columns.freeAbove(x, y, Math.min(max, y + 1));
+  }
+
+  /**
+   * Count the pixels Lemmings can walk on (MSK_WALK_ON) from the given position upwards.
+   *
+   * @param x x position in pixels
+   * @param y y position of first pixel to check
+   * @param max maximum number of pixels to check (limited to the top of the stencil)
+   * @return number of consecutive solid pixels
+   */
+  public int solidAbove(final int x, final int y, final int max) {
+    return columns.solidAbove(x, y, Math.min(max, y + 1));
+  }
+
+  /**
+   * Get the approximate memory used by the stencil.
+   *
+   * @return size in bytes
+   */
+  public long getMemorySize() {
+    return 2L * mask.length + 8L * walkOn.length + ids.getMemorySize() + columns.getMemorySize();
   }
 
   /**
@@ -279,4 +429,150 @@ public class Stencil {
   public int getHeight() {
     return height;
   }
+
+  /** Open addressing hash map from stencil position to identifier. */
+  private static class IdMap {
+    /** initial capacity (must be a power of 2) */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** positions + 1 (0: unused slot) */
+    private int keys[];
+
+    /** identifiers */
+    private int values[];
+
+    /** number of used slots */
+    private int size;
+
+    /** Constructor. */
+    IdMap() {
+      keys = new int[INITIAL_CAPACITY];
+      values = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Get slot index for the first probe of a key.
+     *
+     * @param key position + 1
+     * @return slot index
+     */
+    private int hash(final int key) {
+      return (key * 0x9e3779b9) >>> 7 & (keys.length - 1);
+    }
+
+    /**
+     * Get identifier.
+     *
+     * @param pos position
+     * @return identifier (0 if not contained)
+     */
+    int get(final int pos) {
+      int key = pos + 1;
+      for (int i = hash(key); ; i = (i + 1) & (keys.length - 1)) {
+        if (keys[i] == key) return values[i];
+        if (keys[i] == 0) return 0;
+      }
+    }
+
+    /**
+     * Store identifier.
+     *
+     * @param pos position
+     * @param id identifier
+     */
+    void put(final int pos, final int id) {
+      int key = pos + 1;
+      int i = hash(key);
+      for (; keys[i] != 0; i = (i + 1) & (keys.length - 1)) {
+        if (keys[i] == key) {
+          values[i] = id;
+          return;
+        }
+      }
+      keys[i] = key;
+      values[i] = id;
+      if (++size * 2 > keys.length) rehash(keys.length * 2);
+    }
+
+    /**
+     * Remove identifier.
+     *
+     * @param pos position
+     */
+    void remove(final int pos) {
+      int key = pos + 1;
+      int mask = keys.length - 1;
+      int i = hash(key);
+      while (keys[i] != key) {
+        if (keys[i] == 0) return;
+        i = (i + 1) & mask;
+      }
+      // shift following entries back to keep the probe sequences intact
+      for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+        int h = hash(keys[j]);
+        if (((j - h) & mask) >= ((j - i) & mask)) {
+          keys[i] = keys[j];
+          values[i] = values[j];
+          i = j;
+        }
+      }
+      keys[i] = 0;
+      size--;
+    }
+
+    /**
+     * Resize the hash table.
+     *
+     * @param capacity new capacity (must be a power of 2)
+     */
+    private void rehash(final int capacity) {
+      int oldKeys[] = keys;
+      int oldValues[] = values;
+      keys = new int[capacity];
+      values = new int[capacity];
+      for (int n = 0; n < oldKeys.length; n++) {
+        if (oldKeys[n] == 0) continue;
+        int i = hash(oldKeys[n]);
+        while (keys[i] != 0) i = (i + 1) & (capacity - 1);
+        keys[i] = oldKeys[n];
+        values[i] = oldValues[n];
+      }
+    }
+
+    /**
+     * Copy all entries of another map.
+     *
+     * @param src map to copy
+     */
+    void copyFrom(final IdMap src) {
+      if (keys.length != src.keys.length) {
+        keys = src.keys.clone();
+        values = src.values.clone();
+      } else {
+        System.arraycopy(src.keys, 0, keys, 0, keys.length);
+        System.arraycopy(src.values, 0, values, 0, values.length);
+      }
+      size = src.size;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+      if (keys.length > INITIAL_CAPACITY) {
+        keys = new int[INITIAL_CAPACITY];
+        values = new int[INITIAL_CAPACITY];
+      } else {
+        Arrays.fill(keys, 0);
+      }
+      size = 0;
+    }
+
+    /**
+     * Get the approximate memory used by the map.
+     *
+     * @return size in bytes
+     */
+    long getMemorySize() {
+      return 8L * keys.length;
+    }
+  }
 }
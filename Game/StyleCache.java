@@ -0,0 +1,130 @@
+package Game;
+
+import Tools.Props;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Cache for the decoded data of level styles (style ini, terrain tiles and object templates with
+ * their masks), so loading another level of the same style doesn't decode its images again.
+ *
+ * <p>The least recently used styles are kept up to {@link #MAX_STYLES} entries. The entries are
+ * only softly referenced, so the garbage collector may evict them when memory runs low.
+ *
+ * <p>The cached data is shared by all levels using the style and must not be modified.
+ */
+final class StyleCache {
+  /** maximum number of styles kept in the cache */
+  private static final int MAX_STYLES = 4;
+
+  /** Decoded data of one style. */
+  static class Style {
+    /** properties read from the style ini */
+    final Props props;
+
+    /** decoded terrain tiles */
+    final ArrayList<TerrainTile> tiles;
+
+    /** object templates (copied for each object of a level) */
+    final ArrayList<SpriteObject> objects;
+
+    /**
+     * Constructor.
+     *
+     * @param p properties read from the style ini
+     * @param t decoded terrain tiles
+     * @param o object templates
+     */
+    Style(final Props p, final ArrayList<TerrainTile> t, final ArrayList<SpriteObject> o) {
+      props = p;
+      tiles = t;
+      objects = o;
+    }
+  }
+
+  /** cached styles by name in access order */
+  private static final LinkedHashMap<String, SoftReference<Style>> styles =
+      new LinkedHashMap<String, SoftReference<Style>>(MAX_STYLES * 2, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, SoftReference<Style>> e) {
+          return size() > MAX_STYLES;
+        }
+      };
+
+  /** number of lookups which found the style */
+  private static long hits;
+
+  /** number of lookups which didn't find the style */
+  private static long misses;
+
+  /** Private constructor: static class. */
+  private StyleCache() {}
+
+  /**
+   * Get a cached style.
+   *
+   * @param name name of the style
+   * @return decoded style data or null if the style isn't cached (any more)
+   */
+  static synchronized Style get(final String name) {
+    SoftReference<Style> ref = styles.get(name);
+    Style s = (ref == null) ? null : ref.get();
+    if (s == null) {
+      if (ref != null) styles.remove(name); // evicted by the garbage collector
+      misses++;
+    } else hits++;
+    return s;
+  }
+
+  /**
+   * Add a style to the cache. The least recently used style is removed if the cache is full.
+   *
+   * @param name name of the style
+   * @param s decoded style data
+   */
+  static synchronized void put(final String name, final Style s) {
+    // remove entries cleared by the garbage collector first
+    Iterator<SoftReference<Style>> it = styles.values().iterator();
+    while (it.hasNext()) if (it.next().get() == null) it.remove();
+    styles.put(name, new SoftReference<Style>(s));
+  }
+
+  /**
+   * Get number of lookups which found the style.
+   *
+   * @return number of hits
+   */
+  static synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get number of lookups which didn't find the style.
+   *
+   * @return number of misses
+   */
+  static synchronized long getMisses() {
+    return misses;
+  }
+}
@@ -0,0 +1,57 @@
+package Game;
+
+/*
+ * Copyright 2009 Volker Oth
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Storage class for a terrain/background tiles.
+ *
+ * @author Volker Oth
+ */
+class Terrain {
+  /** paint mode: don't overwrite existing terrain pixel */
+  static final int MODE_NO_OVERWRITE = 8;
+
+  /** paint mode: upside down */
+  static final int MODE_UPSIDE_DOWN = 4;
+
+  /** paint mode: remove existing terrain pixels instead of overdrawing them */
+  static final int MODE_REMOVE = 2;
+
+  /** identifier */
+  int id;
+
+  /** x position in pixels */
+  int xPos;
+
+  /** y position in pixels */
+  int yPos;
+
+  /** modifier - must be one of the above MODEs */
+  int modifier;
+
+  /**
+   * Constructor.
+   *
+   * @param val three values as array [identifier, x position, y position]
+   */
+  public Terrain(final int[] val) {
+    id = val[0];
+    xPos = val[1];
+    yPos = val[2];
+    modifier = val[3];
+  }
+}
@@ -0,0 +1,172 @@
+package Game;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.PixelGrabber;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Decoded terrain tile of a style. The pixels are grabbed once when the style is loaded. For each
+ * line the spans of non transparent pixels are stored, so painting a tile into the level only
+ * touches the pixels which are really drawn.
+ */
+class TerrainTile {
+  /** width in pixels */
+  private final int width;
+
+  /** height in pixels */
+  private final int height;
+
+  /** ARGB pixels */
+  private final int pixels[];
+
+  /** for each line: start and end (exclusive) x position of each non transparent span */
+  private final int spans[][];
+
+  /**
+   * Constructor.
+   *
+   * @param img tile image
+   */
+  TerrainTile(final Image img) {
+    width = img.getWidth(null);
+    height = img.getHeight(null);
+    pixels = new int[width * height];
+    PixelGrabber pixelgrabber = new PixelGrabber(img, 0, 0, width, height, pixels, 0, width);
+    try {
+      pixelgrabber.grabPixels();
+    } catch (InterruptedException interruptedexception) {
+    }
+
+    spans = new int[height][];
+    int buf[] = new int[width + 1];
+    for (int y = 0; y < height; y++) {
+      int n = 0;
+      int line = y * width;
+      for (int x = 0; x < width; x++) {
+        if ((pixels[line + x] & 0xff000000) == 0) continue;
+        int start = x;
+        while (x < width && (pixels[line + x] & 0xff000000) != 0) x++;
+        buf[n++] = start;
+        buf[n++] = x;
+      }
+      spans[y] = new int[n];
+      System.arraycopy(buf, 0, spans[y], 0, n);
+    }
+  }
+
+  /**
+   * Get width.
+   *
+   * @return width in pixels
+   */
+  int getWidth() {
+    return width;
+  }
+
+  /**
+   * Get height.
+   *
+   * @return height in pixels
+   */
+  int getHeight() {
+    return height;
+  }
+
+  /**
+   * Paint the tile into the background image and the stencil.
+   *
+   * @param bgImage background image
+   * @param bgPixels pixel array of the background image (null: use setRGB)
+   * @param stencil stencil
+   * @param tx x position in pixels
+   * @param ty y position in pixels
+   * @param modifier paint modifiers (Terrain.MODE_...)
+   */
+  void paint(
+      final BufferedImage bgImage,
+      final int bgPixels[],
+      final Stencil stencil,
+      final int tx,
+      final int ty,
+      final int modifier) {
+    int bgWidth = bgImage.getWidth();
+    int bgHeight = bgImage.getHeight();
+    boolean upsideDown = (modifier & Terrain.MODE_UPSIDE_DOWN) != 0;
+    boolean overwrite = (modifier & Terrain.MODE_NO_OVERWRITE) == 0;
+    boolean remove = (modifier & Terrain.MODE_REMOVE) != 0;
+    // clip to the level
+    int xMin = Math.max(0, -tx);
+    int xMax = Math.min(width, bgWidth - tx);
+    int yMin = Math.max(0, -ty);
+    int yMax = Math.min(height, bgHeight - ty);
+
+    for (int y = yMin; y < yMax; y++) {
+      int srcY = upsideDown ? height - y - 1 : y;
+      int line = srcY * width;
+      int pos = (y + ty) * bgWidth + tx; // level position of the tile line
+      int s[] = spans[srcY];
+      for (int i = 0; i < s.length; i += 2) {
+        int x0 = Math.max(s[i], xMin);
+        int x1 = Math.min(s[i + 1], xMax);
+        if (x0 >= x1) continue;
+        if (!overwrite) {
+          // don't overwrite -> only paint if background is transparent
+          for (int x = x0; x < x1; x++) {
+            if (stencil.get(pos + x) == Stencil.MSK_EMPTY) {
+              setPixel(bgImage, bgPixels, tx + x, ty + y, pos + x, pixels[line + x]);
+              stencil.set(pos + x, Stencil.MSK_BRICK);
+            }
+          }
+        } else if (remove) {
+          for (int x = x0; x < x1; x++) {
+            setPixel(bgImage, bgPixels, tx + x, ty + y, pos + x, 0);
+            stencil.set(pos + x, Stencil.MSK_EMPTY);
+          }
+        } else {
+          if (bgPixels != null) System.arraycopy(pixels, line + x0, bgPixels, pos + x0, x1 - x0);
+          for (int x = x0; x < x1; x++) {
+            if (bgPixels == null) bgImage.setRGB(tx + x, ty + y, pixels[line + x]);
+            stencil.set(pos + x, Stencil.MSK_BRICK);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Set one pixel of the background image.
+   *
+   * @param bgImage background image
+   * @param bgPixels pixel array of the background image (null: use setRGB)
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param pos position in pixel array
+   * @param col ARGB color
+   */
+  private static void setPixel(
+      final BufferedImage bgImage,
+      final int bgPixels[],
+      final int x,
+      final int y,
+      final int pos,
+      final int col) {
+    if (bgPixels != null) bgPixels[pos] = col;
+    else bgImage.setRGB(x, y, col);
+  }
+}
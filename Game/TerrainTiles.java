@@ -0,0 +1,334 @@
+package Game;
+
+import Tools.ToolBox;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Copy-on-write snapshots of the terrain (background image and stencil) of a running level.
+ *
+ * <p>The terrain is divided into the tiles used by the {@link LevelRenderer}. A snapshot is an
+ * array of references to immutable tile copies, shared by all snapshots in which the tile has the
+ * same contents. Tiles which are still unchanged since the level was started are not copied at
+ * all (null reference): their contents are taken from the {@link LevelSnapshot} of the freshly
+ * painted level. The simulation keeps working on the background image and stencil directly and
+ * reports every change via {@link #touch(int, int, int, int)}. Only the tiles touched since the
+ * last snapshot are copied when the next snapshot is taken, so a snapshot costs one reference per
+ * tile plus the changed tiles.
+ *
+ * <p>Tiles are reference counted (by the current terrain and by all snapshots), so the memory used
+ * by all tiles still in use is known exactly.
+ */
+final class TerrainTiles {
+  /** number of tiles */
+  static final int NUM_TILES = LevelRenderer.TILES_X * LevelRenderer.TILES_Y;
+
+  /** number of pixels of one tile */
+  private static final int TILE_PIXELS = LevelRenderer.TILE_SIZE * LevelRenderer.TILE_SIZE;
+
+  /** memory used by one tile in bytes (pixels, stencil values and object overhead) */
+  static final int TILE_BYTES = 2 * 4 * TILE_PIXELS + 64;
+
+  /** Immutable copy of one tile. */
+  private static final class Tile {
+    /** background pixels */
+    final int bg[] = new int[TILE_PIXELS];
+
+    /** stencil values */
+    final int stencil[] = new int[TILE_PIXELS];
+
+    /** number of references (current terrain and snapshots) */
+    int refs;
+  }
+
+  /** Terrain at one point in time. */
+  static final class Snapshot {
+    /** tile store the snapshot was taken from */
+    private final TerrainTiles owner;
+
+    /** generation of the tile store (see {@link TerrainTiles#reset}) */
+    private final int generation;
+
+    /** tiles (null: unchanged since the level was started) - null after release */
+    private Tile tiles[];
+
+    /** number of tiles copied to take this snapshot */
+    final int numCopied;
+
+    /**
+     * Constructor.
+     *
+     * @param o tile store
+     * @param g generation of the tile store
+     * @param t tiles
+     * @param n number of tiles copied to take this snapshot
+     */
+    private Snapshot(final TerrainTiles o, final int g, final Tile t[], final int n) {
+      owner = o;
+      generation = g;
+      tiles = t;
+      numCopied = n;
+    }
+
+    /**
+     * Get the tile store the snapshot was taken from.
+     *
+     * @return tile store
+     */
+    TerrainTiles getOwner() {
+      return owner;
+    }
+
+    /** Release the tiles of this snapshot. The snapshot can't be restored any more. */
+    void release() {
+      if (tiles == null) return;
+      for (Tile t : tiles) owner.unref(t);
+      tiles = null;
+    }
+  }
+
+  /** current tiles (null: unchanged since the level was started), valid unless dirty */
+  private final Tile current[] = new Tile[NUM_TILES];
+
+  /** flag per tile: changed since the current tile was stored */
+  private final boolean dirty[] = new boolean[NUM_TILES];
+
+  /** background image */
+  private BufferedImage bgImage;
+
+  /** stencil */
+  private Stencil stencil;
+
+  /** freshly painted level providing the contents of unchanged tiles */
+  private LevelSnapshot base;
+
+  /** generation: incremented each time a level is (re)started */
+  private int generation;
+
+  /** number of tiles in use (referenced by the current terrain or a snapshot) */
+  private int liveTiles;
+
+  /** number of tile copies made since the level was started */
+  private long copies;
+
+  /**
+   * Start tracking the terrain of a freshly painted level. Snapshots taken before can't be
+   * restored any more, but they still have to be released.
+   *
+   * @param bg background image
+   * @param s stencil
+   * @param b snapshot of the freshly painted level
+   */
+  void reset(final BufferedImage bg, final Stencil s, final LevelSnapshot b) {
+    bgImage = bg;
+    stencil = s;
+    base = b;
+    for (int i = 0; i < NUM_TILES; i++) {
+      unref(current[i]);
+      current[i] = null;
+    }
+    Arrays.fill(dirty, false);
+    generation++;
+    copies = 0;
+  }
+
+  /**
+   * Remember a change of the terrain.
+   *
+   * @param x x position in pixels
+   * @param y y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  void touch(int x, int y, int w, int h) {
+    if (x < 0) {
+      w += x;
+      x = 0;
+    }
+    if (y < 0) {
+      h += y;
+      y = 0;
+    }
+    if (w <= 0 || h <= 0) return;
+    int tx1 = Math.min((x + w - 1) >> LevelRenderer.TILE_SHIFT, LevelRenderer.TILES_X - 1);
+    int ty1 = Math.min((y + h - 1) >> LevelRenderer.TILE_SHIFT, LevelRenderer.TILES_Y - 1);
+    for (int ty = y >> LevelRenderer.TILE_SHIFT; ty <= ty1; ty++)
+      for (int tx = x >> LevelRenderer.TILE_SHIFT; tx <= tx1; tx++)
+        dirty[ty * LevelRenderer.TILES_X + tx] = true;
+  }
+
+  /**
+   * Take a snapshot of the current terrain.
+   *
+   * @return snapshot (has to be released when it's not needed any more)
+   */
+  Snapshot snapshot() {
+    int n = storeDirty();
+    Tile tiles[] = current.clone();
+    for (Tile t : tiles) if (t != null) t.refs++;
+    return new Snapshot(this, generation, tiles, n);
+  }
+
+  /**
+   * Restore the terrain of a snapshot. Only tiles which differ from the current terrain are
+   * written.
+   *
+   * @param s snapshot taken since the level was (re)started
+   * @param l listener informed about the changed tiles (may be null)
+   */
+  void restore(final Snapshot s, final DamageListener l) {
+    if (s.owner != this || s.generation != generation || s.tiles == null)
+      throw new IllegalStateException("Terrain snapshot doesn't belong to the current level");
+    for (int i = 0; i < NUM_TILES; i++) {
+      Tile t = s.tiles[i];
+      if (!dirty[i] && current[i] == t) continue;
+      int x0 = (i % LevelRenderer.TILES_X) << LevelRenderer.TILE_SHIFT;
+      int y0 = (i / LevelRenderer.TILES_X) << LevelRenderer.TILE_SHIFT;
+      int w = Math.min(LevelRenderer.TILE_SIZE, bgImage.getWidth() - x0);
+      int h = Math.min(LevelRenderer.TILE_SIZE, bgImage.getHeight() - y0);
+      if (w > 0 && h > 0) {
+        if (t == null) base.restoreRect(bgImage, stencil, x0, y0, w, h);
+        else writeTile(t, x0, y0, w, h);
+        if (l != null) l.damaged(x0, y0, w, h);
+      }
+      setCurrent(i, t);
+      dirty[i] = false;
+    }
+  }
+
+  /**
+   * Get the number of tiles which differ from the freshly painted level (as of the last snapshot
+   * or restore).
+   *
+   * @return number of changed tiles
+   */
+  int getChangedTiles() {
+    int n = 0;
+    for (Tile t : current) if (t != null) n++;
+    return n;
+  }
+
+  /**
+   * Get the number of tile copies made since the level was (re)started.
+   *
+   * @return number of tile copies
+   */
+  long getCopies() {
+    return copies;
+  }
+
+  /**
+   * Get the number of tiles still in use by the current terrain or any snapshot.
+   *
+   * @return number of tiles
+   */
+  int getLiveTiles() {
+    return liveTiles;
+  }
+
+  /**
+   * Get the memory used by all tiles still in use.
+   *
+   * @return size in bytes
+   */
+  long getMemorySize() {
+    return (long) liveTiles * TILE_BYTES;
+  }
+
+  /**
+   * Store copies of all tiles touched since they were stored the last time.
+   *
+   * @return number of tiles copied
+   */
+  private int storeDirty() {
+    int n = 0;
+    for (int i = 0; i < NUM_TILES; i++) {
+      if (!dirty[i]) continue;
+      Tile t = new Tile();
+      liveTiles++;
+      copyTile(i, t);
+      setCurrent(i, t);
+      dirty[i] = false;
+      n++;
+    }
+    copies += n;
+    return n;
+  }
+
+  /**
+   * Replace the current tile.
+   *
+   * @param i tile index
+   * @param t new tile (may be null)
+   */
+  private void setCurrent(final int i, final Tile t) {
+    if (t != null) t.refs++;
+    unref(current[i]);
+    current[i] = t;
+  }
+
+  /**
+   * Drop a reference to a tile.
+   *
+   * @param t tile (may be null)
+   */
+  private void unref(final Tile t) {
+    if (t != null && --t.refs == 0) liveTiles--;
+  }
+
+  /**
+   * Copy a tile of the current terrain.
+   *
+   * @param i tile index
+   * @param t tile to copy into
+   */
+  private void copyTile(final int i, final Tile t) {
+    int x0 = (i % LevelRenderer.TILES_X) << LevelRenderer.TILE_SHIFT;
+    int y0 = (i / LevelRenderer.TILES_X) << LevelRenderer.TILE_SHIFT;
+    int w = Math.min(LevelRenderer.TILE_SIZE, bgImage.getWidth() - x0);
+    int h = Math.min(LevelRenderer.TILE_SIZE, bgImage.getHeight() - y0);
+    if (w <= 0 || h <= 0) return;
+    int src[] = ToolBox.getPixels(bgImage);
+    if (src != null) {
+      for (int y = 0; y < h; y++)
+        System.arraycopy(src, (y0 + y) * bgImage.getWidth() + x0, t.bg, y * w, w);
+    } else bgImage.getRGB(x0, y0, w, h, t.bg, 0, w);
+    for (int y = 0; y < h; y++)
+      for (int x = 0; x < w; x++) t.stencil[y * w + x] = stencil.get(x0 + x, y0 + y);
+  }
+
+  /**
+   * Write a stored tile into the current terrain.
+   *
+   * @param t tile
+   * @param x0 x position in pixels
+   * @param y0 y position in pixels
+   * @param w width in pixels
+   * @param h height in pixels
+   */
+  private void writeTile(final Tile t, final int x0, final int y0, final int w, final int h) {
+    int dst[] = ToolBox.getPixels(bgImage);
+    if (dst != null) {
+      for (int y = 0; y < h; y++)
+        System.arraycopy(t.bg, y * w, dst, (y0 + y) * bgImage.getWidth() + x0, w);
+    } else bgImage.setRGB(x0, y0, w, h, t.bg, 0, w);
+    for (int y = 0; y < h; y++)
+      for (int x = 0; x < w; x++) stencil.set(x0 + x, y0 + y, t.stencil[y * w + x]);
+  }
+}
@@ -55,6 +55,9 @@ public class Fader {
   /** current fade state */
   private static State fadeState = State.OFF;
 
+  /** flag: the fader has to be applied in the current frame */
+  private static boolean active;
+
   /** step size for fading */
   private static int fadeStep = 14;
 
@@ -151,12 +154,28 @@ public class Fader {
     fadeStep = step & 0xff;
   }
 
+  /**
+   * Get state of the last fading step.
+   *
+   * @return true if the fader was active in the last step and has to be applied when drawing
+   */
+  public static synchronized boolean isActive() {
+    return active;
+  }
+
   /**
    * Fade.
    *
    * @param g graphics to fade
    */
   public static synchronized void fade(final Graphics g, final int width, final int height) {
+    step();
+    if (active) apply(g, width, height);
+  }
+
+  /** Advance fading by one frame without drawing. */
+  public static synchronized void step() {
+    active = fadeState != State.OFF;
     switch (fadeState) {
       case IN:
         if (fadeValue >= fadeStep) fadeValue -= fadeStep;
@@ -165,7 +184,6 @@ public class Fader {
           fadeState = State.OFF;
         }
         setAlpha(fadeValue);
-        apply(g, width, height);
         // System.out.println(fadeValue);
         break;
       case OUT:
@@ -175,7 +193,6 @@ public class Fader {
           fadeState = State.OFF;
         }
         setAlpha(fadeValue);
-        apply(g, width, height);
         // System.out.println(fadeValue);
         break;
     }
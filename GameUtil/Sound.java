@@ -8,13 +8,11 @@ import java.util.ArrayList;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
 import javax.sound.sampled.DataLine;
 import javax.sound.sampled.FloatControl;
 import javax.sound.sampled.Line;
-import javax.sound.sampled.LineEvent;
-import javax.sound.sampled.LineListener;
 import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
 
 /*
  * Copyright 2009 Volker Oth
@@ -33,7 +31,8 @@ import javax.sound.sampled.Mixer;
  */
 
 /**
- * Used to play a number of sounds. Supports upsampling and one pitched sample.
+ * Used to play a number of sounds. Supports upsampling and one pitched sample. The samples are
+ * mixed in software by a {@link SoundMixer} into a single output line.
  *
  * @author Volker Oth
  */
@@ -48,11 +47,8 @@ public class Sound {
   /** fade in the first n samples when calculating the pitched buffers */
   private static final int PITCH_FADE_IN = 20;
 
-  /** maximum number of sounds played in parallel */
-  private static final int MAX_SIMUL_SOUNDS = 6;
-
-  /** line listener to be called after sample was played */
-  private LineListener defaultListener;
+  /** default number of sounds played in parallel */
+  public static final int DEFAULT_VOICES = 6;
 
   /** sound buffers to store the samples */
   private byte soundBuffer[][];
@@ -69,21 +65,18 @@ public class Sound {
   /** audio format for upsampling */
   private AudioFormat defaultFormat;
 
-  /** line info for each sample */
-  private DataLine.Info info[];
+  /** mixer samples for the normal samples */
+  private SoundMixer.Sample samples[];
 
-  /** line info for the pitched sample */
-  private DataLine.Info pitchInfo;
+  /** mixer samples for all pitched samples */
+  private SoundMixer.Sample pitchSamples[];
 
-  /** line info for upsampling */
-  private DataLine.Info defaultInfo;
+  /** software mixer which plays the samples */
+  private SoundMixer sfxMixer;
 
   /** gain/volume: 1.0 = 100% */
   private double gain;
 
-  /** number of sounds currently played */
-  static int simulSounds;
-
   /** selected mixer index */
   static int mixerIdx;
 
@@ -105,15 +98,12 @@ public class Sound {
     sampleNum = snum;
     soundBuffer = new byte[sampleNum][];
     format = new AudioFormat[sampleNum];
-    info = new DataLine.Info[sampleNum];
+    samples = new SoundMixer.Sample[sampleNum];
 
     gain = 1.0;
-    simulSounds = 0;
-    defaultListener = new DefaultListener();
 
     // upsampling to default frequency (more compatible for weird sample frequencies)
     defaultFormat = new AudioFormat(DEFAULT_FREQUENCY, 16, 1, true, false);
-    defaultInfo = new DataLine.Info(Clip.class, defaultFormat);
 
     int maxLen = 0;
     try {
@@ -122,7 +112,6 @@ public class Sound {
         File fs = Core.findResource(fName);
         AudioInputStream f = AudioSystem.getAudioInputStream(fs.toURI().toURL());
         format[i] = f.getFormat();
-        info[i] = new DataLine.Info(Clip.class, format[i]);
         byte soundBuffer8[] = new byte[(int) f.getFrameLength() * format[i].getFrameSize()];
         f.read(soundBuffer8);
         f.close();
@@ -139,7 +128,7 @@ public class Sound {
           throw new ResourceException("Unsupported sample format for sample " + fName);
         soundBuffer[i] = convertToDefault(soundBuffer8, format[i]);
         format[i] = defaultFormat;
-        info[i] = defaultInfo;
+        samples[i] = new SoundMixer.Sample(soundBuffer[i], DEFAULT_FREQUENCY);
 
         if (soundBuffer[i].length > maxLen) maxLen = soundBuffer[i].length;
       }
@@ -151,9 +140,12 @@ public class Sound {
       // create buffers for pitching
       // note that bit size (8) and channels (1) have to be the same for all pitched buffers
       pitchFormat = new AudioFormat(44100, 16, 1, true, false);
-      pitchInfo = new DataLine.Info(Clip.class, pitchFormat);
       pitchBuffers = new byte[NUMBER_PITCHED][];
-      for (int i = 0; i < NUMBER_PITCHED; i++) pitchBuffers[i] = createPitched(pitchID, i);
+      pitchSamples = new SoundMixer.Sample[NUMBER_PITCHED];
+      for (int i = 0; i < NUMBER_PITCHED; i++) {
+        pitchBuffers[i] = createPitched(pitchID, i);
+        pitchSamples[i] = new SoundMixer.Sample(pitchBuffers[i], pitchFormat.getSampleRate());
+      }
     }
 
     // get all available mixers
@@ -161,10 +153,13 @@ public class Sound {
     mixers = new ArrayList<Mixer>();
     for (int i = 0; i < mixInfo.length; i++) {
       Mixer mixer = AudioSystem.getMixer(mixInfo[i]);
-      Line.Info info = new Line.Info(Clip.class);
+      Line.Info info = new Line.Info(SourceDataLine.class);
       int num = mixer.getMaxLines(info);
       if (num != 0) mixers.add(mixer);
     }
+
+    sfxMixer = new SoundMixer(DEFAULT_VOICES);
+    if (!mixers.isEmpty()) sfxMixer.setMixer(mixers.get(mixerIdx));
   }
 
   /**
@@ -189,6 +184,7 @@ public class Sound {
   public void setMixer(final int idx) {
     if (idx > mixers.size()) mixerIdx = 0;
     else mixerIdx = idx;
+    sfxMixer.setMixer(mixers.get(mixerIdx));
   }
 
   /**
@@ -201,11 +197,13 @@ public class Sound {
     for (Mixer m : mixers) {
       if (n.equals(m.getMixerInfo().getName())) {
         mixerIdx = idx;
+        sfxMixer.setMixer(m);
         return idx;
       }
       idx++;
     }
     mixerIdx = 0;
+    if (!mixers.isEmpty()) sfxMixer.setMixer(mixers.get(0));
     return 0;
   }
 
@@ -224,23 +222,31 @@ public class Sound {
   }
 
   /**
-   * Play a given sound.
+   * Set number of sounds played in parallel. If all voices are busy, a new sound replaces the one
+   * started first.
    *
-   * @param idx index of the sound to be played
+   * @param voices number of voices
    */
-  public synchronized void play(final int idx) {
-    if (!GameController.isSoundOn() || simulSounds >= MAX_SIMUL_SOUNDS) return;
+  public void setVoices(final int voices) {
+    sfxMixer.setVoices(voices);
+  }
 
-    try {
-      Clip c = (Clip) mixers.get(mixerIdx).getLine(info[idx]);
-      // Add a listener for line events
-      c.addLineListener(defaultListener);
-      c.open(format[idx], soundBuffer[idx], 0, soundBuffer[idx].length);
-      setLineGain(c, gain);
-      c.start();
-      simulSounds++;
-    } catch (Exception ex) {
-    }
+  /**
+   * Get number of sounds played in parallel.
+   *
+   * @return number of voices
+   */
+  public int getVoices() {
+    return sfxMixer.getVoices();
+  }
+
+  /**
+   * Play a given sound. Doesn't block: the sound is mixed by the mixer thread.
+   *
+   * @param idx index of the sound to be played
+   */
+  public void play(final int idx) {
+    if (GameController.isSoundOn()) sfxMixer.play(samples[idx]);
   }
 
   /**
@@ -338,23 +344,12 @@ public class Sound {
   }
 
   /**
-   * Play the pitched sample.
+   * Play the pitched sample. Doesn't block: the sound is mixed by the mixer thread.
    *
    * @param pitch pitch value 0..99
    */
-  public synchronized void playPitched(final int pitch) {
-    if (!GameController.isSoundOn() || simulSounds >= MAX_SIMUL_SOUNDS) return;
-
-    try {
-      Clip c = (Clip) mixers.get(mixerIdx).getLine(pitchInfo);
-      // Add a listener for line events
-      c.addLineListener(defaultListener);
-      c.open(pitchFormat, pitchBuffers[pitch], 0, pitchBuffers[pitch].length);
-      setLineGain(c, gain);
-      c.start();
-      simulSounds++;
-    } catch (Exception ex) {
-    }
+  public void playPitched(final int pitch) {
+    if (GameController.isSoundOn() && pitchSamples != null) sfxMixer.play(pitchSamples[pitch]);
   }
 
   /**
@@ -396,27 +391,7 @@ public class Sound {
     if (gn > 1.0) gain = 1.0;
     else if (gn < 0) gain = 0;
     else gain = gn;
+    sfxMixer.setGain(gain);
     Core.programProps.set("soundGain", gain);
   }
 }
-
-/**
- * Default Line Listener. Called after sample was played.
- *
- * @author Volker Oth
- */
-class DefaultListener implements LineListener {
-  /* (non-Javadoc)
-   * @see javax.sound.sampled.LineListener#update(javax.sound.sampled.LineEvent)
-   */
-  @Override
-  public synchronized void update(final LineEvent event) {
-    if (event.getType().equals(LineEvent.Type.STOP)) {
-      Clip c = (Clip) event.getLine();
-      if (c.isOpen()) {
-        c.close();
-        if (--Sound.simulSounds < 0) Sound.simulSounds = 0;
-      }
-    }
-  }
-}
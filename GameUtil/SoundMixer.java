@@ -0,0 +1,285 @@
+package GameUtil;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Software mixer for sound effects. Keeps one {@link SourceDataLine} open and mixes all voices
+ * into it on its own thread.
+ *
+ * <p>Samples are requested via a lock-free queue, so {@link #play(Sample)} never blocks the
+ * calling thread. If all voices are busy, the voice which was started first is replaced.
+ */
+class SoundMixer implements Runnable {
+  /** output sampling frequency */
+  static final float SAMPLE_RATE = 44100;
+
+  /** output format: 16bit signed mono, little endian */
+  static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+
+  /** maximum number of voices */
+  static final int MAX_VOICES = 32;
+
+  /** number of frames mixed at once */
+  private static final int CHUNK = 256;
+
+  /** size of the line buffer in frames */
+  private static final int LINE_BUFFER = CHUNK * 8;
+
+  /** time to wait before trying to open the line again in nanoseconds */
+  private static final long RETRY_NANOS = 500000000L;
+
+  /** Sample which can be played by the mixer. */
+  static class Sample {
+    /** 16bit signed mono samples, little endian */
+    final byte data[];
+
+    /** number of samples */
+    final int length;
+
+    /** step per output frame as 16.16 fixed point value */
+    final int step;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer 16bit signed mono samples, little endian
+     * @param rate sampling frequency of the buffer
+     */
+    Sample(final byte buffer[], final float rate) {
+      data = buffer;
+      length = buffer.length / 2;
+      step = Math.round(rate / SAMPLE_RATE * 0x10000);
+    }
+  }
+
+  /** play requests */
+  private final ConcurrentLinkedQueue<Sample> requests = new ConcurrentLinkedQueue<Sample>();
+
+  /** mixer thread */
+  private final Thread thread;
+
+  /** mixer to open the line from */
+  private volatile Mixer mixer;
+
+  /** number of voices played in parallel */
+  private volatile int numVoices;
+
+  /** gain/volume: 1.0 = 100% */
+  private volatile double gain = 1.0;
+
+  // the following fields are only used by the mixer thread
+
+  /** output line (null if it couldn't be opened) */
+  private SourceDataLine line;
+
+  /** mixer the line was opened from */
+  private Mixer lineMixer;
+
+  /** sample played by each voice (null: voice is free) */
+  private final Sample voice[] = new Sample[MAX_VOICES];
+
+  /** position of each voice as 48.16 fixed point value */
+  private final long voicePos[] = new long[MAX_VOICES];
+
+  /** start order of each voice */
+  private final long voiceStart[] = new long[MAX_VOICES];
+
+  /** number of voices started so far */
+  private long started;
+
+  /** mixing buffer */
+  private final int mix[] = new int[CHUNK];
+
+  /** output buffer */
+  private final byte out[] = new byte[CHUNK * 2];
+
+  /**
+   * Constructor. Starts the mixer thread.
+   *
+   * @param voices number of voices played in parallel
+   */
+  SoundMixer(final int voices) {
+    setVoices(voices);
+    thread = new Thread(this, "SFX mixer");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * Request to play a sample. Doesn't block.
+   *
+   * @param s sample
+   */
+  void play(final Sample s) {
+    requests.offer(s);
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Set mixer to open the output line from. The line is reopened by the mixer thread.
+   *
+   * @param m mixer
+   */
+  void setMixer(final Mixer m) {
+    mixer = m;
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Set number of voices played in parallel.
+   *
+   * @param voices number of voices (1..MAX_VOICES)
+   */
+  void setVoices(final int voices) {
+    numVoices = Math.max(1, Math.min(voices, MAX_VOICES));
+  }
+
+  /**
+   * Get number of voices played in parallel.
+   *
+   * @return number of voices
+   */
+  int getVoices() {
+    return numVoices;
+  }
+
+  /**
+   * Set gain.
+   *
+   * @param gn gain (1.0 = 100%)
+   */
+  void setGain(final double gn) {
+    gain = gn;
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Runnable#run()
+   */
+  @Override
+  public void run() {
+    while (true) {
+      if (line == null || lineMixer != mixer) {
+        openLine();
+        if (line == null) {
+          // no output: drop requests
+          requests.clear();
+          LockSupport.parkNanos(this, RETRY_NANOS);
+          continue;
+        }
+      }
+      startVoices();
+      if (!isActive()) {
+        // idle: nothing to write until the next request
+        if (requests.isEmpty() && lineMixer == mixer) LockSupport.park(this);
+        continue;
+      }
+      mixChunk();
+      line.write(out, 0, out.length);
+    }
+  }
+
+  /** Open the output line from the selected mixer (closes the old line). */
+  private void openLine() {
+    if (line != null) line.close();
+    line = null;
+    lineMixer = mixer;
+    if (lineMixer == null) return;
+    try {
+      SourceDataLine l =
+          (SourceDataLine) lineMixer.getLine(new DataLine.Info(SourceDataLine.class, FORMAT));
+      l.open(FORMAT, LINE_BUFFER * FORMAT.getFrameSize());
+      l.start();
+      line = l;
+    } catch (Exception ex) {
+    }
+  }
+
+  /** Start the voices for all pending requests. */
+  private void startVoices() {
+    Sample s;
+    while ((s = requests.poll()) != null) {
+      // use a free voice or replace the one started first
+      int n = numVoices;
+      int v = 0;
+      for (int i = 0; i < MAX_VOICES; i++) {
+        if (i >= n) {
+          voice[i] = null; // number of voices was reduced
+          continue;
+        }
+        if (voice[i] == null) {
+          if (voice[v] != null) v = i;
+        } else if (voice[v] != null && voiceStart[i] < voiceStart[v]) v = i;
+      }
+      voice[v] = s;
+      voicePos[v] = 0;
+      voiceStart[v] = started++;
+    }
+  }
+
+  /**
+   * Check if any voice is playing.
+   *
+   * @return true if at least one voice is playing
+   */
+  private boolean isActive() {
+    for (Sample s : voice) if (s != null) return true;
+    return false;
+  }
+
+  /** Mix one chunk of all voices into the output buffer. */
+  private void mixChunk() {
+    for (int f = 0; f < CHUNK; f++) mix[f] = 0;
+    for (int v = 0; v < MAX_VOICES; v++) {
+      Sample s = voice[v];
+      if (s == null) continue;
+      byte d[] = s.data;
+      long pos = voicePos[v];
+      for (int f = 0; f < CHUNK; f++, pos += s.step) {
+        int idx = (int) (pos >>> 16);
+        if (idx >= s.length) {
+          voice[v] = null;
+          break;
+        }
+        int s0 = (d[2 * idx] & 0xff) | (d[2 * idx + 1] << 8);
+        if (idx + 1 < s.length) {
+          // interpolate between sample points
+          int s1 = (d[2 * idx + 2] & 0xff) | (d[2 * idx + 3] << 8);
+          s0 += ((s1 - s0) * (((int) pos & 0xffff) >> 1)) >> 15;
+        }
+        mix[f] += s0;
+      }
+      voicePos[v] = pos;
+    }
+    int g = (int) (gain * 0x100);
+    for (int f = 0; f < CHUNK; f++) {
+      int val = (mix[f] * g) >> 8;
+      if (val > Short.MAX_VALUE) val = Short.MAX_VALUE;
+      else if (val < Short.MIN_VALUE) val = Short.MIN_VALUE;
+      // byte order is little endian
+      out[f * 2] = (byte) val;
+      out[f * 2 + 1] = (byte) (val >> 8);
+    }
+  }
+}
@@ -207,6 +207,38 @@ public class Sprite {
     return true;
   }
 
+  /**
+   * Reset the animation state.
+   *
+   * @param idx animation frame index
+   * @param mode animation mode
+   */
+  public void resetAnimation(final int idx, final Animation mode) {
+    resetAnimation(idx, mode, false);
+  }
+
+  /**
+   * Reset the animation state including the trigger state.
+   *
+   * @param idx animation frame index
+   * @param mode animation mode
+   * @param trig true: a triggered animation is running
+   */
+  public void resetAnimation(final int idx, final Animation mode, final boolean trig) {
+    frameIdx = idx;
+    animMode = mode;
+    triggered = trig;
+  }
+
+  /**
+   * Check if a triggered animation is running.
+   *
+   * @return true if the animation was triggered and isn't finished yet
+   */
+  public boolean isTriggered() {
+    return triggered;
+  }
+
   /**
    * Get current animation frame index.
    *
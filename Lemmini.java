@@ -1,6 +1,7 @@
 import GUI.GainDialog;
 import GUI.LevelCodeDialog;
 import GUI.PlayerDialog;
+import Game.Benchmark;
 import Game.Core;
 import Game.GameController;
 import Game.GraphicsPane;
@@ -11,12 +12,15 @@ import Game.Lemming;
 import Game.Level;
 import Game.LevelCode;
 import Game.LevelPack;
+import Game.LevelSolver;
 import Game.Music;
 import Game.Player;
 import Game.ReplayLevelInfo;
+import Game.ReplayVerifier;
 import Game.ResourceException;
 import Game.UpdateListener;
 import GameUtil.Fader;
+import GameUtil.Sound;
 import Tools.ToolBox;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -46,6 +50,8 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.UIManager;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 
 /*
  * Copyright 2009 Volker Oth
@@ -84,6 +90,15 @@ import javax.swing.UIManager;
 public class Lemmini extends JFrame implements KeyListener {
   private static final long serialVersionUID = 0x01;
 
+  // render rates offered in the options menu (0: game rate)
+  private static final int RENDER_RATES[] = {0, 60, 120, 144};
+
+  // fast forward speed multipliers offered in the options menu
+  private static final int FAST_FORWARD_SPEEDS[] = {2, 5, 10, 20};
+
+  // numbers of sound effects played in parallel offered in the sound menu
+  private static final int SFX_VOICES[] = {4, 6, 8, 12, 16};
+
   // HashMap to store menu items for difficulty levels
   private HashMap<String, ArrayList<LvlMenuItem>> diffLevelMenus;
   // panel for the game graphics
@@ -461,6 +476,23 @@ public class Lemmini extends JFrame implements KeyListener {
     }
     jMenuSound.add(jMenuSFX);
 
+    JMenu jMenuVoices = new JMenu("SFX Voices");
+    ButtonGroup voicesGroup = new ButtonGroup();
+    int voices = Core.programProps.get("sfxVoices", Sound.DEFAULT_VOICES);
+    for (int n : SFX_VOICES) {
+      JCheckBoxMenuItem item = new JCheckBoxMenuItem(Integer.toString(n));
+      item.addActionListener(
+          (java.awt.event.ActionEvent e) -> {
+            GameController.sound.setVoices(n);
+            Core.programProps.set("sfxVoices", n);
+          });
+      if (n == voices) item.setState(true);
+      jMenuVoices.add(item);
+      voicesGroup.add(item);
+    }
+    GameController.sound.setVoices(voices);
+    jMenuSound.add(jMenuVoices);
+
     jMenuItemVolume = new JMenuItem("Volume Control");
     jMenuItemVolume.addActionListener(
         (java.awt.event.ActionEvent e) -> {
@@ -503,6 +535,58 @@ public class Lemmini extends JFrame implements KeyListener {
     jMenuItemCursor.setSelected(GameController.isAdvancedSelect());
     jMenuOptions.add(jMenuItemCursor);
 
+    // presentation path
+    JCheckBoxMenuItem jMenuItemAccelerated = new JCheckBoxMenuItem("Accelerated display", false);
+    jMenuItemAccelerated.addActionListener(
+        (java.awt.event.ActionEvent e) -> {
+          gp.setAccelerated(jMenuItemAccelerated.isSelected());
+          Core.programProps.set("acceleratedDisplay", jMenuItemAccelerated.isSelected());
+        });
+    gp.setAccelerated(Core.programProps.get("acceleratedDisplay", false));
+    jMenuItemAccelerated.setSelected(gp.isAccelerated());
+    jMenuOptions.add(jMenuItemAccelerated);
+
+    JMenu jMenuRenderRate = new JMenu("Render rate");
+    ButtonGroup renderRateGroup = new ButtonGroup();
+    int renderRate = Core.programProps.get("renderRate", 0);
+    for (int hz : RENDER_RATES) {
+      JCheckBoxMenuItem item = new JCheckBoxMenuItem(hz == 0 ? "Game rate" : hz + " Hz");
+      item.addActionListener(
+          (java.awt.event.ActionEvent e) -> {
+            gp.setRenderRate(hz);
+            Core.programProps.set("renderRate", hz);
+          });
+      if (hz == renderRate) item.setState(true);
+      jMenuRenderRate.add(item);
+      renderRateGroup.add(item);
+    }
+    gp.setRenderRate(renderRate);
+    jMenuOptions.add(jMenuRenderRate);
+
+    JMenu jMenuSpeed = new JMenu("Fast forward speed");
+    ButtonGroup speedGroup = new ButtonGroup();
+    int speed = Core.programProps.get("fastForwardSpeed", GameController.FAST_FWD_MULTI);
+    for (int multi : FAST_FORWARD_SPEEDS) {
+      JCheckBoxMenuItem item = new JCheckBoxMenuItem(multi + "x");
+      item.addActionListener(
+          (java.awt.event.ActionEvent e) -> {
+            GameController.setFastForwardMulti(multi);
+            Core.programProps.set("fastForwardSpeed", multi);
+          });
+      if (multi == speed) item.setState(true);
+      jMenuSpeed.add(item);
+      speedGroup.add(item);
+    }
+    GameController.setFastForwardMulti(speed);
+    jMenuOptions.add(jMenuSpeed);
+
+    JCheckBoxMenuItem jMenuItemFrameTime = new JCheckBoxMenuItem("Show frame time", false);
+    jMenuItemFrameTime.addActionListener(
+        (java.awt.event.ActionEvent e) -> {
+          gp.setShowFrameTime(jMenuItemFrameTime.isSelected());
+        });
+    jMenuOptions.add(jMenuItemFrameTime);
+
     // Fullscreen
     if (!System.getProperty("os.name").equals("Mac OS X")) {
       jMenuItemFullscreen = new JMenuItem("Fullscreen");
@@ -571,9 +655,49 @@ public class Lemmini extends JFrame implements KeyListener {
   /**
    * The main function. Entry point of the program.
    *
+   * <p>Use "-verify &lt;folder&gt;" to verify all replays in a folder without starting the game.
+   * Use "-benchmark [level pack] [number of levels]" to run the simulation benchmarks. Use "-solve
+   * &lt;folder&gt; &lt;level pack&gt; [difficulty level] [level number]" to search solutions for
+   * levels and write them as replays into a folder.
+   *
    * @param args
    */
   public static void main(final String[] args) {
+    if (args.length >= 1 && args[0].equals("-benchmark")) {
+      try {
+        Benchmark.run(
+            (args.length > 1) ? args[1] : null,
+            (args.length > 2) ? getInt(args[2]) : 5,
+            System.out);
+        System.exit(0);
+      } catch (LemmException | ResourceException ex) {
+        System.err.println(ex.getMessage());
+        System.exit(2);
+      }
+    }
+    if (args.length == 2 && args[0].equals("-verify")) {
+      try {
+        System.exit(ReplayVerifier.run(new File(args[1]), System.out) ? 0 : 1);
+      } catch (LemmException | ResourceException ex) {
+        System.err.println(ex.getMessage());
+        System.exit(2);
+      }
+    }
+    if (args.length >= 3 && args.length <= 5 && args[0].equals("-solve")) {
+      try {
+        boolean solved =
+            LevelSolver.run(
+                new File(args[1]),
+                args[2],
+                (args.length > 3) ? args[3] : null,
+                (args.length > 4) ? getInt(args[4]) : 0,
+                System.out);
+        System.exit(solved ? 0 : 1);
+      } catch (LemmException | ResourceException ex) {
+        System.err.println(ex.getMessage());
+        System.exit(2);
+      }
+    }
     /*
      * Set "Look and Feel" to system default
      */
@@ -654,6 +778,7 @@ public class Lemmini extends JFrame implements KeyListener {
    */
   private void updateLevelMenu(final String pack, final String diff, final BigInteger bf) {
     ArrayList<LvlMenuItem> menuItems = diffLevelMenus.get(LevelPack.getID(pack, diff));
+    if (menuItems == null) return; // not created yet: will be set up when it's opened
     for (int k = 0; k < menuItems.size(); k++) {
       // select level, e.g. "All fall down"
       JMenuItem level = menuItems.get(k);
@@ -774,13 +899,14 @@ public class Lemmini extends JFrame implements KeyListener {
           break;
         case KeyEvent.VK_F11:
         case KeyEvent.VK_P:
-          GameController.setPaused(!GameController.isPaused());
-          GameController.pressIcon(Icons.Type.PAUSE);
+          GameController.togglePause();
           break;
         case KeyEvent.VK_F:
         case KeyEvent.VK_ENTER:
-          GameController.setFastForward(!GameController.isFastForward());
-          GameController.pressIcon(Icons.Type.FFWD);
+          GameController.toggleFastForward();
+          break;
+        case KeyEvent.VK_BACK_SPACE:
+          GameController.rewind();
           break;
         case KeyEvent.VK_X:
           if (GameController.isCheat())
@@ -793,13 +919,11 @@ public class Lemmini extends JFrame implements KeyListener {
           {
             if (GameController.isAdvancedSelect()) gp.setCursor(LemmCursor.Type.RIGHT);
             else {
-              int xOfsTemp =
-                  GameController.getxPos()
-                      + ((GameController.isShiftPressed())
-                          ? GameController.X_STEP_FAST
-                          : GameController.X_STEP);
-              if (xOfsTemp < Level.WIDTH - getWidth()) GameController.setxPos(xOfsTemp);
-              else GameController.setxPos(Level.WIDTH - getWidth());
+              GameController.scrollBy(
+                  (GameController.isShiftPressed())
+                      ? GameController.X_STEP_FAST
+                      : GameController.X_STEP,
+                  Level.WIDTH - getWidth());
             }
             break;
           }
@@ -807,13 +931,11 @@ public class Lemmini extends JFrame implements KeyListener {
           {
             if (GameController.isAdvancedSelect()) gp.setCursor(LemmCursor.Type.LEFT);
             else {
-              int xOfsTemp =
-                  GameController.getxPos()
-                      - ((GameController.isShiftPressed())
-                          ? GameController.X_STEP_FAST
-                          : GameController.X_STEP);
-              if (xOfsTemp > 0) GameController.setxPos(xOfsTemp);
-              else GameController.setxPos(0);
+              GameController.scrollBy(
+                  (GameController.isShiftPressed())
+                      ? -GameController.X_STEP_FAST
+                      : -GameController.X_STEP,
+                  Integer.MAX_VALUE);
             }
             break;
           }
@@ -982,35 +1104,63 @@ public class Lemmini extends JFrame implements KeyListener {
     Core.saveProps();
   }
 
-  /** Make the Level Pack Menu */
+  /**
+   * Make the Level Pack Menu. The level items of a difficulty level are only created when its menu
+   * is opened for the first time.
+   */
   private JMenu makeLevelPackMenu(int lp) {
     LevelPack lPack = GameController.getLevelPack(lp);
     JMenu jMenuPack = new JMenu(lPack.getName());
 
     int i = 0;
     for (String difficulty : lPack.getDiffLevels()) {
-      // get activated levels for this group
-      BigInteger bf = Core.player.getBitField(lPack.getName(), difficulty);
-      ArrayList<String> names = lPack.getLevels(i);
       JMenu jMenuDiff = new JMenu(difficulty);
-      // store menus to access them later
-      ArrayList<LvlMenuItem> menuItems = new ArrayList<LvlMenuItem>();
-      for (int n = 0; n < names.size(); n++) {
-        LvlMenuItem jMenuLvl = new LvlMenuItem(names.get(n), lp, i, n);
-        jMenuLvl.addActionListener(lvlListener);
-        if (Core.player.isAvailable(bf, n)) jMenuLvl.setEnabled(true);
-        else jMenuLvl.setEnabled(false);
-        jMenuDiff.add(jMenuLvl);
-        menuItems.add(jMenuLvl);
-      }
+      int diff = i;
+      jMenuDiff.addMenuListener(
+          new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+              if (jMenuDiff.getItemCount() == 0) makeDiffLevelMenu(jMenuDiff, lp, diff);
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {}
+
+            @Override
+            public void menuCanceled(MenuEvent e) {}
+          });
       jMenuPack.add(jMenuDiff);
-      // store menus to access them later
-      diffLevelMenus.put(LevelPack.getID(lPack.getName(), difficulty), menuItems);
       i++;
     }
     return jMenuPack;
   }
 
+  /**
+   * Fill the menu of a difficulty level with the level items.
+   *
+   * @param jMenuDiff menu of the difficulty level
+   * @param lp index of level pack
+   * @param diff index of difficulty level
+   */
+  private void makeDiffLevelMenu(final JMenu jMenuDiff, final int lp, final int diff) {
+    LevelPack lPack = GameController.getLevelPack(lp);
+    String difficulty = lPack.getDiffLevels().get(diff);
+    // get activated levels for this group
+    BigInteger bf = Core.player.getBitField(lPack.getName(), difficulty);
+    ArrayList<String> names = lPack.getLevels(diff);
+    ArrayList<LvlMenuItem> menuItems = new ArrayList<LvlMenuItem>();
+    for (int n = 0; n < names.size(); n++) {
+      LvlMenuItem jMenuLvl = new LvlMenuItem(names.get(n), lp, diff, n);
+      jMenuLvl.addActionListener(lvlListener);
+      if (Core.player.isAvailable(bf, n)) jMenuLvl.setEnabled(true);
+      else jMenuLvl.setEnabled(false);
+      jMenuDiff.add(jMenuLvl);
+      menuItems.add(jMenuLvl);
+    }
+    // store menus to access them later
+    diffLevelMenus.put(LevelPack.getID(lPack.getName(), difficulty), menuItems);
+  }
+
   /**
    * Listener to inform the GUI of the player's progress.
    *
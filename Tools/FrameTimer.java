@@ -0,0 +1,96 @@
+package Tools;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures the duration of a repeated task (e.g. drawing a frame) and averages it over a fixed
+ * number of samples. Thread safe, so the task may be measured in one thread and displayed in
+ * another.
+ */
+public class FrameTimer {
+  /** number of samples averaged */
+  private final int numSamples;
+
+  /** start time of the current measurement in nanoseconds */
+  private long start;
+
+  /** sum of the durations of the current samples in nanoseconds */
+  private long sum;
+
+  /** maximum duration of the current samples in nanoseconds */
+  private long max;
+
+  /** number of samples measured so far */
+  private int count;
+
+  /** average duration of the last complete set of samples in nanoseconds */
+  private long average;
+
+  /** maximum duration of the last complete set of samples in nanoseconds */
+  private long peak;
+
+  /**
+   * Constructor.
+   *
+   * @param samples number of samples to average
+   */
+  public FrameTimer(final int samples) {
+    numSamples = samples;
+  }
+
+  /** Start a measurement. */
+  public synchronized void start() {
+    start = System.nanoTime();
+  }
+
+  /** Stop a measurement and add it to the samples. */
+  public synchronized void stop() {
+    long d = System.nanoTime() - start;
+    sum += d;
+    if (d > max) max = d;
+    if (++count == numSamples) {
+      average = sum / count;
+      peak = max;
+      sum = 0;
+      max = 0;
+      count = 0;
+    }
+  }
+
+  /**
+   * Get average duration of the last complete set of samples.
+   *
+   * @return duration in milliseconds
+   */
+  public synchronized double getAverageMillis() {
+    return average / 1000000.0;
+  }
+
+  /**
+   * Get maximum duration of the last complete set of samples.
+   *
+   * @return duration in milliseconds
+   */
+  public synchronized double getPeakMillis() {
+    return peak / 1000000.0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("%.2fms (max %.2fms)", getAverageMillis(), getPeakMillis());
+  }
+}
@@ -5,9 +5,13 @@ import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
+import java.awt.Transparency;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileInputStream;
 import java.nio.file.Path;
@@ -39,10 +43,13 @@ import javax.swing.JOptionPane;
  */
 public class ToolBox {
 
+  /** graphics configuration of the screen (null if running without a display) */
   private static GraphicsConfiguration gc =
-      GraphicsEnvironment.getLocalGraphicsEnvironment()
-          .getDefaultScreenDevice()
-          .getDefaultConfiguration();
+      GraphicsEnvironment.isHeadless()
+          ? null
+          : GraphicsEnvironment.getLocalGraphicsEnvironment()
+              .getDefaultScreenDevice()
+              .getDefaultConfiguration();
 
   /**
    * Create a compatible buffered image.
@@ -54,10 +61,65 @@ public class ToolBox {
    */
   public static BufferedImage createImage(
       final int width, final int height, final int transparency) {
+    if (gc == null) {
+      // no display: use plain RGB/ARGB images
+      int type =
+          (transparency == Transparency.OPAQUE)
+              ? BufferedImage.TYPE_INT_RGB
+              : BufferedImage.TYPE_INT_ARGB;
+      return new BufferedImage(width, height, type);
+    }
     BufferedImage b = gc.createCompatibleImage(width, height, transparency);
     return b;
   }
 
+  /**
+   * Get the pixel array of an ARGB image for direct access. Note that Java2D can't accelerate an
+   * image any more once its pixel array was accessed: the image stays unmanaged (never cached in
+   * video memory) for its whole lifetime. This is only used for images which are mostly changed
+   * pixel by pixel and whose changed parts are copied into a managed image before they are shown
+   * (see {@link Game.LevelRenderer}).
+   *
+   * @param img image
+   * @return pixel array (one ARGB value per pixel, lines of image width) or null if the image
+   *     doesn't use such a raster
+   */
+  public static int[] getPixels(final BufferedImage img) {
+    if (img.getType() != BufferedImage.TYPE_INT_ARGB) return null;
+    WritableRaster r = img.getRaster();
+    if (!(r.getDataBuffer() instanceof DataBufferInt)
+        || !(r.getSampleModel() instanceof SinglePixelPackedSampleModel)
+        || r.getSampleModelTranslateX() != 0
+        || r.getSampleModelTranslateY() != 0) return null;
+    SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) r.getSampleModel();
+    DataBufferInt db = (DataBufferInt) r.getDataBuffer();
+    if (sm.getScanlineStride() != img.getWidth() || db.getNumBanks() != 1 || db.getOffset() != 0)
+      return null;
+    return db.getData();
+  }
+
+  /**
+   * Copy the pixels of an image into another image of the same size and format.
+   *
+   * @param src image to copy
+   * @param dst image to reuse (may be null)
+   * @return dst or a new image if dst was null or didn't match
+   */
+  public static BufferedImage copyImage(final BufferedImage src, BufferedImage dst) {
+    if (dst == null
+        || dst.getWidth() != src.getWidth()
+        || dst.getHeight() != src.getHeight()
+        || !dst.getColorModel().equals(src.getColorModel()))
+      dst =
+          new BufferedImage(
+              src.getColorModel(),
+              src.getRaster().createCompatibleWritableRaster(),
+              src.isAlphaPremultiplied(),
+              null);
+    src.copyData(dst.getRaster());
+    return dst;
+  }
+
   /**
    * Create a compatible buffered image from an image.
    *
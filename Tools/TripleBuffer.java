@@ -0,0 +1,91 @@
+package Tools;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Copyright 2026 Lemmini contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Lock-free triple buffer to hand over data from one producer thread to one consumer thread.
+ *
+ * <p>The producer fills the back buffer and publishes it, the consumer takes the latest published
+ * buffer. Neither side ever waits for the other one: the producer always has a buffer to fill and
+ * the consumer keeps the buffer it took until it takes a newer one. Buffers which were published
+ * but not taken before the next one was published are skipped.
+ *
+ * @param <T> buffer type
+ */
+public class TripleBuffer<T> {
+  /** flag in the state: the middle buffer was published and not taken yet */
+  private static final int FRESH = 4;
+
+  /** the three buffers */
+  private final Object buffers[];
+
+  /** index of the middle buffer plus the FRESH flag */
+  private final AtomicInteger middle;
+
+  /** index of the buffer owned by the producer */
+  private int back;
+
+  /** index of the buffer owned by the consumer */
+  private int front;
+
+  /**
+   * Constructor.
+   *
+   * @param factory creates the three buffers
+   */
+  public TripleBuffer(final Supplier<T> factory) {
+    buffers = new Object[] {factory.get(), factory.get(), factory.get()};
+    back = 0;
+    middle = new AtomicInteger(1);
+    front = 2;
+  }
+
+  /**
+   * Get the buffer to fill. Producer only.
+   *
+   * @return back buffer
+   */
+  @SuppressWarnings("unchecked")
+  public T getBack() {
+    return (T) buffers[back];
+  }
+
+  /**
+   * Publish the back buffer. The producer gets another buffer to fill. Producer only.
+   *
+   * @return true if the previously published buffer was taken, false if it was skipped
+   */
+  public boolean publish() {
+    int old = middle.getAndSet(back | FRESH);
+    back = old & ~FRESH;
+    return (old & FRESH) == 0;
+  }
+
+  /**
+   * Take the latest published buffer. Consumer only.
+   *
+   * @return latest published buffer or the buffer taken before if nothing new was published
+   */
+  @SuppressWarnings("unchecked")
+  public T take() {
+    if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & ~FRESH;
+    return (T) buffers[front];
+  }
+}
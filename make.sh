@@ -46,6 +46,16 @@ make_jar()
 	fi
 }
 
+run_benchmark()
+{
+	if ! [ -d build ]; then
+		compile_java
+	fi
+
+	echo Running Benchmarks...
+	java -cp ".:build" -Djava.awt.headless=true Lemmini -benchmark "$@"
+}
+
 run_java()
 {
 	if ! [ -d build ]; then
@@ -148,6 +158,8 @@ install     Move the app to the /Applications folder
 Other Commands:
 test        Delete the existing build, compile and run
 run         Compile (if necessary) and run
+bench       Compile (if necessary) and run the simulation benchmarks
+            Optional arguments: level pack name, number of levels
 
 EOF
 
@@ -163,6 +175,9 @@ fi
 
 if [ "$1" = "run" ]; then
 	run_java
+elif [ "$1" = "bench" ]; then
+	shift
+	run_benchmark "$@"
 elif [ "$1" = "jar" ]; then
 	make_jar
 elif [ "$1" = "app" ]; then